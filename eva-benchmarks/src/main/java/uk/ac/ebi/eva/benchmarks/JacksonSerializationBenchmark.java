@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.DBObject;
+import org.opencb.datastore.core.QueryResponse;
+import org.opencb.datastore.core.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ebi.eva.commons.models.converters.data.DBObjectToVariantEntityConverter;
+import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.server.ws.EvaWSServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a page of variants wrapped in the QueryResponse envelope, using the same mixins and serializers
+ * that EvaWSServer registers for the web services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private QueryResponse<QueryResult<VariantEntity>> queryResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new EvaWSServer().jacksonBuilder().build();
+
+        DBObjectToVariantEntityConverter converter = new DBObjectToVariantEntityConverter();
+        List<VariantEntity> variants = new ArrayList<>(pageSize);
+        for (DBObject document : TestVariants.load()) {
+            if (variants.size() == pageSize) {
+                break;
+            }
+            variants.add(converter.convert(document));
+        }
+
+        QueryResult<VariantEntity> queryResult = new QueryResult<>();
+        queryResult.setResult(variants);
+        queryResult.setNumResults(variants.size());
+        queryResult.setNumTotalResults(variants.size());
+
+        queryResponse = new QueryResponse<>();
+        queryResponse.setApiVersion("v1");
+        queryResponse.setResponse(Collections.singletonList(queryResult));
+    }
+
+    @Benchmark
+    public byte[] serializeVariants() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(queryResponse);
+    }
+}
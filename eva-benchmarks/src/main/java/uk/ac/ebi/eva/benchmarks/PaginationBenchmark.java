@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import uk.ac.ebi.eva.server.Utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page request and page token handling used by the GA4GH and the /v1 endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int LIMIT = 100;
+
+    private static final String PAGE_TOKEN = "42";
+
+    private static final long NUM_TOTAL_RESULTS = 1000000;
+
+    private final PageRequest pageRequest = new PageRequest(42, LIMIT);
+
+    @Benchmark
+    public PageRequest getPageRequestFromToken() {
+        return Utils.getPageRequest(LIMIT, PAGE_TOKEN);
+    }
+
+    @Benchmark
+    public PageRequest getPageRequestFromSkip() {
+        return Utils.getPageRequest(LIMIT, 4200);
+    }
+
+    @Benchmark
+    public String getNextPageToken() {
+        return Utils.getNextPageToken(pageRequest, LIMIT, NUM_TOTAL_RESULTS);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Loads the variant documents of the eva-lib test dataset, which is copied into the benchmarks jar at build time.
+ */
+class TestVariants {
+
+    private static final String RESOURCE = "/test-data/variants.json";
+
+    private static final String COLLECTION = "variants_1_2";
+
+    static List<DBObject> load() throws IOException {
+        try (InputStream inputStream = TestVariants.class.getResourceAsStream(RESOURCE)) {
+            if (inputStream == null) {
+                throw new IOException("Resource " + RESOURCE + " not found in the classpath");
+            }
+            String json = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+            DBObject dataset = (DBObject) JSON.parse(json);
+            BasicDBList variants = (BasicDBList) dataset.get(COLLECTION);
+
+            List<DBObject> documents = new ArrayList<>(variants.size());
+            for (Object variant : variants) {
+                documents.add((DBObject) variant);
+            }
+            return documents;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import uk.ac.ebi.eva.lib.filter.FilterBuilder;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryMafFilter;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryPolyphenFilter;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositorySiftFilter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter construction as done by the region, gene and variant endpoints: parsing of the relational filters given as
+ * strings (maf, polyphen and sift), the FilterBuilder chain, and the conversion of the filters to Mongo criteria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantEntityRepositoryFilterBenchmark {
+
+    private static final String MAF = "<=0.2";
+
+    private static final String POLYPHEN = ">0.5";
+
+    private static final String SIFT = "<0.05";
+
+    private static final List<String> STUDIES = Arrays.asList("PRJEB5829", "PRJEB6930");
+
+    private static final List<String> CONSEQUENCE_TYPES = Arrays.asList("SO:0001583", "SO:0001587");
+
+    private List<VariantEntityRepositoryFilter> filters;
+
+    @Setup
+    public void setUp() {
+        filters = new FilterBuilder().getVariantEntityRepositoryFilters(MAF, POLYPHEN, SIFT, STUDIES,
+                                                                        CONSEQUENCE_TYPES);
+    }
+
+    @Benchmark
+    public void parseDoubleFilters(Blackhole blackhole) {
+        blackhole.consume(new VariantEntityRepositoryMafFilter(MAF));
+        blackhole.consume(new VariantEntityRepositoryPolyphenFilter(POLYPHEN));
+        blackhole.consume(new VariantEntityRepositorySiftFilter(SIFT));
+    }
+
+    @Benchmark
+    public List<VariantEntityRepositoryFilter> buildFilters() {
+        return new FilterBuilder().getVariantEntityRepositoryFilters(MAF, POLYPHEN, SIFT, STUDIES, CONSEQUENCE_TYPES);
+    }
+
+    @Benchmark
+    public void getCriteria(Blackhole blackhole) {
+        for (VariantEntityRepositoryFilter filter : filters) {
+            Criteria criteria = filter.getCriteria();
+            blackhole.consume(criteria);
+        }
+    }
+
+    @Benchmark
+    public void buildFiltersAndGetCriteria(Blackhole blackhole) {
+        List<VariantEntityRepositoryFilter> builtFilters = new FilterBuilder().getVariantEntityRepositoryFilters(
+                MAF, POLYPHEN, SIFT, STUDIES, CONSEQUENCE_TYPES);
+        for (VariantEntityRepositoryFilter filter : builtFilters) {
+            blackhole.consume(filter.getCriteria());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.data;
+
+import uk.ac.ebi.eva.benchmarks.CommandLineArguments;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distributions used by {@link SyntheticVariantGenerator}. The defaults produce about 3 million variants over the
+ * GRCh37 chromosomes, found in 2 studies on average, with the 1000 Genomes cohort layout.
+ */
+public class SyntheticDataConfiguration {
+
+    static final String GRCH37_CHROMOSOMES = "1:249250621,2:243199373,3:198022430,4:191154276,5:180915260," +
+            "6:171115067,7:159138663,8:146364022,9:141213431,10:135534747,11:135006516,12:133851895,13:115169878," +
+            "14:107349540,15:102531392,16:90354753,17:81195210,18:78077248,19:59128983,20:63025520,21:48129895," +
+            "22:51304566,X:155270560,Y:59373566";
+
+    static final List<String> DEFAULT_COHORTS = Arrays.asList("ALL", "AFR", "AMR", "EAS", "EUR", "SAS");
+
+    private final Map<String, Integer> chromosomeLengths;
+
+    private final Map<String, Double> variantsPerMegabase;
+
+    private final double defaultVariantsPerMegabase;
+
+    private final int numStudies;
+
+    private final double meanStudiesPerVariant;
+
+    private final int samplesPerStudy;
+
+    private final double genotypedFileFraction;
+
+    private final List<String> cohorts;
+
+    private final double indelFraction;
+
+    private final double annotatedFraction;
+
+    private final int geneLength;
+
+    private final long seed;
+
+    public SyntheticDataConfiguration(CommandLineArguments arguments) {
+        chromosomeLengths = new LinkedHashMap<>();
+        arguments.getMap("chromosomes", GRCH37_CHROMOSOMES)
+                 .forEach((chromosome, length) -> chromosomeLengths.put(chromosome, Integer.parseInt(length)));
+
+        variantsPerMegabase = new LinkedHashMap<>();
+        Map<String, String> densities = arguments.getMap("density", "1000");
+        densities.forEach((chromosome, density) -> {
+            if (chromosome != null) {
+                variantsPerMegabase.put(chromosome, Double.parseDouble(density));
+            }
+        });
+        defaultVariantsPerMegabase = Double.parseDouble(densities.getOrDefault(null, "1000"));
+
+        numStudies = arguments.getInt("studies", 10);
+        meanStudiesPerVariant = Math.min(arguments.getDouble("studies-per-variant", 2), numStudies);
+        samplesPerStudy = arguments.getInt("samples", 1000);
+        genotypedFileFraction = arguments.getDouble("genotyped-fraction", 0.25);
+        cohorts = Collections.unmodifiableList(Arrays.asList(
+                arguments.getString("cohorts", String.join(",", DEFAULT_COHORTS)).split(",")));
+        indelFraction = arguments.getDouble("indel-fraction", 0.1);
+        annotatedFraction = arguments.getDouble("annotated-fraction", 1.0);
+        geneLength = arguments.getInt("gene-length", 50000);
+        seed = arguments.getLong("seed", 42);
+
+        if (numStudies < 1 || samplesPerStudy < 1 || cohorts.isEmpty() || !cohorts.contains("ALL")) {
+            throw new IllegalArgumentException("At least one study and one sample are needed, and the cohorts must " +
+                                                       "include ALL");
+        }
+    }
+
+    public Map<String, Integer> getChromosomeLengths() {
+        return Collections.unmodifiableMap(chromosomeLengths);
+    }
+
+    public double getVariantsPerMegabase(String chromosome) {
+        return variantsPerMegabase.getOrDefault(chromosome, defaultVariantsPerMegabase);
+    }
+
+    public long getExpectedNumberOfVariants() {
+        double variants = 0;
+        for (Map.Entry<String, Integer> chromosome : chromosomeLengths.entrySet()) {
+            variants += getVariantsPerMegabase(chromosome.getKey()) * chromosome.getValue() / 1000000;
+        }
+        return (long) variants;
+    }
+
+    public int getNumStudies() {
+        return numStudies;
+    }
+
+    public double getMeanStudiesPerVariant() {
+        return meanStudiesPerVariant;
+    }
+
+    public int getSamplesPerStudy() {
+        return samplesPerStudy;
+    }
+
+    public double getGenotypedFileFraction() {
+        return genotypedFileFraction;
+    }
+
+    public List<String> getCohorts() {
+        return cohorts;
+    }
+
+    public double getIndelFraction() {
+        return indelFraction;
+    }
+
+    public double getAnnotatedFraction() {
+        return annotatedFraction;
+    }
+
+    public int getGeneLength() {
+        return geneLength;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
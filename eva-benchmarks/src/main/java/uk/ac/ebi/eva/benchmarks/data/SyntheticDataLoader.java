@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.data;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.eva.benchmarks.CommandLineArguments;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loads synthetic variants into a local MongoDB, so that the web services can be tested with production-sized
+ * collections. Besides the variants and files collections, it writes a sample of the generated variants to a
+ * tab-separated file that the {@link uk.ac.ebi.eva.benchmarks.load.LoadDriver} uses to build its requests.
+ *
+ * Example: java -cp benchmarks.jar uk.ac.ebi.eva.benchmarks.data.SyntheticDataLoader
+ * --database=eva_hsapiens_grch37 --density=1000,1:2000 --studies=20 --samples=2500
+ */
+public class SyntheticDataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataLoader.class);
+
+    static final String SAMPLE_HEADER = "#chr\tstart\tend\tref\talt\ttype\tid\tgene\tstudies";
+
+    private final MongoDatabase database;
+
+    private final String variantsCollectionName;
+
+    private final String filesCollectionName;
+
+    private final int batchSize;
+
+    private final String sampleFile;
+
+    private final int sampleSize;
+
+    public SyntheticDataLoader(MongoDatabase database, CommandLineArguments arguments) {
+        this.database = database;
+        this.variantsCollectionName = arguments.getString("variants-collection", "variants_1_2");
+        this.filesCollectionName = arguments.getString("files-collection", "files_1_2");
+        this.batchSize = arguments.getInt("batch-size", 1000);
+        this.sampleFile = arguments.getString("sample-file", "synthetic-variants.tsv");
+        this.sampleSize = arguments.getInt("sample-size", 10000);
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        SyntheticDataConfiguration configuration = new SyntheticDataConfiguration(arguments);
+
+        MongoClient mongoClient = new MongoClient(new MongoClientURI(arguments.getString("mongo-uri",
+                                                                                         "mongodb://localhost:27017")));
+        try {
+            MongoDatabase database = mongoClient.getDatabase(arguments.getString("database", "eva_hsapiens_grch37"));
+            SyntheticDataLoader loader = new SyntheticDataLoader(database, arguments);
+            if (arguments.getBoolean("drop", false)) {
+                loader.drop();
+            }
+            loader.load(new SyntheticVariantGenerator(configuration), configuration);
+        } finally {
+            mongoClient.close();
+        }
+    }
+
+    public void drop() {
+        database.getCollection(variantsCollectionName).drop();
+        database.getCollection(filesCollectionName).drop();
+    }
+
+    public void load(SyntheticVariantGenerator generator, SyntheticDataConfiguration configuration)
+            throws IOException {
+        database.getCollection(filesCollectionName).insertMany(generator.generateFiles());
+
+        MongoCollection<Document> variants = database.getCollection(variantsCollectionName);
+        VariantSampler sampler = new VariantSampler(sampleSize, configuration.getSeed(),
+                                                    configuration.getGeneLength());
+        List<Document> batch = new ArrayList<>(batchSize);
+        long[] loaded = {0};
+        long expected = configuration.getExpectedNumberOfVariants();
+        long startTime = System.currentTimeMillis();
+
+        for (String chromosome : configuration.getChromosomeLengths().keySet()) {
+            generator.generateChromosome(chromosome, variant -> {
+                sampler.accept(variant);
+                batch.add(variant);
+                if (batch.size() == batchSize) {
+                    insert(variants, batch);
+                    loaded[0] += batchSize;
+                    if (loaded[0] % (100 * batchSize) == 0) {
+                        logger.info("Loaded {} of ~{} variants", loaded[0], expected);
+                    }
+                }
+            });
+        }
+        loaded[0] += batch.size();
+        insert(variants, batch);
+
+        logger.info("Loaded {} variants in {} s, creating indexes", loaded[0],
+                    (System.currentTimeMillis() - startTime) / 1000);
+        createIndexes(variants);
+
+        sampler.write(sampleFile);
+        logger.info("Wrote a sample of {} variants to {}", sampler.size(), sampleFile);
+    }
+
+    private static void insert(MongoCollection<Document> variants, List<Document> batch) {
+        if (!batch.isEmpty()) {
+            variants.insertMany(batch, new InsertManyOptions().ordered(false));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Indexes on the fields queried by the web services.
+     */
+    private static void createIndexes(MongoCollection<Document> variants) {
+        IndexOptions background = new IndexOptions().background(true);
+        variants.createIndex(new Document("chr", 1).append("start", 1).append("end", 1), background);
+        variants.createIndex(new Document("ids", 1), background);
+        variants.createIndex(new Document("_at.chunkIds", 1), background);
+        variants.createIndex(new Document("hgvs.name", 1), background);
+        variants.createIndex(new Document("annot.xrefs.id", 1), background);
+        variants.createIndex(new Document("files.sid", 1).append("files.fid", 1), background);
+    }
+
+    /**
+     * Reservoir sample of the generated variants, uniform over all the chromosomes.
+     */
+    static class VariantSampler {
+
+        private final int capacity;
+
+        private final Random random;
+
+        private final int geneLength;
+
+        private final List<String> lines;
+
+        private long seen;
+
+        VariantSampler(int capacity, long seed, int geneLength) {
+            this.capacity = capacity;
+            this.random = new Random(seed);
+            this.geneLength = geneLength;
+            this.lines = new ArrayList<>(capacity);
+        }
+
+        void accept(Document variant) {
+            seen++;
+            if (lines.size() < capacity) {
+                lines.add(toLine(variant));
+            } else {
+                long index = (long) (random.nextDouble() * seen);
+                if (index < capacity) {
+                    lines.set((int) index, toLine(variant));
+                }
+            }
+        }
+
+        int size() {
+            return lines.size();
+        }
+
+        void write(String path) throws IOException {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(path),
+                                                                              StandardCharsets.UTF_8))) {
+                writer.println(SAMPLE_HEADER);
+                lines.forEach(writer::println);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private String toLine(Document variant) {
+            String chromosome = variant.getString("chr");
+            int start = variant.getInteger("start");
+            String gene = SyntheticVariantGenerator.isGenic(start, geneLength) ?
+                    SyntheticVariantGenerator.getGeneName(chromosome, start / geneLength) : "-";
+
+            List<String> studies = new ArrayList<>();
+            for (Document file : (List<Document>) variant.get("files")) {
+                studies.add(file.getString("sid"));
+            }
+
+            return String.join("\t", chromosome, String.valueOf(start), String.valueOf(variant.getInteger("end")),
+                               variant.getString("ref"), variant.getString("alt"), variant.getString("type"),
+                               ((List<String>) variant.get("ids")).get(0), gene, String.join(",", studies));
+        }
+    }
+}
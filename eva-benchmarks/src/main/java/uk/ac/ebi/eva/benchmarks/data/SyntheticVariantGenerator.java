@@ -0,0 +1,453 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.data;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Generates variant and file documents with the same schema as the ones loaded by the EVA pipeline (see
+ * test-data/variants.json and test-data/files.json in eva-lib): chunk IDs in "_at", one entry per study in "files"
+ * with the genotypes in "samp" and the INFO attributes in "attrs", statistics per study and cohort in "st",
+ * consequence types and cross-references in "annot", and genomic HGVS names.
+ *
+ * Positions are drawn with exponentially distributed gaps, so the variants of a chromosome are generated already
+ * sorted by start and can be streamed to the database without holding them in memory. Most alternate alleles are
+ * rare, as in real datasets.
+ */
+public class SyntheticVariantGenerator {
+
+    static final String VARIANT_SOURCE_ENTITY_CLASS = "uk.ac.ebi.eva.commons.models.data.VariantSourceEntity";
+
+    static final String REFERENCE_GENOTYPE = "0|0";
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+
+    private static final int MAX_INDEL_LENGTH = 10;
+
+    private static final int MISSENSE_VARIANT = 1583;
+
+    private static final int SYNONYMOUS_VARIANT = 1819;
+
+    private static final int FRAMESHIFT_VARIANT = 1589;
+
+    private static final int[] NON_CODING_CONSEQUENCE_TYPES = {1627, 1624, 1623, 1631, 1632};
+
+    private static final int INTERGENIC_VARIANT = 1628;
+
+    private final SyntheticDataConfiguration configuration;
+
+    private final int numGenotypedStudies;
+
+    private long nextRsId = 1;
+
+    private long nextSsId = 1;
+
+    public SyntheticVariantGenerator(SyntheticDataConfiguration configuration) {
+        this.configuration = configuration;
+        this.numGenotypedStudies = (int) Math.round(configuration.getGenotypedFileFraction() *
+                                                            configuration.getNumStudies());
+    }
+
+    public static String getStudyId(int study) {
+        return String.format("PRJSYN%05d", study);
+    }
+
+    public static String getFileId(int study) {
+        return String.format("SYNF%05d", study);
+    }
+
+    public static String getSampleName(int study, int sample) {
+        return String.format("SYN%05d_S%06d", study, sample);
+    }
+
+    public static String getGeneName(String chromosome, int geneIndex) {
+        return "SYN" + chromosome + "G" + geneIndex;
+    }
+
+    public static String getVariantId(String chromosome, int start, String reference, String alternate) {
+        return chromosome + "_" + start + "_" + reference + "_" + alternate;
+    }
+
+    /**
+     * Genes only cover every other window of "gene-length" bases, so that part of the variants are intergenic.
+     */
+    public static boolean isGenic(int start, int geneLength) {
+        return (start / geneLength) % 2 == 0;
+    }
+
+    /**
+     * One VariantSourceEntity per study. Only the studies with genotypes have samples.
+     */
+    public List<Document> generateFiles() {
+        List<Document> files = new ArrayList<>();
+        for (int study = 0; study < configuration.getNumStudies(); study++) {
+            boolean genotyped = isGenotyped(study);
+            Document samples = new Document();
+            if (genotyped) {
+                for (int sample = 0; sample < configuration.getSamplesPerStudy(); sample++) {
+                    samples.append(getSampleName(study, sample), sample);
+                }
+            }
+            Document file = new Document("_class", VARIANT_SOURCE_ENTITY_CLASS)
+                    .append("fid", getFileId(study))
+                    .append("fname", getFileId(study) + ".vcf.gz")
+                    .append("sid", getStudyId(study))
+                    .append("sname", "Synthetic study " + study)
+                    .append("stype", "COLLECTION")
+                    .append("aggregation", genotyped ? "NONE" : "BASIC")
+                    .append("samp", samples)
+                    .append("meta", new Document("EVA_TaxID", Arrays.asList("9606")))
+                    .append("st", new Document("nSamp", genotyped ? configuration.getSamplesPerStudy() : 0));
+            files.add(file);
+        }
+        return files;
+    }
+
+    public void generateChromosome(String chromosome, Consumer<Document> consumer) {
+        int length = configuration.getChromosomeLengths().get(chromosome);
+        double meanGap = 1000000 / configuration.getVariantsPerMegabase(chromosome);
+        SplittableRandom random = new SplittableRandom(configuration.getSeed() ^ chromosome.hashCode());
+
+        int start = 0;
+        while (true) {
+            start += 1 + (int) (-Math.log(1 - random.nextDouble()) * meanGap);
+            if (start > length) {
+                return;
+            }
+            consumer.accept(generateVariant(chromosome, start, random));
+        }
+    }
+
+    private boolean isGenotyped(int study) {
+        return study < numGenotypedStudies;
+    }
+
+    private Document generateVariant(String chromosome, int start, SplittableRandom random) {
+        String reference;
+        String alternate;
+        String type;
+        if (random.nextDouble() < configuration.getIndelFraction()) {
+            type = "INDEL";
+            String bases = randomBases(1 + (int) (-Math.log(1 - random.nextDouble()) * 2) % MAX_INDEL_LENGTH,
+                                       random);
+            boolean deletion = random.nextBoolean();
+            reference = deletion ? bases : "";
+            alternate = deletion ? "" : bases;
+        } else {
+            type = "SNV";
+            int referenceBase = random.nextInt(BASES.length);
+            reference = BASES[referenceBase];
+            alternate = BASES[(referenceBase + 1 + random.nextInt(BASES.length - 1)) % BASES.length];
+        }
+        int length = Math.max(reference.length(), alternate.length());
+        int end = reference.isEmpty() ? start : start + reference.length() - 1;
+
+        List<String> ids = new ArrayList<>();
+        ids.add("rs" + nextRsId++);
+
+        List<Document> files = new ArrayList<>();
+        List<Document> statistics = new ArrayList<>();
+        for (int study : pickStudies(random)) {
+            ids.add("ss" + nextSsId++);
+            double alleleFrequency = Math.max(0.5 * Math.pow(random.nextDouble(), 4),
+                                              1.0 / (2 * configuration.getSamplesPerStudy()));
+            if (isGenotyped(study)) {
+                addGenotypedStudy(study, alleleFrequency, reference, alternate, files, statistics, random);
+            } else {
+                addAggregatedStudy(study, alleleFrequency, reference, alternate, files, statistics);
+            }
+        }
+
+        Document variant = new Document("_id", getVariantId(chromosome, start, reference, alternate))
+                .append("chr", chromosome)
+                .append("start", start)
+                .append("end", end)
+                .append("len", length)
+                .append("ref", reference)
+                .append("alt", alternate)
+                .append("type", type)
+                .append("ids", ids)
+                .append("_at", new Document("chunkIds", getChunkIds(chromosome, start, end)))
+                .append("hgvs", Arrays.asList(new Document("type", "genomic")
+                                                      .append("name", getHgvs(chromosome, start, end, reference,
+                                                                              alternate))))
+                .append("files", files)
+                .append("st", statistics);
+
+        if (random.nextDouble() < configuration.getAnnotatedFraction()) {
+            variant.append("annot", generateAnnotation(chromosome, start, type, random));
+        }
+        return variant;
+    }
+
+    private List<Integer> pickStudies(SplittableRandom random) {
+        int numStudies = configuration.getNumStudies();
+        double extraStudiesProbability = 1 - 1 / configuration.getMeanStudiesPerVariant();
+        int count = 1;
+        while (count < numStudies && random.nextDouble() < extraStudiesProbability) {
+            count++;
+        }
+
+        List<Integer> studies = new ArrayList<>(count);
+        while (studies.size() < count) {
+            int study = random.nextInt(numStudies);
+            if (!studies.contains(study)) {
+                studies.add(study);
+            }
+        }
+        return studies;
+    }
+
+    /**
+     * Genotypes are generated with skip sampling over the 2 haplotypes of every sample, so the cost is proportional
+     * to the number of alternate alleles instead of the number of samples.
+     */
+    private void addGenotypedStudy(int study, double alleleFrequency, String reference, String alternate,
+                                   List<Document> files, List<Document> statistics, SplittableRandom random) {
+        int numSamples = configuration.getSamplesPerStudy();
+        byte[] alternateAlleles = new byte[numSamples];
+        double logReferenceProbability = Math.log(1 - alleleFrequency);
+        long haplotype = -1;
+        while (true) {
+            haplotype += 1 + (long) (Math.log(1 - random.nextDouble()) / logReferenceProbability);
+            if (haplotype >= 2L * numSamples) {
+                break;
+            }
+            alternateAlleles[(int) (haplotype / 2)] |= (haplotype % 2 == 0) ? 1 : 2;
+        }
+
+        Map<String, List<Integer>> samplesByGenotype = new LinkedHashMap<>();
+        for (int sample = 0; sample < numSamples; sample++) {
+            String genotype = getGenotype(alternateAlleles[sample]);
+            if (!genotype.equals(REFERENCE_GENOTYPE)) {
+                samplesByGenotype.computeIfAbsent(genotype, key -> new ArrayList<>()).add(sample);
+            }
+        }
+
+        Document samples = new Document("def", REFERENCE_GENOTYPE);
+        samples.putAll(samplesByGenotype);
+
+        int alternateCount = 0;
+        for (byte alleles : alternateAlleles) {
+            alternateCount += Integer.bitCount(alleles);
+        }
+        files.add(new Document("sid", getStudyId(study))
+                          .append("fid", getFileId(study))
+                          .append("fm", "GT")
+                          .append("attrs", getAttributes(alternateCount, 2 * numSamples))
+                          .append("samp", samples));
+
+        List<String> cohorts = configuration.getCohorts();
+        int numPopulations = cohorts.size() - 1;
+        int populationSize = numPopulations == 0 ? numSamples : numSamples / numPopulations;
+        int populationIndex = 0;
+        for (String cohort : cohorts) {
+            int from;
+            int to;
+            if (cohort.equals("ALL")) {
+                from = 0;
+                to = numSamples;
+            } else {
+                from = populationIndex * populationSize;
+                to = (populationIndex == numPopulations - 1) ? numSamples : from + populationSize;
+                populationIndex++;
+            }
+            statistics.add(getGenotypedStatistics(study, cohort, alternateAlleles, from, to, reference, alternate));
+        }
+    }
+
+    private static String getGenotype(byte alternateAlleles) {
+        switch (alternateAlleles) {
+            case 1:
+                return "1|0";
+            case 2:
+                return "0|1";
+            case 3:
+                return "1|1";
+            default:
+                return REFERENCE_GENOTYPE;
+        }
+    }
+
+    private Document getGenotypedStatistics(int study, String cohort, byte[] alternateAlleles, int from, int to,
+                                            String reference, String alternate) {
+        int[] genotypeCounts = new int[4];
+        for (int sample = from; sample < to; sample++) {
+            genotypeCounts[alternateAlleles[sample]]++;
+        }
+        int numSamples = Math.max(to - from, 1);
+
+        Document genotypeCountsDocument = new Document();
+        String minorGenotype = null;
+        int minorGenotypeCount = Integer.MAX_VALUE;
+        int alternateCount = 0;
+        for (byte alleles = 0; alleles < genotypeCounts.length; alleles++) {
+            int count = genotypeCounts[alleles];
+            if (count > 0) {
+                genotypeCountsDocument.append(getGenotype(alleles), count);
+                if (count < minorGenotypeCount) {
+                    minorGenotype = getGenotype(alleles);
+                    minorGenotypeCount = count;
+                }
+            }
+            alternateCount += count * Integer.bitCount(alleles);
+        }
+
+        double alternateFrequency = alternateCount / (2.0 * numSamples);
+        return new Document("sid", getStudyId(study))
+                .append("fid", getFileId(study))
+                .append("cid", cohort)
+                .append("maf", Math.min(alternateFrequency, 1 - alternateFrequency))
+                .append("mafAl", alternateFrequency <= 0.5 ? alternate : reference)
+                .append("mgf", (double) minorGenotypeCount / numSamples)
+                .append("mgfGt", minorGenotype)
+                .append("numGt", genotypeCountsDocument)
+                .append("missAl", 0)
+                .append("missGt", 0);
+    }
+
+    private void addAggregatedStudy(int study, double alleleFrequency, String reference, String alternate,
+                                    List<Document> files, List<Document> statistics) {
+        int alleleNumber = 2 * configuration.getSamplesPerStudy();
+        int alternateCount = Math.max(1, (int) Math.round(alleleFrequency * alleleNumber));
+        files.add(new Document("sid", getStudyId(study))
+                          .append("fid", getFileId(study))
+                          .append("attrs", getAttributes(alternateCount, alleleNumber)));
+
+        double alternateFrequency = (double) alternateCount / alleleNumber;
+        statistics.add(new Document("sid", getStudyId(study))
+                               .append("fid", getFileId(study))
+                               .append("cid", "ALL")
+                               .append("maf", Math.min(alternateFrequency, 1 - alternateFrequency))
+                               .append("mafAl", alternateFrequency <= 0.5 ? alternate : reference)
+                               .append("mgf", -1.0)
+                               .append("mgfGt", null)
+                               .append("numGt", new Document())
+                               .append("missAl", -1)
+                               .append("missGt", -1));
+    }
+
+    private static Document getAttributes(int alternateCount, int alleleNumber) {
+        return new Document("AC", String.valueOf(alternateCount))
+                .append("AN", String.valueOf(alleleNumber))
+                .append("AF", String.format("%.4f", (double) alternateCount / alleleNumber))
+                .append("QUAL", "100.0")
+                .append("FILTER", "PASS");
+    }
+
+    private Document generateAnnotation(String chromosome, int start, String type, SplittableRandom random) {
+        List<Document> consequenceTypes = new ArrayList<>();
+        List<Document> xrefs = new ArrayList<>();
+
+        int geneLength = configuration.getGeneLength();
+        if (isGenic(start, geneLength)) {
+            int geneIndex = start / geneLength;
+            String geneName = getGeneName(chromosome, geneIndex);
+            String geneId = "ENSGSYN" + chromosome + "_" + geneIndex;
+            String strand = geneIndex % 4 == 0 ? "+" : "-";
+            xrefs.add(new Document("src", "ensemblGene").append("id", geneId));
+            xrefs.add(new Document("src", "HGNC").append("id", geneName));
+
+            int numTranscripts = 1 + random.nextInt(2);
+            for (int transcript = 0; transcript < numTranscripts; transcript++) {
+                String transcriptId = "ENSTSYN" + chromosome + "_" + geneIndex + "_" + transcript;
+                xrefs.add(new Document("src", "ensemblTranscript").append("id", transcriptId));
+
+                Document consequenceType = new Document("gn", geneName)
+                        .append("ensg", geneId)
+                        .append("enst", transcriptId)
+                        .append("strand", strand)
+                        .append("bt", "protein_coding");
+                double coding = random.nextDouble();
+                if (coding < 0.1) {
+                    addCodingConsequence(consequenceType, type, random);
+                } else {
+                    int so = NON_CODING_CONSEQUENCE_TYPES[random.nextInt(NON_CODING_CONSEQUENCE_TYPES.length)];
+                    consequenceType.append("so", Arrays.asList(so)).append("codon", "-").append("aaChange", "-");
+                }
+                consequenceTypes.add(consequenceType);
+            }
+        } else {
+            consequenceTypes.add(new Document("so", Arrays.asList(INTERGENIC_VARIANT)));
+        }
+
+        return new Document("ct", consequenceTypes).append("xrefs", xrefs);
+    }
+
+    private static void addCodingConsequence(Document consequenceType, String type, SplittableRandom random) {
+        int aminoacidPosition = 1 + random.nextInt(1000);
+        consequenceType.append("cDnaPos", 3 * aminoacidPosition + 60)
+                       .append("cdsPos", 3 * aminoacidPosition)
+                       .append("aaPos", aminoacidPosition);
+        if (type.equals("INDEL")) {
+            consequenceType.append("so", Arrays.asList(FRAMESHIFT_VARIANT)).append("codon", "-")
+                           .append("aaChange", "-");
+        } else if (random.nextBoolean()) {
+            double polyphen = random.nextDouble();
+            double sift = random.nextDouble();
+            consequenceType.append("so", Arrays.asList(MISSENSE_VARIANT))
+                           .append("codon", "gTg/gAg")
+                           .append("aaChange", "V/E")
+                           .append("polyphen", new Document("sc", polyphen)
+                                   .append("desc", polyphen > 0.85 ? "probably damaging" : "benign"))
+                           .append("sift", new Document("sc", sift)
+                                   .append("desc", sift < 0.05 ? "deleterious" : "tolerated"));
+        } else {
+            consequenceType.append("so", Arrays.asList(SYNONYMOUS_VARIANT)).append("codon", "gtG/gtA")
+                           .append("aaChange", "V");
+        }
+    }
+
+    static List<String> getChunkIds(String chromosome, int start, int end) {
+        List<String> chunkIds = new ArrayList<>(2);
+        addChunkIds(chunkIds, chromosome, start, end, 1000, "1k");
+        addChunkIds(chunkIds, chromosome, start, end, 10000, "10k");
+        return chunkIds;
+    }
+
+    private static void addChunkIds(List<String> chunkIds, String chromosome, int start, int end, int chunkSize,
+                                    String suffix) {
+        for (int chunk = start / chunkSize; chunk <= end / chunkSize; chunk++) {
+            chunkIds.add(chromosome + "_" + chunk + "_" + suffix);
+        }
+    }
+
+    static String getHgvs(String chromosome, int start, int end, String reference, String alternate) {
+        if (reference.isEmpty()) {
+            return chromosome + ":g." + (start - 1) + "_" + start + "ins" + alternate;
+        } else if (alternate.isEmpty()) {
+            return chromosome + ":g." + (start == end ? String.valueOf(start) : start + "_" + end) + "del";
+        } else {
+            return chromosome + ":g." + start + reference + ">" + alternate;
+        }
+    }
+
+    private static String randomBases(int length, SplittableRandom random) {
+        StringBuilder bases = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            bases.append(BASES[random.nextInt(BASES.length)]);
+        }
+        return bases.toString();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import uk.ac.ebi.eva.benchmarks.CommandLineArguments;
+import uk.ac.ebi.eva.benchmarks.load.RequestMix.SampledVariant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Compares a batch beacon request (POST /v1/ga4gh/beacon) with the equivalent sequence of individual GET requests
+ * against a running eva-server. Each round draws a number of probes from the sample of variants, sends them one by
+ * one and then as a single batch, and checks that both give the same answers. The latency reported for "get" is the
+ * time taken by the whole sequence of GET requests of a round.
+ *
+ * Example: java -cp benchmarks.jar uk.ac.ebi.eva.benchmarks.load.BeaconBatchDriver --url=http://localhost:8080/eva
+ * --sample-file=synthetic-variants.tsv --probes=100 --duration=60
+ */
+public class BeaconBatchDriver {
+
+    private static final int TIMEOUT_MILLIS = 60000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final List<SampledVariant> variants;
+
+    private final int probesPerRound;
+
+    private final double missFraction;
+
+    private final SplittableRandom random;
+
+    private long mismatches;
+
+    public BeaconBatchDriver(String baseUrl, List<SampledVariant> variants, int probesPerRound, double missFraction,
+                             long seed) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.variants = variants;
+        this.probesPerRound = probesPerRound;
+        this.missFraction = missFraction;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        BeaconBatchDriver driver = new BeaconBatchDriver(
+                arguments.getString("url", "http://localhost:8080/eva"),
+                RequestMix.readSampledVariants(arguments.getString("sample-file", "synthetic-variants.tsv")),
+                arguments.getInt("probes", 100), arguments.getDouble("miss-fraction", 0.5),
+                arguments.getLong("seed", 42));
+
+        int warmupSeconds = arguments.getInt("warmup", 10);
+        int durationSeconds = arguments.getInt("duration", 60);
+        LatencyRecorder getRecorder = new LatencyRecorder();
+        LatencyRecorder batchRecorder = new LatencyRecorder();
+        if (warmupSeconds > 0) {
+            System.out.println("Warming up for " + warmupSeconds + " s");
+            driver.run(warmupSeconds, new LatencyRecorder(), new LatencyRecorder());
+        }
+        System.out.println("Measuring for " + durationSeconds + " s, " + driver.probesPerRound + " probes per round");
+        driver.run(durationSeconds, getRecorder, batchRecorder);
+
+        System.out.println(LatencyRecorder.getHeader());
+        System.out.println(getRecorder.getSummary("get", durationSeconds));
+        System.out.println(batchRecorder.getSummary("batch", durationSeconds));
+        if (driver.mismatches > 0) {
+            System.out.println(driver.mismatches + " probes were answered differently by the GET and batch requests");
+        }
+    }
+
+    public void run(int seconds, LatencyRecorder getRecorder, LatencyRecorder batchRecorder) {
+        long deadline = System.nanoTime() + seconds * 1000000000L;
+        byte[] buffer = new byte[64 * 1024];
+        while (System.nanoTime() < deadline) {
+            List<SampledVariant> probes = new ArrayList<>(probesPerRound);
+            List<Integer> positions = new ArrayList<>(probesPerRound);
+            Set<String> studies = new LinkedHashSet<>();
+            for (int i = 0; i < probesPerRound; i++) {
+                SampledVariant variant = variants.get(random.nextInt(variants.size()));
+                probes.add(variant);
+                positions.add(random.nextDouble() < missFraction ? variant.start + 1 : variant.start);
+                studies.addAll(variant.studies);
+            }
+
+            boolean[] getAnswers = new boolean[probesPerRound];
+            long start = System.nanoTime();
+            try {
+                long bytes = 0;
+                for (int i = 0; i < probesPerRound; i++) {
+                    SampledVariant probe = probes.get(i);
+                    String body = getBody(baseUrl + "/v1/ga4gh/beacon?referenceName=" + probe.chromosome +
+                                                  "&start=" + positions.get(i) + "&allele=" + getAllele(probe) +
+                                                  "&datasetIds=" + RequestMix.encode(String.join(",", studies)),
+                                          buffer);
+                    bytes += body.length();
+                    getAnswers[i] = objectMapper.readTree(body).path("exists").asBoolean();
+                }
+                getRecorder.record(System.nanoTime() - start, bytes);
+            } catch (IOException e) {
+                getRecorder.recordError();
+                continue;
+            }
+
+            start = System.nanoTime();
+            try {
+                String body = post(baseUrl + "/v1/ga4gh/beacon", getBatchRequest(probes, positions, studies),
+                                   buffer);
+                batchRecorder.record(System.nanoTime() - start, body.length());
+                JsonNode batchAnswers = objectMapper.readTree(body);
+                for (int i = 0; i < probesPerRound; i++) {
+                    if (batchAnswers.path(i).path("exists").asBoolean() != getAnswers[i]) {
+                        mismatches++;
+                    }
+                }
+            } catch (IOException e) {
+                batchRecorder.recordError();
+            }
+        }
+    }
+
+    private static String getAllele(SampledVariant variant) {
+        return variant.type.equals("INDEL") ? "INDEL" : variant.alternate;
+    }
+
+    private byte[] getBatchRequest(List<SampledVariant> probes, List<Integer> positions, Set<String> studies)
+            throws IOException {
+        ObjectNode request = objectMapper.createObjectNode();
+        ArrayNode probeNodes = request.putArray("probes");
+        for (int i = 0; i < probes.size(); i++) {
+            probeNodes.addObject()
+                      .put("referenceName", probes.get(i).chromosome)
+                      .put("start", positions.get(i))
+                      .put("allele", getAllele(probes.get(i)));
+        }
+        ArrayNode datasetIds = request.putArray("datasetIds");
+        studies.forEach(datasetIds::add);
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    private static String getBody(String url, byte[] buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", "application/json");
+        return read(connection, buffer);
+    }
+
+    private static String post(String url, byte[] body, byte[] buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body);
+        }
+        return read(connection, buffer);
+    }
+
+    /**
+     * Reads the whole response. Responses with an error status are reported as an IOException by HttpURLConnection.
+     */
+    private static String read(HttpURLConnection connection, byte[] buffer) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream inputStream = connection.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                errorStream.close();
+            }
+            throw e;
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.load;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies of one kind of request. Each worker thread owns its recorders, which are merged at the end
+ * of the run, so recording does not need any synchronization.
+ */
+class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private long[] latencies = new long[1024];
+
+    private int count;
+
+    private long errors;
+
+    private long bytes;
+
+    void record(long latencyNanos, long responseBytes) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        bytes += responseBytes;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void merge(LatencyRecorder other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        bytes += other.bytes;
+    }
+
+    static String getHeader() {
+        return String.format("%-8s %10s %8s %10s %9s %9s %9s %9s %9s %9s", "request", "ok", "errors", "req/s",
+                             "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "KB/req");
+    }
+
+    String getSummary(String name, double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        double mean = 0;
+        for (long latency : sorted) {
+            mean += latency;
+        }
+        mean = count == 0 ? 0 : mean / count;
+
+        StringBuilder summary = new StringBuilder(String.format("%-8s %10d %8d %10.1f %9.2f", name, count, errors,
+                                                                count / seconds, toMillis(mean)));
+        for (double percentile : PERCENTILES) {
+            summary.append(String.format(" %9.2f", toMillis(getPercentile(sorted, percentile))));
+        }
+        summary.append(String.format(" %9.1f", count == 0 ? 0 : bytes / 1024.0 / count));
+        return summary.toString();
+    }
+
+    private static long getPercentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1000000;
+    }
+}
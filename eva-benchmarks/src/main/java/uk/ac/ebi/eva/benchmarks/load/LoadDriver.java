@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.load;
+
+import uk.ac.ebi.eva.benchmarks.CommandLineArguments;
+import uk.ac.ebi.eva.benchmarks.load.RequestMix.RequestType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a mix of region, ID, beacon, gene and GA4GH requests against a running eva-server, and reports the
+ * throughput and the latency percentiles of each kind of request.
+ *
+ * Every worker thread sends its next request as soon as the previous one has been answered (closed loop). The
+ * requests sent during the warm-up are not included in the report.
+ *
+ * Example: java -cp benchmarks.jar uk.ac.ebi.eva.benchmarks.load.LoadDriver --url=http://localhost:8080/eva
+ * --sample-file=synthetic-variants.tsv --threads=16 --duration=120 --mix=region:50,id:20,beacon:20,gene:5,ga4gh:5
+ */
+public class LoadDriver {
+
+    private static final int TIMEOUT_MILLIS = 60000;
+
+    private final String baseUrl;
+
+    private final RequestMix requestMix;
+
+    private final int threads;
+
+    private final SplittableRandom random;
+
+    public LoadDriver(String baseUrl, RequestMix requestMix, int threads, long seed) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestMix = requestMix;
+        this.threads = threads;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+
+        String[] sizes = arguments.getString("region-sizes", "1000,10000,100000").split(",");
+        int[] regionSizes = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            regionSizes[i] = Integer.parseInt(sizes[i].trim());
+        }
+
+        RequestMix requestMix = new RequestMix(arguments.getString("species", "hsapiens_grch37"),
+                                               arguments.getString("sample-file", "synthetic-variants.tsv"),
+                                               arguments.getMap("mix", "region:40,id:20,beacon:20,gene:10,ga4gh:10"),
+                                               regionSizes,
+                                               arguments.getDouble("miss-fraction", 0.1));
+        LoadDriver driver = new LoadDriver(arguments.getString("url", "http://localhost:8080/eva"), requestMix,
+                                           arguments.getInt("threads", 8), arguments.getLong("seed", 42));
+
+        int warmupSeconds = arguments.getInt("warmup", 10);
+        int durationSeconds = arguments.getInt("duration", 60);
+        if (warmupSeconds > 0) {
+            System.out.println("Warming up for " + warmupSeconds + " s");
+            driver.run(warmupSeconds);
+        }
+        System.out.println("Measuring for " + durationSeconds + " s");
+        Map<RequestType, LatencyRecorder> results = driver.run(durationSeconds);
+        printReport(results, durationSeconds);
+    }
+
+    public Map<RequestType, LatencyRecorder> run(int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1000000000L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<RequestType, LatencyRecorder>>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                SplittableRandom workerRandom = random.split();
+                workers.add(executor.submit(() -> runWorker(deadline, workerRandom)));
+            }
+
+            Map<RequestType, LatencyRecorder> merged = new EnumMap<>(RequestType.class);
+            for (Future<Map<RequestType, LatencyRecorder>> worker : workers) {
+                worker.get().forEach((type, recorder) ->
+                                             merged.computeIfAbsent(type, key -> new LatencyRecorder()).merge(recorder));
+            }
+            return merged;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<RequestType, LatencyRecorder> runWorker(long deadline, SplittableRandom random) {
+        Map<RequestType, LatencyRecorder> recorders = new EnumMap<>(RequestType.class);
+        byte[] buffer = new byte[64 * 1024];
+        while (System.nanoTime() < deadline) {
+            RequestType type = requestMix.nextType(random);
+            String path = requestMix.nextPath(type, random);
+            LatencyRecorder recorder = recorders.computeIfAbsent(type, key -> new LatencyRecorder());
+
+            long start = System.nanoTime();
+            try {
+                long bytes = get(baseUrl + path, buffer);
+                recorder.record(System.nanoTime() - start, bytes);
+            } catch (IOException e) {
+                recorder.recordError();
+            }
+        }
+        return recorders;
+    }
+
+    /**
+     * Sends a GET request and reads the whole response, returning its size. Responses with an error status are
+     * reported as an IOException by HttpURLConnection.
+     */
+    private static long get(String url, byte[] buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", "application/json");
+
+        long bytes = 0;
+        try (InputStream inputStream = connection.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes += read;
+            }
+        } catch (IOException e) {
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                errorStream.close();
+            }
+            throw e;
+        }
+        return bytes;
+    }
+
+    private static void printReport(Map<RequestType, LatencyRecorder> results, int seconds) {
+        LatencyRecorder total = new LatencyRecorder();
+        System.out.println(LatencyRecorder.getHeader());
+        for (Map.Entry<RequestType, LatencyRecorder> result : results.entrySet()) {
+            System.out.println(result.getValue().getSummary(result.getKey().name().toLowerCase(), seconds));
+            total.merge(result.getValue());
+        }
+        System.out.println(total.getSummary("total", seconds));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.benchmarks.load;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the requests replayed by the {@link LoadDriver}, drawing the request type from the configured weights and
+ * the coordinates, IDs, alleles and genes from a sample of the variants in the database. A fraction of the requests
+ * is built so that it does not match any variant, because clients such as beacons ask mostly for missing variants.
+ */
+class RequestMix {
+
+    enum RequestType {
+        REGION, ID, BEACON, GENE, GA4GH
+    }
+
+    static class SampledVariant {
+
+        final String chromosome;
+
+        final int start;
+
+        final int end;
+
+        final String reference;
+
+        final String alternate;
+
+        final String type;
+
+        final String id;
+
+        final String gene;
+
+        final List<String> studies;
+
+        SampledVariant(String line) {
+            String[] fields = line.split("\t", -1);
+            chromosome = fields[0];
+            start = Integer.parseInt(fields[1]);
+            end = Integer.parseInt(fields[2]);
+            reference = fields[3];
+            alternate = fields[4];
+            type = fields[5];
+            id = fields[6];
+            gene = fields[7].equals("-") ? null : fields[7];
+            studies = Collections.unmodifiableList(Arrays.asList(fields[8].split(",")));
+        }
+    }
+
+    private final String species;
+
+    private final List<SampledVariant> variants;
+
+    private final List<SampledVariant> genicVariants;
+
+    private final RequestType[] types;
+
+    private final double[] cumulativeWeights;
+
+    private final int[] regionSizes;
+
+    private final double missFraction;
+
+    RequestMix(String species, String sampleFile, Map<String, String> weights, int[] regionSizes,
+               double missFraction) throws IOException {
+        this.species = species;
+        this.regionSizes = regionSizes;
+        this.missFraction = missFraction;
+
+        variants = readSampledVariants(sampleFile);
+        genicVariants = new ArrayList<>();
+        for (SampledVariant variant : variants) {
+            if (variant.gene != null) {
+                genicVariants.add(variant);
+            }
+        }
+
+        types = new RequestType[weights.size()];
+        cumulativeWeights = new double[weights.size()];
+        double total = 0;
+        int i = 0;
+        for (Map.Entry<String, String> weight : weights.entrySet()) {
+            types[i] = RequestType.valueOf(weight.getKey().toUpperCase());
+            total += Double.parseDouble(weight.getValue());
+            cumulativeWeights[i] = total;
+            i++;
+        }
+        for (i = 0; i < cumulativeWeights.length; i++) {
+            cumulativeWeights[i] /= total;
+        }
+    }
+
+    static List<SampledVariant> readSampledVariants(String sampleFile) throws IOException {
+        List<SampledVariant> variants = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(sampleFile), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("#") && !line.isEmpty()) {
+                variants.add(new SampledVariant(line));
+            }
+        }
+        if (variants.isEmpty()) {
+            throw new IllegalArgumentException("No variants found in " + sampleFile);
+        }
+        return variants;
+    }
+
+    RequestType nextType(SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    /**
+     * Path and query string of the next request of the given type, relative to the web services context path.
+     */
+    String nextPath(RequestType type, SplittableRandom random) {
+        boolean miss = random.nextDouble() < missFraction;
+        SampledVariant variant = variants.get(random.nextInt(variants.size()));
+        switch (type) {
+            case REGION:
+                int size = regionSizes[random.nextInt(regionSizes.length)];
+                int regionStart = Math.max(1, variant.start - random.nextInt(size));
+                return "/v1/segments/" + variant.chromosome + ":" + regionStart + "-" + (regionStart + size - 1) +
+                        "/variants?species=" + species;
+            case ID:
+                String id = miss ? "rs" + (1000000000000L + random.nextInt(Integer.MAX_VALUE)) : variant.id;
+                return "/v1/variants/" + id + "/info?species=" + species;
+            case BEACON:
+                String allele = variant.type.equals("INDEL") ? "INDEL" : variant.alternate;
+                int position = miss ? variant.start + 1 : variant.start;
+                return "/v1/ga4gh/beacon?referenceName=" + variant.chromosome + "&start=" + position +
+                        "&allele=" + allele + "&datasetIds=" + encode(String.join(",", variant.studies));
+            case GENE:
+                String gene;
+                if (miss || genicVariants.isEmpty()) {
+                    gene = "SYNNOGENE" + random.nextInt(1000000);
+                } else {
+                    gene = genicVariants.get(random.nextInt(genicVariants.size())).gene;
+                }
+                return "/v1/genes/" + gene + "/variants?species=" + species;
+            case GA4GH:
+                int ga4ghSize = regionSizes[random.nextInt(regionSizes.length)];
+                int ga4ghStart = Math.max(0, variant.start - 1 - random.nextInt(ga4ghSize));
+                return "/v1/ga4gh/variants/search?referenceName=" + variant.chromosome + "&start=" + ga4ghStart +
+                        "&end=" + (ga4ghStart + ga4ghSize) + "&pageSize=10";
+            default:
+                throw new IllegalArgumentException("Unknown request type " + type);
+        }
+    }
+
+    static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.MongoDbFactory;
 
+import uk.ac.ebi.eva.lib.metrics.MongoCommandMonitor;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
 
@@ -36,9 +37,30 @@ public class MultiMongoFactoryConfiguration {
      */
     @Bean
     public MongoDbFactory mongoDbFactory() throws IOException {
+        Properties properties = loadProperties();
+        MongoClient mongoClient = DBAdaptorConnector.getMongoClient(properties, mongoCommandMonitor());
+        return new MultiMongoDbFactory(mongoClient, "unusedDefaultDB");
+    }
+
+    /**
+     * Monitor of the commands sent through the MultiMongoDbFactory. The slow query log can be configured with the
+     * optional properties eva.mongo.slow-query.threshold-ms and eva.mongo.slow-query.log-size.
+     */
+    @Bean
+    public MongoCommandMonitor mongoCommandMonitor() throws IOException {
+        Properties properties = loadProperties();
+        long thresholdMillis = Long.parseLong(properties.getProperty(
+                "eva.mongo.slow-query.threshold-ms",
+                String.valueOf(MongoCommandMonitor.DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS)));
+        int logSize = Integer.parseInt(properties.getProperty(
+                "eva.mongo.slow-query.log-size",
+                String.valueOf(MongoCommandMonitor.DEFAULT_SLOW_QUERY_LOG_SIZE)));
+        return new MongoCommandMonitor(thresholdMillis, logSize);
+    }
+
+    private Properties loadProperties() throws IOException {
         Properties properties = new Properties();
         properties.load(MongoConfiguration.class.getResourceAsStream("/eva.properties"));
-        MongoClient mongoClient = DBAdaptorConnector.getMongoClient(properties);
-        return new MultiMongoDbFactory(mongoClient, "unusedDefaultDB");
+        return properties;
     }
 }
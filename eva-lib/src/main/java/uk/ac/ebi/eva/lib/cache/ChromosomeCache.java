@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.ChromosomeSummary;
+import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-species list of chromosomes, with the number of variants and the positions covered in each of them.
+ *
+ * Calculating the chromosomes requires scanning the whole variants collection, so they are calculated once per
+ * species and kept in memory. The number of variants in the collection is used as release marker: it is read from the
+ * collection metadata, and it changes whenever a new release is loaded. The markers are checked periodically (every
+ * "eva.cache.refresh-interval-ms" milliseconds, 5 minutes by default).
+ *
+ * Only the species in the {@link SpeciesCatalogue} are cached, so that requests for unknown species don't add entries
+ * that would be checked on every refresh.
+ */
+@Component
+public class ChromosomeCache {
+
+    private final VariantEntityRepository variantEntityRepository;
+
+    private final SpeciesCatalogue speciesCatalogue;
+
+    private final ReleaseAwareCache<String, List<ChromosomeSummary>> cache;
+
+    @Autowired
+    public ChromosomeCache(VariantEntityRepository variantEntityRepository, SpeciesCatalogue speciesCatalogue) {
+        this.variantEntityRepository = variantEntityRepository;
+        this.speciesCatalogue = speciesCatalogue;
+        this.cache = new ReleaseAwareCache<>("chromosomes", this::loadChromosomes, this::countVariants);
+    }
+
+    /**
+     * @return summaries of all the chromosomes of a species, sorted by chromosome name
+     * @throws IllegalArgumentException if the species is not in the catalogue
+     */
+    public List<ChromosomeSummary> getChromosomeSummaries(String species) {
+        return cache.get(speciesCatalogue.getDBName(species));
+    }
+
+    /**
+     * @return names of all the chromosomes of a species, sorted
+     * @throws IllegalArgumentException if the species is not in the catalogue
+     */
+    public List<String> getChromosomes(String species) {
+        List<ChromosomeSummary> summaries = getChromosomeSummaries(species);
+        List<String> chromosomes = new ArrayList<>(summaries.size());
+        for (ChromosomeSummary summary : summaries) {
+            chromosomes.add(summary.getChromosome());
+        }
+        return chromosomes;
+    }
+
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        cache.refresh();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private List<ChromosomeSummary> loadChromosomes(String databaseName) {
+        return Collections.unmodifiableList(MultiMongoDbFactory.supplyWithDatabase(
+                databaseName, variantEntityRepository::findChromosomeSummaries));
+    }
+
+    private Object countVariants(String databaseName) {
+        return MultiMongoDbFactory.supplyWithDatabase(databaseName, variantEntityRepository::count);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of values that are expensive to load but only change when new data is released (e.g. after a
+ * variant load).
+ *
+ * Every value is stored together with a release marker, a cheap token that changes whenever the underlying data
+ * changes (a count, a timestamp, a version). Values are loaded lazily on the first get; {@link #refresh()} compares
+ * the stored markers with the current ones and reloads only the keys whose data has changed. If a reload fails, the
+ * previous value is kept and served until the next refresh.
+ *
+ * A value is loaded outside of the map by the first thread that asks for it, and the other threads asking for the
+ * same key wait for that load instead of starting their own. Loads may take long (e.g. an aggregation over a whole
+ * collection), so they must not hold the locks of the map, which would block other keys and fail if the loader used
+ * the cache again.
+ *
+ * @param <K> key of the cached values, usually a species or a database name
+ * @param <V> type of the cached values, which should be immutable or not modified by the callers
+ */
+public class ReleaseAwareCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseAwareCache.class);
+
+    private final String name;
+
+    private final Function<K, V> loader;
+
+    private final Function<K, Object> releaseMarker;
+
+    private final ConcurrentMap<K, Entry<V>> entries;
+
+    /**
+     * Loads in progress of the keys that are not in the entries yet
+     */
+    private final ConcurrentMap<K, FutureTask<Entry<V>>> loads;
+
+    public ReleaseAwareCache(String name, Function<K, V> loader, Function<K, Object> releaseMarker) {
+        this.name = name;
+        this.loader = loader;
+        this.releaseMarker = releaseMarker;
+        this.entries = new ConcurrentHashMap<>();
+        this.loads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the cached value for the key, loading it if it is not in the cache yet
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            return entry.value;
+        }
+
+        FutureTask<Entry<V>> task = new FutureTask<>(() -> load(key));
+        FutureTask<Entry<V>> load = loads.putIfAbsent(key, task);
+        if (load == null) {
+            load = task;
+            try {
+                task.run();
+            } finally {
+                loads.remove(key, task);
+            }
+        }
+
+        try {
+            return load.get().value;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Could not load " + name + " for " + key, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + name + " for " + key, e);
+        }
+    }
+
+    /**
+     * @return the cached value for the key, or null if it has not been loaded yet
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Reloads the values whose release marker has changed since they were loaded.
+     *
+     * @return number of reloaded values
+     */
+    public int refresh() {
+        int reloaded = 0;
+        for (K key : entries.keySet()) {
+            if (refresh(key)) {
+                reloaded++;
+            }
+        }
+        return reloaded;
+    }
+
+    /**
+     * Reloads the value of one key if its release marker has changed since it was loaded.
+     *
+     * @return true if the value was reloaded
+     */
+    public boolean refresh(K key) {
+        Entry<V> current = entries.get(key);
+        try {
+            Object marker = releaseMarker.apply(key);
+            if (current != null && Objects.equals(current.marker, marker)) {
+                return false;
+            }
+            entries.put(key, new Entry<>(loader.apply(key), marker));
+            logger.info("Reloaded {} for {}", name, key);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload " + name + " for " + key + ", the previous value will be kept", e);
+            return false;
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return the keys currently loaded in the cache
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Loads the value of a key and adds it to the entries, unless a refresh added it first
+     */
+    private Entry<V> load(K key) {
+        Object marker = releaseMarker.apply(key);
+        V value = loader.apply(key);
+        logger.info("Loaded {} for {}", name, key);
+        Entry<V> entry = new Entry<>(value, marker);
+        Entry<V> current = entries.putIfAbsent(key, entry);
+        return current == null ? entry : current;
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+
+        private final Object marker;
+
+        Entry(V value, Object marker) {
+            this.value = value;
+            this.marker = marker;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
+import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+
+import java.util.List;
+
+/**
+ * Per-species summaries of the studies in the files collection (study ID, study name and number of files).
+ *
+ * The summaries are calculated with an aggregation over the whole files collection, so they are kept in memory and
+ * only recalculated for the species whose number of files has changed, which is checked every
+ * "eva.cache.refresh-interval-ms" milliseconds. As in the {@link ChromosomeCache}, only the species in the
+ * {@link SpeciesCatalogue} are cached.
+ */
+@Component
+public class VariantStudySummaryCache {
+
+    private final VariantStudySummaryRepository variantStudySummaryRepository;
+
+    private final SpeciesCatalogue speciesCatalogue;
+
+    private final ReleaseAwareCache<String, VariantStudySummaryIndex> cache;
+
+    @Autowired
+    public VariantStudySummaryCache(VariantStudySummaryRepository variantStudySummaryRepository,
+                                    SpeciesCatalogue speciesCatalogue) {
+        this.variantStudySummaryRepository = variantStudySummaryRepository;
+        this.speciesCatalogue = speciesCatalogue;
+        this.cache = new ReleaseAwareCache<>("study summaries", this::loadSummaries, this::countFiles);
+    }
+
+    /**
+     * @return the summaries of all the studies of a species
+     * @throws IllegalArgumentException if the species is not in the catalogue
+     */
+    public List<VariantStudySummary> findAll(String species) {
+        return cache.get(speciesCatalogue.getDBName(species)).getSummaries();
+    }
+
+    /**
+     * @return the summary of the study with that ID or name in a species, or null if there is none
+     * @throws IllegalArgumentException if the species is not in the catalogue
+     */
+    public VariantStudySummary findByStudyNameOrStudyId(String species, String studyNameOrId) {
+        return cache.get(speciesCatalogue.getDBName(species)).findByStudyNameOrStudyId(studyNameOrId);
+    }
+
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        cache.refresh();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private VariantStudySummaryIndex loadSummaries(String databaseName) {
+        return new VariantStudySummaryIndex(
+                MultiMongoDbFactory.supplyWithDatabase(databaseName, variantStudySummaryRepository::findBy));
+    }
+
+    private Object countFiles(String databaseName) {
+        return MultiMongoDbFactory.supplyWithDatabase(databaseName, variantStudySummaryRepository::count);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable list of the study summaries of a species, indexed by study ID and by study name.
+ */
+public class VariantStudySummaryIndex {
+
+    private final List<VariantStudySummary> summaries;
+
+    private final Map<String, VariantStudySummary> summariesById;
+
+    private final Map<String, VariantStudySummary> summariesByName;
+
+    public VariantStudySummaryIndex(List<VariantStudySummary> summaries) {
+        this.summaries = Collections.unmodifiableList(summaries);
+        this.summariesById = new HashMap<>();
+        this.summariesByName = new HashMap<>();
+        for (VariantStudySummary summary : summaries) {
+            summariesById.putIfAbsent(summary.getStudyId(), summary);
+            summariesByName.putIfAbsent(summary.getStudyName(), summary);
+        }
+    }
+
+    public List<VariantStudySummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * @return the summary of the study with that ID or, if there is none, with that name; null if neither exists
+     */
+    public VariantStudySummary findByStudyNameOrStudyId(String studyNameOrId) {
+        VariantStudySummary summary = summariesById.get(studyNameOrId);
+        return summary != null ? summary : summariesByName.get(studyNameOrId);
+    }
+}
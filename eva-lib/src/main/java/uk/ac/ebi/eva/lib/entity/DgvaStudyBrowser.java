@@ -117,6 +117,18 @@ public class DgvaStudyBrowser {
 
     DgvaStudyBrowser() { }
 
+    public String getCommonName() {
+        return commonName;
+    }
+
+    public String getScientificName() {
+        return scientificName;
+    }
+
+    public String getStudyType() {
+        return studyType;
+    }
+
     public VariantStudy generateVariantStudy() {
         // Convert the list of tax ids to integer values
         int[] taxIds = Arrays.stream(taxId.split(", ")).map(String::trim).mapToInt(Integer::parseInt).toArray();
@@ -122,6 +122,18 @@ public class EvaStudyBrowser {
 
     EvaStudyBrowser() { }
 
+    public String getCommonName() {
+        return commonName;
+    }
+
+    public String getScientificName() {
+        return scientificName;
+    }
+
+    public String getExperimentType() {
+        return experimentType;
+    }
+
     public VariantStudy generateVariantStudy() {
         // Convert the list of tax ids to integer values
         int[] taxIds = Arrays.stream(taxId.split(", ")).map(String::trim).mapToInt(Integer::parseInt).toArray();
@@ -51,6 +51,10 @@ import javax.persistence.*;
                     "left join file f on bf.file_id = f.file_id "+
                     "where bf.filename in :filenames",
             resultSetMapping = "fileFtpReference"
+    ),
+    @NamedNativeQuery(
+            name = "File.getLatestRelease",
+            query = "select max(bf.eva_release) from browsable_file bf"
     )
 })
 @Table(name = "file")
@@ -64,4 +64,4 @@ public class ExtendedJpaRepositoryFunctionsImpl<T, ID extends Serializable> exte
         return typedQuery.getResultList();
 
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.extension;
+
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseInterceptor;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+
+/**
+ * JPA repository factory bean whose repositories report the time spent in their methods as {@link RequestPhase#JPA}.
+ * To use it, set it as repositoryFactoryBeanClass in @EnableJpaRepositories.
+ */
+public class TimedJpaRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
+        extends JpaRepositoryFactoryBean<T, S, ID> {
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
+        RepositoryFactorySupport factory = super.createRepositoryFactory(entityManager);
+        factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                proxyFactory.addAdvice(new RequestPhaseInterceptor(RequestPhase.JPA)));
+        return factory;
+    }
+}
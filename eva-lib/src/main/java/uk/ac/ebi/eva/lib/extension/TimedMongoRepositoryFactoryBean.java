@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.extension;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseInterceptor;
+
+import java.io.Serializable;
+
+/**
+ * Mongo repository factory bean whose repositories report the time spent in their methods as
+ * {@link RequestPhase#MONGO_COUNT} if they are counts, or {@link RequestPhase#MONGO_FIND} otherwise. To use it, set it
+ * as repositoryFactoryBeanClass in @EnableMongoRepositories.
+ */
+public class TimedMongoRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
+        extends MongoRepositoryFactoryBean<T, S, ID> {
+
+    @Override
+    protected RepositoryFactorySupport getFactoryInstance(MongoOperations operations) {
+        RepositoryFactorySupport factory = super.getFactoryInstance(operations);
+        factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                proxyFactory.addAdvice(new RequestPhaseInterceptor(RequestPhase.MONGO_FIND, RequestPhase.MONGO_COUNT)));
+        return factory;
+    }
+}
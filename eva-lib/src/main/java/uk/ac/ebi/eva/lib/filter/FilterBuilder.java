@@ -20,8 +20,12 @@ package uk.ac.ebi.eva.lib.filter;
 
 import org.opencb.biodata.models.variant.Variant;
 
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Class for building filters for querying using the VariantEntityRepository
@@ -49,57 +53,63 @@ public class FilterBuilder {
 
     public FilterBuilder withMaf(String maf) {
         if (maf != null) {
-            filters.add(new VariantEntityRepositoryMafFilter(maf));
+            addFilter(() -> new VariantEntityRepositoryMafFilter(maf));
         }
         return this;
     }
 
     public FilterBuilder withPolyphenScore(String polyphenScore) {
         if (polyphenScore != null) {
-            filters.add(new VariantEntityRepositoryPolyphenFilter(polyphenScore));
+            addFilter(() -> new VariantEntityRepositoryPolyphenFilter(polyphenScore));
         }
         return this;
     }
 
     public FilterBuilder withSiftScore(String siftScore) {
         if (siftScore != null) {
-            filters.add(new VariantEntityRepositorySiftFilter(siftScore));
+            addFilter(() -> new VariantEntityRepositorySiftFilter(siftScore));
         }
         return this;
     }
 
     public FilterBuilder withStudies(List<String> studies) {
         if (studies != null && !studies.isEmpty()) {
-            filters.add(new VariantEntityRepositoryStudyFilter(studies));
+            addFilter(() -> new VariantEntityRepositoryStudyFilter(studies));
         }
         return this;
     }
 
     public FilterBuilder withConsequenceType(List<String> consequenceType) {
         if (consequenceType != null && !consequenceType.isEmpty()) {
-            filters.add(new VariantEntityRepositoryConsequenceTypeFilter(consequenceType));
+            addFilter(() -> new VariantEntityRepositoryConsequenceTypeFilter(consequenceType));
         }
         return this;
     }
 
     public FilterBuilder withFiles(List<String> files) {
         if (files != null && !files.isEmpty()) {
-            filters.add(new VariantEntityRepositoryFileFilter(files));
+            addFilter(() -> new VariantEntityRepositoryFileFilter(files));
         }
         return this;
     }
 
     public FilterBuilder withVariantTypes(List<Variant.VariantType> types) {
         if (types != null && !types.isEmpty()) {
-            filters.add(new VariantEntityRepositoryTypeFilter(types));
+            addFilter(() -> new VariantEntityRepositoryTypeFilter(types));
         }
         return this;
     }
 
     public FilterBuilder withAlternates(List<String> alternates) {
         if (alternates != null && !alternates.isEmpty()) {
-            filters.add(new VariantEntityRepositoryAlternateFilter(alternates));
+            addFilter(() -> new VariantEntityRepositoryAlternateFilter(alternates));
         }
         return this;
     }
+
+    private void addFilter(Supplier<VariantEntityRepositoryFilter> filterSupplier) {
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.FILTER_BUILDING)) {
+            filters.add(filterSupplier.get());
+        }
+    }
 }
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantAccessions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-species index from the rs and ss accessions of the variants to their chromosome and start, so that a variant
+ * can be found by accession with a binary search and a query on its position, instead of going through the multikey
+ * index on "ids", one of the largest indexes of the variants collection.
+ *
+ * The index of each species is built by {@link #build} from the variants collection and written to
+ * "eva.index.directory"/{database}/accessions as two arrays of longs, the accessions sorted and the positions in the
+ * same order, with a manifest that records the chromosome names. The arrays are memory-mapped on first use.
+ *
+ * An index built before a variant load would miss the new accessions, and the accessions that a load merges into
+ * existing variants, which leaves the number of variants unchanged. The index of a species is therefore only used
+ * while its number of variants and the number of files of each study are the ones it was built from, see
+ * {@link ReleaseAwareIndex}.
+ *
+ * File layout: magic number, number of entries (long), followed by the accessions and then the positions, as
+ * big-endian longs. The accessions are the number of the rs or ss ID, with bit 62 set for ss IDs. The positions hold
+ * the index of the chromosome in the manifest in the upper 32 bits and the start in the lower 32 bits.
+ */
+@Component
+public class AccessionIndex extends ReleaseAwareIndex<AccessionIndex.AccessionArrays> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessionIndex.class);
+
+    private static final long MAGIC = 0x45564141434331L; // "EVAACC1"
+
+    private static final int HEADER_BYTES = 8 + 8;
+
+    private static final int WRITE_BUFFER_LONGS = 8192;
+
+    private static final long SS_FLAG = 1L << 62;
+
+    private static final int MAX_ACCESSION_DIGITS = 18;
+
+    /**
+     * The build sorts the accessions in two heap arrays, so their size is bounded by the largest Java array
+     */
+    static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private static final String INDEX_FILE = "accessions.idx";
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public AccessionIndex(VariantEntityRepository variantEntityRepository,
+                          VariantStudySummaryRepository variantStudySummaryRepository,
+                          @Value("${eva.index.directory:}") String directory) {
+        super("accession index", "accessions", variantEntityRepository, variantStudySummaryRepository, directory);
+    }
+
+    /**
+     * @return start positions of the variants with the given ID grouped by chromosome, empty if the index has no
+     * variant with that ID, or null if the index cannot answer: the ID is not a numeric rs or ss ID, or the species
+     * has no valid index
+     */
+    public Map<String, Set<Long>> findStartsByChromosome(String dbName, String id) {
+        long accession = toAccession(id);
+        if (accession < 0) {
+            return null;
+        }
+        AccessionArrays index = get(dbName);
+        if (index == null) {
+            return null;
+        }
+
+        Map<String, Set<Long>> startsByChromosome = new HashMap<>();
+        for (long i = index.accessions.lowerBound(accession);
+             i < index.accessions.length() && index.accessions.get(i) == accession; i++) {
+            long position = index.positions.get(i);
+            startsByChromosome.computeIfAbsent(index.chromosomes[(int) (position >>> 32)], key -> new HashSet<>())
+                              .add(position & 0xffffffffL);
+        }
+        (startsByChromosome.isEmpty() ? misses : hits).incrementAndGet();
+        return startsByChromosome;
+    }
+
+    /**
+     * @return numeric form of an rs or ss ID, or -1 if the ID is not an "rs" or "ss" prefix followed by digits
+     */
+    static long toAccession(String id) {
+        if (id == null || id.length() < 3 || id.length() > 2 + MAX_ACCESSION_DIGITS) {
+            return -1;
+        }
+        long flag;
+        if (id.startsWith("rs")) {
+            flag = 0;
+        } else if (id.startsWith("ss")) {
+            flag = SS_FLAG;
+        } else {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 2; i < id.length(); i++) {
+            char digit = id.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            number = number * 10 + (digit - '0');
+        }
+        return number | flag;
+    }
+
+    /**
+     * Builds the index from the accessions of the variants, which are sorted in memory, taking 16 bytes per ID
+     */
+    @Override
+    protected void write(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        Map<String, Integer> chromosomeIndexes = new LinkedHashMap<>();
+        long[] accessions = new long[1024];
+        long[] positions = new long[1024];
+        int entries = 0;
+
+        try (CloseableIterator<VariantAccessions> variants = variantEntityRepository.streamVariantAccessions()) {
+            while (variants.hasNext()) {
+                VariantAccessions variant = variants.next();
+                if (variant.getStart() < 0 || variant.getStart() > 0xffffffffL) {
+                    continue;
+                }
+                Integer chromosomeIndex = chromosomeIndexes.computeIfAbsent(variant.getChromosome(),
+                                                                            key -> chromosomeIndexes.size());
+                long position = ((long) chromosomeIndex << 32) | variant.getStart();
+                for (String id : variant.getIds()) {
+                    long accession = toAccession(id);
+                    if (accession < 0) {
+                        continue;
+                    }
+                    if (entries == accessions.length) {
+                        if (entries == MAX_ENTRIES) {
+                            throw new IllegalStateException("Too many accessions for a single index");
+                        }
+                        int capacity = (int) Math.min(MAX_ENTRIES, 2L * entries);
+                        accessions = Arrays.copyOf(accessions, capacity);
+                        positions = Arrays.copyOf(positions, capacity);
+                    }
+                    accessions[entries] = accession;
+                    positions[entries] = position;
+                    entries++;
+                }
+            }
+        }
+
+        sort(accessions, positions, 0, entries);
+        entries = removeDuplicates(accessions, positions, entries);
+
+        writeIndex(indexDirectory.resolve(INDEX_FILE), accessions, positions, entries);
+
+        manifest.setProperty("accessions", String.valueOf(entries));
+        manifest.setProperty("chromosomes", String.valueOf(chromosomeIndexes.size()));
+        for (Map.Entry<String, Integer> chromosome : chromosomeIndexes.entrySet()) {
+            manifest.setProperty("chromosome." + chromosome.getValue(), chromosome.getKey());
+        }
+    }
+
+    private static void writeIndex(Path path, long[] accessions, long[] positions, int entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putLong(entries).flip();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_LONGS * Long.BYTES);
+            for (long[] array : new long[][]{accessions, positions}) {
+                for (int i = 0; i < entries; i++) {
+                    buffer.putLong(array[i]);
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Sorts the entries between "from" (inclusive) and "to" (exclusive) by accession and then by position, moving the
+     * elements of both arrays together
+     */
+    static void sort(long[] accessions, long[] positions, int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            long pivotAccession = accessions[middle];
+            long pivotPosition = positions[middle];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(accessions[i], positions[i], pivotAccession, pivotPosition) < 0) {
+                    i++;
+                }
+                while (compare(accessions[j], positions[j], pivotAccession, pivotPosition) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(accessions, positions, i++, j--);
+                }
+            }
+            // recurse into the smaller part and loop over the larger one, to bound the depth of the recursion
+            if (j + 1 - from < to - i) {
+                sort(accessions, positions, from, j + 1);
+                from = i;
+            } else {
+                sort(accessions, positions, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(accessions[j - 1], positions[j - 1], accessions[j], positions[j]) > 0;
+                 j--) {
+                swap(accessions, positions, j - 1, j);
+            }
+        }
+    }
+
+    private static int compare(long accession, long position, long otherAccession, long otherPosition) {
+        int comparison = Long.compare(accession, otherAccession);
+        return comparison != 0 ? comparison : Long.compare(position, otherPosition);
+    }
+
+    private static void swap(long[] accessions, long[] positions, int i, int j) {
+        long accession = accessions[i];
+        accessions[i] = accessions[j];
+        accessions[j] = accession;
+        long position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+    }
+
+    /**
+     * Several alleles at the same position usually share their rs ID, and only need one entry
+     */
+    private static int removeDuplicates(long[] accessions, long[] positions, int entries) {
+        int unique = 0;
+        for (int i = 0; i < entries; i++) {
+            if (unique == 0 || accessions[i] != accessions[unique - 1] || positions[i] != positions[unique - 1]) {
+                accessions[unique] = accessions[i];
+                positions[unique] = positions[i];
+                unique++;
+            }
+        }
+        return unique;
+    }
+
+    @Override
+    protected AccessionArrays read(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        String[] chromosomes = new String[Integer.parseInt(manifest.getProperty("chromosomes"))];
+        for (int i = 0; i < chromosomes.length; i++) {
+            chromosomes[i] = manifest.getProperty("chromosome." + i);
+        }
+        try (FileChannel channel = FileChannel.open(indexDirectory.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(INDEX_FILE + " is not an accession index");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException(INDEX_FILE + " is not an accession index");
+            }
+            long entries = header.getLong(8);
+            MappedLongArray accessions = MappedLongArray.map(channel, HEADER_BYTES, entries);
+            MappedLongArray positions = MappedLongArray.map(channel, HEADER_BYTES + entries * Long.BYTES, entries);
+            logger.info("Mapped accession index of {} with {} accessions", dbName, entries);
+            return new AccessionArrays(accessions, positions, chromosomes);
+        }
+    }
+
+    /**
+     * @return number of lookups answered by the index, and the manifests of the species whose index has been used
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+
+        statistics.put("species", getSpeciesStatistics());
+        return statistics;
+    }
+
+    /**
+     * @return the manifest without the chromosome names, which can be many thousands in assemblies with scaffolds
+     */
+    @Override
+    protected Map<String, String> getSummary(Properties manifest) {
+        Map<String, String> summary = new TreeMap<>();
+        for (String name : manifest.stringPropertyNames()) {
+            if (!name.startsWith("chromosome.")) {
+                summary.put(name, manifest.getProperty(name));
+            }
+        }
+        return summary;
+    }
+
+    static class AccessionArrays {
+
+        /**
+         * Sorted accessions
+         */
+        private final MappedLongArray accessions;
+
+        private final MappedLongArray positions;
+
+        private final String[] chromosomes;
+
+        AccessionArrays(MappedLongArray accessions, MappedLongArray positions, String[] chromosomes) {
+            this.accessions = accessions;
+            this.positions = positions;
+            this.chromosomes = chromosomes;
+        }
+    }
+}
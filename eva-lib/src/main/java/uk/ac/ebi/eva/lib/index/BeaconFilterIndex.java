@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-species and per-study Bloom filters over the (chromosome, start, alternate) and (chromosome, start, type) of
+ * the variants, used by the beacon to answer that an allele does not exist without querying Mongo.
+ *
+ * The filters of each species are built by {@link #build} from the variants collection and written to
+ * "eva.index.directory"/{database}/beacon, together with a manifest that records their size and their false positive
+ * rate measured on keys known to be absent. They are memory-mapped on first use.
+ *
+ * A filter built before a variant load could answer that a new variant is absent, so the filters of a species are
+ * only used while the number of files of each study is the one they were built from, see {@link ReleaseAwareIndex}.
+ * The total number of variants is not enough, because a study whose variants are all merged into existing ones adds
+ * no documents. A request for a study without a filter is never answered as absent.
+ */
+@Component
+public class BeaconFilterIndex extends ReleaseAwareIndex<Map<String, BloomFilter>> {
+
+    public enum Answer {
+        /**
+         * None of the studies has the key, so the database does not need to be queried
+         */
+        ABSENT,
+        /**
+         * Some study might have the key, which must be confirmed by querying the database
+         */
+        POSSIBLY_PRESENT,
+        /**
+         * There are no valid filters for the species
+         */
+        NOT_INDEXED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(BeaconFilterIndex.class);
+
+    static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    static final int MEASUREMENT_KEYS = 10000;
+
+    private final VariantStudySummaryRepository variantStudySummaryRepository;
+
+    private final AtomicLong negatives = new AtomicLong();
+
+    private final AtomicLong positives = new AtomicLong();
+
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    @Autowired
+    public BeaconFilterIndex(VariantEntityRepository variantEntityRepository,
+                             VariantStudySummaryRepository variantStudySummaryRepository,
+                             @Value("${eva.index.directory:}") String directory) {
+        super("beacon filters", "beacon", variantEntityRepository, directory);
+        this.variantStudySummaryRepository = variantStudySummaryRepository;
+    }
+
+    public Answer checkAllele(String dbName, List<String> studies, String chromosome, long start, String alternate) {
+        return check(dbName, studies, alleleKey(chromosome, start, alternate));
+    }
+
+    public Answer checkType(String dbName, List<String> studies, String chromosome, long start, String type) {
+        return check(dbName, studies, typeKey(chromosome, start, type));
+    }
+
+    /**
+     * Records whether the database confirmed a key that the filters answered as possibly present, to measure their
+     * false positive rate while serving requests
+     */
+    public void recordConfirmation(boolean found) {
+        if (!found) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    private Answer check(String dbName, List<String> studies, String key) {
+        Map<String, BloomFilter> filtersByStudy = get(dbName);
+        if (filtersByStudy == null) {
+            return Answer.NOT_INDEXED;
+        }
+        for (String study : studies) {
+            if (!filtersByStudy.containsKey(study)) {
+                return Answer.NOT_INDEXED;
+            }
+        }
+        for (String study : studies) {
+            if (filtersByStudy.get(study).mightContain(key)) {
+                positives.incrementAndGet();
+                return Answer.POSSIBLY_PRESENT;
+            }
+        }
+        negatives.incrementAndGet();
+        return Answer.ABSENT;
+    }
+
+    @Override
+    protected void write(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        Map<String, Long> studyCounts = variantEntityRepository.countVariantsPerStudy();
+        Map<String, BloomFilter> filtersByStudy = new HashMap<>();
+        for (Map.Entry<String, Long> studyCount : studyCounts.entrySet()) {
+            // every variant is added with two keys, allele and type
+            filtersByStudy.put(studyCount.getKey(),
+                               BloomFilter.create(2 * studyCount.getValue(), FALSE_POSITIVE_PROBABILITY));
+        }
+
+        try (CloseableIterator<VariantLocus> loci = variantEntityRepository.streamVariantLoci()) {
+            while (loci.hasNext()) {
+                VariantLocus locus = loci.next();
+                String alleleKey = alleleKey(locus.getChromosome(), locus.getStart(), locus.getAlternate());
+                String typeKey = typeKey(locus.getChromosome(), locus.getStart(), locus.getType());
+                for (String studyId : locus.getStudyIds()) {
+                    BloomFilter filter = filtersByStudy.get(studyId);
+                    if (filter != null) {
+                        filter.put(alleleKey);
+                        filter.put(typeKey);
+                    }
+                }
+            }
+        }
+
+        manifest.setProperty("studies", String.valueOf(filtersByStudy.size()));
+        int index = 0;
+        for (Map.Entry<String, BloomFilter> studyFilter : filtersByStudy.entrySet()) {
+            BloomFilter filter = studyFilter.getValue();
+            String prefix = "study." + index + ".";
+            manifest.setProperty(prefix + "id", studyFilter.getKey());
+            manifest.setProperty(prefix + "variantsCount", String.valueOf(studyCounts.get(studyFilter.getKey())));
+            manifest.setProperty(prefix + "insertions", String.valueOf(filter.getInsertions()));
+            manifest.setProperty(prefix + "bits", String.valueOf(filter.getNumBits()));
+            manifest.setProperty(prefix + "hashFunctions", String.valueOf(filter.getNumHashFunctions()));
+            manifest.setProperty(prefix + "expectedFalsePositiveRate",
+                                 String.valueOf(filter.getExpectedFalsePositiveProbability()));
+            manifest.setProperty(prefix + "measuredFalsePositiveRate",
+                                 String.valueOf(measureFalsePositiveRate(filter)));
+            filter.writeTo(indexDirectory.resolve(filterFileName(index)));
+            index++;
+        }
+    }
+
+    /**
+     * Fraction of keys reported as present among keys that cannot be in the filter, as their chromosome is not a
+     * valid one
+     */
+    static double measureFalsePositiveRate(BloomFilter filter) {
+        int falsePositives = 0;
+        for (int i = 0; i < MEASUREMENT_KEYS; i++) {
+            if (filter.mightContain(alleleKey("\u0000", i, "N"))) {
+                falsePositives++;
+            }
+        }
+        return (double) falsePositives / MEASUREMENT_KEYS;
+    }
+
+    @Override
+    protected Map<String, BloomFilter> read(String dbName, Path indexDirectory, Properties manifest)
+            throws IOException {
+        Map<String, BloomFilter> filtersByStudy = new HashMap<>();
+        int studies = Integer.parseInt(manifest.getProperty("studies"));
+        for (int i = 0; i < studies; i++) {
+            filtersByStudy.put(manifest.getProperty("study." + i + ".id"),
+                               BloomFilter.map(indexDirectory.resolve(filterFileName(i))));
+        }
+        logger.info("Mapped beacon filters of {} for {} studies", dbName, studies);
+        return Collections.unmodifiableMap(filtersByStudy);
+    }
+
+    /**
+     * @return number of files of each study, which changes when a load merges its variants into existing ones
+     */
+    @Override
+    protected Map<String, String> getReleaseMarker() {
+        return Collections.singletonMap("filesPerStudy", countFilesPerStudy(variantStudySummaryRepository));
+    }
+
+    /**
+     * @return false positive rate measured while serving requests, and the manifests of the species whose filters
+     * have been used
+     */
+    public Map<String, Object> getStatistics() {
+        long filterNegatives = negatives.get();
+        long filterPositives = positives.get();
+        long confirmedFalsePositives = falsePositives.get();
+        long absentKeys = filterNegatives + confirmedFalsePositives;
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("negatives", filterNegatives);
+        statistics.put("positives", filterPositives);
+        statistics.put("falsePositives", confirmedFalsePositives);
+        statistics.put("measuredFalsePositiveRate",
+                       absentKeys == 0 ? null : (double) confirmedFalsePositives / absentKeys);
+
+        statistics.put("species", getSpeciesStatistics());
+        return statistics;
+    }
+
+    static String alleleKey(String chromosome, long start, String alternate) {
+        return "a\t" + chromosome + "\t" + start + "\t" + alternate;
+    }
+
+    static String typeKey(String chromosome, long start, String type) {
+        return "t\t" + chromosome + "\t" + start + "\t" + type;
+    }
+
+    private static String filterFileName(int index) {
+        return "study-" + index + ".bloom";
+    }
+}
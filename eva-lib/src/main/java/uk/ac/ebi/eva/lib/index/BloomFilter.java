@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bloom filter over string keys, whose bits can be written to a file and memory-mapped back, so large filters are
+ * shared through the page cache instead of being loaded into the heap.
+ *
+ * The filters created with {@link #create} are mutable; those read with {@link #map} are read-only. A filter never
+ * answers that a key added to it is absent; it may answer that an absent key is present, with a probability that
+ * depends on the number of bits per key (see {@link #getExpectedFalsePositiveProbability()}).
+ *
+ * File layout: magic number, number of hash functions (int), number of bits (long), number of insertions (long),
+ * followed by the bits as big-endian longs.
+ */
+public class BloomFilter {
+
+    private static final long MAGIC = 0x4556414246494c31L; // "EVABFIL1"
+
+    private static final int HEADER_BYTES = 8 + 4 + 8 + 8;
+
+    private static final int WRITE_BUFFER_LONGS = 8192;
+
+    private final LongBuffer bits;
+
+    private final long numBits;
+
+    private final int numHashFunctions;
+
+    private long insertions;
+
+    private BloomFilter(LongBuffer bits, long numBits, int numHashFunctions, long insertions) {
+        this.bits = bits;
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+        this.insertions = insertions;
+    }
+
+    /**
+     * Creates an empty filter sized so that, after adding the expected number of keys, the probability of a false
+     * positive is the given one.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        }
+        long keys = Math.max(1, expectedInsertions);
+        long bitsForKeys = (long) Math.ceil(-keys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        long numLongs = Math.max(1, (bitsForKeys + Long.SIZE - 1) / Long.SIZE);
+        if (numLongs > (Integer.MAX_VALUE - HEADER_BYTES) / Long.BYTES) {
+            throw new IllegalArgumentException("Too many keys for a single filter: " + expectedInsertions);
+        }
+        long numBits = numLongs * Long.SIZE;
+        int numHashFunctions = (int) Math.max(1, Math.round((double) numBits / keys * Math.log(2)));
+        return new BloomFilter(LongBuffer.allocate((int) numLongs), numBits, numHashFunctions, 0);
+    }
+
+    /**
+     * Maps a filter written with {@link #writeTo}. The file must not be modified while the filter is in use.
+     */
+    public static BloomFilter map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+                throw new IOException(path + " is not a Bloom filter");
+            }
+            int numHashFunctions = buffer.getInt(8);
+            long numBits = buffer.getLong(12);
+            long insertions = buffer.getLong(20);
+            if (buffer.capacity() != HEADER_BYTES + numBits / Long.SIZE * Long.BYTES) {
+                throw new IOException(path + " is truncated");
+            }
+            buffer.position(HEADER_BYTES);
+            return new BloomFilter(buffer.slice().asLongBuffer(), numBits, numHashFunctions, insertions);
+        }
+    }
+
+    public void writeTo(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putInt(numHashFunctions).putLong(numBits).putLong(insertions).flip();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_LONGS * Long.BYTES);
+            for (int i = 0; i < bits.capacity(); i++) {
+                buffer.putLong(bits.get(i));
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public void put(CharSequence key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            int word = (int) (index >>> 6);
+            bits.put(word, bits.get(word) | (1L << index));
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Probability that an absent key is reported as present, estimated from the fraction of bits that are set. This
+     * reads the whole filter.
+     */
+    public double getExpectedFalsePositiveProbability() {
+        long setBits = 0;
+        for (int i = 0; i < bits.capacity(); i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) setBits / numBits, numHashFunctions);
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    public long getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the key, followed by a finalizer that spreads the bits, so that two hash
+     * functions derived from it are enough to simulate all the hash functions of the filter
+     */
+    private static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.models.DensityBin;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-species {@link DensityPyramid} of variant counts, used to draw variant density tracks without reading the
+ * variants of the region, and to count the variants of a region approximately from the counts of its 10k chunks.
+ *
+ * The pyramid of each species is built by {@link #build} from the chunk IDs of the variants and written to
+ * "eva.index.directory"/{database}/density, with a manifest that records its size. It is small enough to be read
+ * into memory on first use.
+ *
+ * A pyramid built before a variant load would miss the new variants, so the pyramid of a species is only used while
+ * its number of variants and the number of files of each study are the ones it was built from, see
+ * {@link ReleaseAwareIndex}. The number of variants alone would not change with a load that merges its variants into
+ * existing ones, whose study counts would then be missing from the pyramid.
+ */
+@Component
+public class DensityIndex extends ReleaseAwareIndex<DensityPyramid> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DensityIndex.class);
+
+    /**
+     * Size of the chunks whose counts are used to count the variants of a region approximately
+     */
+    public static final int COUNT_CHUNK_SIZE = 10000;
+
+    private static final String PYRAMID_FILE = "density.bin";
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public DensityIndex(VariantEntityRepository variantEntityRepository,
+                        VariantStudySummaryRepository variantStudySummaryRepository,
+                        @Value("${eva.index.directory:}") String directory) {
+        super("density pyramid", "density", variantEntityRepository, variantStudySummaryRepository, directory);
+    }
+
+    /**
+     * @return variant counts of the bins overlapping a region, see {@link DensityPyramid#getBins}, or null if the
+     * species has no valid pyramid
+     * @throws IllegalArgumentException if the region can't be split in bins of that size
+     */
+    public List<DensityBin> getBins(String dbName, String chromosome, long start, long end, int binSize,
+                                    boolean byType, boolean byStudy) {
+        DensityPyramid.checkBins(start, end, binSize);
+        if (!isEnabled()) {
+            return null;
+        }
+        DensityPyramid pyramid = get(dbName);
+        if (pyramid == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return pyramid.getBins(chromosome, start, end, binSize, byType, byStudy);
+    }
+
+    /**
+     * Number of variants that start in the {@link #COUNT_CHUNK_SIZE} chunks between two chunk numbers, both included,
+     * in total or in any of the given studies, see {@link DensityPyramid#countChunks}
+     *
+     * @return number of variants, or null if the species has no valid pyramid
+     */
+    public Long countChunks(String dbName, String chromosome, long firstChunk, long lastChunk, List<String> studies) {
+        if (!isEnabled()) {
+            return null;
+        }
+        DensityPyramid pyramid = get(dbName);
+        if (pyramid == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return pyramid.countChunks(chromosome, COUNT_CHUNK_SIZE, firstChunk, lastChunk, studies);
+    }
+
+    @Override
+    protected void write(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        DensityPyramid pyramid;
+        try (CloseableIterator<VariantChunks> variants = variantEntityRepository.streamVariantChunks()) {
+            pyramid = DensityPyramid.build(variants);
+        }
+        pyramid.writeTo(indexDirectory.resolve(PYRAMID_FILE));
+
+        manifest.setProperty("chunkSizes", Arrays.stream(DensityPyramid.CHUNK_SIZES).mapToObj(String::valueOf)
+                                                 .collect(Collectors.joining(",")));
+        manifest.setProperty("chromosomes", String.valueOf(pyramid.getChromosomesCount()));
+        manifest.setProperty("series", String.valueOf(pyramid.getSeriesCount()));
+        manifest.setProperty("chunks", String.valueOf(pyramid.getChunksCount()));
+        manifest.setProperty("bytes", String.valueOf(Files.size(indexDirectory.resolve(PYRAMID_FILE))));
+    }
+
+    @Override
+    protected DensityPyramid read(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        DensityPyramid pyramid = DensityPyramid.read(indexDirectory.resolve(PYRAMID_FILE));
+        logger.info("Read density pyramid of {} with {} chunks", dbName, pyramid.getChunksCount());
+        return pyramid;
+    }
+
+    /**
+     * @return number of requests answered by the pyramids, and the manifests of the species whose pyramid has been
+     * used
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+
+        statistics.put("species", getSpeciesStatistics());
+        return statistics;
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import uk.ac.ebi.eva.lib.models.DensityBin;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Number of variants per chromosome bin at several resolutions, in total, per variant type and per study, from which
+ * the variant density of a region can be calculated for any bin size multiple of {@link #MIN_BIN_SIZE}.
+ *
+ * The two finest levels are counted from the 1k and 10k chunk IDs of the variants ("_at.chunkIds", e.g. "11_180_1k"),
+ * and the coarser ones are added up from the 10k level. A variant spanning several chunks is only counted in the
+ * first one, the chunk of its start, so the counts of several chunks can be added up without counting any variant
+ * twice. Only the chunks that have some variant are stored.
+ *
+ * File layout: magic number, number of levels and number of chromosomes, followed by the name and number of series
+ * of each chromosome, and the key and counts of each series; the counts of each level are written as their number of
+ * chunks, the chunk numbers in ascending order and the counts in the same order, all as big-endian ints.
+ */
+public class DensityPyramid {
+
+    /**
+     * Size of the chunks of each level, in base pairs
+     */
+    static final int[] CHUNK_SIZES = {1000, 10000, 100000, 1000000};
+
+    /**
+     * Suffixes of the chunk IDs the first levels are counted from
+     */
+    private static final String[] CHUNK_ID_SUFFIXES = {"1k", "10k"};
+
+    public static final int MIN_BIN_SIZE = 1000;
+
+    public static final int MAX_BINS = 10000;
+
+    private static final int MAGIC = 0x45564431; // "EVD1"
+
+    static final String TOTAL = "total";
+
+    static final String TYPE_PREFIX = "type:";
+
+    static final String STUDY_PREFIX = "study:";
+
+    /**
+     * Counts of each level, by series key and chromosome
+     */
+    private final Map<String, Map<String, SparseCounts[]>> counts;
+
+    private DensityPyramid(Map<String, Map<String, SparseCounts[]>> counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * Counts the variants of an iterator, which should be sorted by chromosome and start so the counts are appended
+     * to their series instead of being inserted
+     */
+    public static DensityPyramid build(Iterator<VariantChunks> variants) {
+        Map<String, Map<String, SparseCounts[]>> counts = new HashMap<>();
+        while (variants.hasNext()) {
+            VariantChunks variant = variants.next();
+            Map<String, SparseCounts[]> chromosomeCounts = counts.computeIfAbsent(variant.getChromosome(),
+                                                                                  key -> new HashMap<>());
+            for (int level = 0; level < CHUNK_ID_SUFFIXES.length; level++) {
+                int chunk = getStartChunk(variant.getChunkIds(), CHUNK_ID_SUFFIXES[level]);
+                if (chunk < 0) {
+                    continue;
+                }
+                increment(chromosomeCounts, TOTAL, level, chunk);
+                if (variant.getType() != null) {
+                    increment(chromosomeCounts, TYPE_PREFIX + variant.getType(), level, chunk);
+                }
+                for (String studyId : variant.getStudyIds()) {
+                    increment(chromosomeCounts, STUDY_PREFIX + studyId, level, chunk);
+                }
+            }
+        }
+
+        for (Map<String, SparseCounts[]> chromosomeCounts : counts.values()) {
+            for (SparseCounts[] levels : chromosomeCounts.values()) {
+                for (int level = CHUNK_ID_SUFFIXES.length; level < CHUNK_SIZES.length; level++) {
+                    levels[level] = levels[level - 1].coarsen(CHUNK_SIZES[level] / CHUNK_SIZES[level - 1]);
+                }
+            }
+        }
+        return new DensityPyramid(counts);
+    }
+
+    private static void increment(Map<String, SparseCounts[]> chromosomeCounts, String series, int level,
+                                  int chunk) {
+        chromosomeCounts.computeIfAbsent(series, key -> {
+            SparseCounts[] levels = new SparseCounts[CHUNK_SIZES.length];
+            for (int i = 0; i < CHUNK_ID_SUFFIXES.length; i++) {
+                levels[i] = new SparseCounts();
+            }
+            return levels;
+        })[level].increment(chunk);
+    }
+
+    /**
+     * @return lowest chunk number among the chunk IDs with the given suffix, or -1 if there is none
+     */
+    static int getStartChunk(List<String> chunkIds, String suffix) {
+        int startChunk = -1;
+        for (String chunkId : chunkIds) {
+            int suffixStart = chunkId.length() - suffix.length();
+            if (suffixStart < 3 || chunkId.charAt(suffixStart - 1) != '_' || !chunkId.endsWith(suffix)) {
+                continue;
+            }
+            int numberStart = chunkId.lastIndexOf('_', suffixStart - 2) + 1;
+            if (numberStart == 0 || numberStart == suffixStart - 1) {
+                continue;
+            }
+            try {
+                int chunk = Integer.parseInt(chunkId.substring(numberStart, suffixStart - 1));
+                if (chunk >= 0 && (startChunk < 0 || chunk < startChunk)) {
+                    startChunk = chunk;
+                }
+            } catch (NumberFormatException e) {
+                // not a chunk ID, the chromosome name just ends like one
+            }
+        }
+        return startChunk;
+    }
+
+    /**
+     * Checks that a region can be split in bins of the given size
+     *
+     * @throws IllegalArgumentException if the bin size is not a multiple of {@link #MIN_BIN_SIZE}, the region is not
+     *                                  valid or it would be split in more than {@link #MAX_BINS} bins
+     */
+    public static void checkBins(long start, long end, int binSize) {
+        if (binSize < MIN_BIN_SIZE || binSize % MIN_BIN_SIZE != 0) {
+            throw new IllegalArgumentException("The bin size must be a multiple of " + MIN_BIN_SIZE);
+        }
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("The region must have a start and an end after it");
+        }
+        if (getBinsCount(start, end, binSize) > MAX_BINS) {
+            throw new IllegalArgumentException("A region can't be split in more than " + MAX_BINS +
+                                                       " bins, please use a larger bin size");
+        }
+    }
+
+    /**
+     * @return number of bins of the given size that overlap a region; the bins are aligned to multiples of their size
+     */
+    public static long getBinsCount(long start, long end, int binSize) {
+        return end / binSize - start / binSize + 1;
+    }
+
+    /**
+     * Number of variants that start in each bin overlapping a region. The bins are aligned to multiples of their
+     * size, so the first and last ones may extend beyond the region.
+     *
+     * @param byType whether to split the counts by variant type
+     * @param byStudy whether to split the counts by study
+     * @return one bin per multiple of the bin size in the region, including the empty ones
+     * @throws IllegalArgumentException if the region can't be split in bins of that size, see {@link #checkBins}
+     */
+    public List<DensityBin> getBins(String chromosome, long start, long end, int binSize, boolean byType,
+                                    boolean byStudy) {
+        checkBins(start, end, binSize);
+        int level = CHUNK_SIZES.length - 1;
+        while (binSize % CHUNK_SIZES[level] != 0) {
+            level--;
+        }
+        int chunksPerBin = binSize / CHUNK_SIZES[level];
+        long firstBin = start / binSize;
+        int binsCount = (int) getBinsCount(start, end, binSize);
+        long firstChunk = firstBin * chunksPerBin;
+
+        Map<String, SparseCounts[]> chromosomeCounts = counts.getOrDefault(chromosome, Collections.emptyMap());
+        long[] totals = new long[binsCount];
+        SparseCounts[] totalLevels = chromosomeCounts.get(TOTAL);
+        if (totalLevels != null) {
+            totalLevels[level].addTo(totals, firstChunk, chunksPerBin);
+        }
+        Map<String, long[]> typeTotals = byType ? sumSeries(chromosomeCounts, TYPE_PREFIX, level, binsCount,
+                                                            firstChunk, chunksPerBin) : null;
+        Map<String, long[]> studyTotals = byStudy ? sumSeries(chromosomeCounts, STUDY_PREFIX, level, binsCount,
+                                                              firstChunk, chunksPerBin) : null;
+
+        List<DensityBin> bins = new ArrayList<>(binsCount);
+        for (int i = 0; i < binsCount; i++) {
+            long binStart = (firstBin + i) * binSize;
+            bins.add(new DensityBin(chromosome, binStart, binStart + binSize - 1, totals[i],
+                                    getBinCounts(typeTotals, i), getBinCounts(studyTotals, i)));
+        }
+        return bins;
+    }
+
+    /**
+     * Number of variants that start in the chunks between two chunk numbers, both included, in total or in any of the
+     * given studies. A variant found in several of the studies is counted once per study.
+     *
+     * @param chunkSize Size of the chunks, one of the levels of the pyramid
+     * @param studies Study IDs, or null or empty to count all the variants
+     * @throws IllegalArgumentException if there is no level with that chunk size
+     */
+    public long countChunks(String chromosome, int chunkSize, long firstChunk, long lastChunk,
+                            Collection<String> studies) {
+        int level = Arrays.binarySearch(CHUNK_SIZES, chunkSize);
+        if (level < 0) {
+            throw new IllegalArgumentException("There are no chunks of " + chunkSize + " bp");
+        }
+        Map<String, SparseCounts[]> chromosomeCounts = counts.getOrDefault(chromosome, Collections.emptyMap());
+        List<String> seriesKeys = new ArrayList<>();
+        if (studies == null || studies.isEmpty()) {
+            seriesKeys.add(TOTAL);
+        } else {
+            studies.forEach(study -> seriesKeys.add(STUDY_PREFIX + study));
+        }
+
+        long count = 0;
+        for (String series : seriesKeys) {
+            SparseCounts[] levels = chromosomeCounts.get(series);
+            if (levels != null) {
+                count += levels[level].sum(firstChunk, lastChunk);
+            }
+        }
+        return count;
+    }
+
+    private static Map<String, long[]> sumSeries(Map<String, SparseCounts[]> chromosomeCounts, String prefix,
+                                                 int level, int binsCount, long firstChunk, int chunksPerBin) {
+        Map<String, long[]> totals = new TreeMap<>();
+        chromosomeCounts.forEach((series, levels) -> {
+            if (series.startsWith(prefix)) {
+                long[] seriesTotals = new long[binsCount];
+                levels[level].addTo(seriesTotals, firstChunk, chunksPerBin);
+                totals.put(series.substring(prefix.length()), seriesTotals);
+            }
+        });
+        return totals;
+    }
+
+    private static Map<String, Long> getBinCounts(Map<String, long[]> totals, int bin) {
+        if (totals == null) {
+            return null;
+        }
+        Map<String, Long> binCounts = new TreeMap<>();
+        totals.forEach((key, seriesTotals) -> {
+            if (seriesTotals[bin] > 0) {
+                binCounts.put(key, seriesTotals[bin]);
+            }
+        });
+        return binCounts;
+    }
+
+    public int getChromosomesCount() {
+        return counts.size();
+    }
+
+    public int getSeriesCount() {
+        return counts.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * @return number of chunks with some variant, in all the levels and series
+     */
+    public long getChunksCount() {
+        long chunks = 0;
+        for (Map<String, SparseCounts[]> chromosomeCounts : counts.values()) {
+            for (SparseCounts[] levels : chromosomeCounts.values()) {
+                for (SparseCounts level : levels) {
+                    chunks += level.size;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    void writeTo(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(CHUNK_SIZES.length);
+            output.writeInt(counts.size());
+            for (Map.Entry<String, Map<String, SparseCounts[]>> chromosomeCounts : counts.entrySet()) {
+                output.writeUTF(chromosomeCounts.getKey());
+                output.writeInt(chromosomeCounts.getValue().size());
+                for (Map.Entry<String, SparseCounts[]> series : chromosomeCounts.getValue().entrySet()) {
+                    output.writeUTF(series.getKey());
+                    for (SparseCounts level : series.getValue()) {
+                        level.writeTo(output);
+                    }
+                }
+            }
+        }
+    }
+
+    static DensityPyramid read(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != CHUNK_SIZES.length) {
+                throw new IOException(path.getFileName() + " is not a density pyramid");
+            }
+            int chromosomes = input.readInt();
+            Map<String, Map<String, SparseCounts[]>> counts = new HashMap<>();
+            for (int i = 0; i < chromosomes; i++) {
+                String chromosome = input.readUTF();
+                int seriesCount = input.readInt();
+                Map<String, SparseCounts[]> chromosomeCounts = new HashMap<>();
+                for (int j = 0; j < seriesCount; j++) {
+                    String series = input.readUTF();
+                    SparseCounts[] levels = new SparseCounts[CHUNK_SIZES.length];
+                    for (int level = 0; level < levels.length; level++) {
+                        levels[level] = SparseCounts.readFrom(input);
+                    }
+                    chromosomeCounts.put(series, levels);
+                }
+                counts.put(chromosome, chromosomeCounts);
+            }
+            return new DensityPyramid(counts);
+        }
+    }
+
+    /**
+     * Counts of the chunks with some variant, sorted by chunk number
+     */
+    static class SparseCounts {
+
+        private int[] chunks;
+
+        private int[] counts;
+
+        private int size;
+
+        SparseCounts() {
+            this(new int[16], new int[16], 0);
+        }
+
+        private SparseCounts(int[] chunks, int[] counts, int size) {
+            this.chunks = chunks;
+            this.counts = counts;
+            this.size = size;
+        }
+
+        void increment(int chunk) {
+            if (size > 0 && chunks[size - 1] == chunk) {
+                counts[size - 1]++;
+                return;
+            }
+            int index;
+            if (size == 0 || chunks[size - 1] < chunk) {
+                index = size;
+            } else {
+                index = Arrays.binarySearch(chunks, 0, size, chunk);
+                if (index >= 0) {
+                    counts[index]++;
+                    return;
+                }
+                index = -index - 1;
+            }
+            if (size == chunks.length) {
+                chunks = Arrays.copyOf(chunks, 2 * size);
+                counts = Arrays.copyOf(counts, 2 * size);
+            }
+            System.arraycopy(chunks, index, chunks, index + 1, size - index);
+            System.arraycopy(counts, index, counts, index + 1, size - index);
+            chunks[index] = chunk;
+            counts[index] = 1;
+            size++;
+        }
+
+        /**
+         * @return counts of the chunks that contain "factor" chunks of this level
+         */
+        SparseCounts coarsen(int factor) {
+            SparseCounts coarse = new SparseCounts(new int[Math.max(size, 1)], new int[Math.max(size, 1)], 0);
+            for (int i = 0; i < size; i++) {
+                int chunk = chunks[i] / factor;
+                if (coarse.size > 0 && coarse.chunks[coarse.size - 1] == chunk) {
+                    coarse.counts[coarse.size - 1] += counts[i];
+                } else {
+                    coarse.chunks[coarse.size] = chunk;
+                    coarse.counts[coarse.size] = counts[i];
+                    coarse.size++;
+                }
+            }
+            return coarse;
+        }
+
+        /**
+         * Adds the counts of the chunks from "firstChunk" on to the bins, "chunksPerBin" chunks to each bin
+         */
+        void addTo(long[] bins, long firstChunk, int chunksPerBin) {
+            long endChunk = firstChunk + (long) bins.length * chunksPerBin;
+            for (int i = lowerBound(firstChunk); i < size && chunks[i] < endChunk; i++) {
+                bins[(int) ((chunks[i] - firstChunk) / chunksPerBin)] += counts[i];
+            }
+        }
+
+        long sum(long firstChunk, long lastChunk) {
+            long sum = 0;
+            for (int i = lowerBound(firstChunk); i < size && chunks[i] <= lastChunk; i++) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+
+        private int lowerBound(long chunk) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (chunks[middle] < chunk) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void writeTo(DataOutputStream output) throws IOException {
+            output.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                output.writeInt(chunks[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                output.writeInt(counts[i]);
+            }
+        }
+
+        static SparseCounts readFrom(DataInputStream input) throws IOException {
+            int size = input.readInt();
+            int[] chunks = new int[size];
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                chunks[i] = input.readInt();
+            }
+            for (int i = 0; i < size; i++) {
+                counts[i] = input.readInt();
+            }
+            return new SparseCounts(chunks, counts, size);
+        }
+    }
+}
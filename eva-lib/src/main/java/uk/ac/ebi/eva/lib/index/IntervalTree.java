@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Static interval tree over closed intervals, laid out as an implicit binary search tree over the intervals sorted by
+ * start: the node at index i of level k has the children i - 2^(k-1) and i + 2^(k-1), and each node keeps the highest
+ * end of its subtree, so the subtrees that end before a query can be skipped. This needs no other memory than the
+ * starts, the ends and the highest ends, three longs per interval.
+ *
+ * The layout is the one described by Heng Li for cgranges ("implicit interval tree").
+ */
+class IntervalTree {
+
+    /**
+     * Subtrees up to this level are scanned linearly instead of descended
+     */
+    private static final int LINEAR_SCAN_LEVEL = 3;
+
+    private static final int MAX_DEPTH = 64;
+
+    private final long[] starts;
+
+    private final long[] ends;
+
+    private final long[] maxEnds;
+
+    private final int size;
+
+    private final int rootLevel;
+
+    /**
+     * @param starts Starts of the intervals, in ascending order
+     * @param ends Ends of the intervals, in the same order
+     */
+    IntervalTree(long[] starts, long[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+        this.maxEnds = new long[size];
+        this.rootLevel = index();
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getStart(int i) {
+        return starts[i];
+    }
+
+    long getEnd(int i) {
+        return ends[i];
+    }
+
+    /**
+     * Fills the highest end of each subtree, bottom-up
+     *
+     * @return level of the root
+     */
+    private int index() {
+        if (size == 0) {
+            return -1;
+        }
+        long lastIndex = 0;
+        long last = 0;
+        for (int i = 0; i < size; i += 2) {
+            lastIndex = i;
+            last = maxEnds[i] = ends[i];
+        }
+        int level = 1;
+        for (; 1L << level <= size; level++) {
+            long offset = 1L << (level - 1);
+            long first = (offset << 1) - 1;
+            long step = offset << 2;
+            for (long i = first; i < size; i += step) {
+                long leftMax = maxEnds[(int) (i - offset)];
+                // the right child may be out of range, then the highest end of the last node stands for it
+                long rightMax = i + offset < size ? maxEnds[(int) (i + offset)] : last;
+                maxEnds[(int) i] = Math.max(ends[(int) i], Math.max(leftMax, rightMax));
+            }
+            lastIndex = ((lastIndex >> level) & 1) != 0 ? lastIndex - offset : lastIndex + offset;
+            if (lastIndex < size && maxEnds[(int) lastIndex] > last) {
+                last = maxEnds[(int) lastIndex];
+            }
+        }
+        return level - 1;
+    }
+
+    /**
+     * Calls the consumer with the index of every interval that overlaps the closed interval [start, end], in
+     * ascending order
+     */
+    void forEachOverlap(long start, long end, LongConsumer consumer) {
+        if (size == 0) {
+            return;
+        }
+        int[] levels = new int[MAX_DEPTH];
+        long[] nodes = new long[MAX_DEPTH];
+        boolean[] leftDone = new boolean[MAX_DEPTH];
+        int top = 0;
+        levels[top] = rootLevel;
+        nodes[top] = (1L << rootLevel) - 1;
+        leftDone[top++] = false;
+
+        while (top > 0) {
+            top--;
+            int level = levels[top];
+            long node = nodes[top];
+            if (level <= LINEAR_SCAN_LEVEL) {
+                long first = node >> level << level;
+                long last = Math.min(first + (1L << (level + 1)) - 1, size);
+                for (long i = first; i < last && starts[(int) i] <= end; i++) {
+                    if (ends[(int) i] >= start) {
+                        consumer.accept(i);
+                    }
+                }
+            } else if (!leftDone[top]) {
+                long left = node - (1L << (level - 1));
+                leftDone[top++] = true;
+                if (left >= size || maxEnds[(int) left] >= start) {
+                    levels[top] = level - 1;
+                    nodes[top] = left;
+                    leftDone[top++] = false;
+                }
+            } else if (node < size && starts[(int) node] <= end) {
+                if (ends[(int) node] >= start) {
+                    consumer.accept(node);
+                }
+                levels[top] = level - 1;
+                nodes[top] = node + (1L << (level - 1));
+                leftDone[top++] = false;
+            }
+        }
+    }
+}
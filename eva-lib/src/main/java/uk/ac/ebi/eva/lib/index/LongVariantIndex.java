@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.opencb.biodata.models.feature.Region;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantInterval;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-species {@link IntervalTree}s over the variants that span at least {@link #LONG_VARIANT_LENGTH} bases, mostly
+ * structural variants.
+ *
+ * Without this index, a region query has to look for variants starting up to a wide margin before the region, so
+ * the ones that start before it and reach into it are found, and still misses those longer than the margin. With the
+ * index, the short variants are only looked for in the {@link #LONG_VARIANT_LENGTH} bases before the region, and the
+ * long ones by the starts found in the trees, see
+ * {@link VariantEntityRepository#findByRegionsAndComplexFilters(List, int, Map, List, List,
+ * org.springframework.data.domain.Pageable)}.
+ *
+ * The intervals of each species are built by {@link #build} from its variants collection and written to
+ * "eva.index.directory"/{database}/long-variants, with a manifest that records the length they were built with.
+ * They are read into memory on first use.
+ *
+ * Intervals built before a variant load would miss the new variants, so the intervals of a species are only used
+ * while its number of variants is the one they were built from, see {@link ReleaseAwareIndex}.
+ */
+@Component
+public class LongVariantIndex extends ReleaseAwareIndex<Map<String, IntervalTree>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LongVariantIndex.class);
+
+    /**
+     * Variants whose end minus start is at least this are kept in the index
+     */
+    public static final int LONG_VARIANT_LENGTH = 1000;
+
+    private static final int MAGIC = 0x45564c31; // "EVL1"
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final String INTERVALS_FILE = "intervals.bin";
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public LongVariantIndex(VariantEntityRepository variantEntityRepository,
+                            @Value("${eva.index.directory:}") String directory) {
+        super("long variant intervals", "long-variants", variantEntityRepository, directory);
+    }
+
+    /**
+     * @return starts of the long variants that overlap any of the regions, by chromosome, or null if the species has
+     * no valid index
+     */
+    public Map<String, Set<Long>> findStarts(String dbName, List<Region> regions) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Map<String, IntervalTree> trees = get(dbName);
+        if (trees == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return findStarts(trees, regions);
+    }
+
+    static Map<String, Set<Long>> findStarts(Map<String, IntervalTree> trees, List<Region> regions) {
+        Map<String, Set<Long>> startsByChromosome = new HashMap<>();
+        for (Region region : regions) {
+            IntervalTree tree = trees.get(region.getChromosome());
+            if (tree != null) {
+                Set<Long> starts = startsByChromosome.computeIfAbsent(region.getChromosome(),
+                                                                      chromosome -> new TreeSet<>());
+                tree.forEachOverlap(region.getStart(), region.getEnd(), i -> starts.add(tree.getStart((int) i)));
+            }
+        }
+        return startsByChromosome;
+    }
+
+    @Override
+    protected void write(String dbName, Path indexDirectory, Properties manifest) throws IOException {
+        Map<String, IntervalTree> trees;
+        try (CloseableIterator<VariantInterval> variants = variantEntityRepository.streamVariantIntervals()) {
+            trees = buildTrees(variants);
+        }
+        writeTrees(trees, indexDirectory.resolve(INTERVALS_FILE));
+
+        manifest.setProperty("longVariantLength", String.valueOf(LONG_VARIANT_LENGTH));
+        manifest.setProperty("longVariants", String.valueOf(countIntervals(trees)));
+        manifest.setProperty("chromosomes", String.valueOf(trees.size()));
+    }
+
+    @Override
+    protected Map<String, IntervalTree> read(String dbName, Path indexDirectory, Properties manifest)
+            throws IOException {
+        Map<String, IntervalTree> trees = readTrees(indexDirectory.resolve(INTERVALS_FILE));
+        logger.info("Read long variant intervals of {} with {} variants", dbName, countIntervals(trees));
+        return trees;
+    }
+
+    /**
+     * @return whether the intervals were built with the current {@link #LONG_VARIANT_LENGTH}
+     */
+    @Override
+    protected boolean isCompatible(Properties manifest) {
+        return Integer.parseInt(manifest.getProperty("longVariantLength")) == LONG_VARIANT_LENGTH;
+    }
+
+    /**
+     * Keeps the variants that span at least {@link #LONG_VARIANT_LENGTH} bases, in one tree per chromosome
+     */
+    static Map<String, IntervalTree> buildTrees(Iterator<VariantInterval> variants) {
+        Map<String, IntervalList> intervalsByChromosome = new TreeMap<>();
+        while (variants.hasNext()) {
+            VariantInterval variant = variants.next();
+            if (variant.getEnd() - variant.getStart() >= LONG_VARIANT_LENGTH) {
+                intervalsByChromosome.computeIfAbsent(variant.getChromosome(), chromosome -> new IntervalList())
+                                     .add(variant.getStart(), variant.getEnd());
+            }
+        }
+
+        Map<String, IntervalTree> trees = new TreeMap<>();
+        intervalsByChromosome.forEach((chromosome, intervalList) -> {
+            long[] starts = Arrays.copyOf(intervalList.starts, intervalList.size);
+            long[] ends = Arrays.copyOf(intervalList.ends, intervalList.size);
+            AccessionIndex.sort(starts, ends, 0, intervalList.size);
+            trees.put(chromosome, new IntervalTree(starts, ends, intervalList.size));
+        });
+        return trees;
+    }
+
+    private static long countIntervals(Map<String, IntervalTree> trees) {
+        return trees.values().stream().mapToLong(IntervalTree::size).sum();
+    }
+
+    private static void writeTrees(Map<String, IntervalTree> trees, Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(trees.size());
+            for (Map.Entry<String, IntervalTree> entry : trees.entrySet()) {
+                IntervalTree tree = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeInt(tree.size());
+                for (int i = 0; i < tree.size(); i++) {
+                    output.writeLong(tree.getStart(i));
+                    output.writeLong(tree.getEnd(i));
+                }
+            }
+        }
+    }
+
+    private static Map<String, IntervalTree> readTrees(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a long variant intervals file: " + path);
+            }
+            int chromosomes = input.readInt();
+            Map<String, IntervalTree> trees = new TreeMap<>();
+            for (int c = 0; c < chromosomes; c++) {
+                String chromosome = input.readUTF();
+                int size = input.readInt();
+                long[] starts = new long[size];
+                long[] ends = new long[size];
+                for (int i = 0; i < size; i++) {
+                    starts[i] = input.readLong();
+                    ends[i] = input.readLong();
+                }
+                trees.put(chromosome, new IntervalTree(starts, ends, size));
+            }
+            return trees;
+        }
+    }
+
+    /**
+     * @return number of region queries answered with the intervals, and the manifests of the species whose intervals
+     * have been used
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+
+        statistics.put("species", getSpeciesStatistics());
+        return statistics;
+    }
+
+    private static class IntervalList {
+
+        private long[] starts = new long[INITIAL_CAPACITY];
+
+        private long[] ends = new long[INITIAL_CAPACITY];
+
+        private int size;
+
+        void add(long start, long end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size++] = end;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only array of longs mapped from a file. A single mapping cannot be larger than 2 GB, so the array is mapped in
+ * segments of {@link #SEGMENT_LONGS} longs and can hold more than Integer.MAX_VALUE elements.
+ */
+class MappedLongArray {
+
+    private static final int SEGMENT_SHIFT = 27;
+
+    static final long SEGMENT_LONGS = 1L << SEGMENT_SHIFT;
+
+    private static final long SEGMENT_MASK = SEGMENT_LONGS - 1;
+
+    private final LongBuffer[] segments;
+
+    private final long length;
+
+    private MappedLongArray(LongBuffer[] segments, long length) {
+        this.segments = segments;
+        this.length = length;
+    }
+
+    /**
+     * Maps "length" big-endian longs starting at "offset" bytes from the beginning of the file. The mapping stays
+     * valid after the channel is closed.
+     */
+    static MappedLongArray map(FileChannel channel, long offset, long length) throws IOException {
+        if (offset + length * Long.BYTES > channel.size()) {
+            throw new IOException("The file is shorter than the array");
+        }
+        int numSegments = (int) ((length + SEGMENT_LONGS - 1) / SEGMENT_LONGS);
+        LongBuffer[] segments = new LongBuffer[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            long segmentLength = Math.min(SEGMENT_LONGS, length - i * SEGMENT_LONGS);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + i * SEGMENT_LONGS * Long.BYTES,
+                                      segmentLength * Long.BYTES).asLongBuffer();
+        }
+        return new MappedLongArray(segments, length);
+    }
+
+    long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * @return the index of the first element that is not lower than the key, or the length of the array if there is
+     * none. The array must be sorted.
+     */
+    long lowerBound(long key) {
+        long low = 0;
+        long high = length;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (get(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
+import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+
+/**
+ * Per-species index built from the variants collection and written to "eva.index.directory"/{database}/{name}, with
+ * a manifest that describes it. The index of a species is read from its files on first use and kept in memory. The
+ * index is disabled while "eva.index.directory" is empty.
+ *
+ * An index built before a variant load would not know about the new variants, so the manifest records a release
+ * marker, read from the database right before the index is built, and the index of a species is only used while
+ * the marker of its database is the same. This is checked when the index is read and every
+ * "eva.cache.refresh-interval-ms" milliseconds; stale indexes are dropped until they are built again. By default the
+ * marker is the number of variants, plus the number of files of each study for the indexes created with a
+ * {@link VariantStudySummaryRepository}, which must also notice loads merged into existing variants.
+ *
+ * As in the {@link uk.ac.ebi.eva.lib.cache.ReleaseAwareCache}, an index is read outside of the map by the first
+ * thread that asks for it, and the other threads asking for the same species wait for that read.
+ *
+ * @param <T> in-memory form of the index of one species
+ */
+public abstract class ReleaseAwareIndex<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseAwareIndex.class);
+
+    private static final String MANIFEST = "manifest.properties";
+
+    protected final VariantEntityRepository variantEntityRepository;
+
+    private final VariantStudySummaryRepository variantStudySummaryRepository;
+
+    /**
+     * Description of the index in the logs and errors, e.g. "beacon filters"
+     */
+    private final String name;
+
+    private final String subdirectory;
+
+    private final Path directory;
+
+    private final ConcurrentMap<String, SpeciesIndex<T>> indexes;
+
+    /**
+     * Reads in progress of the species that are not in the indexes yet
+     */
+    private final ConcurrentMap<String, FutureTask<SpeciesIndex<T>>> loads;
+
+    protected ReleaseAwareIndex(String name, String subdirectory, VariantEntityRepository variantEntityRepository,
+                                String directory) {
+        this(name, subdirectory, variantEntityRepository, null, directory);
+    }
+
+    /**
+     * @param variantStudySummaryRepository if not null, the number of files of each study is part of the release
+     * marker
+     */
+    protected ReleaseAwareIndex(String name, String subdirectory, VariantEntityRepository variantEntityRepository,
+                                VariantStudySummaryRepository variantStudySummaryRepository, String directory) {
+        this.name = name;
+        this.subdirectory = subdirectory;
+        this.variantEntityRepository = variantEntityRepository;
+        this.variantStudySummaryRepository = variantStudySummaryRepository;
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.indexes = new ConcurrentHashMap<>();
+        this.loads = new ConcurrentHashMap<>();
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return index of a species, reading it if it is not in memory yet, or null if the species has no valid index
+     */
+    protected T get(String dbName) {
+        if (!isEnabled()) {
+            return null;
+        }
+        SpeciesIndex<T> index = indexes.get(dbName);
+        if (index == null) {
+            index = loadOnce(dbName);
+        }
+        return index.index;
+    }
+
+    private SpeciesIndex<T> loadOnce(String dbName) {
+        FutureTask<SpeciesIndex<T>> task = new FutureTask<>(() -> {
+            SpeciesIndex<T> index = load(dbName);
+            SpeciesIndex<T> current = indexes.putIfAbsent(dbName, index);
+            return current == null ? index : current;
+        });
+        FutureTask<SpeciesIndex<T>> load = loads.putIfAbsent(dbName, task);
+        if (load == null) {
+            load = task;
+            try {
+                task.run();
+            } finally {
+                loads.remove(dbName, task);
+            }
+        }
+
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Could not read the " + name + " of " + dbName, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // not kept, so the index is read again by the next request
+            return new SpeciesIndex<>(null, null);
+        }
+    }
+
+    /**
+     * Builds the index of a species from its variants collection, and replaces the current one
+     *
+     * @return manifest of the new index
+     */
+    public synchronized Map<String, String> build(String dbName) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("The index directory is not configured");
+        }
+        try {
+            Properties manifest = MultiMongoDbFactory.supplyWithDatabase(dbName, () -> buildIndex(dbName));
+            indexes.put(dbName, load(dbName));
+            return getSummary(manifest);
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Could not write the " + name + " of " + dbName, e.getCause());
+        }
+    }
+
+    private Properties buildIndex(String dbName) {
+        // read before the variants, so that a load that runs during the build leaves the index stale
+        Map<String, String> releaseMarker = getReleaseMarker();
+        try {
+            Path speciesDirectory = directory.resolve(dbName);
+            Path target = speciesDirectory.resolve(subdirectory);
+            Path temporary = speciesDirectory.resolve(subdirectory + ".tmp");
+            deleteRecursively(temporary);
+            Files.createDirectories(temporary);
+
+            Properties manifest = new Properties();
+            releaseMarker.forEach(manifest::setProperty);
+            manifest.setProperty("builtAt", Instant.now().toString());
+            write(dbName, temporary, manifest);
+            try (OutputStream output = Files.newOutputStream(temporary.resolve(MANIFEST))) {
+                manifest.store(output, name + " of " + dbName);
+            }
+
+            // the mapped files of the previous index stay readable after being deleted
+            deleteRecursively(target);
+            Files.move(temporary, target);
+            logger.info("Built {} of {}", name, dbName);
+            return manifest;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds the index from the variants collection of the current thread and writes its files to a directory
+     *
+     * @param manifest properties to add the description of the index to
+     */
+    protected abstract void write(String dbName, Path indexDirectory, Properties manifest) throws IOException;
+
+    /**
+     * @return index read from the files written by {@link #write}
+     */
+    protected abstract T read(String dbName, Path indexDirectory, Properties manifest) throws IOException;
+
+    /**
+     * @return whether an index with that manifest can be read by this version of the index
+     */
+    protected boolean isCompatible(Properties manifest) {
+        return true;
+    }
+
+    /**
+     * Reads the properties of the variants database of the current thread that change when new variants are
+     * loaded. They are stored in the manifest, so their names must not clash with the description of the index.
+     */
+    protected Map<String, String> getReleaseMarker() {
+        Map<String, String> releaseMarker = new LinkedHashMap<>();
+        releaseMarker.put("variantsCount", String.valueOf(variantEntityRepository.count()));
+        if (variantStudySummaryRepository != null) {
+            releaseMarker.put("filesPerStudy", countFilesPerStudy(variantStudySummaryRepository));
+        }
+        return releaseMarker;
+    }
+
+    /**
+     * @return number of files of each study, sorted by study. Every load adds a file, even one whose variants are all
+     * merged into existing ones, and the files collection is small enough to aggregate on every check
+     */
+    protected static String countFilesPerStudy(VariantStudySummaryRepository variantStudySummaryRepository) {
+        Map<String, Integer> filesPerStudy = new TreeMap<>();
+        for (VariantStudySummary study : variantStudySummaryRepository.findBy()) {
+            filesPerStudy.merge(study.getStudyId(), study.getFilesCount(), Integer::sum);
+        }
+        return filesPerStudy.toString();
+    }
+
+    /**
+     * @return manifest of an index as returned by {@link #build} and {@link #getSpeciesStatistics}
+     */
+    protected Map<String, String> getSummary(Properties manifest) {
+        Map<String, String> summary = new TreeMap<>();
+        manifest.stringPropertyNames().forEach(property -> summary.put(property, manifest.getProperty(property)));
+        return summary;
+    }
+
+    private SpeciesIndex<T> load(String dbName) {
+        Path indexDirectory = directory.resolve(dbName).resolve(subdirectory);
+        Path manifestPath = indexDirectory.resolve(MANIFEST);
+        if (!Files.exists(manifestPath)) {
+            return new SpeciesIndex<>(null, null);
+        }
+        try {
+            Properties manifest = new Properties();
+            try (InputStream input = Files.newInputStream(manifestPath)) {
+                manifest.load(input);
+            }
+            if (!isCompatible(manifest)) {
+                logger.warn("Incompatible {} of {} will not be used until built again", name, dbName);
+                return new SpeciesIndex<>(null, manifest);
+            }
+            if (isStale(dbName, manifest)) {
+                logger.warn("Stale {} of {} will not be used until built again", name, dbName);
+                return new SpeciesIndex<>(null, manifest);
+            }
+            return new SpeciesIndex<>(read(dbName, indexDirectory, manifest), manifest);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read the " + name + " of " + dbName + ", the database will be queried instead", e);
+            return new SpeciesIndex<>(null, null);
+        }
+    }
+
+    private boolean isStale(String dbName, Properties manifest) {
+        Map<String, String> releaseMarker = MultiMongoDbFactory.supplyWithDatabase(dbName, this::getReleaseMarker);
+        for (Map.Entry<String, String> property : releaseMarker.entrySet()) {
+            if (!property.getValue().equals(manifest.getProperty(property.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the indexes of the species whose release marker has changed since they were built
+     */
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        for (Map.Entry<String, SpeciesIndex<T>> entry : indexes.entrySet()) {
+            String dbName = entry.getKey();
+            SpeciesIndex<T> index = entry.getValue();
+            if (index.index == null) {
+                continue;
+            }
+            try {
+                if (isStale(dbName, index.manifest)) {
+                    logger.warn("Stale {} of {} will not be used until built again", name, dbName);
+                    indexes.replace(dbName, index, new SpeciesIndex<>(null, index.manifest));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not check the " + name + " of " + dbName + ", reading again on next use", e);
+                indexes.remove(dbName, index);
+            }
+        }
+    }
+
+    /**
+     * Drops the indexes held in memory, so they are read again on next use
+     */
+    public void invalidateAll() {
+        indexes.clear();
+    }
+
+    /**
+     * @return summary of the manifest of each species whose index has been used, and whether the index is in use
+     */
+    protected Map<String, Object> getSpeciesStatistics() {
+        Map<String, Object> species = new LinkedHashMap<>();
+        indexes.forEach((dbName, index) -> {
+            if (index.manifest != null) {
+                Map<String, Object> speciesStatistics = new LinkedHashMap<>(getSummary(index.manifest));
+                speciesStatistics.put("active", index.index != null);
+                species.put(dbName, speciesStatistics);
+            }
+        });
+        return species;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static class SpeciesIndex<T> {
+
+        /**
+         * Index of the species, or null if the species has no valid index
+         */
+        private final T index;
+
+        private final Properties manifest;
+
+        SpeciesIndex(T index, Properties manifest) {
+            this.index = index;
+            this.manifest = manifest;
+        }
+    }
+}
@@ -4,15 +4,10 @@ import org.opencb.datastore.core.QueryOptions;
 import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.adaptors.ArchiveDBAdaptor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
-import uk.ac.ebi.eva.lib.repository.DgvaStudyBrowserRepository;
 
-import javax.persistence.Tuple;
 import java.util.*;
 
-import static uk.ac.ebi.eva.lib.utils.DgvaDBUtils.getSpeciesAndTypeFilters;
-
 /**
  * Created by jorizci on 28/09/16.
  */
@@ -20,12 +15,12 @@ import static uk.ac.ebi.eva.lib.utils.DgvaDBUtils.getSpeciesAndTypeFilters;
 public class ArchiveDgvaDBAdaptor implements ArchiveDBAdaptor {
 
     @Autowired
-    private DgvaStudyBrowserRepository dgvaStudyBrowserRepository;
+    private StudyBrowserCache studyBrowserCache;
 
     @Override
     public QueryResult countStudies() {
         long start = System.currentTimeMillis();
-        long count = dgvaStudyBrowserRepository.count();
+        long count = studyBrowserCache.getDgvaSnapshot().size();
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(count));
     }
@@ -33,14 +28,7 @@ public class ArchiveDgvaDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult countStudiesPerSpecies(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = getSpeciesAndTypeFilters(queryOptions);
-        List<Tuple> countGroupBy = dgvaStudyBrowserRepository.groupCount(DgvaStudyBrowserRepository.COMMON_NAME, filterSpecification, false);
-        List<Map.Entry<String, Long>> result = new ArrayList<>();
-        for (Tuple tuple : countGroupBy) {
-            String species = tuple.get(0) != null ? (String) tuple.get(0) : "Others";
-            long count = (long) tuple.get(1);
-            result.add(new AbstractMap.SimpleEntry<>(species, count));
-        }
+        List<Map.Entry<String, Long>> result = studyBrowserCache.getDgvaSnapshot().countPerSpecies(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), result.size(), result.size(), null, null, result);
     }
@@ -48,18 +36,25 @@ public class ArchiveDgvaDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult countStudiesPerType(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = getSpeciesAndTypeFilters(queryOptions);
-        List<Tuple> countGroupBy = dgvaStudyBrowserRepository.groupCount(DgvaStudyBrowserRepository.STUDY_TYPE, filterSpecification, false);
-        List<Map.Entry<String, Long>> result = new ArrayList<>();
-        for (Tuple tuple : countGroupBy) {
-            String species = tuple.get(0) != null ? (String) tuple.get(0) : "Others";
-            long count = (long) tuple.get(1);
-            result.add(new AbstractMap.SimpleEntry<>(species, count));
-        }
+        List<Map.Entry<String, Long>> result = studyBrowserCache.getDgvaSnapshot().countPerType(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), result.size(), result.size(), null, null, result);
     }
 
+    /**
+     * Counts the studies per species and per type in one pass, replacing a call to countStudiesPerSpecies and another
+     * to countStudiesPerType with the same filters.
+     *
+     * @return a single result, with the counts per species and per type keyed by QueryOptionsConstants.SPECIES and
+     * QueryOptionsConstants.TYPE
+     */
+    public QueryResult countStudiesPerSpeciesAndType(QueryOptions queryOptions) {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, Long>> result = studyBrowserCache.getDgvaSnapshot().countPerSpeciesAndType(queryOptions);
+        long end = System.currentTimeMillis();
+        return new QueryResult(null, ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(result));
+    }
+
     @Override
     public QueryResult countFiles() {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -4,22 +4,13 @@ import org.opencb.datastore.core.QueryOptions;
 import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.adaptors.ArchiveDBAdaptor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.eva.lib.models.Assembly;
-import uk.ac.ebi.eva.lib.extension.GenericSpecifications;
 import uk.ac.ebi.eva.lib.repository.FileRepository;
 import uk.ac.ebi.eva.lib.repository.ProjectRepository;
-import uk.ac.ebi.eva.lib.repository.EvaStudyBrowserRepository;
-import uk.ac.ebi.eva.lib.repository.TaxonomyRepository;
-import uk.ac.ebi.eva.lib.utils.QueryOptionsConstants;
 
-import javax.persistence.Tuple;
 import java.util.*;
 
-import static org.springframework.data.jpa.domain.Specifications.where;
-
 /**
  * Created by jorizci on 03/10/16.
  */
@@ -30,13 +21,13 @@ public class ArchiveEvaproDBAdaptor implements ArchiveDBAdaptor {
     private ProjectRepository projectRepository;
 
     @Autowired
-    private EvaStudyBrowserRepository evaStudyBrowserRepository;
+    private StudyBrowserCache studyBrowserCache;
 
     @Autowired
     private FileRepository fileRepository;
 
     @Autowired
-    private TaxonomyRepository taxonomyRepository;
+    private SpeciesCatalogue speciesCatalogue;
 
     @Override
     public QueryResult countStudies() {
@@ -49,14 +40,7 @@ public class ArchiveEvaproDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult countStudiesPerSpecies(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = getSpeciesAndTypeFilters(queryOptions);
-        List<Tuple> countGroupBy = evaStudyBrowserRepository.groupCount(EvaStudyBrowserRepository.COMMON_NAME, filterSpecification, false);
-        List<Map.Entry<String, Long>> result = new ArrayList<>();
-        for (Tuple tuple : countGroupBy) {
-            String species = tuple.get(0) != null ? (String) tuple.get(0) : "Others";
-            long count = (long) tuple.get(1);
-            result.add(new AbstractMap.SimpleEntry<>(species, count));
-        }
+        List<Map.Entry<String, Long>> result = studyBrowserCache.getEvaproSnapshot().countPerSpecies(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), result.size(), result.size(), null, null, result);
     }
@@ -64,18 +48,25 @@ public class ArchiveEvaproDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult countStudiesPerType(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = getSpeciesAndTypeFilters(queryOptions);
-        List<Tuple> countGroupBy = evaStudyBrowserRepository.groupCount(EvaStudyBrowserRepository.EXPERIMENT_TYPE, filterSpecification, false);
-        List<Map.Entry<String, Long>> result = new ArrayList<>();
-        for (Tuple tuple : countGroupBy) {
-            String species = tuple.get(0) != null ? (String) tuple.get(0) : "Others";
-            long count = (long) tuple.get(1);
-            result.add(new AbstractMap.SimpleEntry<>(species, count));
-        }
+        List<Map.Entry<String, Long>> result = studyBrowserCache.getEvaproSnapshot().countPerType(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), result.size(), result.size(), null, null, result);
     }
 
+    /**
+     * Counts the studies per species and per type in one pass, replacing a call to countStudiesPerSpecies and another
+     * to countStudiesPerType with the same filters.
+     *
+     * @return a single result, with the counts per species and per type keyed by QueryOptionsConstants.SPECIES and
+     * QueryOptionsConstants.TYPE
+     */
+    public QueryResult countStudiesPerSpeciesAndType(QueryOptions queryOptions) {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, Long>> result = studyBrowserCache.getEvaproSnapshot().countPerSpeciesAndType(queryOptions);
+        long end = System.currentTimeMillis();
+        return new QueryResult(null, ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(result));
+    }
+
     @Override
     public QueryResult countFiles() {
         long start = System.currentTimeMillis();
@@ -87,7 +78,7 @@ public class ArchiveEvaproDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult countSpecies() {
         long start = System.currentTimeMillis();
-        long count = taxonomyRepository.count();
+        long count = speciesCatalogue.countSpecies();
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(count));
     }
@@ -95,41 +86,8 @@ public class ArchiveEvaproDBAdaptor implements ArchiveDBAdaptor {
     @Override
     public QueryResult getSpecies(String s, boolean b) {
         long start = System.currentTimeMillis();
-        List<Assembly> result = taxonomyRepository.getSpecies();
+        List<Assembly> result = speciesCatalogue.getSpecies();
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), result.size(), result.size(), null, null, result);
     }
-
-    private Specification getSpeciesAndTypeFilters(QueryOptions queryOptions) {
-        if (!queryOptions.containsKey(QueryOptionsConstants.SPECIES) && !queryOptions.containsKey(QueryOptionsConstants.TYPE)) {
-            return null;
-        }
-
-        Specifications speciesSpecifications = null;
-        if (queryOptions.containsKey(QueryOptionsConstants.SPECIES)) {
-            Object[] species = queryOptions.getAsStringList(QueryOptionsConstants.SPECIES).toArray(new Object[]{});
-            speciesSpecifications = where(GenericSpecifications.in(EvaStudyBrowserRepository.COMMON_NAME, species))
-                    .or(GenericSpecifications.in(EvaStudyBrowserRepository.SCIENTIFIC_NAME, species));
-        }
-
-        Specifications typeSpecifications = null;
-        if (queryOptions.containsKey(QueryOptionsConstants.TYPE)) {
-            Object[] types = queryOptions.getAsStringList(QueryOptionsConstants.TYPE).toArray(new Object[]{});
-            typeSpecifications = where(GenericSpecifications.in(EvaStudyBrowserRepository.EXPERIMENT_TYPE, types));
-            for (Object type : types) {
-                typeSpecifications = typeSpecifications.or(GenericSpecifications
-                        .like(EvaStudyBrowserRepository.EXPERIMENT_TYPE, "%" + type + "%"));
-            }
-        }
-
-        if (speciesSpecifications != null && typeSpecifications != null) {
-            return speciesSpecifications.and(typeSpecifications);
-        } else {
-            if (speciesSpecifications != null) {
-                return speciesSpecifications;
-            } else {
-                return typeSpecifications;
-            }
-        }
-    }
 }
@@ -0,0 +1,172 @@
+package uk.ac.ebi.eva.lib.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.models.FileFtpReference;
+import uk.ac.ebi.eva.lib.repository.FileRepository;
+
+import javax.annotation.PreDestroy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves file names to the FTP URLs of the browsable files, keeping the resolved URLs in memory.
+ *
+ * The names missing from the cache are looked up in batches of at most {@link #MAX_BATCH_SIZE} names, so the "IN"
+ * clause of the query stays bounded, and up to {@link #MAX_PARALLEL_BATCHES} batches are run at the same time. Names
+ * that are not browsable files are not cached, as they could be anything a client sends.
+ *
+ * The cache is emptied when a new release is published, which is checked every "eva.cache.refresh-interval-ms"
+ * milliseconds using the number of files and the latest release of the browsable files.
+ */
+@Component
+public class FileFtpReferenceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileFtpReferenceResolver.class);
+
+    static final int MAX_BATCH_SIZE = 500;
+
+    static final int MAX_PARALLEL_BATCHES = 4;
+
+    private static final String FTP_PREFIX = "ftp:/";
+
+    private final FileRepository fileRepository;
+
+    private final ConcurrentMap<String, URL> urls;
+
+    private final ExecutorService executor;
+
+    private volatile Object releaseMarker;
+
+    @Autowired
+    public FileFtpReferenceResolver(FileRepository fileRepository) {
+        this.fileRepository = fileRepository;
+        this.urls = new ConcurrentHashMap<>();
+        this.executor = Executors.newFixedThreadPool(MAX_PARALLEL_BATCHES, runnable -> {
+            Thread thread = new Thread(runnable, "file-url-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return FTP URLs of the browsable files among the given names, keyed by file name, in the order of the request
+     */
+    public Map<String, URL> resolve(Collection<String> filenames) {
+        List<String> missing = new ArrayList<>();
+        for (String filename : new LinkedHashSet<>(filenames)) {
+            if (!urls.containsKey(filename)) {
+                missing.add(filename);
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing);
+        }
+
+        Map<String, URL> resolved = new LinkedHashMap<>();
+        for (String filename : filenames) {
+            URL url = urls.get(filename);
+            if (url != null) {
+                resolved.put(filename, url);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Empties the cache if a new release has been published since it was filled
+     */
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            Object currentMarker = currentReleaseMarker();
+            if (!Objects.equals(releaseMarker, currentMarker)) {
+                urls.clear();
+                releaseMarker = currentMarker;
+                logger.info("Release of browsable files changed to {}, file URLs will be loaded again", currentMarker);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not check the release of the browsable files, the cached file URLs will be kept", e);
+        }
+    }
+
+    public void invalidateAll() {
+        urls.clear();
+        releaseMarker = null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void load(List<String> filenames) {
+        if (releaseMarker == null) {
+            releaseMarker = currentReleaseMarker();
+        }
+
+        List<List<String>> batches = partition(filenames, MAX_BATCH_SIZE);
+        if (batches.size() == 1) {
+            // a single batch is run in the calling thread, which may have its own transaction
+            store(fileRepository.getFileFtpReferenceByNames(batches.get(0)));
+            return;
+        }
+
+        List<Future<List<FileFtpReference>>> futures = new ArrayList<>();
+        for (List<String> batch : batches) {
+            futures.add(executor.submit(() -> fileRepository.getFileFtpReferenceByNames(batch)));
+        }
+        try {
+            for (Future<List<FileFtpReference>> future : futures) {
+                store(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving file URLs", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Could not resolve file URLs", e.getCause());
+        }
+    }
+
+    private void store(List<FileFtpReference> fileFtpReferences) {
+        for (FileFtpReference fileFtpReference : fileFtpReferences) {
+            try {
+                urls.put(fileFtpReference.getFilename(), new URL(FTP_PREFIX + fileFtpReference.getFile_ftp()));
+            } catch (MalformedURLException e) {
+                logger.error("Could not build the URL of file " + fileFtpReference.getFilename(), e);
+            }
+        }
+    }
+
+    private Object currentReleaseMarker() {
+        return Arrays.asList(fileRepository.count(), fileRepository.getLatestRelease());
+    }
+
+    static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += size) {
+            partitions.add(list.subList(from, Math.min(from + size, list.size())));
+        }
+        return partitions;
+    }
+}
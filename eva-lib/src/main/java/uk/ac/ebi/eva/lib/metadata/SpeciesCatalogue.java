@@ -0,0 +1,153 @@
+package uk.ac.ebi.eva.lib.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import uk.ac.ebi.eva.lib.models.Assembly;
+import uk.ac.ebi.eva.lib.repository.TaxonomyRepository;
+import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory catalogue of the species and assemblies with browsable files, and the number of species in the taxonomy
+ * table.
+ *
+ * The catalogue is loaded on first use and reloaded every "eva.cache.refresh-interval-ms" milliseconds, or on demand
+ * with {@link #reload()}. Each version of the catalogue has an ETag, so clients can skip downloading it again if it
+ * has not changed.
+ */
+@Component
+public class SpeciesCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeciesCatalogue.class);
+
+    private final TaxonomyRepository taxonomyRepository;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public SpeciesCatalogue(TaxonomyRepository taxonomyRepository) {
+        this.taxonomyRepository = taxonomyRepository;
+    }
+
+    /**
+     * @return all the assemblies with browsable files, with their species
+     */
+    public List<Assembly> getSpecies() {
+        return getSnapshot().species;
+    }
+
+    /**
+     * @return number of species in the taxonomy table
+     */
+    public long countSpecies() {
+        return getSnapshot().speciesCount;
+    }
+
+    /**
+     * @return whether the species (e.g. "hsapiens_grch37") is one of the assemblies with browsable files
+     */
+    public boolean isKnownSpecies(String species) {
+        return getSnapshot().speciesNames.contains(species);
+    }
+
+    /**
+     * @return name of the variants database of the species
+     * @throws IllegalArgumentException if the species is not one of the assemblies with browsable files
+     */
+    public String getDBName(String species) {
+        if (!isKnownSpecies(species)) {
+            throw new IllegalArgumentException("Species " + species + " is not in the catalogue");
+        }
+        return DBAdaptorConnector.getDBName(species);
+    }
+
+    /**
+     * @return entity tag of the current version of the catalogue, quoted as required by the ETag header
+     */
+    public String getETag() {
+        return getSnapshot().eTag;
+    }
+
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload the species catalogue, the previous one will be kept", e);
+        }
+    }
+
+    /**
+     * Loads the catalogue from the database, replacing the current one
+     */
+    public synchronized void reload() {
+        List<Assembly> species = taxonomyRepository.getSpecies();
+        long speciesCount = taxonomyRepository.count();
+        snapshot = new Snapshot(species, speciesCount);
+        logger.info("Loaded species catalogue with {} assemblies", species.size());
+    }
+
+    /**
+     * Drops the current catalogue, so it is loaded again on next use
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static class Snapshot {
+
+        private final List<Assembly> species;
+
+        private final long speciesCount;
+
+        private final Set<String> speciesNames;
+
+        private final String eTag;
+
+        Snapshot(List<Assembly> species, long speciesCount) {
+            this.species = Collections.unmodifiableList(species);
+            this.speciesCount = speciesCount;
+            this.speciesNames = new HashSet<>();
+
+            StringBuilder content = new StringBuilder().append(speciesCount);
+            for (Assembly assembly : species) {
+                speciesNames.add(assembly.getTaxonomyCode() + "_" + assembly.getAssemblyCode());
+                content.append('|').append(assembly.getAssemblyAccession())
+                       .append(',').append(assembly.getAssemblyChain())
+                       .append(',').append(assembly.getAssemblyVersion())
+                       .append(',').append(assembly.getAssemblyName())
+                       .append(',').append(assembly.getAssemblyCode())
+                       .append(',').append(assembly.getTaxonomyId())
+                       .append(',').append(assembly.getTaxonomyCommonName())
+                       .append(',').append(assembly.getTaxonomyScientificName())
+                       .append(',').append(assembly.getTaxonomyCode())
+                       .append(',').append(assembly.getTaxonomyEvaName());
+            }
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        }
+    }
+}
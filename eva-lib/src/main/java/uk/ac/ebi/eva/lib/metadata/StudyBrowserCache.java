@@ -0,0 +1,81 @@
+package uk.ac.ebi.eva.lib.metadata;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.cache.ReleaseAwareCache;
+import uk.ac.ebi.eva.lib.entity.DgvaStudyBrowser;
+import uk.ac.ebi.eva.lib.entity.EvaStudyBrowser;
+import uk.ac.ebi.eva.lib.repository.DgvaStudyBrowserRepository;
+import uk.ac.ebi.eva.lib.repository.EvaStudyBrowserRepository;
+
+/**
+ * In-memory snapshots of the EVAPRO and DGVA study browser tables, used by the study and archive adaptors instead of
+ * querying the tables on every request.
+ *
+ * The tables only change when a new release is published, so the number of rows in each table is used as release
+ * marker, and checked every "eva.cache.refresh-interval-ms" milliseconds.
+ */
+@Component
+public class StudyBrowserCache {
+
+    enum Source {
+        EVAPRO, DGVA
+    }
+
+    private final EvaStudyBrowserRepository evaStudyBrowserRepository;
+
+    private final DgvaStudyBrowserRepository dgvaStudyBrowserRepository;
+
+    private final ReleaseAwareCache<Source, StudyBrowserSnapshot> cache;
+
+    @Autowired
+    public StudyBrowserCache(EvaStudyBrowserRepository evaStudyBrowserRepository,
+                             DgvaStudyBrowserRepository dgvaStudyBrowserRepository) {
+        this.evaStudyBrowserRepository = evaStudyBrowserRepository;
+        this.dgvaStudyBrowserRepository = dgvaStudyBrowserRepository;
+        this.cache = new ReleaseAwareCache<>("study browser", this::loadSnapshot, this::countRows);
+    }
+
+    public StudyBrowserSnapshot getEvaproSnapshot() {
+        return cache.get(Source.EVAPRO);
+    }
+
+    public StudyBrowserSnapshot getDgvaSnapshot() {
+        return cache.get(Source.DGVA);
+    }
+
+    @Scheduled(fixedDelayString = "${eva.cache.refresh-interval-ms:300000}",
+               initialDelayString = "${eva.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        cache.refresh();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private StudyBrowserSnapshot loadSnapshot(Source source) {
+        switch (source) {
+            case EVAPRO:
+                return StudyBrowserSnapshot.build(evaStudyBrowserRepository.findAll(),
+                                                  EvaStudyBrowser::generateVariantStudy,
+                                                  EvaStudyBrowser::getCommonName,
+                                                  EvaStudyBrowser::getScientificName,
+                                                  EvaStudyBrowser::getExperimentType);
+            case DGVA:
+                return StudyBrowserSnapshot.build(dgvaStudyBrowserRepository.findAll(),
+                                                  DgvaStudyBrowser::generateVariantStudy,
+                                                  DgvaStudyBrowser::getCommonName,
+                                                  DgvaStudyBrowser::getScientificName,
+                                                  DgvaStudyBrowser::getStudyType);
+            default:
+                throw new IllegalArgumentException("Unknown study browser " + source);
+        }
+    }
+
+    private Object countRows(Source source) {
+        return source == Source.EVAPRO ? evaStudyBrowserRepository.count() : dgvaStudyBrowserRepository.count();
+    }
+}
@@ -0,0 +1,239 @@
+package uk.ac.ebi.eva.lib.metadata;
+
+import org.opencb.datastore.core.QueryOptions;
+
+import uk.ac.ebi.eva.lib.models.VariantStudy;
+import uk.ac.ebi.eva.lib.utils.QueryOptionsConstants;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Immutable copy of a study browser table (EVAPRO or DGVA), with the VariantStudy of every row already built.
+ *
+ * The rows are indexed by species common name, species scientific name and study type, and the filters accepted by
+ * the study browser adaptors (QueryOptionsConstants.SPECIES and QueryOptionsConstants.TYPE) are resolved as
+ * intersections of those indexes, with the same semantics as the JPA specifications in EvaproDbUtils and DgvaDBUtils:
+ * a species matches either name, and a type matches every type that contains it.
+ */
+public class StudyBrowserSnapshot {
+
+    static final String OTHERS = "Others";
+
+    /**
+     * Maximum number of filter combinations whose statistics are kept, to bound the memory used by arbitrary filters
+     */
+    static final int MAX_CACHED_STATISTICS = 1000;
+
+    private final List<VariantStudy> studies;
+
+    private final List<String> commonNames;
+
+    private final List<String> types;
+
+    private final Map<String, VariantStudy> studiesById;
+
+    private final Map<String, BitSet> commonNameIndex;
+
+    private final Map<String, BitSet> scientificNameIndex;
+
+    private final Map<String, BitSet> typeIndex;
+
+    private final ConcurrentMap<List<List<String>>, Map<String, Map<String, Long>>> statistics;
+
+    private StudyBrowserSnapshot(int size) {
+        studies = new ArrayList<>(size);
+        commonNames = new ArrayList<>(size);
+        types = new ArrayList<>(size);
+        studiesById = new HashMap<>();
+        commonNameIndex = new HashMap<>();
+        scientificNameIndex = new HashMap<>();
+        typeIndex = new HashMap<>();
+        statistics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param entities rows of the study browser table
+     * @param studyGenerator conversion of a row into a VariantStudy, which will be run once per row
+     * @param commonName species common name of a row
+     * @param scientificName species scientific name of a row
+     * @param type study type of a row, as it is filtered and grouped by the adaptor
+     */
+    public static <E> StudyBrowserSnapshot build(List<E> entities, Function<E, VariantStudy> studyGenerator,
+                                                 Function<E, String> commonName, Function<E, String> scientificName,
+                                                 Function<E, String> type) {
+        StudyBrowserSnapshot snapshot = new StudyBrowserSnapshot(entities.size());
+        for (E entity : entities) {
+            if (entity != null) {
+                snapshot.add(studyGenerator.apply(entity), commonName.apply(entity), scientificName.apply(entity),
+                             type.apply(entity));
+            }
+        }
+        return snapshot;
+    }
+
+    private void add(VariantStudy study, String commonName, String scientificName, String type) {
+        int row = studies.size();
+        studies.add(study);
+        commonNames.add(commonName);
+        types.add(type);
+        studiesById.put(study.getId(), study);
+        addToIndex(commonNameIndex, commonName, row);
+        addToIndex(scientificNameIndex, scientificName, row);
+        addToIndex(typeIndex, type, row);
+    }
+
+    private static void addToIndex(Map<String, BitSet> index, String key, int row) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new BitSet()).set(row);
+        }
+    }
+
+    public int size() {
+        return studies.size();
+    }
+
+    /**
+     * @return the study with that accession, or null if it is not in the table
+     */
+    public VariantStudy getStudy(String studyId) {
+        return studiesById.get(studyId);
+    }
+
+    /**
+     * @return the studies matching the species and type filters in the query options
+     */
+    public List<VariantStudy> getStudies(QueryOptions queryOptions) {
+        BitSet rows = filter(queryOptions);
+        List<VariantStudy> result = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            result.add(studies.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of studies per species common name matching the filters, sorted by descending count
+     */
+    public List<Map.Entry<String, Long>> countPerSpecies(QueryOptions queryOptions) {
+        return groupCount(commonNames, filter(queryOptions));
+    }
+
+    /**
+     * @return number of studies per type matching the filters, sorted by descending count
+     */
+    public List<Map.Entry<String, Long>> countPerType(QueryOptions queryOptions) {
+        return groupCount(types, filter(queryOptions));
+    }
+
+    /**
+     * Counts the studies matching the filters per species common name and per type in a single pass. The result is
+     * cached for every combination of filters, as it can only change when the snapshot is replaced.
+     *
+     * @return map with the counts per species (key QueryOptionsConstants.SPECIES) and per type (key
+     * QueryOptionsConstants.TYPE), each of them sorted by descending count
+     */
+    public Map<String, Map<String, Long>> countPerSpeciesAndType(QueryOptions queryOptions) {
+        List<List<String>> filters = Arrays.asList(getFilterValues(queryOptions, QueryOptionsConstants.SPECIES),
+                                                   getFilterValues(queryOptions, QueryOptionsConstants.TYPE));
+        Map<String, Map<String, Long>> counts = statistics.get(filters);
+        if (counts == null) {
+            counts = calculateCountPerSpeciesAndType(queryOptions);
+            if (statistics.size() < MAX_CACHED_STATISTICS) {
+                statistics.putIfAbsent(filters, counts);
+            }
+        }
+        return counts;
+    }
+
+    private static List<String> getFilterValues(QueryOptions queryOptions, String filter) {
+        return queryOptions.containsKey(filter) ? queryOptions.getAsStringList(filter) : null;
+    }
+
+    private Map<String, Map<String, Long>> calculateCountPerSpeciesAndType(QueryOptions queryOptions) {
+        BitSet rows = filter(queryOptions);
+        Map<String, Long> speciesCounts = new LinkedHashMap<>();
+        Map<String, Long> typeCounts = new LinkedHashMap<>();
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            speciesCounts.merge(commonNames.get(row) != null ? commonNames.get(row) : OTHERS, 1L, Long::sum);
+            typeCounts.merge(types.get(row) != null ? types.get(row) : OTHERS, 1L, Long::sum);
+        }
+
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        counts.put(QueryOptionsConstants.SPECIES, toMap(sortByDescendingCount(speciesCounts)));
+        counts.put(QueryOptionsConstants.TYPE, toMap(sortByDescendingCount(typeCounts)));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private static Map<String, Long> toMap(List<Map.Entry<String, Long>> counts) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> count : counts) {
+            map.put(count.getKey(), count.getValue());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private List<Map.Entry<String, Long>> groupCount(List<String> column, BitSet rows) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            String value = column.get(row) != null ? column.get(row) : OTHERS;
+            counts.merge(value, 1L, Long::sum);
+        }
+        return sortByDescendingCount(counts);
+    }
+
+    private static List<Map.Entry<String, Long>> sortByDescendingCount(Map<String, Long> counts) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            result.add(new AbstractMap.SimpleEntry<>(count.getKey(), count.getValue()));
+        }
+        result.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        return result;
+    }
+
+    private BitSet filter(QueryOptions queryOptions) {
+        BitSet rows = new BitSet(studies.size());
+        rows.set(0, studies.size());
+
+        if (queryOptions.containsKey(QueryOptionsConstants.SPECIES)) {
+            BitSet speciesRows = new BitSet(studies.size());
+            for (String species : queryOptions.getAsStringList(QueryOptionsConstants.SPECIES)) {
+                orIfPresent(speciesRows, commonNameIndex.get(species));
+                orIfPresent(speciesRows, scientificNameIndex.get(species));
+            }
+            rows.and(speciesRows);
+        }
+
+        if (queryOptions.containsKey(QueryOptionsConstants.TYPE)) {
+            List<String> requestedTypes = queryOptions.getAsStringList(QueryOptionsConstants.TYPE);
+            BitSet typeRows = new BitSet(studies.size());
+            for (Map.Entry<String, BitSet> type : typeIndex.entrySet()) {
+                for (String requestedType : requestedTypes) {
+                    if (type.getKey().contains(requestedType)) {
+                        typeRows.or(type.getValue());
+                        break;
+                    }
+                }
+            }
+            rows.and(typeRows);
+        }
+
+        return rows;
+    }
+
+    private static void orIfPresent(BitSet rows, BitSet indexRows) {
+        if (indexRows != null) {
+            rows.or(indexRows);
+        }
+    }
+}
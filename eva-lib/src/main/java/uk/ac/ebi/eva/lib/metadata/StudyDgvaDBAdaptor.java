@@ -19,12 +19,8 @@ import org.opencb.datastore.core.QueryOptions;
 import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.adaptors.StudyDBAdaptor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.eva.lib.models.VariantStudy;
-import uk.ac.ebi.eva.lib.entity.DgvaStudyBrowser;
-import uk.ac.ebi.eva.lib.repository.DgvaStudyBrowserRepository;
-import uk.ac.ebi.eva.lib.utils.DgvaDBUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,17 +32,12 @@ import java.util.List;
 public class StudyDgvaDBAdaptor implements StudyDBAdaptor {
 
     @Autowired
-    private DgvaStudyBrowserRepository dgvaStudyBrowserRepository;
+    private StudyBrowserCache studyBrowserCache;
 
     @Override
     public QueryResult getAllStudies(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = DgvaDBUtils.getSpeciesAndTypeFilters(queryOptions);
-        List<DgvaStudyBrowser> dgvaStudies = dgvaStudyBrowserRepository.findAll(filterSpecification);
-        List<VariantStudy> variantstudies = new ArrayList<>();
-        for (DgvaStudyBrowser dgvaStudy : dgvaStudies) {
-            variantstudies.add(dgvaStudy.generateVariantStudy());
-        }
+        List<VariantStudy> variantstudies = studyBrowserCache.getDgvaSnapshot().getStudies(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), variantstudies.size(), variantstudies.size(), null, null, variantstudies);
     }
@@ -65,10 +56,10 @@ public class StudyDgvaDBAdaptor implements StudyDBAdaptor {
     @Override
     public QueryResult getStudyById(String studyId, QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        DgvaStudyBrowser dgvaStudy = dgvaStudyBrowserRepository.getOne(studyId);
+        VariantStudy dgvaStudy = studyBrowserCache.getDgvaSnapshot().getStudy(studyId);
         List<VariantStudy> variantStudy = new ArrayList<>();
         if (dgvaStudy != null) {
-            variantStudy.add(dgvaStudy.generateVariantStudy());
+            variantStudy.add(dgvaStudy);
         }
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), variantStudy.size(), variantStudy.size(), null, null, variantStudy);
@@ -4,18 +4,12 @@ import org.opencb.datastore.core.QueryOptions;
 import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.adaptors.StudyDBAdaptor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.eva.lib.models.VariantStudy;
-import uk.ac.ebi.eva.lib.entity.EvaStudyBrowser;
-import uk.ac.ebi.eva.lib.repository.EvaStudyBrowserRepository;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static uk.ac.ebi.eva.lib.utils.EvaproDbUtils.getSpeciesAndTypeFilters;
-
-
 /**
  * Created by jorizci on 04/10/16.
  */
@@ -23,19 +17,12 @@ import static uk.ac.ebi.eva.lib.utils.EvaproDbUtils.getSpeciesAndTypeFilters;
 public class StudyEvaproDBAdaptor implements StudyDBAdaptor {
 
     @Autowired
-    private EvaStudyBrowserRepository evaStudyBrowserRepository;
+    private StudyBrowserCache studyBrowserCache;
 
     @Override
     public QueryResult getAllStudies(QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        Specification filterSpecification = getSpeciesAndTypeFilters(queryOptions);
-        List<EvaStudyBrowser> dgvaStudies = evaStudyBrowserRepository.findAll(filterSpecification);
-        List<VariantStudy> variantstudies = new ArrayList<>();
-        for (EvaStudyBrowser dgvaStudy : dgvaStudies) {
-            if (dgvaStudy != null) {
-                variantstudies.add(dgvaStudy.generateVariantStudy());
-            }
-        }
+        List<VariantStudy> variantstudies = studyBrowserCache.getEvaproSnapshot().getStudies(queryOptions);
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), variantstudies.size(), variantstudies.size(), null, null, variantstudies);
     }
@@ -53,10 +40,10 @@ public class StudyEvaproDBAdaptor implements StudyDBAdaptor {
     @Override
     public QueryResult getStudyById(String s, QueryOptions queryOptions) {
         long start = System.currentTimeMillis();
-        EvaStudyBrowser study = evaStudyBrowserRepository.findOne(s);
+        VariantStudy study = studyBrowserCache.getEvaproSnapshot().getStudy(s);
         List<VariantStudy> variantStudy = new ArrayList<>();
         if (study != null) {
-            variantStudy.add(study.generateVariantStudy());
+            variantStudy.add(study);
         }
         long end = System.currentTimeMillis();
         return new QueryResult(null, ((Long) (end - start)).intValue(), variantStudy.size(), variantStudy.size(), null, null, variantStudy);
@@ -6,16 +6,14 @@ import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantSourceDBAdaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import uk.ac.ebi.eva.lib.models.FileFtpReference;
 import uk.ac.ebi.eva.lib.repository.FileRepository;
 
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
 
 /**
  * Created by jorizci on 04/10/16.
@@ -26,6 +24,9 @@ public class VariantSourceEvaProDBAdaptor implements VariantSourceDBAdaptor {
     @Autowired
     private FileRepository fileRepository;
 
+    @Autowired
+    private FileFtpReferenceResolver fileFtpReferenceResolver;
+
     @Override
     public QueryResult countSources() {
         long start = System.currentTimeMillis();
@@ -62,39 +63,21 @@ public class VariantSourceEvaProDBAdaptor implements VariantSourceDBAdaptor {
     @Override
     public QueryResult getSourceDownloadUrlByName(String filename) {
         long start = System.currentTimeMillis();
-        FileFtpReference fileFtpReference = fileRepository.getFileFtpReferenceByFilename(filename);
-
-        try {
-            long end = System.currentTimeMillis();
-            URL url = new URL("ftp:/" + fileFtpReference.getFile_ftp());
-            return new QueryResult(fileFtpReference.getFilename(), ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(url));
-        } catch (NullPointerException e) {
-            long end = System.currentTimeMillis();
+        URL url = fileFtpReferenceResolver.resolve(Collections.singletonList(filename)).get(filename);
+        long end = System.currentTimeMillis();
+        if (url == null) {
             return new QueryResult(null, ((Long) (end - start)).intValue(), 0, 0, null, null, new ArrayList<>());
-        } catch (MalformedURLException ex) {
-            Logger.getLogger(VariantSourceEvaProDBAdaptor.class.getName()).log(Level.SEVERE, null, ex);
-            QueryResult qr = new QueryResult();
-            qr.setErrorMsg(ex.getMessage());
-            return qr;
         }
+        return new QueryResult(filename, ((Long) (end - start)).intValue(), 1, 1, null, null, Arrays.asList(url));
     }
 
     @Override
     public List<QueryResult> getSourceDownloadUrlByName(List<String> filenames) {
         long start = System.currentTimeMillis();
         List<QueryResult> results = new ArrayList<>();
-        List<FileFtpReference> fileFtpReferences = fileRepository.getFileFtpReferenceByNames(filenames);
-
-        for (FileFtpReference fileFtpReference : fileFtpReferences) {
-            try {
-                results.add(new QueryResult(fileFtpReference.getFilename(), ((Long) (System.currentTimeMillis() - start)).intValue(),
-                        1, 1, null, null, Arrays.asList(new URL("ftp:/" + fileFtpReference.getFile_ftp()))));
-            } catch (MalformedURLException ex) {
-                Logger.getLogger(VariantSourceEvaProDBAdaptor.class.getName()).log(Level.SEVERE, null, ex);
-                QueryResult qr = new QueryResult();
-                qr.setErrorMsg(ex.getMessage());
-                results.add(qr);
-            }
+        for (Map.Entry<String, URL> fileUrl : fileFtpReferenceResolver.resolve(filenames).entrySet()) {
+            results.add(new QueryResult(fileUrl.getKey(), ((Long) (System.currentTimeMillis() - start)).intValue(),
+                    1, 1, null, null, Arrays.asList(fileUrl.getValue())));
         }
         return results;
     }
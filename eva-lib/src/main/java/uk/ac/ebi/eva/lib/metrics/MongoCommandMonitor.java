@@ -0,0 +1,295 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Observes every command sent by a MongoClient, reports it to the registered observers, and keeps the slowest ones
+ * in a bounded log.
+ *
+ * The values in the queries are replaced by "?" before they are stored, so the log shows which query shapes are
+ * slow without keeping user data. Arrays are reduced to their distinct shapes, so that a {@code $in} with thousands of
+ * values takes a single element. The getMore commands are reported with the collection and shape of the query that
+ * opened the cursor.
+ *
+ * The command is attributed to the REST endpoint in the {@link RequestPhaseTimer} of the thread that sends it.
+ */
+public class MongoCommandMonitor implements CommandListener {
+
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 100;
+
+    public static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 100;
+
+    private static final int MAX_TRACKED_COMMANDS = 10000;
+
+    private static final BsonString REDACTED_VALUE = new BsonString("?");
+
+    protected static Logger logger = LoggerFactory.getLogger(MongoCommandMonitor.class);
+
+    private static class CommandOrigin {
+
+        private final String database;
+
+        private final String collection;
+
+        private final String queryShape;
+
+        private final String endpoint;
+
+        CommandOrigin(String database, String collection, String queryShape, String endpoint) {
+            this.database = database;
+            this.collection = collection;
+            this.queryShape = queryShape;
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final long slowQueryThresholdNanos;
+
+    private final int slowQueryLogSize;
+
+    private final Deque<MongoCommandSummary> slowQueries;
+
+    private final Map<Integer, CommandOrigin> startedCommands = new ConcurrentHashMap<>();
+
+    private final Map<Long, CommandOrigin> openCursors = new ConcurrentHashMap<>();
+
+    private final List<Consumer<MongoCommandSummary>> observers = new CopyOnWriteArrayList<>();
+
+    public MongoCommandMonitor() {
+        this(DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS, DEFAULT_SLOW_QUERY_LOG_SIZE);
+    }
+
+    public MongoCommandMonitor(long slowQueryThresholdMillis, int slowQueryLogSize) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.slowQueryLogSize = slowQueryLogSize;
+        this.slowQueries = new ArrayDeque<>(slowQueryLogSize);
+    }
+
+    /**
+     * Register an observer that will be called, in the thread that sent the command, for every completed command.
+     */
+    public void addObserver(Consumer<MongoCommandSummary> observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * @return the slow commands still in the log, most recent first
+     */
+    public List<MongoCommandSummary> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (startedCommands.size() >= MAX_TRACKED_COMMANDS) {
+            logger.warn("Too many Mongo commands without a reply, some will not be monitored");
+            startedCommands.clear();
+        }
+        BsonDocument command = event.getCommand();
+        String commandName = event.getCommandName();
+
+        CommandOrigin origin = null;
+        if ("getMore".equals(commandName)) {
+            origin = openCursors.remove(getLong(command.get(commandName)));
+        } else if ("killCursors".equals(commandName) && command.get("cursors") instanceof BsonArray) {
+            for (BsonValue cursorId : command.getArray("cursors")) {
+                openCursors.remove(getLong(cursorId));
+            }
+        }
+        if (origin == null) {
+            RequestPhaseTimer timer = RequestPhaseTimer.getForCurrentThread();
+            origin = new CommandOrigin(event.getDatabaseName(), getCollection(commandName, command),
+                                       getQueryShape(commandName, command),
+                                       timer != null ? timer.getEndpoint() : null);
+        }
+        startedCommands.put(event.getRequestId(), origin);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        CommandOrigin origin = startedCommands.remove(event.getRequestId());
+        if (origin == null) {
+            return;
+        }
+        BsonDocument response = event.getResponse();
+        trackCursor(origin, response);
+        record(origin, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS),
+               countReturnedDocuments(response), false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        CommandOrigin origin = startedCommands.remove(event.getRequestId());
+        if (origin == null) {
+            return;
+        }
+        record(origin, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), 0, true);
+    }
+
+    private void record(CommandOrigin origin, String commandName, long durationNanos, int returnedDocuments,
+                        boolean failed) {
+        MongoCommandSummary summary = new MongoCommandSummary(new Date(), origin.database, origin.collection,
+                                                              commandName, origin.queryShape, durationNanos,
+                                                              returnedDocuments, failed, origin.endpoint);
+        for (Consumer<MongoCommandSummary> observer : observers) {
+            try {
+                observer.accept(summary);
+            } catch (RuntimeException e) {
+                logger.warn("Mongo command observer failed", e);
+            }
+        }
+
+        if (durationNanos >= slowQueryThresholdNanos) {
+            synchronized (slowQueries) {
+                if (slowQueries.size() == slowQueryLogSize) {
+                    slowQueries.removeLast();
+                }
+                slowQueries.addFirst(summary);
+            }
+        }
+    }
+
+    /**
+     * Remember the origin of the cursors left open, so that their getMore commands can be attributed. Cursors that
+     * are never exhausted nor killed would stay here, so the whole map is dropped if it grows too much.
+     */
+    private void trackCursor(CommandOrigin origin, BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor == null || !cursor.isDocument()) {
+            return;
+        }
+        long cursorId = getLong(cursor.asDocument().get("id"));
+        if (cursorId != 0) {
+            if (openCursors.size() >= MAX_TRACKED_COMMANDS) {
+                openCursors.clear();
+            }
+            openCursors.put(cursorId, origin);
+        }
+    }
+
+    static String getCollection(String commandName, BsonDocument command) {
+        BsonValue collection = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return collection != null && collection.isString() ? collection.asString().getValue() : null;
+    }
+
+    /**
+     * Only the shape of read commands is kept. The commands whose shape is not known (e.g. authentication commands)
+     * have a null shape, so none of their contents are stored.
+     */
+    static String getQueryShape(String commandName, BsonDocument command) {
+        BsonDocument shape = new BsonDocument();
+        switch (commandName) {
+            case "find":
+                copyRedacted(command, "filter", shape);
+                copyRedacted(command, "projection", shape);
+                if (command.containsKey("sort")) {
+                    shape.put("sort", command.get("sort"));
+                }
+                break;
+            case "count":
+                copyRedacted(command, "query", shape);
+                break;
+            case "distinct":
+                if (command.containsKey("key")) {
+                    shape.put("key", command.get("key"));
+                }
+                copyRedacted(command, "query", shape);
+                break;
+            case "aggregate":
+                copyRedacted(command, "pipeline", shape);
+                break;
+            default:
+                return null;
+        }
+        return shape.toJson();
+    }
+
+    private static void copyRedacted(BsonDocument source, String key, BsonDocument target) {
+        BsonValue value = source.get(key);
+        if (value != null) {
+            target.put(key, redact(value));
+        }
+    }
+
+    static BsonValue redact(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument redacted = new BsonDocument();
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                redacted.put(entry.getKey(), redact(entry.getValue()));
+            }
+            return redacted;
+        } else if (value.isArray()) {
+            Set<BsonValue> shapes = new LinkedHashSet<>();
+            for (BsonValue element : value.asArray()) {
+                shapes.add(redact(element));
+            }
+            return new BsonArray(new ArrayList<>(shapes));
+        } else {
+            return REDACTED_VALUE;
+        }
+    }
+
+    static int countReturnedDocuments(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonDocument cursorDocument = cursor.asDocument();
+            BsonValue batch = cursorDocument.containsKey("firstBatch") ?
+                    cursorDocument.get("firstBatch") : cursorDocument.get("nextBatch");
+            return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+        }
+        for (String field : new String[]{"values", "result"}) {
+            BsonValue values = response.get(field);
+            if (values != null && values.isArray()) {
+                return values.asArray().size();
+            }
+        }
+        return 0;
+    }
+
+    private static long getLong(BsonValue value) {
+        return value != null && value.isNumber() ? value.asNumber().longValue() : 0;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import java.util.Date;
+
+/**
+ * A Mongo command as observed by {@link MongoCommandMonitor}. The values in the query shape are redacted.
+ */
+public class MongoCommandSummary {
+
+    private final Date timestamp;
+
+    private final String database;
+
+    private final String collection;
+
+    private final String command;
+
+    private final String queryShape;
+
+    private final long durationNanos;
+
+    private final int returnedDocuments;
+
+    private final boolean failed;
+
+    private final String endpoint;
+
+    public MongoCommandSummary(Date timestamp, String database, String collection, String command, String queryShape,
+                               long durationNanos, int returnedDocuments, boolean failed, String endpoint) {
+        this.timestamp = timestamp;
+        this.database = database;
+        this.collection = collection;
+        this.command = command;
+        this.queryShape = queryShape;
+        this.durationNanos = durationNanos;
+        this.returnedDocuments = returnedDocuments;
+        this.failed = failed;
+        this.endpoint = endpoint;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getQueryShape() {
+        return queryShape;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public double getDurationMillis() {
+        return durationNanos / 1e6;
+    }
+
+    public int getReturnedDocuments() {
+        return returnedDocuments;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return mapping pattern of the REST endpoint that issued the command, or null if it was not issued while
+     * serving a request
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
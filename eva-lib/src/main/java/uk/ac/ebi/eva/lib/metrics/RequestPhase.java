@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+/**
+ * Phases in which the time spent serving a web service request is split.
+ */
+public enum RequestPhase {
+
+    /**
+     * Selection of the species database, including the creation of the DB adaptors for a species.
+     */
+    SPECIES_RESOLUTION("species", false),
+
+    /**
+     * Parsing of the query filters and building of their criteria.
+     */
+    FILTER_BUILDING("filters", false),
+
+    /**
+     * Mongo queries, excluding the conversion of the returned documents.
+     */
+    MONGO_FIND("find", true),
+
+    /**
+     * Mongo counts.
+     */
+    MONGO_COUNT("count", true),
+
+    /**
+     * Queries to the relational metadata databases.
+     */
+    JPA("jpa", true),
+
+    /**
+     * Conversion of the documents returned by MongoDB into model objects.
+     */
+    CONVERSION("conversion", false),
+
+    /**
+     * Serialization of the response body.
+     */
+    SERIALIZATION("serialization", false);
+
+    private final String label;
+
+    private final boolean databaseRoundTrip;
+
+    RequestPhase(String label, boolean databaseRoundTrip) {
+        this.label = label;
+        this.databaseRoundTrip = databaseRoundTrip;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return whether the phase is spent waiting for a database, so it is part of the reported DB time
+     */
+    public boolean isDatabaseRoundTrip() {
+        return databaseRoundTrip;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Assigns the time spent in every method of a repository to a {@link RequestPhase}. Optionally, the methods whose
+ * name starts with "count" can be assigned to a different phase.
+ *
+ * @see uk.ac.ebi.eva.lib.extension.TimedMongoRepositoryFactoryBean
+ * @see uk.ac.ebi.eva.lib.extension.TimedJpaRepositoryFactoryBean
+ */
+public class RequestPhaseInterceptor implements MethodInterceptor {
+
+    private static final String COUNT_METHOD_PREFIX = "count";
+
+    private final RequestPhase phase;
+
+    private final RequestPhase countPhase;
+
+    public RequestPhaseInterceptor(RequestPhase phase) {
+        this(phase, phase);
+    }
+
+    public RequestPhaseInterceptor(RequestPhase phase, RequestPhase countPhase) {
+        this.phase = phase;
+        this.countPhase = countPhase;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        boolean isCount = invocation.getMethod().getName().startsWith(COUNT_METHOD_PREFIX);
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(isCount ? countPhase : phase)) {
+            return invocation.proceed();
+        }
+    }
+}
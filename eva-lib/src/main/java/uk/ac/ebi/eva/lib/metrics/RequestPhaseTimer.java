@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the time spent by the current request in each {@link RequestPhase}.
+ *
+ * Like {@link uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory}, the timer is kept in a static ThreadLocal, so code deep
+ * in the repositories can report its phase without the timer being passed around. When no timer has been started
+ * for the current thread, {@link #time(RequestPhase)} does nothing.
+ *
+ * Phases can be nested, and the time is exclusive: while a nested phase is open, the enclosing one is paused. For
+ * instance, the conversion of documents happens while iterating the Mongo cursor, and is not counted as DB time.
+ *
+ * Usage:
+ * <pre>
+ * try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.MONGO_FIND)) {
+ *     return mongoTemplate.find(query, VariantEntity.class);
+ * }
+ * </pre>
+ */
+public class RequestPhaseTimer {
+
+    /**
+     * Closing the scope ends the phase it was opened for. It doesn't throw checked exceptions, so it can be used in
+     * a try-with-resources without a catch clause.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Notified when a phase starts and ends, e.g. to emit profiling events. The object returned when a phase starts
+     * is passed back when it ends.
+     */
+    public interface PhaseObserver {
+
+        Object phaseStarted(RequestPhaseTimer timer, RequestPhase phase);
+
+        void phaseEnded(RequestPhaseTimer timer, RequestPhase phase, Object context);
+    }
+
+    private static final Scope NO_OP_SCOPE = () -> { };
+
+    private static volatile PhaseObserver phaseObserver;
+
+    private static final int MAX_NESTING = 16;
+
+    private static final ThreadLocal<RequestPhaseTimer> currentTimer = new ThreadLocal<>();
+
+    private final long startNanos;
+
+    private final long[] elapsedNanos = new long[RequestPhase.values().length];
+
+    private final RequestPhase[] openPhases = new RequestPhase[MAX_NESTING];
+
+    private final Object[] observerContexts = new Object[MAX_NESTING];
+
+    private int depth;
+
+    private long lastTransitionNanos;
+
+    private String endpoint;
+
+    private final Scope closingScope = this::exitPhase;
+
+    private RequestPhaseTimer() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start a new timer for the request being served by the current thread, replacing any previous one.
+     */
+    public static RequestPhaseTimer startForCurrentThread() {
+        RequestPhaseTimer timer = new RequestPhaseTimer();
+        currentTimer.set(timer);
+        return timer;
+    }
+
+    /**
+     * @return the timer of the current thread, or null if none was started
+     */
+    public static RequestPhaseTimer getForCurrentThread() {
+        return currentTimer.get();
+    }
+
+    public static void clearForCurrentThread() {
+        currentTimer.remove();
+    }
+
+    /**
+     * Set the observer of the phases of all the timers, or null to remove it.
+     */
+    public static void setPhaseObserver(PhaseObserver observer) {
+        phaseObserver = observer;
+    }
+
+    /**
+     * Open a phase in the timer of the current thread, if any.
+     */
+    public static Scope time(RequestPhase phase) {
+        RequestPhaseTimer timer = currentTimer.get();
+        if (timer == null || timer.depth == MAX_NESTING) {
+            return NO_OP_SCOPE;
+        }
+        return timer.enterPhase(phase);
+    }
+
+    private Scope enterPhase(RequestPhase phase) {
+        long now = System.nanoTime();
+        if (depth > 0) {
+            elapsedNanos[openPhases[depth - 1].ordinal()] += now - lastTransitionNanos;
+        }
+        PhaseObserver observer = phaseObserver;
+        observerContexts[depth] = observer != null ? observer.phaseStarted(this, phase) : null;
+        openPhases[depth++] = phase;
+        lastTransitionNanos = now;
+        return closingScope;
+    }
+
+    private void exitPhase() {
+        long now = System.nanoTime();
+        RequestPhase phase = openPhases[--depth];
+        elapsedNanos[phase.ordinal()] += now - lastTransitionNanos;
+        PhaseObserver observer = phaseObserver;
+        if (observer != null && observerContexts[depth] != null) {
+            observer.phaseEnded(this, phase, observerContexts[depth]);
+        }
+        openPhases[depth] = null;
+        observerContexts[depth] = null;
+        lastTransitionNanos = now;
+    }
+
+    public long getElapsedNanos(RequestPhase phase) {
+        return elapsedNanos[phase.ordinal()];
+    }
+
+    public long getElapsedMillis(RequestPhase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(getElapsedNanos(phase));
+    }
+
+    /**
+     * @return time spent in all the phases that are database round trips
+     */
+    public long getDatabaseNanos() {
+        long nanos = 0;
+        for (RequestPhase phase : RequestPhase.values()) {
+            if (phase.isDatabaseRoundTrip()) {
+                nanos += elapsedNanos[phase.ordinal()];
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * @return mapping pattern of the REST endpoint serving the request, or null if it has not been resolved yet
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return time since the timer was started, including the time not assigned to any phase
+     */
+    public long getTotalNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
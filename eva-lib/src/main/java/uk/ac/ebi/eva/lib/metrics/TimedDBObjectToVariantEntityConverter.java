@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import com.mongodb.DBObject;
+
+import uk.ac.ebi.eva.commons.models.converters.data.DBObjectToVariantEntityConverter;
+import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+
+/**
+ * DBObjectToVariantEntityConverter that reports its time as {@link RequestPhase#CONVERSION}.
+ *
+ * It is a subclass instead of a wrapper so that Spring can still resolve the source and target types of the
+ * converter from its generic signature.
+ */
+public class TimedDBObjectToVariantEntityConverter extends DBObjectToVariantEntityConverter {
+
+    @Override
+    public VariantEntity convert(DBObject object) {
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.CONVERSION)) {
+            return super.convert(object);
+        }
+    }
+}
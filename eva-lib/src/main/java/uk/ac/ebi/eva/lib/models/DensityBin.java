@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.models;
+
+import java.util.Map;
+
+/**
+ * Number of variants that start in a genomic bin, optionally split by variant type and by study. A variant found in
+ * several studies is counted once in the total and once for each study.
+ */
+public class DensityBin {
+
+    private String chromosome;
+
+    private long start;
+
+    private long end;
+
+    private long count;
+
+    /**
+     * Number of variants per type, or null if the counts were not split by type
+     */
+    private Map<String, Long> types;
+
+    /**
+     * Number of variants per study ID, or null if the counts were not split by study
+     */
+    private Map<String, Long> studies;
+
+    DensityBin() {
+    }
+
+    public DensityBin(String chromosome, long start, long end, long count, Map<String, Long> types,
+                      Map<String, Long> studies) {
+        this.chromosome = chromosome;
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.types = types;
+        this.studies = studies;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, Long> getTypes() {
+        return types;
+    }
+
+    public Map<String, Long> getStudies() {
+        return studies;
+    }
+}
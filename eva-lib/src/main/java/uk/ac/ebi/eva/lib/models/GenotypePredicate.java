@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.models;
+
+/**
+ * Condition on the genotype of a sample, e.g. "nonref" for the samples that carry any alternate allele, or an exact
+ * genotype such as "0|1". The genotypes are read as alleles separated by "/" or "|", where "0" is the reference
+ * allele and "." a missing one.
+ */
+public class GenotypePredicate {
+
+    private enum Kind {
+        REF("ref"), NON_REF("nonref"), HET("het"), HOM_ALT("homalt"), MISSING("missing"), EXACT(null);
+
+        private final String name;
+
+        Kind(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Kind kind;
+
+    /**
+     * Genotype to match exactly, only for {@link Kind#EXACT}
+     */
+    private final String genotype;
+
+    private GenotypePredicate(Kind kind, String genotype) {
+        this.kind = kind;
+        this.genotype = genotype;
+    }
+
+    /**
+     * @param predicate one of "ref", "nonref", "het", "homalt" and "missing", or a genotype to match exactly
+     * @throws IllegalArgumentException if the predicate is empty
+     */
+    public static GenotypePredicate parse(String predicate) {
+        if (predicate == null || predicate.isEmpty()) {
+            throw new IllegalArgumentException("Empty genotype predicate");
+        }
+        for (Kind kind : Kind.values()) {
+            if (kind.name != null && kind.name.equalsIgnoreCase(predicate)) {
+                return new GenotypePredicate(kind, null);
+            }
+        }
+        return new GenotypePredicate(Kind.EXACT, predicate);
+    }
+
+    /**
+     * @param genotype genotype of a sample, or null if it is unknown, which matches no predicate
+     */
+    public boolean matches(String genotype) {
+        if (genotype == null || genotype.isEmpty()) {
+            return false;
+        }
+        if (kind == Kind.EXACT) {
+            return this.genotype.equals(genotype);
+        }
+
+        boolean missing = false;
+        boolean reference = false;
+        boolean alternate = false;
+        boolean distinct = false;
+        int firstStart = 0;
+        int firstEnd = alleleEnd(genotype, 0);
+        for (int start = 0; start < genotype.length(); ) {
+            int end = alleleEnd(genotype, start);
+            if (end - start == 1 && genotype.charAt(start) == '.') {
+                missing = true;
+            } else if (end - start == 1 && genotype.charAt(start) == '0') {
+                reference = true;
+            } else {
+                alternate = true;
+            }
+            if (end - start != firstEnd - firstStart
+                    || !genotype.regionMatches(start, genotype, firstStart, end - start)) {
+                distinct = true;
+            }
+            start = end + 1;
+        }
+
+        switch (kind) {
+            case REF:
+                return reference && !alternate && !missing;
+            case NON_REF:
+                return alternate;
+            case HET:
+                return distinct && !missing;
+            case HOM_ALT:
+                return alternate && !distinct && !missing;
+            case MISSING:
+                return missing;
+            default:
+                throw new IllegalStateException("Unknown genotype predicate " + kind);
+        }
+    }
+
+    private static int alleleEnd(String genotype, int start) {
+        int end = start;
+        while (end < genotype.length() && genotype.charAt(end) != '/' && genotype.charAt(end) != '|') {
+            end++;
+        }
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.EXACT ? genotype : kind.name;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Genotypes of the samples of one file of a variant, decoded from its "samp" field, where the most common genotype
+ * is stored in "def" and every other genotype maps to the list of positions of the samples that have it, e.g.
+ * {def: "0|0", "0|1": [3, 10], "1|1": [7]}.
+ *
+ * Each non-default genotype is kept as a bitset over the sample positions, so the genotype of a sample is found
+ * without building a map per sample, and the samples of a genotype are iterated without allocating. The positions
+ * are those of {@link uk.ac.ebi.eva.commons.models.data.VariantSourceEntity#getSamplesPosition}.
+ */
+public class SampleGenotypes {
+
+    static final String DEFAULT_GENOTYPE_KEY = "def";
+
+    private static final int BITS_PER_WORD = 64;
+
+    private static final long[] EMPTY_BITSET = new long[0];
+
+    /**
+     * Genotype of the samples not listed, or null if it is unknown
+     */
+    private final String defaultGenotype;
+
+    private final String[] genotypes;
+
+    private final long[][] bitsets;
+
+    private SampleGenotypes(String defaultGenotype, String[] genotypes, long[][] bitsets) {
+        this.defaultGenotype = defaultGenotype;
+        this.genotypes = genotypes;
+        this.bitsets = bitsets;
+    }
+
+    /**
+     * @param samp contents of the "samp" field of a file: the default genotype in "def", and for every other
+     * genotype the list of the positions of its samples. Negative positions and values that are not lists of numbers
+     * are ignored.
+     */
+    public static SampleGenotypes decode(Map<String, ?> samp) {
+        Object defaultGenotype = samp.get(DEFAULT_GENOTYPE_KEY);
+        List<String> genotypes = new ArrayList<>(samp.size());
+        List<long[]> bitsets = new ArrayList<>(samp.size());
+        for (Map.Entry<String, ?> entry : samp.entrySet()) {
+            if (DEFAULT_GENOTYPE_KEY.equals(entry.getKey()) || !(entry.getValue() instanceof List)) {
+                continue;
+            }
+            genotypes.add(entry.getKey());
+            bitsets.add(toBitset((List<?>) entry.getValue()));
+        }
+        return new SampleGenotypes(defaultGenotype instanceof String ? (String) defaultGenotype : null,
+                                   genotypes.toArray(new String[genotypes.size()]),
+                                   bitsets.toArray(new long[bitsets.size()][]));
+    }
+
+    private static long[] toBitset(List<?> positions) {
+        int maxPosition = -1;
+        for (Object position : positions) {
+            if (position instanceof Number) {
+                maxPosition = Math.max(maxPosition, ((Number) position).intValue());
+            }
+        }
+        if (maxPosition < 0) {
+            return EMPTY_BITSET;
+        }
+        long[] bitset = new long[maxPosition / BITS_PER_WORD + 1];
+        for (Object position : positions) {
+            if (position instanceof Number) {
+                int samplePosition = ((Number) position).intValue();
+                if (samplePosition >= 0) {
+                    bitset[samplePosition / BITS_PER_WORD] |= 1L << samplePosition;
+                }
+            }
+        }
+        return bitset;
+    }
+
+    public String getDefaultGenotype() {
+        return defaultGenotype;
+    }
+
+    /**
+     * @return genotypes other than the default one, in the order they were stored
+     */
+    public List<String> getGenotypes() {
+        return Collections.unmodifiableList(Arrays.asList(genotypes));
+    }
+
+    /**
+     * @return genotype of the sample in that position, or the default genotype if it is not listed in any other
+     */
+    public String getGenotype(int samplePosition) {
+        for (int i = 0; i < genotypes.length; i++) {
+            if (contains(bitsets[i], samplePosition)) {
+                return genotypes[i];
+            }
+        }
+        return defaultGenotype;
+    }
+
+    /**
+     * @return number of samples with a genotype other than the default one
+     */
+    public int countSamples(String genotype) {
+        int index = indexOf(genotype);
+        if (index < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (long word : bitsets[index]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the consumer with the position of every sample that has a genotype, in ascending order. The samples of
+     * the default genotype are those below samplesCount that are not listed in any other genotype.
+     *
+     * @param samplesCount number of samples of the file
+     */
+    public void forEachSample(String genotype, int samplesCount, IntConsumer consumer) {
+        if (genotype.equals(defaultGenotype)) {
+            for (int position = 0; position < samplesCount; position++) {
+                if (!isListed(position)) {
+                    consumer.accept(position);
+                }
+            }
+            return;
+        }
+
+        int index = indexOf(genotype);
+        if (index < 0) {
+            return;
+        }
+        long[] bitset = bitsets[index];
+        for (int word = 0; word < bitset.length; word++) {
+            long bits = bitset[word];
+            while (bits != 0) {
+                int position = word * BITS_PER_WORD + Long.numberOfTrailingZeros(bits);
+                if (position >= samplesCount) {
+                    return;
+                }
+                consumer.accept(position);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private boolean isListed(int samplePosition) {
+        for (long[] bitset : bitsets) {
+            if (contains(bitset, samplePosition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(String genotype) {
+        for (int i = 0; i < genotypes.length; i++) {
+            if (genotypes[i].equals(genotype)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(long[] bitset, int samplePosition) {
+        int word = samplePosition / BITS_PER_WORD;
+        return samplePosition >= 0 && word < bitset.length && (bitset[word] & (1L << samplePosition)) != 0;
+    }
+}
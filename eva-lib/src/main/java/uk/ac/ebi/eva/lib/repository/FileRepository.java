@@ -19,4 +19,7 @@ public interface FileRepository extends JpaRepository<File, Long> {
 
     //named query
     List<FileFtpReference> getFileFtpReferenceByNames(@Param("filenames") List<String> filenames);
+
+    //named query
+    String getLatestRelease();
 }
@@ -20,11 +20,20 @@ package uk.ac.ebi.eva.lib.repository;
 
 import org.opencb.biodata.models.feature.Region;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.util.CloseableIterator;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.repository.projections.ChromosomeSummary;
+import uk.ac.ebi.eva.lib.repository.projections.VariantAccessions;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+import uk.ac.ebi.eva.lib.repository.projections.VariantGenotypes;
+import uk.ac.ebi.eva.lib.repository.projections.VariantInterval;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface to declare additional repository methods with a custom implementation,
@@ -47,6 +56,73 @@ interface VariantEntityRepositoryCustom {
 
     Long countByIdsAndComplexFilters(String id, List<VariantEntityRepositoryFilter> filters);
 
+    /**
+     * Same as {@link #findByIdsAndComplexFilters}, only looking at the variants that start at the given positions,
+     * which are usually taken from an index of the IDs. This uses the index on the position instead of the one on the
+     * IDs.
+     *
+     * @param id Variant id
+     * @param startsByChromosome Positions of the variants with that ID, grouped by chromosome
+     * @param filters List of VariantEntityRepositoryFilter objects by which to filter the query
+     * @param exclude List of strings, each matching a field in the variant Mongo documents. Fields specified in the
+     *                list will be excluded from the returned document(s)
+     * @return VariantEntities whose values are within the bounds of the filters
+     */
+    List<VariantEntity> findByIdAndChromosomeAndStartInAndComplexFilters(
+            String id, Map<String, ? extends Collection<Long>> startsByChromosome,
+            List<VariantEntityRepositoryFilter> filters, List<String> exclude, Pageable pageable);
+
+    Long countByIdAndChromosomeAndStartInAndComplexFilters(
+            String id, Map<String, ? extends Collection<Long>> startsByChromosome,
+            List<VariantEntityRepositoryFilter> filters);
+
+    /**
+     * Query for variants with any of the specified IDs, and whose attributes match those values specified in the
+     * filters. All the matching variants are returned, so the number of IDs should be bounded by the caller.
+     *
+     * @param ids Variant IDs
+     * @param filters List of VariantEntityRepositoryFilter objects by which to filter the query
+     * @param exclude List of strings, each matching a field in the variant Mongo documents. Fields specified in the
+     *                list will be excluded from the returned document(s)
+     * @return VariantEntities whose values are within the bounds of the filters, in no particular order
+     */
+    List<VariantEntity> findByIdsInAndComplexFilters(Collection<String> ids, List<VariantEntityRepositoryFilter> filters,
+                                                     List<String> exclude);
+
+    /**
+     * Query for variants with any of the specified HGVS names, and whose attributes match those values specified in
+     * the filters. Several names can be looked up at once, usually the equivalent forms of a single notation, so that
+     * they are resolved with a single query on the index of "hgvs.name".
+     *
+     * @param hgvsNames HGVS names as stored in the variants, eg. "11:g.180002G>A"
+     * @param filters List of VariantEntityRepositoryFilter objects by which to filter the query
+     * @param exclude List of strings, each matching a field in the variant Mongo documents. Fields specified in the
+     *                list will be excluded from the returned document(s)
+     * @return VariantEntities whose values are within the bounds of the filters
+     */
+    List<VariantEntity> findByHgvsAndComplexFilters(Collection<String> hgvsNames,
+                                                    List<VariantEntityRepositoryFilter> filters, List<String> exclude,
+                                                    Pageable pageable);
+
+    Long countByHgvsAndComplexFilters(Collection<String> hgvsNames, List<VariantEntityRepositoryFilter> filters);
+
+    /**
+     * Query for variants annotated with a cross-reference, such as a gene or transcript ID or a gene name, and whose
+     * attributes match those values specified in the filters. The query uses the index of "annot.xrefs.id".
+     *
+     * @param xrefId Cross-reference ID, eg. "ENSG00000177951" or "BET1L"
+     * @param source Source of the cross-reference, eg. "HGNC", or null to accept any source
+     * @param filters List of VariantEntityRepositoryFilter objects by which to filter the query
+     * @param exclude List of strings, each matching a field in the variant Mongo documents. Fields specified in the
+     *                list will be excluded from the returned document(s)
+     * @return VariantEntities whose values are within the bounds of the filters
+     */
+    List<VariantEntity> findByXrefAndComplexFilters(String xrefId, String source,
+                                                    List<VariantEntityRepositoryFilter> filters, List<String> exclude,
+                                                    Pageable pageable);
+
+    Long countByXrefAndComplexFilters(String xrefId, String source, List<VariantEntityRepositoryFilter> filters);
+
     /**
      * Query for variants within a set of specified genomic regions, and whose attributes match those values specified
      * in the filters: study, consequence type, minor allele frequency and protein substitution scores (Polyphen and
@@ -63,6 +139,24 @@ interface VariantEntityRepositoryCustom {
 
     Long countByRegionsAndComplexFilters(List<Region> regions, List<VariantEntityRepositoryFilter> filters);
 
+    /**
+     * Same as {@link #findByRegionsAndComplexFilters(List, List, List, Pageable)}, for a collection whose long variants
+     * are known in advance. Variants shorter than longVariantLength are looked for only in the positions from which
+     * they could reach the regions, while the long ones are looked for only in the given starts, so neither needs a
+     * wide margin around the regions.
+     *
+     * @param longVariantLength Variants whose end minus start is lower than this are searched by position
+     * @param longVariantStarts Starts of the longer variants that overlap the regions, by chromosome
+     */
+    List<VariantEntity> findByRegionsAndComplexFilters(List<Region> regions, int longVariantLength,
+                                                       Map<String, ? extends Collection<Long>> longVariantStarts,
+                                                       List<VariantEntityRepositoryFilter> filters,
+                                                       List<String> exclude, Pageable pageable);
+
+    Long countByRegionsAndComplexFilters(List<Region> regions, int longVariantLength,
+                                         Map<String, ? extends Collection<Long>> longVariantStarts,
+                                         List<VariantEntityRepositoryFilter> filters);
+
     /**
      * Query for distinct chromosomes for variants in the collection
      *
@@ -70,4 +164,93 @@ interface VariantEntityRepositoryCustom {
      */
     List<String> findDistinctChromosomes();
 
+    /**
+     * Query for the number of variants and the lowest start and highest end of each chromosome. This scans the whole
+     * collection, so its results should be cached.
+     *
+     * @return List of chromosome summaries, sorted by chromosome name
+     */
+    List<ChromosomeSummary> findChromosomeSummaries();
+
+    /**
+     * Count the variants of each study, unwinding the files of every variant. A variant with several files of the
+     * same study is counted once per file, so the counts are upper bounds.
+     *
+     * @return Number of variants per study ID
+     */
+    Map<String, Long> countVariantsPerStudy();
+
+    /**
+     * Iterate over the position, alternate allele, type and studies of all the variants in the collection, fetched
+     * in batches while iterating. The iterator must be closed once the variants have been read.
+     */
+    CloseableIterator<VariantLocus> streamVariantLoci();
+
+    /**
+     * Iterate over the position and IDs of all the variants in the collection, fetched in batches while iterating.
+     * The iterator must be closed once the variants have been read.
+     */
+    CloseableIterator<VariantAccessions> streamVariantAccessions();
+
+    /**
+     * Iterate over the chromosome, chunk IDs, type and studies of all the variants in the collection, sorted by
+     * chromosome and start, and fetched in batches while iterating. The iterator must be closed once the variants
+     * have been read.
+     */
+    CloseableIterator<VariantChunks> streamVariantChunks();
+
+    /**
+     * Same as {@link #streamVariantChunks}, only for the variants of a chromosome that start between two positions,
+     * both included.
+     */
+    CloseableIterator<VariantChunks> streamVariantChunksByChromosomeAndStartBetween(String chromosome, long start,
+                                                                                    long end);
+
+    /**
+     * Iterate over the chromosome, start and end of all the variants in the collection, fetched in batches while
+     * iterating. The iterator must be closed once the variants have been read.
+     */
+    CloseableIterator<VariantInterval> streamVariantIntervals();
+
+    /**
+     * Iterate over the variants of a set of genomic regions found in any of the given files, sorted by chromosome and
+     * start, with the sample genotypes of those files only, and fetched in batches while iterating. Files without
+     * sample genotypes are left out. The iterator must be closed once the variants have been read.
+     *
+     * @param longVariantStarts Starts of the long variants that overlap the regions, by chromosome, as in
+     *                          {@link #findByRegionsAndComplexFilters(List, int, Map, List, List, Pageable)}, or null
+     *                          to look for the variants that start up to a wide margin before the regions
+     * @param fileIds IDs of the files whose genotypes are read
+     */
+    CloseableIterator<VariantGenotypes> streamGenotypesByRegionsAndComplexFilters(
+            List<Region> regions, int longVariantLength, Map<String, ? extends Collection<Long>> longVariantStarts,
+            Collection<String> fileIds, List<VariantEntityRepositoryFilter> filters);
+
+    /**
+     * Query for the loci of the variants found in any of the given studies, starting at any of the given positions.
+     * The positions of each chromosome are grouped in a single $in clause, so that a whole batch of positions is
+     * resolved with one query.
+     *
+     * @param startsByChromosome Start positions to look for, grouped by chromosome
+     * @param studies List of study IDs, of which at least one must contain the variant
+     * @return Loci of the matching variants, in no particular order
+     */
+    List<VariantLocus> findLociByChromosomeAndStartInAndStudyIn(
+            Map<String, ? extends Collection<Long>> startsByChromosome, List<String> studies);
+
+    /**
+     * Query for variants starting at any of the given positions, and whose attributes match those values specified
+     * in the filters. The positions of each chromosome are grouped in a single $in clause. All the matching variants
+     * are returned, so the number of positions should be bounded by the caller.
+     *
+     * @param startsByChromosome Start positions to look for, grouped by chromosome
+     * @param filters List of VariantEntityRepositoryFilter objects by which to filter the query
+     * @param exclude List of strings, each matching a field in the variant Mongo documents. Fields specified in the
+     *                list will be excluded from the returned document(s)
+     * @return VariantEntities whose values are within the bounds of the filters, in no particular order
+     */
+    List<VariantEntity> findByChromosomeAndStartInAndComplexFilters(
+            Map<String, ? extends Collection<Long>> startsByChromosome, List<VariantEntityRepositoryFilter> filters,
+            List<String> exclude);
+
 }
@@ -18,6 +18,10 @@
  */
 package uk.ac.ebi.eva.lib.repository;
 
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 import org.opencb.biodata.models.feature.Region;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,15 +31,36 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+import uk.ac.ebi.eva.lib.models.SampleGenotypes;
+import uk.ac.ebi.eva.lib.repository.projections.ChromosomeSummary;
+import uk.ac.ebi.eva.lib.repository.projections.VariantAccessions;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+import uk.ac.ebi.eva.lib.repository.projections.VariantGenotypes;
+import uk.ac.ebi.eva.lib.repository.projections.VariantInterval;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
 
 /**
  * Concrete implementation of the VariantEntityRepository interface (relationship inferred by Spring),
@@ -70,6 +95,62 @@ public class VariantEntityRepositoryImpl implements VariantEntityRepositoryCusto
         return countByComplexFiltersHelper(query, filters);
     }
 
+    @Override
+    public List<VariantEntity> findByIdAndChromosomeAndStartInAndComplexFilters(
+            String id, Map<String, ? extends Collection<Long>> startsByChromosome,
+            List<VariantEntityRepositoryFilter> filters, List<String> exclude, Pageable pageable) {
+        Query query = new Query(Criteria.where("ids").is(id));
+        addPositionsToQuery(query, startsByChromosome);
+        return findByComplexFiltersHelper(query, filters, exclude, pageable);
+    }
+
+    @Override
+    public Long countByIdAndChromosomeAndStartInAndComplexFilters(
+            String id, Map<String, ? extends Collection<Long>> startsByChromosome,
+            List<VariantEntityRepositoryFilter> filters) {
+        Query query = new Query(Criteria.where("ids").is(id));
+        addPositionsToQuery(query, startsByChromosome);
+        return countByComplexFiltersHelper(query, filters);
+    }
+
+    @Override
+    public List<VariantEntity> findByIdsInAndComplexFilters(Collection<String> ids,
+                                                            List<VariantEntityRepositoryFilter> filters,
+                                                            List<String> exclude) {
+        Query query = new Query(Criteria.where("ids").in(ids));
+        return findAllByComplexFiltersHelper(query, filters, exclude);
+    }
+
+    @Override
+    public List<VariantEntity> findByHgvsAndComplexFilters(Collection<String> hgvsNames,
+                                                           List<VariantEntityRepositoryFilter> filters,
+                                                           List<String> exclude, Pageable pageable) {
+        Query query = new Query(Criteria.where("hgvs.name").in(hgvsNames));
+        return findByComplexFiltersHelper(query, filters, exclude, pageable);
+    }
+
+    @Override
+    public Long countByHgvsAndComplexFilters(Collection<String> hgvsNames,
+                                             List<VariantEntityRepositoryFilter> filters) {
+        Query query = new Query(Criteria.where("hgvs.name").in(hgvsNames));
+        return countByComplexFiltersHelper(query, filters);
+    }
+
+    @Override
+    public List<VariantEntity> findByXrefAndComplexFilters(String xrefId, String source,
+                                                           List<VariantEntityRepositoryFilter> filters,
+                                                           List<String> exclude, Pageable pageable) {
+        Query query = new Query(getXrefCriteria(xrefId, source));
+        return findByComplexFiltersHelper(query, filters, exclude, pageable);
+    }
+
+    @Override
+    public Long countByXrefAndComplexFilters(String xrefId, String source,
+                                             List<VariantEntityRepositoryFilter> filters) {
+        Query query = new Query(getXrefCriteria(xrefId, source));
+        return countByComplexFiltersHelper(query, filters);
+    }
+
     @Override
     public List<VariantEntity> findByRegionsAndComplexFilters(List<Region> regions,
                                                               List<VariantEntityRepositoryFilter> filters,
@@ -86,12 +167,340 @@ public class VariantEntityRepositoryImpl implements VariantEntityRepositoryCusto
         return countByComplexFiltersHelper(query, filters);
     }
 
+    @Override
+    public List<VariantEntity> findByRegionsAndComplexFilters(List<Region> regions, int longVariantLength,
+                                                              Map<String, ? extends Collection<Long>> longVariantStarts,
+                                                              List<VariantEntityRepositoryFilter> filters,
+                                                              List<String> exclude, Pageable pageable) {
+        Query query = new Query();
+        addRegionsToQuery(query, regions, longVariantLength, longVariantStarts);
+        return findByComplexFiltersHelper(query, filters, exclude, pageable);
+    }
+
+    @Override
+    public Long countByRegionsAndComplexFilters(List<Region> regions, int longVariantLength,
+                                                Map<String, ? extends Collection<Long>> longVariantStarts,
+                                                List<VariantEntityRepositoryFilter> filters) {
+        Query query = new Query();
+        addRegionsToQuery(query, regions, longVariantLength, longVariantStarts);
+        return countByComplexFiltersHelper(query, filters);
+    }
+
     @Override
     public List<String> findDistinctChromosomes() {
         return (List<String>) mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
                                            .distinct("chr");
     }
 
+    /**
+     * the equivalent intended query is:
+     * db.variants.aggregate([
+     *  {$group: {_id: "$chr", variantsCount: {$sum: 1}, minStart: {$min: "$start"}, maxEnd: {$max: "$end"}}},
+     *  {$project: {chromosome: "$_id", variantsCount: 1, minStart: 1, maxEnd: 1}},
+     *  {$sort: {chromosome: 1}}
+     *  ])
+     */
+    @Override
+    public List<ChromosomeSummary> findChromosomeSummaries() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                group("chr").count().as("variantsCount").min("start").as("minStart").max("end").as("maxEnd"),
+                project("variantsCount", "minStart", "maxEnd").and("chromosome").previousOperation(),
+                sort(Sort.Direction.ASC, "chromosome")
+        );
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(VariantEntity.class),
+                                       ChromosomeSummary.class).getMappedResults();
+    }
+
+    /**
+     * the equivalent intended query is:
+     * db.variants.aggregate([
+     *  {$unwind: "$files"},
+     *  {$group: {_id: "$files.sid", variantsCount: {$sum: 1}}}
+     *  ])
+     */
+    @Override
+    public Map<String, Long> countVariantsPerStudy() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                unwind("files"),
+                group("files.sid").count().as("variantsCount")
+        );
+        Map<String, Long> counts = new HashMap<>();
+        for (DBObject result : mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(VariantEntity.class),
+                                                       DBObject.class)) {
+            counts.put((String) result.get("_id"), ((Number) result.get("variantsCount")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public CloseableIterator<VariantLocus> streamVariantLoci() {
+        DBObject projection = new BasicDBObject("chr", 1).append("start", 1).append("alt", 1).append("type", 1)
+                                                         .append("files.sid", 1).append("_id", 0);
+        DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                       .find(new BasicDBObject(), projection);
+        return new CloseableIterator<VariantLocus>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public VariantLocus next() {
+                return toVariantLocus(cursor.next());
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    /**
+     * the equivalent intended query is:
+     * db.variants.find(
+     *  {$or: [{chr: "1", start: {$in: [1000, 2000]}}, {chr: "2", start: {$in: [3000]}}], "files.sid": {$in: studies}},
+     *  {chr: 1, start: 1, alt: 1, type: 1, "files.sid": 1, _id: 0}
+     *  )
+     */
+    @Override
+    public List<VariantLocus> findLociByChromosomeAndStartInAndStudyIn(
+            Map<String, ? extends Collection<Long>> startsByChromosome, List<String> studies) {
+        List<VariantLocus> loci = new ArrayList<>();
+        if (startsByChromosome.isEmpty()) {
+            return loci;
+        }
+
+        BasicDBList positions = new BasicDBList();
+        startsByChromosome.forEach((chromosome, starts) -> positions.add(
+                new BasicDBObject("chr", chromosome).append("start", new BasicDBObject("$in", starts))));
+        DBObject query = new BasicDBObject("$or", positions)
+                .append("files.sid", new BasicDBObject("$in", studies));
+        DBObject projection = new BasicDBObject("chr", 1).append("start", 1).append("alt", 1).append("type", 1)
+                                                         .append("files.sid", 1).append("_id", 0);
+
+        try (DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                            .find(query, projection)) {
+            while (cursor.hasNext()) {
+                loci.add(toVariantLocus(cursor.next()));
+            }
+        }
+        return loci;
+    }
+
+    @Override
+    public List<VariantEntity> findByChromosomeAndStartInAndComplexFilters(
+            Map<String, ? extends Collection<Long>> startsByChromosome, List<VariantEntityRepositoryFilter> filters,
+            List<String> exclude) {
+        if (startsByChromosome.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Query query = new Query();
+        addPositionsToQuery(query, startsByChromosome);
+        return findAllByComplexFiltersHelper(query, filters, exclude);
+    }
+
+    @Override
+    public CloseableIterator<VariantAccessions> streamVariantAccessions() {
+        DBObject projection = new BasicDBObject("chr", 1).append("start", 1).append("ids", 1).append("_id", 0);
+        DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                       .find(new BasicDBObject(), projection);
+        return new CloseableIterator<VariantAccessions>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public VariantAccessions next() {
+                DBObject variant = cursor.next();
+                List<String> ids = new ArrayList<>();
+                Object variantIds = variant.get("ids");
+                if (variantIds instanceof List) {
+                    for (Object id : (List) variantIds) {
+                        ids.add(id.toString());
+                    }
+                }
+                return new VariantAccessions((String) variant.get("chr"),
+                                             ((Number) variant.get("start")).longValue(), ids);
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<VariantChunks> streamVariantChunks() {
+        return streamVariantChunks(new BasicDBObject());
+    }
+
+    /**
+     * the equivalent intended query is:
+     * db.variants.find(
+     *  {chr: "1", start: {$gte: 1000, $lte: 2000}},
+     *  {chr: 1, "_at.chunkIds": 1, type: 1, "files.sid": 1, _id: 0}
+     *  ).sort({chr: 1, start: 1})
+     */
+    @Override
+    public CloseableIterator<VariantChunks> streamVariantChunksByChromosomeAndStartBetween(String chromosome,
+                                                                                           long start, long end) {
+        return streamVariantChunks(new BasicDBObject("chr", chromosome)
+                                           .append("start", new BasicDBObject("$gte", start).append("$lte", end)));
+    }
+
+    private CloseableIterator<VariantChunks> streamVariantChunks(DBObject query) {
+        DBObject projection = new BasicDBObject("chr", 1).append("_at.chunkIds", 1).append("type", 1)
+                                                         .append("files.sid", 1).append("_id", 0);
+        DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                       .find(query, projection)
+                                       .sort(new BasicDBObject("chr", 1).append("start", 1));
+        return new CloseableIterator<VariantChunks>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public VariantChunks next() {
+                return toVariantChunks(cursor.next());
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<VariantInterval> streamVariantIntervals() {
+        DBObject projection = new BasicDBObject("chr", 1).append("start", 1).append("end", 1).append("_id", 0);
+        DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                       .find(new BasicDBObject(), projection);
+        return new CloseableIterator<VariantInterval>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public VariantInterval next() {
+                DBObject variant = cursor.next();
+                return new VariantInterval((String) variant.get("chr"), ((Number) variant.get("start")).longValue(),
+                                           ((Number) variant.get("end")).longValue());
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    /**
+     * the equivalent intended query is:
+     * db.variants.find(
+     *  {$or: [...criteria of the regions...], "files.fid": {$in: ["5", "6"]}, ...filters...},
+     *  {chr: 1, start: 1, end: 1, ref: 1, alt: 1, "files.sid": 1, "files.fid": 1, "files.samp": 1, _id: 0}
+     *  ).sort({chr: 1, start: 1})
+     */
+    @Override
+    public CloseableIterator<VariantGenotypes> streamGenotypesByRegionsAndComplexFilters(
+            List<Region> regions, int longVariantLength, Map<String, ? extends Collection<Long>> longVariantStarts,
+            Collection<String> fileIds, List<VariantEntityRepositoryFilter> filters) {
+        Query query = new Query();
+        if (longVariantStarts == null) {
+            addRegionsToQuery(query, regions);
+        } else {
+            addRegionsToQuery(query, regions, longVariantLength, longVariantStarts);
+        }
+        query.addCriteria(Criteria.where("files.fid").in(fileIds));
+        applyFilters(query, filters);
+
+        DBObject projection = new BasicDBObject("chr", 1).append("start", 1).append("end", 1).append("ref", 1)
+                                                         .append("alt", 1).append("files.sid", 1)
+                                                         .append("files.fid", 1).append("files.samp", 1)
+                                                         .append("_id", 0);
+        DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantEntity.class))
+                                       .find(query.getQueryObject(), projection)
+                                       .sort(new BasicDBObject("chr", 1).append("start", 1));
+        Set<String> requestedFileIds = new HashSet<>(fileIds);
+        return new CloseableIterator<VariantGenotypes>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public VariantGenotypes next() {
+                return toVariantGenotypes(cursor.next(), requestedFileIds);
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    private VariantLocus toVariantLocus(DBObject variant) {
+        return new VariantLocus((String) variant.get("chr"), ((Number) variant.get("start")).longValue(),
+                                (String) variant.get("alt"), (String) variant.get("type"), getStudyIds(variant));
+    }
+
+    private VariantChunks toVariantChunks(DBObject variant) {
+        List<String> chunkIds = new ArrayList<>();
+        Object annotations = variant.get("_at");
+        if (annotations instanceof DBObject) {
+            Object variantChunkIds = ((DBObject) annotations).get("chunkIds");
+            if (variantChunkIds instanceof List) {
+                for (Object chunkId : (List) variantChunkIds) {
+                    chunkIds.add(chunkId.toString());
+                }
+            }
+        }
+        return new VariantChunks((String) variant.get("chr"), chunkIds, (String) variant.get("type"),
+                                 getStudyIds(variant));
+    }
+
+    private VariantGenotypes toVariantGenotypes(DBObject variant, Set<String> fileIds) {
+        List<VariantGenotypes.FileGenotypes> fileGenotypes = new ArrayList<>();
+        Object files = variant.get("files");
+        if (files instanceof List) {
+            for (Object file : (List) files) {
+                DBObject fileObject = (DBObject) file;
+                Object fileId = fileObject.get("fid");
+                Object samples = fileObject.get("samp");
+                if (fileIds.contains(fileId) && samples instanceof Map) {
+                    fileGenotypes.add(new VariantGenotypes.FileGenotypes(
+                            (String) fileObject.get("sid"), (String) fileId,
+                            SampleGenotypes.decode((Map<String, ?>) samples)));
+                }
+            }
+        }
+        return new VariantGenotypes((String) variant.get("chr"), ((Number) variant.get("start")).longValue(),
+                                    ((Number) variant.get("end")).longValue(), (String) variant.get("ref"),
+                                    (String) variant.get("alt"), fileGenotypes);
+    }
+
+    private List<String> getStudyIds(DBObject variant) {
+        List<String> studyIds = new ArrayList<>();
+        Object files = variant.get("files");
+        if (files instanceof List) {
+            for (Object file : (List) files) {
+                Object studyId = ((DBObject) file).get("sid");
+                if (studyId != null && !studyIds.contains(studyId)) {
+                    studyIds.add(studyId.toString());
+                }
+            }
+        }
+        return studyIds;
+    }
+
     private List<VariantEntity> findByComplexFiltersHelper(Query query, List<VariantEntityRepositoryFilter> filters,
                                                            List<String> exclude, Pageable pageable) {
 
@@ -113,6 +522,21 @@ public class VariantEntityRepositoryImpl implements VariantEntityRepositoryCusto
 
     }
 
+    /**
+     * Same as {@link #findByComplexFiltersHelper} without sorting nor paging, for queries whose number of results is
+     * bounded by the query itself
+     */
+    private List<VariantEntity> findAllByComplexFiltersHelper(Query query, List<VariantEntityRepositoryFilter> filters,
+                                                              List<String> exclude) {
+        applyFilters(query, filters);
+
+        if (exclude != null && !exclude.isEmpty()) {
+            exclude.forEach(e -> query.fields().exclude(e));
+        }
+
+        return mongoTemplate.find(query, VariantEntity.class);
+    }
+
     private Long countByComplexFiltersHelper(Query query, List<VariantEntityRepositoryFilter> filters) {
         applyFilters(query, filters);
 
@@ -120,11 +544,31 @@ public class VariantEntityRepositoryImpl implements VariantEntityRepositoryCusto
     }
 
     private void applyFilters(Query query, List<VariantEntityRepositoryFilter> filters) {
-        for (VariantEntityRepositoryFilter filter : filters) {
-            query.addCriteria(filter.getCriteria());
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.FILTER_BUILDING)) {
+            for (VariantEntityRepositoryFilter filter : filters) {
+                query.addCriteria(filter.getCriteria());
+            }
+        }
+    }
+
+    private Criteria getXrefCriteria(String xrefId, String source) {
+        if (source == null) {
+            return Criteria.where("annot.xrefs.id").is(xrefId);
+        } else {
+            // both must match the same cross-reference; the index of "annot.xrefs.id" is still used for the ID
+            return Criteria.where("annot.xrefs").elemMatch(Criteria.where("id").is(xrefId).and("src").is(source));
         }
     }
 
+    private void addPositionsToQuery(Query query, Map<String, ? extends Collection<Long>> startsByChromosome) {
+        List<Criteria> orPositionCriteria = new ArrayList<>();
+        startsByChromosome.forEach((chromosome, starts) -> orPositionCriteria.add(
+                Criteria.where("chr").is(chromosome).and("start").in(starts)));
+
+        query.addCriteria(new Criteria().orOperator(
+                orPositionCriteria.toArray(new Criteria[orPositionCriteria.size()])));
+    }
+
     private void addRegionsToQuery(Query query, List<Region> regions) {
         List<Criteria> orRegionCriteria = new ArrayList<>();
 
@@ -136,4 +580,32 @@ public class VariantEntityRepositoryImpl implements VariantEntityRepositoryCusto
         query.addCriteria(new Criteria().orOperator(orRegionCriteria.toArray(new Criteria[orRegionCriteria.size()])));
     }
 
+    /**
+     * the equivalent intended query for a region 1:1000-2000 with a long variant starting at 500 is:
+     * {$or: [
+     *  {chr: "1", start: {$lte: 2000, $gt: 1000 - longVariantLength}, end: {$gte: 1000}},
+     *  {chr: "1", start: {$in: [500], $lte: 2000}, end: {$gte: 1000}}
+     * ]}
+     */
+    private void addRegionsToQuery(Query query, List<Region> regions, int longVariantLength,
+                                   Map<String, ? extends Collection<Long>> longVariantStarts) {
+        List<Criteria> orRegionCriteria = new ArrayList<>();
+
+        for (Region region : regions) {
+            orRegionCriteria.add(Criteria.where("chr").is(region.getChromosome())
+                                         .and("start").lte(region.getEnd())
+                                         .gt((long) region.getStart() - longVariantLength)
+                                         .and("end").gte(region.getStart()));
+
+            Collection<Long> starts = longVariantStarts.get(region.getChromosome());
+            if (starts != null && !starts.isEmpty()) {
+                orRegionCriteria.add(Criteria.where("chr").is(region.getChromosome())
+                                             .and("start").in(starts).lte(region.getEnd())
+                                             .and("end").gte(region.getStart()));
+            }
+        }
+
+        query.addCriteria(new Criteria().orOperator(orRegionCriteria.toArray(new Criteria[orRegionCriteria.size()])));
+    }
+
 }
@@ -32,8 +32,10 @@ import java.util.Map;
  * Methods include: finding all "VariantSourceEntity"s in the collection, finding "VariantSourceEntity"s with either
  * studyId matching given value, or studyName matching given value.
  *
+ * The paginated and streamed queries are implemented in {@link VariantSourceEntityRepositoryImpl}
  */
-public interface VariantSourceEntityRepository extends MongoRepository<VariantSourceEntity, String> {
+public interface VariantSourceEntityRepository
+        extends MongoRepository<VariantSourceEntity, String>, VariantSourceEntityRepositoryCustom {
 
     List<VariantSourceEntity> findAll();
 
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016-2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository;
+
+import org.springframework.data.util.CloseableIterator;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+
+import java.util.List;
+
+/**
+ * Interface to declare additional repository methods with a custom implementation,
+ * instead of the one that Spring Data would provide by default.
+ */
+interface VariantSourceEntityRepositoryCustom {
+
+    /**
+     * Return a page of files sorted by file ID, starting after the given file ID (keyset pagination), so the cost of
+     * every page is the same regardless of its position.
+     *
+     * @param studyIdOrName ID or name of the study of the files, or null for the files of all the studies
+     * @param afterFileId last file ID of the previous page, or null for the first page
+     * @param limit maximum number of files in the page, or a non-positive value for no limit
+     * @param exclude fields of the files that are not fetched, e.g. "samplesPosition" or "metadata"
+     */
+    List<VariantSourceEntity> findByStudyIdOrStudyNameAfterFileId(String studyIdOrName, String afterFileId, int limit,
+                                                                  List<String> exclude);
+
+    /**
+     * Return an iterator over the files sorted by file ID, fetched in batches while iterating. It must be closed once
+     * the files have been read.
+     *
+     * @param studyIdOrName ID or name of the study of the files, or null for the files of all the studies
+     * @param exclude fields of the files that are not fetched, e.g. "samplesPosition" or "metadata"
+     */
+    CloseableIterator<VariantSourceEntity> streamByStudyIdOrStudyName(String studyIdOrName, List<String> exclude);
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+
+import java.util.List;
+
+/**
+ * Implementation of the {@link VariantSourceEntityRepositoryCustom} interface (relationship with
+ * {@link VariantSourceEntityRepository} inferred by Spring).
+ * <p>
+ * The field names are those of the VariantSourceEntity properties, and the MongoTemplate maps them to the names of the
+ * document fields (e.g. "fileId" to "fid").
+ */
+public class VariantSourceEntityRepositoryImpl implements VariantSourceEntityRepositoryCustom {
+
+    private static final String FILE_ID = "fileId";
+
+    private static final String STUDY_ID = "studyId";
+
+    private static final String STUDY_NAME = "studyName";
+
+    private MongoTemplate mongoTemplate;
+
+    public VariantSourceEntityRepositoryImpl(MongoDbFactory mongoDbFactory, MappingMongoConverter mappingMongoConverter) {
+        mongoTemplate = new MongoTemplate(mongoDbFactory, mappingMongoConverter);
+    }
+
+    @Override
+    public List<VariantSourceEntity> findByStudyIdOrStudyNameAfterFileId(String studyIdOrName, String afterFileId,
+                                                                         int limit, List<String> exclude) {
+        Query query = buildQuery(studyIdOrName, exclude);
+        if (afterFileId != null) {
+            query.addCriteria(Criteria.where(FILE_ID).gt(afterFileId));
+        }
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        return mongoTemplate.find(query, VariantSourceEntity.class);
+    }
+
+    @Override
+    public CloseableIterator<VariantSourceEntity> streamByStudyIdOrStudyName(String studyIdOrName,
+                                                                             List<String> exclude) {
+        return mongoTemplate.stream(buildQuery(studyIdOrName, exclude), VariantSourceEntity.class);
+    }
+
+    private Query buildQuery(String studyIdOrName, List<String> exclude) {
+        Query query = new Query();
+        if (studyIdOrName != null) {
+            query.addCriteria(new Criteria().orOperator(Criteria.where(STUDY_ID).is(studyIdOrName),
+                                                        Criteria.where(STUDY_NAME).is(studyIdOrName)));
+        }
+        query.with(new Sort(Sort.Direction.ASC, FILE_ID));
+        if (exclude != null) {
+            exclude.forEach(field -> query.fields().exclude(field));
+        }
+        return query;
+    }
+}
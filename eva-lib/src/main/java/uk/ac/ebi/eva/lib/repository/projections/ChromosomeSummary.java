@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository.projections;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+
+/**
+ * Number of variants and covered positions of a chromosome, calculated by an aggregation in
+ * {@link VariantEntityRepository}
+ */
+public class ChromosomeSummary {
+
+    private String chromosome;
+
+    private long variantsCount;
+
+    /**
+     * Lowest start of the variants in the chromosome
+     */
+    private long minStart;
+
+    /**
+     * Highest end of the variants in the chromosome
+     */
+    private long maxEnd;
+
+    public ChromosomeSummary() {
+    }
+
+    public ChromosomeSummary(String chromosome, long variantsCount, long minStart, long maxEnd) {
+        this.chromosome = chromosome;
+        this.variantsCount = variantsCount;
+        this.minStart = minStart;
+        this.maxEnd = maxEnd;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public void setChromosome(String chromosome) {
+        this.chromosome = chromosome;
+    }
+
+    public long getVariantsCount() {
+        return variantsCount;
+    }
+
+    public void setVariantsCount(long variantsCount) {
+        this.variantsCount = variantsCount;
+    }
+
+    public long getMinStart() {
+        return minStart;
+    }
+
+    public void setMinStart(long minStart) {
+        this.minStart = minStart;
+    }
+
+    public long getMaxEnd() {
+        return maxEnd;
+    }
+
+    public void setMaxEnd(long maxEnd) {
+        this.maxEnd = maxEnd;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository.projections;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+
+import java.util.List;
+
+/**
+ * Position and IDs of a variant, streamed by {@link VariantEntityRepository} to build the accession index
+ */
+public class VariantAccessions {
+
+    private final String chromosome;
+
+    private final long start;
+
+    private final List<String> ids;
+
+    public VariantAccessions(String chromosome, long start, List<String> ids) {
+        this.chromosome = chromosome;
+        this.start = start;
+        this.ids = ids;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository.projections;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+
+import java.util.List;
+
+/**
+ * Chromosome, chunk IDs ("_at.chunkIds"), type and studies of a variant, streamed by {@link VariantEntityRepository}
+ * to count the variants per genomic bin
+ */
+public class VariantChunks {
+
+    private final String chromosome;
+
+    private final List<String> chunkIds;
+
+    private final String type;
+
+    private final List<String> studyIds;
+
+    public VariantChunks(String chromosome, List<String> chunkIds, String type, List<String> studyIds) {
+        this.chromosome = chromosome;
+        this.chunkIds = chunkIds;
+        this.type = type;
+        this.studyIds = studyIds;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public List<String> getChunkIds() {
+        return chunkIds;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public List<String> getStudyIds() {
+        return studyIds;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository.projections;
+
+import uk.ac.ebi.eva.lib.models.SampleGenotypes;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+
+import java.util.List;
+
+/**
+ * Position, alleles and sample genotypes of the files of a variant, streamed by {@link VariantEntityRepository}
+ * without converting the genotypes into one map per sample
+ */
+public class VariantGenotypes {
+
+    private final String chromosome;
+
+    private final long start;
+
+    private final long end;
+
+    private final String reference;
+
+    private final String alternate;
+
+    private final List<FileGenotypes> files;
+
+    public VariantGenotypes(String chromosome, long start, long end, String reference, String alternate,
+                            List<FileGenotypes> files) {
+        this.chromosome = chromosome;
+        this.start = start;
+        this.end = end;
+        this.reference = reference;
+        this.alternate = alternate;
+        this.files = files;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getAlternate() {
+        return alternate;
+    }
+
+    public List<FileGenotypes> getFiles() {
+        return files;
+    }
+
+    public static class FileGenotypes {
+
+        private final String studyId;
+
+        private final String fileId;
+
+        private final SampleGenotypes genotypes;
+
+        public FileGenotypes(String studyId, String fileId, SampleGenotypes genotypes) {
+            this.studyId = studyId;
+            this.fileId = fileId;
+            this.genotypes = genotypes;
+        }
+
+        public String getStudyId() {
+            return studyId;
+        }
+
+        public String getFileId() {
+            return fileId;
+        }
+
+        public SampleGenotypes getGenotypes() {
+            return genotypes;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.repository.projections;
+
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+
+import java.util.List;
+
+/**
+ * Position, alternate allele and type of a variant, and the studies it was found in, streamed by
+ * {@link VariantEntityRepository} to build indexes over the whole collection
+ */
+public class VariantLocus {
+
+    private final String chromosome;
+
+    private final long start;
+
+    private final String alternate;
+
+    private final String type;
+
+    private final List<String> studyIds;
+
+    public VariantLocus(String chromosome, long start, String alternate, String type, List<String> studyIds) {
+        this.chromosome = chromosome;
+        this.start = start;
+        this.alternate = alternate;
+        this.type = type;
+        this.studyIds = studyIds;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public String getAlternate() {
+        return alternate;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public List<String> getStudyIds() {
+        return studyIds;
+    }
+}
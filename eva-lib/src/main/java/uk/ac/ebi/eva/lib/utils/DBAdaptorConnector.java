@@ -20,6 +20,7 @@
 package uk.ac.ebi.eva.lib.utils;
 
 import com.mongodb.*;
+import com.mongodb.event.CommandListener;
 import org.opencb.datastore.core.config.DataStoreServerAddress;
 import org.opencb.opencga.lib.auth.IllegalOpenCGACredentialsException;
 import org.opencb.opencga.storage.core.adaptors.StudyDBAdaptor;
@@ -31,6 +32,9 @@ import org.opencb.opencga.storage.mongodb.variant.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.VariantSourceMongoDBAdaptor;
 import org.springframework.stereotype.Component;
 
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
@@ -54,21 +58,27 @@ public class DBAdaptorConnector {
 
     public VariantDBAdaptor getVariantDBAdaptor(String species)
             throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
-        return new VariantMongoDBAdaptor(getCredentials(species, properties),
-                properties.getProperty("eva.mongo.collections.variants"), 
-                properties.getProperty("eva.mongo.collections.files"));
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SPECIES_RESOLUTION)) {
+            return new VariantMongoDBAdaptor(getCredentials(species, properties),
+                    properties.getProperty("eva.mongo.collections.variants"),
+                    properties.getProperty("eva.mongo.collections.files"));
+        }
     }
     
     public StudyDBAdaptor getStudyDBAdaptor(String species)
             throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
-        return new StudyMongoDBAdaptor(getCredentials(species, properties),
-                properties.getProperty("eva.mongo.collections.files"));
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SPECIES_RESOLUTION)) {
+            return new StudyMongoDBAdaptor(getCredentials(species, properties),
+                    properties.getProperty("eva.mongo.collections.files"));
+        }
     }
     
     public VariantSourceDBAdaptor getVariantSourceDBAdaptor(String species)
             throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
-        return new VariantSourceMongoDBAdaptor(getCredentials(species, properties),
-                properties.getProperty("eva.mongo.collections.files"));
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SPECIES_RESOLUTION)) {
+            return new VariantSourceMongoDBAdaptor(getCredentials(species, properties),
+                    properties.getProperty("eva.mongo.collections.files"));
+        }
     }
 
     /**
@@ -85,6 +95,17 @@ public class DBAdaptorConnector {
      * @throws UnknownHostException
      */
     public static MongoClient getMongoClient(Properties properties) throws UnknownHostException {
+        return getMongoClient(properties, new CommandListener[0]);
+    }
+
+    /**
+     * Get a MongoClient using the configuration (credentials) in a given Properties, and register the given
+     * listeners, which will be notified of every command sent by the client.
+     *
+     * @see #getMongoClient(Properties)
+     */
+    public static MongoClient getMongoClient(Properties properties, CommandListener... commandListeners)
+            throws UnknownHostException {
 
         String[] hosts = properties.getProperty("eva.mongo.host").split(",");
         List<ServerAddress> servers = new ArrayList<>();
@@ -112,11 +133,13 @@ public class DBAdaptorConnector {
         String readPreference = properties.getProperty("eva.mongo.read-preference");
         readPreference = readPreference == null || readPreference.isEmpty()? "secondaryPreferred" : readPreference;
 
-        MongoClientOptions options = MongoClientOptions.builder()
-                .readPreference(ReadPreference.valueOf(readPreference))
-                .build();
+        MongoClientOptions.Builder optionsBuilder = MongoClientOptions.builder()
+                .readPreference(ReadPreference.valueOf(readPreference));
+        for (CommandListener commandListener : commandListeners) {
+            optionsBuilder.addCommandListener(commandListener);
+        }
 
-        return new MongoClient(servers, mongoCredentialList, options);
+        return new MongoClient(servers, mongoCredentialList, optionsBuilder.build());
     }
 
     /**
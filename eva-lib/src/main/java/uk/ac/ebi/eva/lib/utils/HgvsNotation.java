@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation of genomic HGVS notations into the keys stored in the "hgvs.name" field of the variants, such as
+ * "11:g.180002G>A" or "11:g.180077_180079del".
+ *
+ * The sequence is reduced to the chromosome name, using a table of RefSeq chromosome accessions for names like
+ * "NC_000011.9", the bases are upper-cased and the deleted or duplicated bases are optional. All the keys a notation
+ * may be stored as are returned at once, so that they can be looked up in a single indexed query.
+ */
+public class HgvsNotation {
+
+    private static final Pattern GENOMIC_NOTATION = Pattern.compile(
+            "^(?<sequence>[^:]+):g\\.(?<position>\\d+(?:_\\d+)?)(?<edit>.+)$");
+
+    private static final Pattern SUBSTITUTION = Pattern.compile("^([ACGTN])>([ACGTN])$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SEQUENCE_EDIT = Pattern.compile("^(delins|del|ins|dup)([ACGTN]*)$",
+                                                                 Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern REFSEQ_CHROMOSOME = Pattern.compile("^(NC_\\d{6})(?:\\.\\d+)?$",
+                                                                     Pattern.CASE_INSENSITIVE);
+
+    /**
+     * RefSeq accessions of the human chromosomes, which are the same for every assembly but for the version suffix
+     */
+    private static final Map<String, String> REFSEQ_CHROMOSOMES;
+
+    static {
+        Map<String, String> chromosomes = new HashMap<>();
+        for (int i = 1; i <= 22; i++) {
+            chromosomes.put(String.format("NC_%06d", i), String.valueOf(i));
+        }
+        chromosomes.put("NC_000023", "X");
+        chromosomes.put("NC_000024", "Y");
+        chromosomes.put("NC_012920", "MT");
+        REFSEQ_CHROMOSOMES = Collections.unmodifiableMap(chromosomes);
+    }
+
+    private HgvsNotation() {
+    }
+
+    /**
+     * Keys under which a variant with the given HGVS notation may be stored. The trimmed notation itself is always
+     * the first key, and it is the only one when the notation is not a genomic one.
+     *
+     * @param notation HGVS notation, eg. "chr11:g.180002g>a" or "NC_000011.9:g.180002G>A"
+     * @return Distinct keys, in order of preference
+     */
+    public static Set<String> getEquivalentNames(String notation) {
+        String trimmed = notation.replaceAll("\\s", "");
+        Set<String> names = new LinkedHashSet<>();
+        names.add(trimmed);
+
+        Matcher genomic = GENOMIC_NOTATION.matcher(trimmed);
+        if (!genomic.matches()) {
+            return names;
+        }
+
+        String prefix = normaliseSequence(genomic.group("sequence")) + ":g." + genomic.group("position");
+        String edit = genomic.group("edit");
+
+        Matcher substitution = SUBSTITUTION.matcher(edit);
+        Matcher sequenceEdit = SEQUENCE_EDIT.matcher(edit);
+        if (substitution.matches()) {
+            names.add(prefix + edit.toUpperCase(Locale.ROOT));
+        } else if (sequenceEdit.matches()) {
+            String operation = sequenceEdit.group(1).toLowerCase(Locale.ROOT);
+            String bases = sequenceEdit.group(2).toUpperCase(Locale.ROOT);
+            if (operation.equals("del") || operation.equals("dup")) {
+                // the bases are redundant with the position, and are usually left out
+                names.add(prefix + operation);
+            }
+            names.add(prefix + operation + bases);
+        } else {
+            names.add(prefix + edit);
+        }
+        return names;
+    }
+
+    private static String normaliseSequence(String sequence) {
+        Matcher refSeq = REFSEQ_CHROMOSOME.matcher(sequence);
+        if (refSeq.matches()) {
+            String chromosome = REFSEQ_CHROMOSOMES.get(refSeq.group(1).toUpperCase(Locale.ROOT));
+            if (chromosome != null) {
+                return chromosome;
+            }
+        }
+
+        String chromosome = sequence;
+        if (chromosome.length() > 3 && chromosome.substring(0, 3).equalsIgnoreCase("chr")) {
+            chromosome = chromosome.substring(3);
+        }
+        if (chromosome.equalsIgnoreCase("M")) {
+            return "MT";
+        }
+        if (chromosome.equalsIgnoreCase("X") || chromosome.equalsIgnoreCase("Y") || chromosome.equalsIgnoreCase("MT")) {
+            return chromosome.toUpperCase(Locale.ROOT);
+        }
+        return chromosome;
+    }
+}
@@ -21,6 +21,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
 
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
+import java.util.function.Supplier;
+
 /**
  * Simplified version of https://github.com/Loki-Afro/multi-tenant-spring-mongodb/blob/master/src/main/java/com/github/zarathustra/mongo/MultiTenantMongoDbFactory.java
  *
@@ -63,12 +68,39 @@ public class MultiMongoDbFactory extends SimpleMongoDbFactory {
         dbName.remove();
     }
 
+    /**
+     * Runs the supplier against the given database, and then restores the database that the current thread was using
+     * before. This allows background tasks (e.g. cache refreshes) to switch DBs without affecting other queries.
+     */
+    public static <T> T supplyWithDatabase(final String databaseName, Supplier<T> supplier) {
+        String previousName = dbName.get();
+        setDatabaseNameForCurrentThread(databaseName);
+        try {
+            return supplier.get();
+        } finally {
+            if (previousName != null) {
+                setDatabaseNameForCurrentThread(previousName);
+            } else {
+                clearDatabaseNameForCurrentThread();
+            }
+        }
+    }
+
+    /**
+     * @return the DB selected with setDatabaseNameForCurrentThread, or null if none was selected
+     */
+    public static String getDatabaseNameForCurrentThread() {
+        return dbName.get();
+    }
+
     @Override
     public DB getDb() {
-        final String tlName = dbName.get();
-        final String dbToUse = (tlName != null ? tlName : this.defaultName);
-        logger.debug("Acquiring database: " + dbToUse);
-        return super.getDb(dbToUse);
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SPECIES_RESOLUTION)) {
+            final String tlName = dbName.get();
+            final String dbToUse = (tlName != null ? tlName : this.defaultName);
+            logger.debug("Acquiring database: " + dbToUse);
+            return super.getDb(dbToUse);
+        }
     }
 }
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseAwareCacheTest {
+
+    private Map<String, Integer> releases;
+
+    private AtomicInteger loads;
+
+    private boolean failLoads;
+
+    private ReleaseAwareCache<String, String> cache;
+
+    @Before
+    public void setUp() {
+        releases = new ConcurrentHashMap<>();
+        releases.put("hsapiens", 1);
+        releases.put("mmusculus", 1);
+        loads = new AtomicInteger();
+        failLoads = false;
+        cache = new ReleaseAwareCache<>("test", this::load, releases::get);
+    }
+
+    private String load(String key) {
+        if (failLoads) {
+            throw new IllegalStateException("Database not available");
+        }
+        loads.incrementAndGet();
+        return key + "_" + releases.get(key);
+    }
+
+    @Test
+    public void valuesAreLoadedOnce() {
+        assertNull(cache.getIfPresent("hsapiens"));
+        assertEquals("hsapiens_1", cache.get("hsapiens"));
+        assertEquals("hsapiens_1", cache.get("hsapiens"));
+        assertEquals("hsapiens_1", cache.getIfPresent("hsapiens"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void refreshOnlyReloadsChangedReleases() {
+        cache.get("hsapiens");
+        cache.get("mmusculus");
+        assertEquals(0, cache.refresh());
+
+        releases.put("hsapiens", 2);
+        assertEquals(1, cache.refresh());
+        assertEquals("hsapiens_2", cache.get("hsapiens"));
+        assertEquals("mmusculus_1", cache.get("mmusculus"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void failedRefreshKeepsPreviousValue() {
+        cache.get("hsapiens");
+        releases.put("hsapiens", 2);
+        failLoads = true;
+
+        assertFalse(cache.refresh("hsapiens"));
+        assertEquals("hsapiens_1", cache.get("hsapiens"));
+
+        failLoads = false;
+        assertTrue(cache.refresh("hsapiens"));
+        assertEquals("hsapiens_2", cache.get("hsapiens"));
+    }
+
+    @Test
+    public void failedLoadsAreRetried() {
+        failLoads = true;
+        try {
+            cache.get("hsapiens");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertNull(cache.getIfPresent("hsapiens"));
+
+        failLoads = false;
+        assertEquals("hsapiens_1", cache.get("hsapiens"));
+    }
+
+    @Test
+    public void loaderCanUseTheCache() {
+        AtomicReference<ReleaseAwareCache<String, String>> nested = new AtomicReference<>();
+        nested.set(new ReleaseAwareCache<>("nested", key -> key.equals("all") ?
+                nested.get().get("hsapiens") + "," + nested.get().get("mmusculus") : load(key), releases::get));
+        releases.put("all", 1);
+
+        assertEquals("hsapiens_1,mmusculus_1", nested.get().get("all"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void concurrentGetsLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReleaseAwareCache<String, String> slowCache = new ReleaseAwareCache<>("slow", key -> {
+            if (key.equals("hsapiens")) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return load(key);
+        }, releases::get);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            Callable<String> get = () -> slowCache.get("hsapiens");
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(get));
+            }
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // other keys are not blocked by a load in progress
+            assertEquals("mmusculus_1", slowCache.get("mmusculus"));
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("hsapiens_1", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(2, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void invalidatedValuesAreLoadedAgain() {
+        cache.get("hsapiens");
+        cache.invalidateAll();
+        assertTrue(cache.keys().isEmpty());
+
+        cache.get("hsapiens");
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VariantStudySummaryIndexTest {
+
+    private VariantStudySummaryIndex index;
+
+    @Before
+    public void setUp() {
+        index = new VariantStudySummaryIndex(Arrays.asList(buildSummary("PRJEB1", "First study", 2),
+                                                           buildSummary("PRJEB2", "PRJEB1", 1)));
+    }
+
+    private VariantStudySummary buildSummary(String studyId, String studyName, int filesCount) {
+        VariantStudySummary summary = new VariantStudySummary();
+        summary.setStudyId(studyId);
+        summary.setStudyName(studyName);
+        summary.setFilesCount(filesCount);
+        return summary;
+    }
+
+    @Test
+    public void findsByIdOrName() {
+        assertEquals("PRJEB2", index.findByStudyNameOrStudyId("PRJEB2").getStudyId());
+        assertEquals("PRJEB1", index.findByStudyNameOrStudyId("First study").getStudyId());
+        assertNull(index.findByStudyNameOrStudyId("PRJEB3"));
+    }
+
+    @Test
+    public void idsHavePriorityOverNames() {
+        assertEquals(2, index.findByStudyNameOrStudyId("PRJEB1").getFilesCount());
+    }
+
+    @Test
+    public void keepsAllSummaries() {
+        assertEquals(2, index.getSummaries().size());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import com.lordofthejars.nosqlunit.annotation.UsingDataSet;
+import com.lordofthejars.nosqlunit.mongodb.MongoDbRule;
+import com.mongodb.BasicDBObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantAccessions;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.lordofthejars.nosqlunit.mongodb.MongoDbRule.MongoDbRuleBuilder.newMongoDbRule;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {MongoRepositoryTestConfiguration.class})
+@UsingDataSet(locations = {"/test-data/variants.json", "/test-data/files.json"})
+public class AccessionIndexTest {
+
+    private static final String TEST_DB = "test-db";
+
+    @Rule
+    public MongoDbRule mongoDbRule = newMongoDbRule().defaultSpringMongoDb(TEST_DB);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    @Autowired
+    private VariantStudySummaryRepository variantStudySummaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private AccessionIndex accessionIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        accessionIndex = new AccessionIndex(variantEntityRepository, variantStudySummaryRepository,
+                                            temporaryFolder.getRoot().toString());
+    }
+
+    @Test
+    public void testToAccession() {
+        assertEquals(13377424, AccessionIndex.toAccession("rs13377424"));
+        assertTrue(AccessionIndex.toAccession("ss1") > AccessionIndex.toAccession("rs999999999"));
+        assertEquals(-1, AccessionIndex.toAccession("rs"));
+        assertEquals(-1, AccessionIndex.toAccession("rs12a"));
+        assertEquals(-1, AccessionIndex.toAccession("esv3585321"));
+        assertEquals(-1, AccessionIndex.toAccession("11_180002_G_A"));
+    }
+
+    @Test
+    public void testSort() {
+        Random random = new Random(42);
+        int entries = 10000;
+        long[] accessions = new long[entries];
+        long[] positions = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            accessions[i] = random.nextInt(1000);
+            positions[i] = accessions[i] * 7 + random.nextInt(3);
+        }
+        long[] expectedPositions = positions.clone();
+        Arrays.sort(expectedPositions);
+
+        AccessionIndex.sort(accessions, positions, 0, entries);
+        for (int i = 1; i < entries; i++) {
+            assertTrue(accessions[i - 1] <= accessions[i]);
+        }
+        // each position identifies its accession, so sorting both arrays together sorts the positions too
+        assertArrayEquals(expectedPositions, positions);
+    }
+
+    @Test
+    public void testNotIndexedUntilBuilt() {
+        assertNull(accessionIndex.findStartsByChromosome(TEST_DB, "rs13377424"));
+    }
+
+    @Test
+    public void testDisabledWithoutDirectory() {
+        AccessionIndex disabled = new AccessionIndex(variantEntityRepository, variantStudySummaryRepository, "");
+        assertNull(disabled.findStartsByChromosome(TEST_DB, "rs13377424"));
+    }
+
+    @Test
+    public void testBuiltIndexFindsEveryAccession() {
+        Map<String, String> manifest = accessionIndex.build(TEST_DB);
+        assertEquals(String.valueOf(variantEntityRepository.count()), manifest.get("variantsCount"));
+
+        int accessions = 0;
+        try (CloseableIterator<VariantAccessions> variants = variantEntityRepository.streamVariantAccessions()) {
+            while (variants.hasNext()) {
+                VariantAccessions variant = variants.next();
+                for (String id : variant.getIds()) {
+                    Map<String, Set<Long>> startsByChromosome = accessionIndex.findStartsByChromosome(TEST_DB, id);
+                    assertNotNull(startsByChromosome);
+                    assertTrue(startsByChromosome.get(variant.getChromosome()).contains(variant.getStart()));
+                    accessions++;
+                }
+            }
+        }
+        assertTrue(accessions > 0);
+        assertTrue(Long.parseLong(manifest.get("accessions")) <= accessions);
+    }
+
+    @Test
+    public void testBuiltIndexAnswersAbsentAccessions() {
+        accessionIndex.build(TEST_DB);
+
+        assertTrue(accessionIndex.findStartsByChromosome(TEST_DB, "rs999999999999").isEmpty());
+        assertTrue(accessionIndex.findStartsByChromosome(TEST_DB, "ss999999999999").isEmpty());
+        assertNull(accessionIndex.findStartsByChromosome(TEST_DB, "notARealId"));
+
+        Map<String, Object> statistics = accessionIndex.getStatistics();
+        assertEquals(2L, statistics.get("misses"));
+        assertTrue(((Map) statistics.get("species")).containsKey(TEST_DB));
+    }
+
+    @Test
+    public void testStaleWhenAFileIsLoaded() {
+        accessionIndex.build(TEST_DB);
+        assertNotNull(accessionIndex.findStartsByChromosome(TEST_DB, "rs13377424"));
+
+        // a file merged into existing variants can add accessions to them without adding variant documents
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantSourceEntity.class))
+                     .insert(new BasicDBObject("fid", "mergedFileId").append("sid", "PRJEB5829"));
+
+        accessionIndex.invalidateAll();
+        assertNull(accessionIndex.findStartsByChromosome(TEST_DB, "rs13377424"));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import com.lordofthejars.nosqlunit.annotation.UsingDataSet;
+import com.lordofthejars.nosqlunit.mongodb.MongoDbRule;
+import com.mongodb.BasicDBObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.lordofthejars.nosqlunit.mongodb.MongoDbRule.MongoDbRuleBuilder.newMongoDbRule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {MongoRepositoryTestConfiguration.class})
+@UsingDataSet(locations = {"/test-data/variants.json", "/test-data/files.json"})
+public class BeaconFilterIndexTest {
+
+    private static final String TEST_DB = "test-db";
+
+    private static final String STUDY = "PRJEB5829";
+
+    @Rule
+    public MongoDbRule mongoDbRule = newMongoDbRule().defaultSpringMongoDb(TEST_DB);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    @Autowired
+    private VariantStudySummaryRepository variantStudySummaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private BeaconFilterIndex beaconFilterIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        beaconFilterIndex = new BeaconFilterIndex(variantEntityRepository, variantStudySummaryRepository,
+                                                  temporaryFolder.getRoot().toString());
+    }
+
+    @Test
+    public void testNotIndexedUntilBuilt() {
+        assertEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                     beaconFilterIndex.checkAllele(TEST_DB, Collections.singletonList(STUDY), "11", 180002, "A"));
+    }
+
+    @Test
+    public void testDisabledWithoutDirectory() {
+        BeaconFilterIndex disabled = new BeaconFilterIndex(variantEntityRepository, variantStudySummaryRepository, "");
+        assertEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                     disabled.checkAllele(TEST_DB, Collections.singletonList(STUDY), "11", 180002, "A"));
+    }
+
+    @Test
+    public void testBuiltFiltersFindEveryVariant() {
+        beaconFilterIndex.build(TEST_DB);
+
+        try (CloseableIterator<VariantLocus> loci = variantEntityRepository.streamVariantLoci()) {
+            while (loci.hasNext()) {
+                VariantLocus locus = loci.next();
+                List<String> studies = locus.getStudyIds();
+                assertEquals(BeaconFilterIndex.Answer.POSSIBLY_PRESENT,
+                             beaconFilterIndex.checkAllele(TEST_DB, studies, locus.getChromosome(), locus.getStart(),
+                                                           locus.getAlternate()));
+                assertEquals(BeaconFilterIndex.Answer.POSSIBLY_PRESENT,
+                             beaconFilterIndex.checkType(TEST_DB, studies, locus.getChromosome(), locus.getStart(),
+                                                         locus.getType()));
+            }
+        }
+    }
+
+    @Test
+    public void testBuiltFiltersRejectMostAbsentVariants() {
+        beaconFilterIndex.build(TEST_DB);
+
+        List<String> studies = Collections.singletonList(STUDY);
+        int absent = 0;
+        int probes = 1000;
+        for (int start = 1; start <= probes; start++) {
+            if (beaconFilterIndex.checkAllele(TEST_DB, studies, "11", start, "A")
+                    == BeaconFilterIndex.Answer.ABSENT) {
+                absent++;
+            }
+        }
+        assertTrue("Absent answers: " + absent, absent > probes * 0.9);
+    }
+
+    @Test
+    public void testStudyWithoutFilterIsNotIndexed() {
+        beaconFilterIndex.build(TEST_DB);
+        assertEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                     beaconFilterIndex.checkAllele(TEST_DB, Collections.singletonList("notARealStudy"), "11", 180002,
+                                                   "A"));
+        assertEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                     beaconFilterIndex.checkAllele(TEST_DB, Arrays.asList(STUDY, "notARealStudy"), "11", 1, "A"));
+    }
+
+    @Test
+    public void testStaleWhenAFileIsLoaded() {
+        beaconFilterIndex.build(TEST_DB);
+        assertNotEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                        beaconFilterIndex.checkAllele(TEST_DB, Collections.singletonList(STUDY), "11", 1, "A"));
+
+        // a file whose variants are merged into existing ones adds no variant documents, but adds a file
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantSourceEntity.class))
+                     .insert(new BasicDBObject("fid", "mergedFileId").append("sid", STUDY));
+
+        beaconFilterIndex.invalidateAll();
+        assertEquals(BeaconFilterIndex.Answer.NOT_INDEXED,
+                     beaconFilterIndex.checkAllele(TEST_DB, Collections.singletonList(STUDY), "11", 1, "A"));
+    }
+
+    @Test
+    public void testFalsePositiveRateIsReported() {
+        Map<String, String> manifest = beaconFilterIndex.build(TEST_DB);
+        for (int i = 0; i < Integer.parseInt(manifest.get("studies")); i++) {
+            double measured = Double.parseDouble(manifest.get("study." + i + ".measuredFalsePositiveRate"));
+            assertTrue(measured < BeaconFilterIndex.FALSE_POSITIVE_PROBABILITY * 3);
+        }
+
+        beaconFilterIndex.checkAllele(TEST_DB, Collections.singletonList(STUDY), "11", 180002, "A");
+        beaconFilterIndex.recordConfirmation(true);
+        Map<String, Object> statistics = beaconFilterIndex.getStatistics();
+        assertEquals(1L, statistics.get("positives"));
+        assertEquals(0L, statistics.get("falsePositives"));
+        assertTrue(((Map) statistics.get("species")).containsKey(TEST_DB));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    private static final int KEYS = 10000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAddedKeysAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("present" + i);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(filter.mightContain("present" + i));
+        }
+        assertEquals(KEYS, filter.getInsertions());
+    }
+
+    @Test
+    public void testFalsePositiveRateIsCloseToTheRequestedOne() {
+        BloomFilter filter = BloomFilter.create(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("present" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < KEYS * 0.02);
+        assertTrue(filter.getExpectedFalsePositiveProbability() < 0.02);
+    }
+
+    @Test
+    public void testMappedFilterAnswersAsTheWrittenOne() throws IOException {
+        BloomFilter filter = BloomFilter.create(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("present" + i);
+        }
+        Path path = temporaryFolder.getRoot().toPath().resolve("filter.bloom");
+        filter.writeTo(path);
+
+        BloomFilter mapped = BloomFilter.map(path);
+        assertEquals(filter.getNumBits(), mapped.getNumBits());
+        assertEquals(filter.getNumHashFunctions(), mapped.getNumHashFunctions());
+        assertEquals(filter.getInsertions(), mapped.getInsertions());
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(mapped.mightContain("present" + i));
+            assertEquals(filter.mightContain("absent" + i), mapped.mightContain("absent" + i));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMapRejectsOtherFiles() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("other.txt");
+        Files.write(path, "not a Bloom filter, but long enough for a header".getBytes());
+        BloomFilter.map(path);
+    }
+}
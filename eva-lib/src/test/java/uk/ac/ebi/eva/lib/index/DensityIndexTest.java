@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import com.lordofthejars.nosqlunit.annotation.UsingDataSet;
+import com.lordofthejars.nosqlunit.mongodb.MongoDbRule;
+import com.mongodb.BasicDBObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
+import uk.ac.ebi.eva.lib.models.DensityBin;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.lordofthejars.nosqlunit.mongodb.MongoDbRule.MongoDbRuleBuilder.newMongoDbRule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {MongoRepositoryTestConfiguration.class})
+@UsingDataSet(locations = {"/test-data/variants.json", "/test-data/files.json"})
+public class DensityIndexTest {
+
+    private static final String TEST_DB = "test-db";
+
+    @Rule
+    public MongoDbRule mongoDbRule = newMongoDbRule().defaultSpringMongoDb(TEST_DB);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    @Autowired
+    private VariantStudySummaryRepository variantStudySummaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private DensityIndex densityIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        densityIndex = new DensityIndex(variantEntityRepository, variantStudySummaryRepository,
+                                        temporaryFolder.getRoot().toString());
+    }
+
+    @Test
+    public void testGetStartChunk() {
+        List<String> chunkIds = Arrays.asList("11_181_1k", "11_180_1k", "11_18_10k");
+        assertEquals(180, DensityPyramid.getStartChunk(chunkIds, "1k"));
+        assertEquals(18, DensityPyramid.getStartChunk(chunkIds, "10k"));
+        assertEquals(7, DensityPyramid.getStartChunk(Collections.singletonList("chrUn_gl000220_7_1k"), "1k"));
+        assertEquals(-1, DensityPyramid.getStartChunk(Collections.singletonList("11_x_1k"), "1k"));
+        assertEquals(-1, DensityPyramid.getStartChunk(Collections.emptyList(), "1k"));
+    }
+
+    @Test
+    public void testBuildFromUnsortedVariants() {
+        List<VariantChunks> variants = Arrays.asList(
+                new VariantChunks("1", Arrays.asList("1_5_1k", "1_0_10k"), "SNV", Collections.singletonList("S1")),
+                new VariantChunks("1", Arrays.asList("1_2_1k", "1_0_10k"), "SNV", Collections.singletonList("S2")),
+                new VariantChunks("1", Arrays.asList("1_5_1k", "1_6_1k", "1_0_10k"), "INDEL",
+                                  Arrays.asList("S1", "S2")),
+                new VariantChunks("1", Arrays.asList("1_12_1k", "1_1_10k"), "SNV", Collections.singletonList("S1")));
+        DensityPyramid pyramid = DensityPyramid.build(variants.iterator());
+
+        List<DensityBin> bins = pyramid.getBins("1", 1, 6999, 1000, true, true);
+        assertEquals(7, bins.size());
+        assertEquals(1, bins.get(2).getCount());
+        assertEquals(0, bins.get(3).getCount());
+        assertEquals(2, bins.get(5).getCount());
+        assertEquals(0, bins.get(6).getCount());
+        assertEquals(Long.valueOf(1), bins.get(5).getTypes().get("INDEL"));
+        assertEquals(Long.valueOf(2), bins.get(5).getStudies().get("S1"));
+        assertEquals(Long.valueOf(1), bins.get(5).getStudies().get("S2"));
+
+        bins = pyramid.getBins("1", 0, 19999, 10000, false, false);
+        assertEquals(2, bins.size());
+        assertEquals(3, bins.get(0).getCount());
+        assertEquals(1, bins.get(1).getCount());
+        assertNull(bins.get(0).getTypes());
+        assertNull(bins.get(0).getStudies());
+    }
+
+    @Test
+    public void testGetBins() {
+        Map<String, String> manifest = densityIndex.build(TEST_DB);
+        assertEquals("859", manifest.get("variantsCount"));
+        assertEquals("3", manifest.get("chromosomes"));
+
+        List<DensityBin> bins = densityIndex.getBins(TEST_DB, "11", 180001, 181999, 1000, true, true);
+        assertEquals(2, bins.size());
+        assertEquals(180000, bins.get(0).getStart());
+        assertEquals(180999, bins.get(0).getEnd());
+        assertEquals(83, bins.get(0).getCount());
+        assertEquals(Long.valueOf(79), bins.get(0).getTypes().get("SNV"));
+        assertEquals(Long.valueOf(4), bins.get(0).getTypes().get("INDEL"));
+        assertEquals(Long.valueOf(82), bins.get(0).getStudies().get("PRJX00001"));
+        assertEquals(Long.valueOf(7), bins.get(0).getStudies().get("PRJEB4019"));
+        assertEquals(36, bins.get(1).getCount());
+
+        bins = densityIndex.getBins(TEST_DB, "11", 180000, 184999, 5000, false, false);
+        assertEquals(1, bins.size());
+        assertEquals(83 + 36 + 8 + 31 + 41, bins.get(0).getCount());
+
+        bins = densityIndex.getBins(TEST_DB, "11", 180000, 199999, 10000, false, false);
+        assertEquals(508, bins.get(0).getCount());
+        assertEquals(349, bins.get(1).getCount());
+
+        bins = densityIndex.getBins(TEST_DB, "11", 1, 1000000, 1000000, false, false);
+        assertEquals(2, bins.size());
+        assertEquals(857, bins.get(0).getCount());
+        assertEquals(0, bins.get(1).getCount());
+
+        bins = densityIndex.getBins(TEST_DB, "99", 180000, 181999, 1000, true, false);
+        assertEquals(2, bins.size());
+        assertEquals(0, bins.get(0).getCount());
+        assertEquals(Collections.emptyMap(), bins.get(0).getTypes());
+    }
+
+    @Test
+    public void testCountChunks() {
+        densityIndex.build(TEST_DB);
+
+        assertEquals(Long.valueOf(857), densityIndex.countChunks(TEST_DB, "11", 18, 19, null));
+        assertEquals(Long.valueOf(508), densityIndex.countChunks(TEST_DB, "11", 0, 18, Collections.emptyList()));
+        assertEquals(Long.valueOf(505 + 347), densityIndex.countChunks(TEST_DB, "11", 18, 19,
+                                                                       Collections.singletonList("PRJX00001")));
+        assertEquals(Long.valueOf(347 + 113), densityIndex.countChunks(TEST_DB, "11", 19, 25,
+                                                                       Arrays.asList("PRJX00001", "PRJEB6930")));
+        assertEquals(Long.valueOf(0), densityIndex.countChunks(TEST_DB, "11", 20, 30, null));
+        assertEquals(Long.valueOf(0), densityIndex.countChunks(TEST_DB, "11", 18, 19,
+                                                               Collections.singletonList("PRJEB0000")));
+    }
+
+    @Test
+    public void testCountChunksWithoutPyramid() {
+        assertNull(densityIndex.countChunks(TEST_DB, "11", 18, 19, null));
+    }
+
+    @Test
+    public void testPyramidIsReadFromDisk() {
+        densityIndex.build(TEST_DB);
+
+        DensityIndex otherIndex = new DensityIndex(variantEntityRepository, variantStudySummaryRepository,
+                                                   temporaryFolder.getRoot().toString());
+        List<DensityBin> bins = otherIndex.getBins(TEST_DB, "9", 10000, 10999, 1000, true, true);
+        assertEquals(1, bins.get(0).getCount());
+        assertEquals(Long.valueOf(1), bins.get(0).getStudies().get("PRJEB5829"));
+        assertEquals(1L, otherIndex.getStatistics().get("hits"));
+    }
+
+    @Test
+    public void testPyramidNotBuilt() {
+        assertNull(densityIndex.getBins(TEST_DB, "11", 180000, 180999, 1000, false, false));
+
+        DensityIndex disabledIndex = new DensityIndex(variantEntityRepository, variantStudySummaryRepository, "");
+        assertNull(disabledIndex.getBins(TEST_DB, "11", 180000, 180999, 1000, false, false));
+    }
+
+    @Test
+    public void testPyramidStaleWhenAFileIsLoaded() {
+        densityIndex.build(TEST_DB);
+        assertEquals(1, densityIndex.getBins(TEST_DB, "9", 10000, 10999, 1000, false, false).size());
+
+        // a file whose variants are merged into existing ones adds no variant documents, but adds a file
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(VariantSourceEntity.class))
+                     .insert(new BasicDBObject("fid", "mergedFileId").append("sid", "PRJEB5829"));
+
+        densityIndex.invalidateAll();
+        assertNull(densityIndex.getBins(TEST_DB, "9", 10000, 10999, 1000, false, false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinSizeNotMultipleOfChunkSize() {
+        densityIndex.getBins(TEST_DB, "11", 180000, 180999, 1500, false, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyBins() {
+        densityIndex.getBins(TEST_DB, "11", 1, (DensityPyramid.MAX_BINS + 1) * 1000L, 1000, false, false);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.index;
+
+import com.lordofthejars.nosqlunit.annotation.UsingDataSet;
+import com.lordofthejars.nosqlunit.mongodb.MongoDbRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.opencb.biodata.models.feature.Region;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantInterval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.lordofthejars.nosqlunit.mongodb.MongoDbRule.MongoDbRuleBuilder.newMongoDbRule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {MongoRepositoryTestConfiguration.class})
+@UsingDataSet(locations = {"/test-data/variants.json"})
+public class LongVariantIndexTest {
+
+    private static final String TEST_DB = "test-db";
+
+    @Rule
+    public MongoDbRule mongoDbRule = newMongoDbRule().defaultSpringMongoDb(TEST_DB);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    private LongVariantIndex longVariantIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        longVariantIndex = new LongVariantIndex(variantEntityRepository, temporaryFolder.getRoot().toString());
+    }
+
+    @Test
+    public void testFindStarts() {
+        List<VariantInterval> variants = Arrays.asList(
+                new VariantInterval("1", 50000, 60000),
+                new VariantInterval("1", 1000, 250000),
+                new VariantInterval("1", 70000, 70500),
+                new VariantInterval("1", 100000, 101000),
+                new VariantInterval("2", 1000, 5000));
+        Map<String, IntervalTree> trees = LongVariantIndex.buildTrees(variants.iterator());
+
+        // the variant of 500 bases is not indexed
+        assertEquals(3, trees.get("1").size());
+        assertEquals(1, trees.get("2").size());
+
+        Map<String, Set<Long>> starts = LongVariantIndex.findStarts(trees, Arrays.asList(new Region("1", 60000, 65000),
+                                                                                         new Region("2", 6000, 7000),
+                                                                                         new Region("3", 1, 100000)));
+        assertEquals(new TreeSet<>(Arrays.asList(1000L, 50000L)), starts.get("1"));
+        assertTrue(starts.get("2").isEmpty());
+        assertNull(starts.get("3"));
+
+        starts = LongVariantIndex.findStarts(trees, Collections.singletonList(new Region("1", 101000, 101000)));
+        assertEquals(new TreeSet<>(Arrays.asList(1000L, 100000L)), starts.get("1"));
+    }
+
+    @Test
+    public void testFindStartsOfRandomIntervals() {
+        Random random = new Random(42);
+        List<VariantInterval> variants = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long start = random.nextInt(10000000);
+            variants.add(new VariantInterval("1", start, start + random.nextInt(1000000)));
+        }
+        Map<String, IntervalTree> trees = LongVariantIndex.buildTrees(variants.iterator());
+
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(11000000);
+            int end = start + random.nextInt(100000);
+            Set<Long> expectedStarts = new TreeSet<>();
+            for (VariantInterval variant : variants) {
+                if (variant.getEnd() - variant.getStart() >= LongVariantIndex.LONG_VARIANT_LENGTH
+                        && variant.getStart() <= end && variant.getEnd() >= start) {
+                    expectedStarts.add(variant.getStart());
+                }
+            }
+            Map<String, Set<Long>> starts = LongVariantIndex.findStarts(
+                    trees, Collections.singletonList(new Region("1", start, end)));
+            assertEquals(expectedStarts, starts.get("1"));
+        }
+    }
+
+    @Test
+    public void testBuild() {
+        Map<String, String> manifest = longVariantIndex.build(TEST_DB);
+        assertEquals("859", manifest.get("variantsCount"));
+        assertEquals("0", manifest.get("longVariants"));
+
+        // the test variants are all short, but the index is valid and no long variant has to be looked for
+        Map<String, Set<Long>> starts = longVariantIndex.findStarts(
+                TEST_DB, Collections.singletonList(new Region("11", 180000, 190000)));
+        assertTrue(starts.isEmpty());
+
+        longVariantIndex.invalidateAll();
+        assertTrue(longVariantIndex.findStarts(TEST_DB, Collections.singletonList(new Region("11", 180000, 190000)))
+                                   .isEmpty());
+    }
+
+    @Test
+    public void testFindStartsWithoutIndex() {
+        assertNull(longVariantIndex.findStarts(TEST_DB, Collections.singletonList(new Region("11", 180000, 190000))));
+
+        LongVariantIndex disabledIndex = new LongVariantIndex(variantEntityRepository, "");
+        assertNull(disabledIndex.findStarts(TEST_DB, Collections.singletonList(new Region("11", 180000, 190000))));
+    }
+}
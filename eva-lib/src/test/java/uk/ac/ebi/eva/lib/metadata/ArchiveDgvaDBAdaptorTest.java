@@ -41,12 +41,18 @@ public class ArchiveDgvaDBAdaptorTest {
     @Autowired
     private TestEntityManager entityManager;
 
+    @Autowired
+    private StudyBrowserCache studyBrowserCache;
+
     @Autowired
     private ArchiveDgvaDBAdaptor archiveDgvaDBAdaptor;
 
     @Before
     public void setUp() throws Exception {
         DgvaStudyTestData.persistTestData(entityManager);
+
+        // the study browser tables are cached for the whole context, and each test loads its own data
+        studyBrowserCache.invalidateAll();
     }
 
     @Test
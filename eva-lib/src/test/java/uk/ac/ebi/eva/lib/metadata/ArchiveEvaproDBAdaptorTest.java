@@ -44,6 +44,12 @@ public class ArchiveEvaproDBAdaptorTest {
     @Autowired
     private TestEntityManager entityManager;
 
+    @Autowired
+    private StudyBrowserCache studyBrowserCache;
+
+    @Autowired
+    private SpeciesCatalogue speciesCatalogue;
+
     @Autowired
     private ArchiveEvaproDBAdaptor archiveEvaproDBAdaptor;
 
@@ -70,6 +76,10 @@ public class ArchiveEvaproDBAdaptorTest {
         EvaStudyBrowserTestData.persistTestData(entityManager);
 
         FileTestData.persistTestData(entityManager);
+
+        // the study browser tables and the species are cached for the whole context, and each test loads its own data
+        studyBrowserCache.invalidateAll();
+        speciesCatalogue.invalidate();
     }
 
     @Test
@@ -169,6 +179,38 @@ public class ArchiveEvaproDBAdaptorTest {
         assertEquals(2, exomeSeqStudiesCount);
     }
 
+    @Test
+    public void countStudiesPerSpeciesAndTypeFilteringBySpecies() throws Exception {
+        QueryResult<Map<String, Map<String, Long>>> countStudiesResult = archiveEvaproDBAdaptor
+                .countStudiesPerSpeciesAndType(new QueryOptions(QueryOptionsConstants.SPECIES, HUMAN));
+
+        assertEquals(1, countStudiesResult.getNumResults());
+        Map<String, Long> speciesCounts = countStudiesResult.first().get(QueryOptionsConstants.SPECIES);
+        assertEquals(1, speciesCounts.size());
+        assertEquals(3, speciesCounts.get(HUMAN).longValue());
+
+        Map<String, Long> typeCounts = countStudiesResult.first().get(QueryOptionsConstants.TYPE);
+        assertEquals(3, typeCounts.size());
+        assertEquals(1, typeCounts.get(EvaStudyBrowserTestData.WHOLE_GENOME_SEQUENCING).longValue());
+        assertEquals(1, typeCounts.get(EvaStudyBrowserTestData.RNA_SEQ).longValue());
+        assertEquals(1, typeCounts.get(EvaStudyBrowserTestData.EXOME_SEQUENCING).longValue());
+    }
+
+    @Test
+    public void countStudiesPerSpeciesAndTypeFilteringByType() throws Exception {
+        QueryResult<Map<String, Map<String, Long>>> countStudiesResult = archiveEvaproDBAdaptor
+                .countStudiesPerSpeciesAndType(
+                        new QueryOptions(QueryOptionsConstants.TYPE, EvaStudyBrowserTestData.EXOME_SEQUENCING));
+
+        Map<String, Long> speciesCounts = countStudiesResult.first().get(QueryOptionsConstants.SPECIES);
+        assertEquals(1, speciesCounts.get(HUMAN).longValue());
+        assertEquals(1, speciesCounts.get(CATTLE).longValue());
+
+        Map<String, Long> typeCounts = countStudiesResult.first().get(QueryOptionsConstants.TYPE);
+        assertEquals(1, typeCounts.size());
+        assertEquals(2, typeCounts.get(EvaStudyBrowserTestData.EXOME_SEQUENCING).longValue());
+    }
+
     @Test
     public void countFiles() throws Exception {
         QueryResult<Long> queryResult = archiveEvaproDBAdaptor.countFiles();
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metadata;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.lib.entity.File;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class FileFtpReferenceResolverTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FileFtpReferenceResolver fileFtpReferenceResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        fileFtpReferenceResolver.invalidateAll();
+        FileTestData.persistTestData(entityManager);
+    }
+
+    @Test
+    public void testResolveKeepsRequestOrder() throws Exception {
+        Map<String, URL> urls = fileFtpReferenceResolver.resolve(
+                Arrays.asList(FileTestData.FILE_2_NAME, FileTestData.FILE_NOT_BROWSABLE, FileTestData.FILE_1_NAME,
+                              FileTestData.FILE_2_NAME));
+
+        assertEquals(Arrays.asList(FileTestData.FILE_2_NAME, FileTestData.FILE_1_NAME), new ArrayList<>(urls.keySet()));
+        assertEquals(new URI("ftp://parentdir/dir2/file2.vcf.gz").toURL(), urls.get(FileTestData.FILE_2_NAME));
+        assertEquals(new URI("ftp://parentdir/dir1/file1.vcf.gz").toURL(), urls.get(FileTestData.FILE_1_NAME));
+    }
+
+    @Test
+    public void testResolvedUrlsAreKeptUntilNewRelease() throws Exception {
+        URL url = new URI("ftp://parentdir/dir1/file1.vcf.gz").toURL();
+        assertEquals(url, fileFtpReferenceResolver.resolve(Arrays.asList(FileTestData.FILE_1_NAME))
+                                                  .get(FileTestData.FILE_1_NAME));
+
+        entityManager.remove(entityManager.find(File.class, 1L));
+        entityManager.flush();
+        assertEquals(url, fileFtpReferenceResolver.resolve(Arrays.asList(FileTestData.FILE_1_NAME))
+                                                  .get(FileTestData.FILE_1_NAME));
+
+        fileFtpReferenceResolver.refresh();
+        assertNotEquals(url, fileFtpReferenceResolver.resolve(Arrays.asList(FileTestData.FILE_1_NAME))
+                                                     .get(FileTestData.FILE_1_NAME));
+    }
+
+    @Test
+    public void testPartition() {
+        List<Integer> list = Arrays.asList(1, 2, 3, 4, 5);
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)),
+                     FileFtpReferenceResolver.partition(list, 2));
+        assertEquals(Arrays.asList(list), FileFtpReferenceResolver.partition(list, 5));
+        assertTrue(FileFtpReferenceResolver.partition(new ArrayList<Integer>(), 2).isEmpty());
+    }
+}
@@ -36,12 +36,18 @@ public class StudyDgvaDBAdaptorTest {
     @Autowired
     private TestEntityManager entityManager;
 
+    @Autowired
+    private StudyBrowserCache studyBrowserCache;
+
     @Autowired
     private StudyDgvaDBAdaptor studyDgvaDBAdaptor;
 
     @Before
     public void setUp() throws Exception {
         DgvaStudyTestData.persistTestData(entityManager);
+
+        // the study browser tables are cached for the whole context, and each test loads its own data
+        studyBrowserCache.invalidateAll();
     }
 
     @Test
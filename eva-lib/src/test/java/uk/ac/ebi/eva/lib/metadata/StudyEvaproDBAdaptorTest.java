@@ -42,12 +42,18 @@ public class StudyEvaproDBAdaptorTest {
     @Autowired
     private TestEntityManager entityManager;
 
+    @Autowired
+    private StudyBrowserCache studyBrowserCache;
+
     @Autowired
     private StudyEvaproDBAdaptor studyEvaproDBAdaptor;
 
     @Before
     public void setUp() throws Exception {
         EvaStudyBrowserTestData.persistTestData(entityManager);
+
+        // the study browser tables are cached for the whole context, and each test loads its own data
+        studyBrowserCache.invalidateAll();
     }
 
     @After
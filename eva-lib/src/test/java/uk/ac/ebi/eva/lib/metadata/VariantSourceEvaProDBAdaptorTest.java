@@ -45,8 +45,13 @@ public class VariantSourceEvaProDBAdaptorTest {
     @Autowired
     private VariantSourceEvaProDBAdaptor variantSourceEvaproDBAdaptor;
 
+    @Autowired
+    private FileFtpReferenceResolver fileFtpReferenceResolver;
+
     @Before
     public void setUp() throws Exception {
+        // the file URLs are cached, and the files are persisted again for each test
+        fileFtpReferenceResolver.invalidateAll();
         FileTestData.persistTestData(entityManager);
     }
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class MongoCommandMonitorTest {
+
+    private static final String ENDPOINT = "/v1/segments/{regionId}/variants";
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(
+            new ServerId(new ClusterId(), new ServerAddress()));
+
+    private MongoCommandMonitor monitor;
+
+    private List<MongoCommandSummary> observed;
+
+    @Before
+    public void setUp() {
+        monitor = new MongoCommandMonitor(10, 2);
+        observed = new ArrayList<>();
+        monitor.addObserver(observed::add);
+        RequestPhaseTimer.startForCurrentThread().setEndpoint(ENDPOINT);
+    }
+
+    @After
+    public void tearDown() {
+        RequestPhaseTimer.clearForCurrentThread();
+    }
+
+    @Test
+    public void testQueryShapeIsRedacted() {
+        BsonDocument find = BsonDocument.parse("{find: 'variants_1_2', filter: {chr: '11', start: {$lte: 190010}, " +
+                                                       "'_at.chunkIds': {$in: ['11_180_1k', '11_181_1k']}}, " +
+                                                       "sort: {chr: 1, start: 1}}");
+        run(1, "find", find, "{cursor: {id: NumberLong(0), firstBatch: [{_id: 'a'}, {_id: 'b'}]}, ok: 1}", 20);
+
+        assertEquals(1, observed.size());
+        MongoCommandSummary summary = observed.get(0);
+        assertEquals("eva_hsapiens", summary.getDatabase());
+        assertEquals("variants_1_2", summary.getCollection());
+        assertEquals("find", summary.getCommand());
+        assertEquals(2, summary.getReturnedDocuments());
+        assertEquals(ENDPOINT, summary.getEndpoint());
+        assertFalse(summary.getQueryShape().contains("11_180_1k"));
+        assertFalse(summary.getQueryShape().contains("190010"));
+        assertEquals(BsonDocument.parse("{filter: {chr: '?', start: {$lte: '?'}, '_at.chunkIds': {$in: ['?']}}, " +
+                                                "sort: {chr: 1, start: 1}}"),
+                     BsonDocument.parse(summary.getQueryShape()));
+    }
+
+    @Test
+    public void testOnlySlowCommandsAreLogged() {
+        BsonDocument count = BsonDocument.parse("{count: 'variants_1_2', query: {chr: '11'}}");
+        run(1, "count", count, "{n: 5, ok: 1}", 5);
+        run(2, "count", count, "{n: 5, ok: 1}", 15);
+        run(3, "count", count, "{n: 5, ok: 1}", 25);
+        run(4, "count", count, "{n: 5, ok: 1}", 35);
+
+        assertEquals(4, observed.size());
+        List<MongoCommandSummary> slowQueries = monitor.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(35), slowQueries.get(0).getDurationNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(25), slowQueries.get(1).getDurationNanos());
+    }
+
+    @Test
+    public void testGetMoreIsAttributedToTheOriginalQuery() {
+        BsonDocument find = BsonDocument.parse("{find: 'variants_1_2', filter: {chr: '11'}}");
+        run(1, "find", find, "{cursor: {id: NumberLong(42), firstBatch: [{_id: 'a'}]}, ok: 1}", 1);
+
+        RequestPhaseTimer.clearForCurrentThread();
+        BsonDocument getMore = BsonDocument.parse("{getMore: NumberLong(42), collection: 'variants_1_2'}");
+        run(2, "getMore", getMore, "{cursor: {id: NumberLong(0), nextBatch: [{_id: 'b'}, {_id: 'c'}]}, ok: 1}", 1);
+
+        MongoCommandSummary summary = observed.get(1);
+        assertEquals("getMore", summary.getCommand());
+        assertEquals(2, summary.getReturnedDocuments());
+        assertEquals(ENDPOINT, summary.getEndpoint());
+        assertEquals(observed.get(0).getQueryShape(), summary.getQueryShape());
+    }
+
+    @Test
+    public void testUnknownCommandsHaveNoShape() {
+        BsonDocument authentication = BsonDocument.parse("{saslStart: 1, payload: 'secret'}");
+        run(1, "saslStart", authentication, "{ok: 1}", 1);
+
+        assertNull(observed.get(0).getQueryShape());
+        assertNull(observed.get(0).getCollection());
+    }
+
+    private void run(int requestId, String commandName, BsonDocument command, String response, long millis) {
+        monitor.commandStarted(new CommandStartedEvent(requestId, CONNECTION, "eva_hsapiens", commandName, command));
+        monitor.commandSucceeded(new CommandSucceededEvent(requestId, CONNECTION, commandName,
+                                                           BsonDocument.parse(response),
+                                                           TimeUnit.MILLISECONDS.toNanos(millis)));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestPhaseTimerTest {
+
+    @After
+    public void tearDown() {
+        RequestPhaseTimer.clearForCurrentThread();
+    }
+
+    @Test
+    public void testNothingIsTimedWithoutTimer() {
+        assertNull(RequestPhaseTimer.getForCurrentThread());
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.MONGO_FIND)) {
+            assertNull(RequestPhaseTimer.getForCurrentThread());
+        }
+    }
+
+    @Test
+    public void testNestedPhasesAreExclusive() throws InterruptedException {
+        RequestPhaseTimer timer = RequestPhaseTimer.startForCurrentThread();
+        try (RequestPhaseTimer.Scope db = RequestPhaseTimer.time(RequestPhase.MONGO_FIND)) {
+            Thread.sleep(20);
+            try (RequestPhaseTimer.Scope conversion = RequestPhaseTimer.time(RequestPhase.CONVERSION)) {
+                Thread.sleep(60);
+            }
+            Thread.sleep(20);
+        }
+
+        long dbMillis = timer.getElapsedMillis(RequestPhase.MONGO_FIND);
+        long conversionMillis = timer.getElapsedMillis(RequestPhase.CONVERSION);
+        assertTrue(dbMillis >= 40);
+        assertTrue(conversionMillis >= 60);
+        assertTrue(dbMillis + conversionMillis <= timer.getTotalNanos() / 1000000);
+        assertEquals(0, timer.getElapsedNanos(RequestPhase.SERIALIZATION));
+        assertEquals(timer.getElapsedNanos(RequestPhase.MONGO_FIND), timer.getDatabaseNanos());
+    }
+
+    @Test
+    public void testPhasesAccumulate() {
+        RequestPhaseTimer timer = RequestPhaseTimer.startForCurrentThread();
+        for (int i = 0; i < 3; i++) {
+            try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.CONVERSION)) {
+                busyWait(1000000);
+            }
+        }
+        assertTrue(timer.getElapsedNanos(RequestPhase.CONVERSION) >= 3000000);
+        assertEquals(0, timer.getElapsedNanos(RequestPhase.MONGO_FIND));
+    }
+
+    private void busyWait(long nanos) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            // wait
+        }
+    }
+}
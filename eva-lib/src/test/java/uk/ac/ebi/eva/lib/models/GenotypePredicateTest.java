@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class GenotypePredicateTest {
+
+    private static final List<String> GENOTYPES = Arrays.asList("0|0", "0/1", "1|0", "1|1", "./.", "0/.", "1/2",
+                                                                "10/10", "1", "0");
+
+    @Test
+    public void testReference() {
+        assertEquals(Arrays.asList("0|0", "0"), getMatches("ref"));
+    }
+
+    @Test
+    public void testNonReference() {
+        assertEquals(Arrays.asList("0/1", "1|0", "1|1", "1/2", "10/10", "1"), getMatches("nonref"));
+    }
+
+    @Test
+    public void testHeterozygous() {
+        assertEquals(Arrays.asList("0/1", "1|0", "1/2"), getMatches("het"));
+    }
+
+    @Test
+    public void testHomozygousAlternate() {
+        assertEquals(Arrays.asList("1|1", "10/10", "1"), getMatches("HomAlt"));
+    }
+
+    @Test
+    public void testMissing() {
+        assertEquals(Arrays.asList("./.", "0/."), getMatches("missing"));
+    }
+
+    @Test
+    public void testExactGenotype() {
+        assertEquals(Arrays.asList("1|0"), getMatches("1|0"));
+        assertEquals("1|0", GenotypePredicate.parse("1|0").toString());
+    }
+
+    @Test
+    public void testUnknownGenotype() {
+        assertFalse(GenotypePredicate.parse("nonref").matches(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPredicate() {
+        GenotypePredicate.parse("");
+    }
+
+    private static List<String> getMatches(String predicate) {
+        GenotypePredicate genotypePredicate = GenotypePredicate.parse(predicate);
+        List<String> matches = new ArrayList<>();
+        for (String genotype : GENOTYPES) {
+            if (genotypePredicate.matches(genotype)) {
+                matches.add(genotype);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SampleGenotypesTest {
+
+    @Test
+    public void testDecode() {
+        Map<String, Object> samp = new LinkedHashMap<>();
+        samp.put("def", "0|0");
+        samp.put("0|1", Arrays.asList(3, 64, 200));
+        samp.put("1|1", Collections.singletonList(7));
+        samp.put("1|0", Collections.emptyList());
+        samp.put("./.", "not a list");
+
+        SampleGenotypes genotypes = SampleGenotypes.decode(samp);
+        assertEquals("0|0", genotypes.getDefaultGenotype());
+        assertEquals(Arrays.asList("0|1", "1|1", "1|0"), genotypes.getGenotypes());
+
+        assertEquals("0|0", genotypes.getGenotype(0));
+        assertEquals("0|1", genotypes.getGenotype(3));
+        assertEquals("0|1", genotypes.getGenotype(64));
+        assertEquals("0|1", genotypes.getGenotype(200));
+        assertEquals("1|1", genotypes.getGenotype(7));
+        assertEquals("0|0", genotypes.getGenotype(63));
+        assertEquals("0|0", genotypes.getGenotype(10000));
+
+        assertEquals(3, genotypes.countSamples("0|1"));
+        assertEquals(0, genotypes.countSamples("1|0"));
+        assertEquals(0, genotypes.countSamples("0|0"));
+    }
+
+    @Test
+    public void testDecodeWithoutDefault() {
+        SampleGenotypes genotypes = SampleGenotypes.decode(Collections.singletonMap("0/1", Arrays.asList(1L, 2L)));
+        assertNull(genotypes.getDefaultGenotype());
+        assertEquals("0/1", genotypes.getGenotype(1));
+        assertNull(genotypes.getGenotype(0));
+    }
+
+    @Test
+    public void testForEachSample() {
+        Map<String, Object> samp = new LinkedHashMap<>();
+        samp.put("def", "0|0");
+        samp.put("0|1", Arrays.asList(130, 1, 64));
+        samp.put("1|1", Collections.singletonList(2));
+        SampleGenotypes genotypes = SampleGenotypes.decode(samp);
+
+        List<Integer> samples = new ArrayList<>();
+        genotypes.forEachSample("0|1", 200, samples::add);
+        assertEquals(Arrays.asList(1, 64, 130), samples);
+
+        samples.clear();
+        genotypes.forEachSample("0|1", 100, samples::add);
+        assertEquals(Arrays.asList(1, 64), samples);
+
+        samples.clear();
+        genotypes.forEachSample("0|0", 5, samples::add);
+        assertEquals(Arrays.asList(0, 3, 4), samples);
+
+        samples.clear();
+        genotypes.forEachSample("1|0", 200, samples::add);
+        assertEquals(Collections.emptyList(), samples);
+    }
+}
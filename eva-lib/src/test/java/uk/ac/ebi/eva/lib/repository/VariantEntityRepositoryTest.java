@@ -29,6 +29,7 @@ import org.opencb.biodata.models.variant.VariantSourceEntry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -38,9 +39,16 @@ import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
 import uk.ac.ebi.eva.lib.filter.FilterBuilder;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.repository.projections.ChromosomeSummary;
+import uk.ac.ebi.eva.lib.repository.projections.VariantAccessions;
+import uk.ac.ebi.eva.lib.repository.projections.VariantGenotypes;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -127,6 +135,61 @@ public class VariantEntityRepositoryTest {
         assertTrue(variantEntityList.size() == 0);
     }
 
+    @Test
+    public void testFindByIdsInAndComplexFilters() {
+        List<String> ids = Arrays.asList("rs776523794", "rs13377424", "notarealid");
+        List<VariantEntity> variantEntityList =
+                variantEntityRepository.findByIdsInAndComplexFilters(ids, new ArrayList<>(), new ArrayList<>());
+        assertEquals(2, variantEntityList.size());
+
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder().getVariantEntityRepositoryFilters(
+                null, null, null, Collections.singletonList("PRJEB5829"), null);
+        variantEntityList = variantEntityRepository.findByIdsInAndComplexFilters(ids, filters,
+                                                                                  Collections.singletonList("files"));
+        assertEquals(1, variantEntityList.size());
+        assertTrue(variantEntityList.get(0).getIds().contains("rs13377424"));
+        assertTrue(variantEntityList.get(0).getSourceEntries().isEmpty());
+    }
+
+    @Test
+    public void testFindByChromosomeAndStartInAndComplexFilters() {
+        Map<String, List<Long>> startsByChromosome = new HashMap<>();
+        startsByChromosome.put("11", Arrays.asList(180002L, 180050L, 180077L, 1L));
+        List<VariantEntity> variantEntityList = variantEntityRepository.findByChromosomeAndStartInAndComplexFilters(
+                startsByChromosome, new ArrayList<>(), new ArrayList<>());
+        assertEquals(3, variantEntityList.size());
+
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder().getVariantEntityRepositoryFilters(
+                null, null, null, Collections.singletonList("PRJEB5829"), null);
+        variantEntityList = variantEntityRepository.findByChromosomeAndStartInAndComplexFilters(
+                startsByChromosome, filters, new ArrayList<>());
+        assertEquals(2, variantEntityList.size());
+        for (VariantEntity variantEntity : variantEntityList) {
+            assertEquals("11", variantEntity.getChromosome());
+            assertTrue(variantEntity.getStart() == 180002 || variantEntity.getStart() == 180050);
+        }
+
+        assertTrue(variantEntityRepository.findByChromosomeAndStartInAndComplexFilters(
+                Collections.emptyMap(), new ArrayList<>(), new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testFindByIdAndChromosomeAndStartInAndComplexFilters() {
+        Map<String, List<Long>> startsByChromosome = Collections.singletonMap("11", Arrays.asList(180002L, 180077L));
+        List<VariantEntity> variantEntityList = variantEntityRepository.findByIdAndChromosomeAndStartInAndComplexFilters(
+                "rs776523794", startsByChromosome, new ArrayList<>(), new ArrayList<>(), null);
+        assertEquals(1, variantEntityList.size());
+        assertEquals(180077, variantEntityList.get(0).getStart());
+        assertEquals(new Long(1), variantEntityRepository.countByIdAndChromosomeAndStartInAndComplexFilters(
+                "rs776523794", startsByChromosome, new ArrayList<>()));
+
+        Map<String, List<Long>> otherStarts = Collections.singletonMap("11", Collections.singletonList(180002L));
+        assertTrue(variantEntityRepository.findByIdAndChromosomeAndStartInAndComplexFilters(
+                "rs776523794", otherStarts, new ArrayList<>(), new ArrayList<>(), null).isEmpty());
+        assertEquals(new Long(0), variantEntityRepository.countByIdAndChromosomeAndStartInAndComplexFilters(
+                "rs776523794", otherStarts, new ArrayList<>()));
+    }
+
     @Test
     public void testVariantRegionIsFound(){
         String chr = "11";
@@ -180,6 +243,69 @@ public class VariantEntityRepositoryTest {
         assertEquals(new Long(309), count);
     }
 
+    @Test
+    public void testFindByRegionsWithLongVariantStarts() {
+        Region region = new Region("11", 185000, 190000);
+        List<Region> regions = Collections.singletonList(region);
+        List<VariantEntityRepositoryFilter> filters = new ArrayList<>();
+
+        // 180002 is the start of a short variant that doesn't reach the region, so it is not found by its start
+        Map<String, Set<Long>> longVariantStarts = Collections.singletonMap("11", Collections.singleton(180002L));
+        List<VariantEntity> variantEntityList = variantEntityRepository.findByRegionsAndComplexFilters(
+                regions, 1000, longVariantStarts, filters, new ArrayList<>(), new PageRequest(0, 1000000));
+        assertEquals(309, variantEntityList.size());
+        assertEquals(new Long(309),
+                     variantEntityRepository.countByRegionsAndComplexFilters(regions, 1000, Collections.emptyMap(),
+                                                                             filters));
+
+        // with a long variant length of 1, only the variants inside the region are searched by position
+        Region singlePosition = new Region("11", 180002, 180002);
+        variantEntityList = variantEntityRepository.findByRegionsAndComplexFilters(
+                Collections.singletonList(singlePosition), 1, Collections.emptyMap(), filters, new ArrayList<>(),
+                new PageRequest(0, 1000000));
+        assertTrue(variantEntityList.size() > 0);
+        for (VariantEntity variantEntity : variantEntityList) {
+            assertEquals(180002, variantEntity.getStart());
+        }
+    }
+
+    @Test
+    public void testStreamGenotypesByRegionsAndComplexFilters() {
+        List<Region> regions = Collections.singletonList(new Region("11", 180000, 181000));
+        List<VariantGenotypes> variants = new ArrayList<>();
+        try (CloseableIterator<VariantGenotypes> iterator =
+                     variantEntityRepository.streamGenotypesByRegionsAndComplexFilters(
+                             regions, 1000, null, Collections.singletonList("11469"), new ArrayList<>())) {
+            iterator.forEachRemaining(variants::add);
+        }
+        assertEquals(7, variants.size());
+
+        VariantGenotypes variant = variants.get(0);
+        assertEquals(180002, variant.getStart());
+        assertEquals("G", variant.getReference());
+        assertEquals("A", variant.getAlternate());
+        assertEquals(1, variant.getFiles().size());
+        VariantGenotypes.FileGenotypes file = variant.getFiles().get(0);
+        assertEquals("PRJEB4019", file.getStudyId());
+        assertEquals("11469", file.getFileId());
+        assertEquals("1|1", file.getGenotypes().getGenotype(0));
+        assertEquals("1|0", file.getGenotypes().getGenotype(1));
+        assertEquals("0|0", file.getGenotypes().getGenotype(4));
+        assertEquals("0|1", file.getGenotypes().getGenotype(5));
+
+        try (CloseableIterator<VariantGenotypes> iterator =
+                     variantEntityRepository.streamGenotypesByRegionsAndComplexFilters(
+                             regions, 1000, Collections.emptyMap(), Collections.singletonList("11469"),
+                             new ArrayList<>())) {
+            int count = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            assertEquals(7, count);
+        }
+    }
+
     @Test
     public void testNonExistentVariantRegionIsNotFound(){
         String chr = "11";
@@ -413,6 +539,24 @@ public class VariantEntityRepositoryTest {
         assertEquals(expectedChromosomeList, chromosomeList);
     }
 
+    @Test
+    public void testFindChromosomeSummaries() {
+        List<ChromosomeSummary> summaries = variantEntityRepository.findChromosomeSummaries();
+
+        assertEquals(3, summaries.size());
+        assertChromosomeSummary("11", 857, 180002, 193719, summaries.get(0));
+        assertChromosomeSummary("2", 1, 226803, 226803, summaries.get(1));
+        assertChromosomeSummary("9", 1, 10099, 10099, summaries.get(2));
+    }
+
+    private void assertChromosomeSummary(String chromosome, long variantsCount, long minStart, long maxEnd,
+                                         ChromosomeSummary summary) {
+        assertEquals(chromosome, summary.getChromosome());
+        assertEquals(variantsCount, summary.getVariantsCount());
+        assertEquals(minStart, summary.getMinStart());
+        assertEquals(maxEnd, summary.getMaxEnd());
+    }
+
     @Test
     public void testCountByChromosomeAndStartAndEndAndAltAndStudy() {
         List<String> studies = new ArrayList<>();
@@ -433,6 +577,112 @@ public class VariantEntityRepositoryTest {
         assertEquals(new Long(1), count);
     }
 
+    @Test
+    public void testCountVariantsPerStudy() {
+        Map<String, Long> counts = variantEntityRepository.countVariantsPerStudy();
+        assertEquals(14, counts.size());
+        assertEquals(Long.valueOf(55), counts.get("PRJEB5829"));
+        assertEquals(Long.valueOf(3), counts.get("PRJEB7895"));
+    }
+
+    @Test
+    public void testStreamVariantLoci() {
+        int loci = 0;
+        try (CloseableIterator<VariantLocus> iterator = variantEntityRepository.streamVariantLoci()) {
+            while (iterator.hasNext()) {
+                VariantLocus locus = iterator.next();
+                if (locus.getStart() == 180002 && "11".equals(locus.getChromosome())) {
+                    assertEquals("A", locus.getAlternate());
+                    assertEquals("SNV", locus.getType());
+                    assertTrue(locus.getStudyIds().contains("PRJEB5829"));
+                }
+                loci++;
+            }
+        }
+        assertEquals(variantEntityRepository.count(), loci);
+    }
+
+    @Test
+    public void testFindLociByChromosomeAndStartInAndStudyIn() {
+        Map<String, List<Long>> startsByChromosome = new HashMap<>();
+        startsByChromosome.put("11", Arrays.asList(180002L, 180077L, 1L));
+        startsByChromosome.put("99", Collections.singletonList(180002L));
+
+        List<VariantLocus> loci = variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(
+                startsByChromosome, Collections.singletonList("PRJX00001"));
+        assertEquals(2, loci.size());
+        Set<String> alleles = new HashSet<>();
+        for (VariantLocus locus : loci) {
+            assertEquals("11", locus.getChromosome());
+            alleles.add(locus.getType() + ":" + locus.getAlternate());
+        }
+        assertTrue(alleles.contains("SNV:A"));
+        assertTrue(alleles.contains("INDEL:"));
+
+        loci = variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(
+                startsByChromosome, Collections.singletonList("PRJEB5829"));
+        assertEquals(1, loci.size());
+        assertEquals(180002, loci.get(0).getStart());
+
+        assertTrue(variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(
+                startsByChromosome, Collections.singletonList("PRJEB0000")).isEmpty());
+        assertTrue(variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(
+                Collections.emptyMap(), Collections.singletonList("PRJX00001")).isEmpty());
+    }
+
+    @Test
+    public void testFindByHgvsAndComplexFilters() {
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder().withStudies(
+                Collections.singletonList("PRJEB5829")).build();
+        List<String> names = Arrays.asList("chr11:g.180002g>a", "11:g.180002G>A");
+
+        List<VariantEntity> variantEntityList = variantEntityRepository.findByHgvsAndComplexFilters(
+                names, filters, Collections.emptyList(), new PageRequest(0, 10));
+        assertEquals(1, variantEntityList.size());
+        assertEquals(180002, variantEntityList.get(0).getStart());
+        assertEquals(Long.valueOf(1), variantEntityRepository.countByHgvsAndComplexFilters(names, filters));
+
+        List<String> unknownNames = Collections.singletonList("11:g.180002G>T");
+        assertTrue(variantEntityRepository.findByHgvsAndComplexFilters(
+                unknownNames, filters, Collections.emptyList(), new PageRequest(0, 10)).isEmpty());
+        assertEquals(Long.valueOf(0), variantEntityRepository.countByHgvsAndComplexFilters(unknownNames, filters));
+    }
+
+    @Test
+    public void testFindByXrefAndComplexFilters() {
+        List<VariantEntityRepositoryFilter> filters = new ArrayList<>();
+
+        List<VariantEntity> variantEntityList = variantEntityRepository.findByXrefAndComplexFilters(
+                "ENSG00000236875", null, filters, Collections.emptyList(), new PageRequest(0, 10));
+        assertEquals(1, variantEntityList.size());
+        assertEquals(Long.valueOf(1),
+                     variantEntityRepository.countByXrefAndComplexFilters("ENSG00000236875", null, filters));
+        assertEquals(Long.valueOf(1),
+                     variantEntityRepository.countByXrefAndComplexFilters("ENSG00000236875", "ensemblGene", filters));
+        assertEquals(Long.valueOf(0),
+                     variantEntityRepository.countByXrefAndComplexFilters("ENSG00000236875", "HGNC", filters));
+
+        assertEquals(Long.valueOf(443), variantEntityRepository.countByXrefAndComplexFilters("SCGB1C1", "HGNC", filters));
+        assertEquals(10, variantEntityRepository.findByXrefAndComplexFilters(
+                "SCGB1C1", "HGNC", filters, Collections.emptyList(), new PageRequest(0, 10)).size());
+    }
+
+    @Test
+    public void testStreamVariantAccessions() {
+        int variants = 0;
+        try (CloseableIterator<VariantAccessions> iterator = variantEntityRepository.streamVariantAccessions()) {
+            while (iterator.hasNext()) {
+                VariantAccessions accessions = iterator.next();
+                if (accessions.getStart() == 180077 && "11".equals(accessions.getChromosome())) {
+                    assertEquals(new HashSet<>(Arrays.asList("rs776523794", "ss664037839")),
+                                 new HashSet<>(accessions.getIds()));
+                }
+                variants++;
+            }
+        }
+        assertEquals(variantEntityRepository.count(), variants);
+    }
+
     private void testFiltersHelperRegion(List<Region> regions, List<VariantEntityRepositoryFilter> filters,
                                          List<String> exclude, int expectedResultLength) {
         List<VariantEntity> variantEntityList =
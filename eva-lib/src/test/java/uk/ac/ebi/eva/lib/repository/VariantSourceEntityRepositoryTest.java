@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -33,6 +34,7 @@ import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.lib.configuration.MongoRepositoryTestConfiguration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.lordofthejars.nosqlunit.mongodb.MongoDbRule.MongoDbRuleBuilder.newMongoDbRule;
@@ -53,6 +55,7 @@ public class VariantSourceEntityRepositoryTest {
 
     private static final String FIRST_FILE_ID = "firstFileId";
     private static final String SECOND_FILE_ID = "secondFileId";
+    private static final String THIRD_FILE_ID = "thirdFileId";
 
     private static final String TEST_DB = "test-db";
 
@@ -152,5 +155,46 @@ public class VariantSourceEntityRepositoryTest {
         assertEquals(2, count);
     }
 
+    @Test
+    public void testFindByStudyIdOrStudyNameAfterFileId() {
+        List<VariantSourceEntity> page = repository.findByStudyIdOrStudyNameAfterFileId(null, null, 2, null);
+        assertEquals(2, page.size());
+        assertEquals(FIRST_FILE_ID, page.get(0).getFileId());
+        assertEquals(SECOND_FILE_ID, page.get(1).getFileId());
+
+        page = repository.findByStudyIdOrStudyNameAfterFileId(null, SECOND_FILE_ID, 2, null);
+        assertEquals(1, page.size());
+        assertEquals(THIRD_FILE_ID, page.get(0).getFileId());
+
+        page = repository.findByStudyIdOrStudyNameAfterFileId(null, THIRD_FILE_ID, 2, null);
+        assertTrue(page.isEmpty());
+
+        page = repository.findByStudyIdOrStudyNameAfterFileId(SECOND_STUDY_ID, null, 0, null);
+        assertEquals(2, page.size());
+        assertEquals(SECOND_FILE_ID, page.get(0).getFileId());
+        assertEquals(THIRD_FILE_ID, page.get(1).getFileId());
+    }
+
+    @Test
+    public void testFindByStudyIdOrStudyNameAfterFileIdExcludingFields() {
+        List<VariantSourceEntity> page = repository.findByStudyIdOrStudyNameAfterFileId(
+                FIRST_STUDY_ID, null, 0, Arrays.asList("samplesPosition", "metadata"));
+        assertEquals(1, page.size());
+
+        VariantSourceEntity variantSourceEntity = page.get(0);
+        assertEquals(FIRST_FILE_ID, variantSourceEntity.getFileId());
+        assertTrue(variantSourceEntity.getSamplesPosition() == null
+                           || variantSourceEntity.getSamplesPosition().isEmpty());
+        assertTrue(variantSourceEntity.getMetadata() == null || variantSourceEntity.getMetadata().isEmpty());
+    }
+
+    @Test
+    public void testStreamByStudyIdOrStudyName() {
+        List<String> fileIds = new ArrayList<>();
+        try (CloseableIterator<VariantSourceEntity> iterator = repository.streamByStudyIdOrStudyName(null, null)) {
+            iterator.forEachRemaining(variantSourceEntity -> fileIds.add(variantSourceEntity.getFileId()));
+        }
+        assertEquals(Arrays.asList(FIRST_FILE_ID, SECOND_FILE_ID, THIRD_FILE_ID), fileIds);
+    }
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.lib.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class HgvsNotationTest {
+
+    @Test
+    public void testCanonicalNotationIsKept() {
+        assertEquals(Collections.singleton("11:g.180002G>A"), HgvsNotation.getEquivalentNames("11:g.180002G>A"));
+    }
+
+    @Test
+    public void testSubstitution() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("chr11:g.180002g>a", "11:g.180002G>A")),
+                     HgvsNotation.getEquivalentNames(" chr11:g.180002g>a "));
+    }
+
+    @Test
+    public void testRefSeqAccession() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("NC_000011.9:g.180002G>A", "11:g.180002G>A")),
+                     HgvsNotation.getEquivalentNames("NC_000011.9:g.180002G>A"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("NC_000023.11:g.100T>C", "X:g.100T>C")),
+                     HgvsNotation.getEquivalentNames("NC_000023.11:g.100T>C"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("chrM:g.73A>G", "MT:g.73A>G")),
+                     HgvsNotation.getEquivalentNames("chrM:g.73A>G"));
+    }
+
+    @Test
+    public void testDeletionWithAndWithoutBases() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("11:g.180077_180079delatg", "11:g.180077_180079del",
+                                                       "11:g.180077_180079delATG")),
+                     HgvsNotation.getEquivalentNames("11:g.180077_180079delatg"));
+        assertEquals(Collections.singleton("11:g.180077_180079del"),
+                     HgvsNotation.getEquivalentNames("11:g.180077_180079del"));
+    }
+
+    @Test
+    public void testInsertionAndDeletionInsertion() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("11:g.100_101insac", "11:g.100_101insAC")),
+                     HgvsNotation.getEquivalentNames("11:g.100_101insac"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("11:g.100_101delinsAC")),
+                     HgvsNotation.getEquivalentNames("11:g.100_101delinsAC"));
+    }
+
+    @Test
+    public void testNonGenomicNotationIsOnlyTrimmed() {
+        assertEquals(Collections.singleton("ENST00000410108:c.100A>G"),
+                     HgvsNotation.getEquivalentNames(" ENST00000410108:c.100A>G"));
+    }
+}
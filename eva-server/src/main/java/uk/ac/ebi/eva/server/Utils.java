@@ -27,6 +27,7 @@ import org.springframework.data.domain.PageRequest;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +38,11 @@ public class Utils {
 
     private static Map<String, String> apiToMongoDocNameMap;
 
+    /**
+     * Fields of the files that are large (e.g. one entry per sample) and are only returned when included explicitly
+     */
+    private static final List<String> OPTIONAL_FILE_FIELDS = Arrays.asList("samplesPosition", "metadata");
+
     static {
         apiToMongoDocNameMap = initApiToMongoDocNameMap();
     }
@@ -70,6 +76,24 @@ public class Utils {
         return (idxLastElement < numTotalResults) ? String.valueOf(pageRequest.getPageNumber() + 1) : null;
     }
 
+    /**
+     * @param include optional file fields requested by the client, or null
+     * @return the optional file fields that must be left out of the query results
+     * @throws IllegalArgumentException if a requested field is not one of the optional file fields
+     */
+    public static List<String> getExcludedFileFields(List<String> include) {
+        List<String> excluded = new ArrayList<>(OPTIONAL_FILE_FIELDS);
+        if (include != null) {
+            for (String field : include) {
+                if (!OPTIONAL_FILE_FIELDS.contains(field)) {
+                    throw new IllegalArgumentException("Unrecognised include field: " + field);
+                }
+                excluded.remove(field);
+            }
+        }
+        return excluded;
+    }
+
     public static String createExclusionFieldString(List<String> excludeList) {
         List<String> formattedList = excludeList.stream().map(field -> String.format("'%s' : 0", field))
                                                 .collect(Collectors.toList());
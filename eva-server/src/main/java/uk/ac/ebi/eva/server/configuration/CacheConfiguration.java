@@ -0,0 +1,15 @@
+package uk.ac.ebi.eva.server.configuration;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Loads the in-memory caches and the file-backed indexes from eva-lib, and enables the scheduled tasks that refresh
+ * them when a new release is detected.
+ */
+@Configuration
+@EnableScheduling
+@ComponentScan(basePackages = {"uk.ac.ebi.eva.lib.cache", "uk.ac.ebi.eva.lib.index"})
+public class CacheConfiguration {
+}
@@ -0,0 +1,23 @@
+package uk.ac.ebi.eva.server.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+import uk.ac.ebi.eva.server.metrics.JfrRequestFilter;
+
+/**
+ * Flight recorder events are only emitted if the JVM provides the jdk.jfr API (OpenJDK 8u262 or later).
+ */
+@Configuration
+@ConditionalOnClass(name = "jdk.jfr.Event")
+public class JfrConfiguration {
+
+    @Bean
+    public JfrRequestFilter jfrRequestFilter() {
+        JfrRequestFilter jfrRequestFilter = new JfrRequestFilter();
+        RequestPhaseTimer.setPhaseObserver(jfrRequestFilter);
+        return jfrRequestFilter;
+    }
+}
@@ -5,10 +5,12 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import uk.ac.ebi.eva.lib.extension.ExtendedJpaRepositoryFunctionsImpl;
+import uk.ac.ebi.eva.lib.extension.TimedJpaRepositoryFactoryBean;
 
 @Configuration
 @EnableJpaRepositories(basePackages = {"uk.ac.ebi.eva.lib.repository"},
-        repositoryBaseClass = ExtendedJpaRepositoryFunctionsImpl.class)
+        repositoryBaseClass = ExtendedJpaRepositoryFunctionsImpl.class,
+        repositoryFactoryBeanClass = TimedJpaRepositoryFactoryBean.class)
 @EntityScan(basePackages = {"uk.ac.ebi.eva.lib.entity"})
 @ComponentScan(basePackages = {"uk.ac.ebi.eva.lib.metadata"})
 public class JpaRepositoryConfiguration {
@@ -0,0 +1,39 @@
+package uk.ac.ebi.eva.server.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import uk.ac.ebi.eva.server.metrics.EndpointMetrics;
+import uk.ac.ebi.eva.server.metrics.MetricsHandlerInterceptor;
+import uk.ac.ebi.eva.server.metrics.TimedMappingJackson2HttpMessageConverter;
+
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Value("${eva.server-timing.enabled:false}")
+    private boolean serverTimingEnabled;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MetricsHandlerInterceptor(endpointMetrics));
+    }
+
+    /**
+     * Replaces the JSON converter that Spring Boot would create with the same ObjectMapper. When
+     * eva.server-timing.enabled is true, every JSON response includes a Server-Timing header; otherwise, only those
+     * requested with "debug=true".
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedMappingJackson2HttpMessageConverter(objectMapper, serverTimingEnabled);
+    }
+}
@@ -7,12 +7,14 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import uk.ac.ebi.eva.lib.MongoConfiguration;
 import uk.ac.ebi.eva.lib.MultiMongoFactoryConfiguration;
+import uk.ac.ebi.eva.lib.extension.TimedMongoRepositoryFactoryBean;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 
 import java.io.IOException;
 
 @Configuration
-@EnableMongoRepositories("uk.ac.ebi.eva.lib.repository")
+@EnableMongoRepositories(basePackages = "uk.ac.ebi.eva.lib.repository",
+        repositoryFactoryBeanClass = TimedMongoRepositoryFactoryBean.class)
 @PropertySource("classpath:eva.properties")
 @Import({MongoConfiguration.class, MultiMongoFactoryConfiguration.class})
 public class MongoEvaLibConfiguration {
@@ -0,0 +1,95 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Latency, throughput, in-flight requests, response sizes and errors of the web service endpoints.
+ *
+ * Endpoints are identified by their mapping pattern (e.g. "/v1/segments/{regionId}/variants"), not by the request
+ * URI, so that the number of series is bounded. The time spent in each {@link RequestPhase} is recorded separately.
+ */
+@Component
+public class EndpointMetrics {
+
+    static final double NANOS_PER_SECOND = 1e9;
+
+    private static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private static final double[] SIZE_BUCKETS = {256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216};
+
+    private final LabelledHistogram requestDuration = new LabelledHistogram(
+            "eva_http_request_duration_seconds", "Time to serve a request, including the serialization of the response",
+            Arrays.asList("endpoint", "method", "species", "status"), LATENCY_BUCKETS);
+
+    private final LabelledHistogram phaseDuration = new LabelledHistogram(
+            "eva_http_request_phase_duration_seconds", "Time spent by a request in each phase",
+            Arrays.asList("endpoint", "phase"), LATENCY_BUCKETS);
+
+    private final LabelledHistogram responseSize = new LabelledHistogram(
+            "eva_http_response_size_bytes", "Size of the response bodies",
+            Collections.singletonList("endpoint"), SIZE_BUCKETS);
+
+    private final LabelledGauge requestsInFlight = new LabelledGauge(
+            "eva_http_requests_in_flight", "Requests being served at the moment",
+            Collections.singletonList("endpoint"));
+
+    private final LabelledCounter errors = new LabelledCounter(
+            "eva_http_errors_total", "Requests answered with a 4xx or 5xx status",
+            Arrays.asList("endpoint", "species", "status"));
+
+    public void requestStarted(String endpoint) {
+        requestsInFlight.increment(endpoint);
+    }
+
+    public void requestFinished(String endpoint, String method, String species, int status, long responseBytes,
+                                RequestPhaseTimer timer) {
+        requestsInFlight.decrement(endpoint);
+
+        String statusLabel = Integer.toString(status);
+        requestDuration.observe(timer.getTotalNanos() / NANOS_PER_SECOND, endpoint, method, species, statusLabel);
+        for (RequestPhase phase : RequestPhase.values()) {
+            phaseDuration.observe(timer.getElapsedNanos(phase) / NANOS_PER_SECOND, endpoint, phase.getLabel());
+        }
+        responseSize.observe(responseBytes, endpoint);
+        if (status >= 400) {
+            errors.increment(endpoint, species, statusLabel);
+        }
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text exposition format, version 0.0.4.
+     */
+    public void write(Writer writer) throws IOException {
+        requestDuration.write(writer);
+        phaseDuration.write(writer);
+        responseSize.write(writer);
+        requestsInFlight.write(writer);
+        errors.write(writer);
+    }
+}
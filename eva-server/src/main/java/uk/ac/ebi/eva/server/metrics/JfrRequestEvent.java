@@ -0,0 +1,75 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning a request to a web service endpoint, with the time spent in each phase.
+ */
+@Name("uk.ac.ebi.eva.Request")
+@Label("EVA Request")
+@Category({"EVA", "Web Services"})
+@Description("A request to an EVA web service endpoint")
+class JfrRequestEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Species")
+    String species;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    int status;
+
+    @Label("Species Resolution Time")
+    @Timespan
+    long speciesResolutionTime;
+
+    @Label("Filter Building Time")
+    @Timespan
+    long filterBuildingTime;
+
+    @Label("Mongo Find Time")
+    @Timespan
+    long mongoFindTime;
+
+    @Label("Mongo Count Time")
+    @Timespan
+    long mongoCountTime;
+
+    @Label("JPA Time")
+    @Timespan
+    long jpaTime;
+
+    @Label("Conversion Time")
+    @Timespan
+    long conversionTime;
+
+    @Label("Serialization Time")
+    @Timespan
+    long serializationTime;
+}
@@ -0,0 +1,98 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Emits a {@link JfrRequestEvent} for every request to a web service endpoint, and a {@link JfrRequestPhaseEvent}
+ * for each of its phases. It runs inside {@link MetricsFilter}, which starts the timer of the request.
+ *
+ * The events cost almost nothing when no recording is running.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class JfrRequestFilter extends OncePerRequestFilter implements RequestPhaseTimer.PhaseObserver {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        JfrRequestEvent event = new JfrRequestEvent();
+        event.begin();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            event.end();
+            RequestPhaseTimer timer = RequestPhaseTimer.getForCurrentThread();
+            if (timer != null && timer.getEndpoint() != null && event.shouldCommit()) {
+                event.endpoint = timer.getEndpoint();
+                event.species = MetricsFilter.getSpecies(request);
+                event.method = request.getMethod();
+                event.status = completed ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                event.speciesResolutionTime = timer.getElapsedNanos(RequestPhase.SPECIES_RESOLUTION);
+                event.filterBuildingTime = timer.getElapsedNanos(RequestPhase.FILTER_BUILDING);
+                event.mongoFindTime = timer.getElapsedNanos(RequestPhase.MONGO_FIND);
+                event.mongoCountTime = timer.getElapsedNanos(RequestPhase.MONGO_COUNT);
+                event.jpaTime = timer.getElapsedNanos(RequestPhase.JPA);
+                event.conversionTime = timer.getElapsedNanos(RequestPhase.CONVERSION);
+                event.serializationTime = timer.getElapsedNanos(RequestPhase.SERIALIZATION);
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public Object phaseStarted(RequestPhaseTimer timer, RequestPhase phase) {
+        JfrRequestPhaseEvent event = new JfrRequestPhaseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void phaseEnded(RequestPhaseTimer timer, RequestPhase phase, Object context) {
+        JfrRequestPhaseEvent event = (JfrRequestPhaseEvent) context;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.getLabel();
+            event.endpoint = timer.getEndpoint();
+            RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+            event.species = requestAttributes instanceof ServletRequestAttributes ?
+                    MetricsFilter.getSpecies(((ServletRequestAttributes) requestAttributes).getRequest()) : "";
+            event.commit();
+        }
+    }
+}
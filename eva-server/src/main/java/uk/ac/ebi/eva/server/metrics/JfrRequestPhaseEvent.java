@@ -0,0 +1,48 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a phase of a request: a Mongo query or count, a JPA query, a conversion, etc.
+ *
+ * Documents are converted one at a time, so by default only phases longer than 1 ms are recorded. The total time of
+ * every phase is in {@link JfrRequestEvent}.
+ */
+@Name("uk.ac.ebi.eva.RequestPhase")
+@Label("EVA Request Phase")
+@Category({"EVA", "Web Services"})
+@Description("A phase of a request to an EVA web service endpoint")
+@Threshold("1 ms")
+class JfrRequestPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Species")
+    String species;
+}
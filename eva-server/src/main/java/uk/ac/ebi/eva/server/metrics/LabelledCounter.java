@@ -0,0 +1,45 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+class LabelledCounter extends LabelledMetric<LongAdder> {
+
+    LabelledCounter(String name, String help, List<String> labelNames) {
+        super(name, help, labelNames, LongAdder::new);
+    }
+
+    public void increment(String... labelValues) {
+        getSeries(labelValues).increment();
+    }
+
+    @Override
+    protected String getType() {
+        return "counter";
+    }
+
+    @Override
+    protected void writeSeries(Writer writer, List<String> labelValues, LongAdder series) throws IOException {
+        writeSample(writer, getName(), labelValues, null, null, Long.toString(series.sum()));
+    }
+}
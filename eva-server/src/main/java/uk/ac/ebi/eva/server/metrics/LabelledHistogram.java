@@ -0,0 +1,95 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram with fixed buckets. Observations only touch LongAdders, so concurrent requests don't contend on a lock.
+ */
+class LabelledHistogram extends LabelledMetric<LabelledHistogram.Series> {
+
+    static class Series {
+
+        private final double[] upperBounds;
+
+        private final LongAdder[] bucketCounts;
+
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private final LongAdder count = new LongAdder();
+
+        Series(double[] upperBounds) {
+            this.upperBounds = upperBounds;
+            this.bucketCounts = new LongAdder[upperBounds.length];
+            for (int i = 0; i < upperBounds.length; i++) {
+                bucketCounts[i] = new LongAdder();
+            }
+        }
+
+        void observe(double value) {
+            for (int i = 0; i < upperBounds.length; i++) {
+                if (value <= upperBounds[i]) {
+                    bucketCounts[i].increment();
+                    break;
+                }
+            }
+            sum.add(value);
+            count.increment();
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+    }
+
+    private final double[] upperBounds;
+
+    LabelledHistogram(String name, String help, List<String> labelNames, double[] upperBounds) {
+        super(name, help, labelNames, () -> new Series(upperBounds));
+        this.upperBounds = upperBounds;
+    }
+
+    public void observe(double value, String... labelValues) {
+        getSeries(labelValues).observe(value);
+    }
+
+    @Override
+    protected String getType() {
+        return "histogram";
+    }
+
+    @Override
+    protected void writeSeries(Writer writer, List<String> labelValues, Series series) throws IOException {
+        long cumulativeCount = 0;
+        for (int i = 0; i < upperBounds.length; i++) {
+            cumulativeCount += series.bucketCounts[i].sum();
+            writeSample(writer, getName() + "_bucket", labelValues, "le", Double.toString(upperBounds[i]),
+                        Long.toString(cumulativeCount));
+        }
+        long count = series.getCount();
+        writeSample(writer, getName() + "_bucket", labelValues, "le", "+Inf", Long.toString(count));
+        writeSample(writer, getName() + "_sum", labelValues, null, null, Double.toString(series.sum.sum()));
+        writeSample(writer, getName() + "_count", labelValues, null, null, Long.toString(count));
+    }
+}
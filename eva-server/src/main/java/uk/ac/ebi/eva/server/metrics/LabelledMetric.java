@@ -0,0 +1,121 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A metric family with one series per combination of label values, written in the Prometheus text format.
+ *
+ * Some label values come from user input (e.g. the species), so the number of series is capped: once the cap is
+ * reached, new combinations are accounted under a series whose labels are all "other".
+ */
+abstract class LabelledMetric<S> {
+
+    static final int MAX_SERIES = 2000;
+
+    static final String OVERFLOW_LABEL_VALUE = "other";
+
+    private final String name;
+
+    private final String help;
+
+    private final List<String> labelNames;
+
+    private final Supplier<S> seriesFactory;
+
+    private final List<String> overflowLabelValues;
+
+    private final Map<List<String>, S> series = new ConcurrentHashMap<>();
+
+    LabelledMetric(String name, String help, List<String> labelNames, Supplier<S> seriesFactory) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+        this.seriesFactory = seriesFactory;
+        this.overflowLabelValues = Collections.nCopies(labelNames.size(), OVERFLOW_LABEL_VALUE);
+    }
+
+    protected S getSeries(String... labelValues) {
+        if (labelValues.length != labelNames.size()) {
+            throw new IllegalArgumentException(
+                    "Metric " + name + " expects labels " + labelNames + ", got " + Arrays.toString(labelValues));
+        }
+        List<String> key = Arrays.asList(labelValues);
+        S existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (series.size() >= MAX_SERIES) {
+            key = overflowLabelValues;
+        }
+        return series.computeIfAbsent(key, k -> seriesFactory.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    protected abstract String getType();
+
+    protected abstract void writeSeries(Writer writer, List<String> labelValues, S series) throws IOException;
+
+    public void write(Writer writer) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + getType() + "\n");
+        for (Map.Entry<List<String>, S> entry : series.entrySet()) {
+            writeSeries(writer, entry.getKey(), entry.getValue());
+        }
+    }
+
+    protected void writeSample(Writer writer, String sampleName, List<String> labelValues, String extraLabel,
+                               String extraLabelValue, String value) throws IOException {
+        writer.write(sampleName);
+        writer.write('{');
+        for (int i = 0; i < labelNames.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeLabel(writer, labelNames.get(i), labelValues.get(i));
+        }
+        if (extraLabel != null) {
+            if (!labelNames.isEmpty()) {
+                writer.write(',');
+            }
+            writeLabel(writer, extraLabel, extraLabelValue);
+        }
+        writer.write("} ");
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private void writeLabel(Writer writer, String labelName, String labelValue) throws IOException {
+        writer.write(labelName);
+        writer.write("=\"");
+        writer.write(labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+        writer.write('"');
+    }
+}
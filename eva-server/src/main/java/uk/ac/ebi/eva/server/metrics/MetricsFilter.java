@@ -0,0 +1,95 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times every request and records its metrics once the response has been written.
+ *
+ * The endpoint is only known after the handler mapping has run, so it is resolved by
+ * {@link MetricsHandlerInterceptor}. Requests that didn't reach a measured endpoint are not recorded.
+ *
+ * This filter also clears the DB selected in MultiMongoDbFactory, so that the species of a request is not inherited
+ * from a previous request served by the same thread.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsFilter extends OncePerRequestFilter {
+
+    static final String ENDPOINT_ATTRIBUTE = MetricsFilter.class.getName() + ".endpoint";
+
+    private static final String SPECIES_PARAMETER = "species";
+
+    private static final String DB_NAME_PREFIX = "eva_";
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestPhaseTimer timer = RequestPhaseTimer.startForCurrentThread();
+        MultiMongoDbFactory.clearDatabaseNameForCurrentThread();
+        ByteCountingResponseWrapper countingResponse = new ByteCountingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, countingResponse);
+            completed = true;
+        } finally {
+            String endpoint = (String) request.getAttribute(ENDPOINT_ATTRIBUTE);
+            if (endpoint != null) {
+                int status = completed ? countingResponse.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                endpointMetrics.requestFinished(endpoint, request.getMethod(), getSpecies(request), status,
+                                                countingResponse.getCount(), timer);
+            }
+            RequestPhaseTimer.clearForCurrentThread();
+            MultiMongoDbFactory.clearDatabaseNameForCurrentThread();
+        }
+    }
+
+    /**
+     * The species is taken from the request parameter, or from the DB selected by the endpoint, e.g. the GA4GH
+     * endpoints, which always query the same species.
+     */
+    static String getSpecies(HttpServletRequest request) {
+        String species = request.getParameter(SPECIES_PARAMETER);
+        if (species != null) {
+            return species;
+        }
+        String databaseName = MultiMongoDbFactory.getDatabaseNameForCurrentThread();
+        if (databaseName != null && databaseName.startsWith(DB_NAME_PREFIX)) {
+            return databaseName.substring(DB_NAME_PREFIX.length());
+        }
+        return "";
+    }
+}
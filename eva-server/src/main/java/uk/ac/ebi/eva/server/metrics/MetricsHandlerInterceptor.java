@@ -0,0 +1,59 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Resolves the endpoint of the requests timed by {@link MetricsFilter}, and counts them as in flight.
+ *
+ * Only the web service endpoints are measured. Forwards and error dispatches keep the endpoint of the original
+ * request.
+ */
+public class MetricsHandlerInterceptor extends HandlerInterceptorAdapter {
+
+    static final String MEASURED_PATH_PREFIX = "/v1/";
+
+    private final EndpointMetrics endpointMetrics;
+
+    public MetricsHandlerInterceptor(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestPhaseTimer timer = RequestPhaseTimer.getForCurrentThread();
+        if (timer == null || request.getAttribute(MetricsFilter.ENDPOINT_ATTRIBUTE) != null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String && ((String) pattern).startsWith(MEASURED_PATH_PREFIX)) {
+            timer.setEndpoint((String) pattern);
+            request.setAttribute(MetricsFilter.ENDPOINT_ATTRIBUTE, pattern);
+            endpointMetrics.requestStarted((String) pattern);
+        }
+        return true;
+    }
+}
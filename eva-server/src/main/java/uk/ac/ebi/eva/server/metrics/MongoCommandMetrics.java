@@ -0,0 +1,84 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.lib.metrics.MongoCommandMonitor;
+import uk.ac.ebi.eva.lib.metrics.MongoCommandSummary;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Latency and returned documents of the commands observed by the {@link MongoCommandMonitor}, per database,
+ * collection and command.
+ */
+@Component
+public class MongoCommandMetrics {
+
+    private static final double[] LATENCY_BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5,
+            5, 10};
+
+    private static final double[] DOCUMENTS_BUCKETS = {0, 1, 10, 100, 1000, 10000, 100000};
+
+    private final LabelledHistogram commandDuration = new LabelledHistogram(
+            "eva_mongo_command_duration_seconds", "Time to execute a Mongo command, as seen by the driver",
+            Arrays.asList("database", "collection", "command", "endpoint"), LATENCY_BUCKETS);
+
+    private final LabelledHistogram returnedDocuments = new LabelledHistogram(
+            "eva_mongo_command_returned_documents", "Documents returned by a Mongo command",
+            Arrays.asList("database", "collection", "command"), DOCUMENTS_BUCKETS);
+
+    private final LabelledCounter failures = new LabelledCounter(
+            "eva_mongo_command_failures_total", "Mongo commands that failed",
+            Arrays.asList("database", "collection", "command"));
+
+    @Autowired
+    private MongoCommandMonitor mongoCommandMonitor;
+
+    @PostConstruct
+    public void registerInMonitor() {
+        mongoCommandMonitor.addObserver(this::record);
+    }
+
+    void record(MongoCommandSummary command) {
+        String database = valueOrEmpty(command.getDatabase());
+        String collection = valueOrEmpty(command.getCollection());
+        commandDuration.observe(command.getDurationNanos() / EndpointMetrics.NANOS_PER_SECOND, database, collection,
+                                command.getCommand(), valueOrEmpty(command.getEndpoint()));
+        returnedDocuments.observe(command.getReturnedDocuments(), database, collection, command.getCommand());
+        if (command.isFailed()) {
+            failures.increment(database, collection, command.getCommand());
+        }
+    }
+
+    private String valueOrEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    public void write(Writer writer) throws IOException {
+        commandDuration.write(writer);
+        returnedDocuments.write(writer);
+        failures.write(writer);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Locale;
+
+/**
+ * Reports the time spent writing JSON responses as {@link RequestPhase#SERIALIZATION}.
+ *
+ * When Server-Timing is enabled, either for all the requests or for a request with "debug=true", the time spent in
+ * each phase is sent in a Server-Timing header. The headers must be sent before the body, so in that case the
+ * response is serialized into a buffer first. Otherwise Jackson streams into the response, and the serialization
+ * time includes sending the body to the client.
+ */
+public class TimedMappingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    static final String DEBUG_PARAMETER = "debug";
+
+    private final boolean serverTimingEnabled;
+
+    public TimedMappingJackson2HttpMessageConverter(ObjectMapper objectMapper, boolean serverTimingEnabled) {
+        super(objectMapper);
+        this.serverTimingEnabled = serverTimingEnabled;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestPhaseTimer timer = RequestPhaseTimer.getForCurrentThread();
+        if (timer == null || !isServerTimingRequested()) {
+            try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SERIALIZATION)) {
+                super.writeInternal(object, type, outputMessage);
+            }
+            return;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.SERIALIZATION)) {
+            super.writeInternal(object, type, new HttpOutputMessage() {
+                @Override
+                public OutputStream getBody() {
+                    return body;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return outputMessage.getHeaders();
+                }
+            });
+        }
+        outputMessage.getHeaders().add(SERVER_TIMING_HEADER, formatServerTiming(timer));
+        body.writeTo(outputMessage.getBody());
+    }
+
+    private boolean isServerTimingRequested() {
+        if (serverTimingEnabled) {
+            return true;
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return requestAttributes instanceof ServletRequestAttributes && "true".equals(
+                ((ServletRequestAttributes) requestAttributes).getRequest().getParameter(DEBUG_PARAMETER));
+    }
+
+    /**
+     * Format the phases as described in https://www.w3.org/TR/server-timing/, with durations in milliseconds, e.g.
+     * "find;dur=12.345, conversion;dur=3.210, serialization;dur=1.002, total;dur=17.530". Phases in which the request
+     * spent no time are omitted.
+     */
+    static String formatServerTiming(RequestPhaseTimer timer) {
+        StringBuilder serverTiming = new StringBuilder();
+        for (RequestPhase phase : RequestPhase.values()) {
+            long nanos = timer.getElapsedNanos(phase);
+            if (nanos > 0) {
+                appendMetric(serverTiming, phase.getLabel(), nanos);
+            }
+        }
+        appendMetric(serverTiming, "total", timer.getTotalNanos());
+        return serverTiming.toString();
+    }
+
+    private static void appendMetric(StringBuilder serverTiming, String name, long nanos) {
+        if (serverTiming.length() > 0) {
+            serverTiming.append(", ");
+        }
+        serverTiming.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+    }
+}
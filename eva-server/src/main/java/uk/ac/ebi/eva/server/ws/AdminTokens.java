@@ -0,0 +1,41 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ebi.eva.server.ws;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Checks the token sent by the clients of the administration endpoints against the configured eva.admin.token.
+ *
+ * An empty configured token disables the endpoints. The comparison takes the same time wherever the tokens differ.
+ */
+final class AdminTokens {
+
+    static final String ADMIN_TOKEN_HEADER = "X-EVA-Admin-Token";
+
+    private AdminTokens() {
+    }
+
+    static boolean isValid(String adminToken, String token) {
+        return adminToken != null && !adminToken.isEmpty() && token != null && MessageDigest.isEqual(
+                adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
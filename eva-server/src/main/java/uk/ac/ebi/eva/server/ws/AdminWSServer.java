@@ -0,0 +1,95 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ebi.eva.server.ws;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import springfox.documentation.annotations.ApiIgnore;
+
+import uk.ac.ebi.eva.lib.metrics.MongoCommandMonitor;
+import uk.ac.ebi.eva.lib.metrics.MongoCommandSummary;
+import uk.ac.ebi.eva.server.metrics.EndpointMetrics;
+import uk.ac.ebi.eva.server.metrics.MongoCommandMetrics;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Operational endpoints, not part of the public API.
+ */
+@RestController
+@RequestMapping(value = "/admin")
+@ApiIgnore
+public class AdminWSServer {
+
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Value("${eva.admin.token:}")
+    private String adminToken;
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Autowired
+    private MongoCommandMetrics mongoCommandMetrics;
+
+    @Autowired
+    private MongoCommandMonitor mongoCommandMonitor;
+
+    /**
+     * Endpoint and Mongo metrics in the Prometheus text format. The metrics are labelled with the species requested,
+     * so the scraper must send the admin token, as for the profiling endpoint.
+     */
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void getMetrics(@RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token,
+                           HttpServletResponse response) throws IOException {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType(PROMETHEUS_CONTENT_TYPE);
+        Writer writer = response.getWriter();
+        endpointMetrics.write(writer);
+        mongoCommandMetrics.write(writer);
+        writer.flush();
+    }
+
+    /**
+     * Mongo commands slower than the configured threshold, most recent first, with the values in the query redacted.
+     * The shape of the queries still tells how the collections can be searched, so this endpoint requires the admin
+     * token, as the profiling endpoint.
+     */
+    @RequestMapping(value = "/slow-queries", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<List<MongoCommandSummary>> getSlowQueries(
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(mongoCommandMonitor.getSlowQueries(), HttpStatus.OK);
+    }
+}
@@ -30,15 +30,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import uk.ac.ebi.eva.lib.cache.VariantStudySummaryCache;
 import uk.ac.ebi.eva.lib.metadata.ArchiveDgvaDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.ArchiveEvaproDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.StudyDgvaDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.StudyEvaproDBAdaptor;
-import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
 import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+import uk.ac.ebi.eva.lib.utils.QueryOptionsConstants;
+import uk.ac.ebi.eva.server.exception.SpeciesException;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -64,7 +67,7 @@ public class ArchiveWSServer extends EvaWSServer {
     @Autowired
     private StudyEvaproDBAdaptor studyEvaproDbAdaptor;
     @Autowired
-    private VariantStudySummaryRepository variantStudySummaryRepository;
+    private VariantStudySummaryCache variantStudySummaryCache;
 
     private Properties properties;
     
@@ -78,13 +81,23 @@ public class ArchiveWSServer extends EvaWSServer {
         return setQueryResponse(archiveEvaproDbAdaptor.countFiles());
     }
 
+    /**
+     * The species are served from memory, and the response includes an ETag that changes with them, so clients
+     * sending it back in If-None-Match get a 304 Not Modified until the species catalogue is reloaded.
+     */
     @RequestMapping(value = "/species/count", method = RequestMethod.GET)
-    public QueryResponse countSpecies() {
+    public QueryResponse countSpecies(WebRequest request) {
+        if (request.checkNotModified(speciesCatalogue.getETag())) {
+            return null;
+        }
         return setQueryResponse(archiveEvaproDbAdaptor.countSpecies());
     }
 
     @RequestMapping(value = "/species/list", method = RequestMethod.GET)
-    public QueryResponse getSpecies() {
+    public QueryResponse getSpecies(WebRequest request) {
+        if (request.checkNotModified(speciesCatalogue.getETag())) {
+            return null;
+        }
         return setQueryResponse(archiveEvaproDbAdaptor.getSpecies(properties.getProperty("eva.version"), true));
     }
 
@@ -114,9 +127,9 @@ public class ArchiveWSServer extends EvaWSServer {
 
     @RequestMapping(value = "/studies/list", method = RequestMethod.GET)
     public QueryResponse getBrowsableStudies(@RequestParam("species") String species)
-            throws IllegalOpenCGACredentialsException, IOException {
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
-        List<VariantStudySummary> uniqueStudies = variantStudySummaryRepository.findBy();
+            throws IllegalOpenCGACredentialsException, IOException, SpeciesException {
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(getCataloguedDBName(species));
+        List<VariantStudySummary> uniqueStudies = variantStudySummaryCache.findAll(species);
         QueryResult<VariantStudySummary> result = buildQueryResult(uniqueStudies);
         return setQueryResponse(result);
     }
@@ -133,18 +146,15 @@ public class ArchiveWSServer extends EvaWSServer {
             queryOptions.put("type", types);
         }
 
-        QueryResult<Map.Entry<String, Long>> resultSpecies, resultTypes;
-
+        QueryResult<Map<String, Map<String, Long>>> counts;
         if (structural) {
-            resultSpecies = archiveDgvaDbAdaptor.countStudiesPerSpecies(queryOptions);
-            resultTypes = archiveDgvaDbAdaptor.countStudiesPerType(queryOptions);
+            counts = archiveDgvaDbAdaptor.countStudiesPerSpeciesAndType(queryOptions);
         } else {
-            resultSpecies = archiveEvaproDbAdaptor.countStudiesPerSpecies(queryOptions);
-            resultTypes = archiveEvaproDbAdaptor.countStudiesPerType(queryOptions);
+            counts = archiveEvaproDbAdaptor.countStudiesPerSpeciesAndType(queryOptions);
         }
 
         QueryResult combinedQueryResult = new QueryResult();
-        combinedQueryResult.setDbTime(resultSpecies.getDbTime() + resultTypes.getDbTime());
+        combinedQueryResult.setDbTime(counts.getDbTime());
 
         JsonNodeFactory factory = new JsonNodeFactory(true);
         ObjectNode root = factory.objectNode();
@@ -153,14 +163,14 @@ public class ArchiveWSServer extends EvaWSServer {
 
         // Species
         ObjectNode speciesNode = factory.objectNode();
-        for (Map.Entry<String, Long> speciesCount : resultSpecies.getResult()) {
+        for (Map.Entry<String, Long> speciesCount : counts.first().get(QueryOptionsConstants.SPECIES).entrySet()) {
             speciesNode.put(speciesCount.getKey(), speciesCount.getValue());
         }
         root.put("species", speciesNode);
 
         // Types
         ObjectNode typesNode = factory.objectNode();
-        for (Map.Entry<String, Long> typesCount : resultTypes.getResult()) {
+        for (Map.Entry<String, Long> typesCount : counts.first().get(QueryOptionsConstants.TYPE).entrySet()) {
             typesNode.put(typesCount.getKey(), typesCount.getValue());
         }
         root.put("type", typesNode);
@@ -0,0 +1,101 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ebi.eva.server.ws;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import springfox.documentation.annotations.ApiIgnore;
+
+import uk.ac.ebi.eva.lib.cache.ChromosomeCache;
+import uk.ac.ebi.eva.lib.cache.VariantStudySummaryCache;
+import uk.ac.ebi.eva.lib.index.AccessionIndex;
+import uk.ac.ebi.eva.lib.index.BeaconFilterIndex;
+import uk.ac.ebi.eva.lib.index.DensityIndex;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.metadata.FileFtpReferenceResolver;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.metadata.StudyBrowserCache;
+
+/**
+ * Reloads the in-memory catalogues on demand, for example right after a data release, instead of waiting for their
+ * scheduled refresh.
+ *
+ * The species catalogue is reloaded straight away, and the per-species caches are emptied so they are loaded again
+ * on their next use. As the profiling endpoint, this one is disabled unless eva.admin.token is set.
+ */
+@RestController
+@RequestMapping(value = "/admin/caches")
+@ApiIgnore
+public class CacheWSServer {
+
+    @Value("${eva.admin.token:}")
+    private String adminToken;
+
+    @Autowired
+    private SpeciesCatalogue speciesCatalogue;
+
+    @Autowired
+    private ChromosomeCache chromosomeCache;
+
+    @Autowired
+    private StudyBrowserCache studyBrowserCache;
+
+    @Autowired
+    private VariantStudySummaryCache variantStudySummaryCache;
+
+    @Autowired
+    private FileFtpReferenceResolver fileFtpReferenceResolver;
+
+    @Autowired
+    private BeaconFilterIndex beaconFilterIndex;
+
+    @Autowired
+    private AccessionIndex accessionIndex;
+
+    @Autowired
+    private DensityIndex densityIndex;
+
+    @Autowired
+    private LongVariantIndex longVariantIndex;
+
+    @RequestMapping(value = "/refresh", method = RequestMethod.POST)
+    public ResponseEntity<Void> refresh(
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        speciesCatalogue.reload();
+        chromosomeCache.invalidateAll();
+        studyBrowserCache.invalidateAll();
+        variantStudySummaryCache.invalidateAll();
+        fileFtpReferenceResolver.invalidateAll();
+        beaconFilterIndex.invalidateAll();
+        accessionIndex.invalidateAll();
+        densityIndex.invalidateAll();
+        longVariantIndex.invalidateAll();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
@@ -38,15 +38,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+import uk.ac.ebi.eva.server.exception.SpeciesException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class EvaWSServer {
 
@@ -64,6 +72,9 @@ public class EvaWSServer {
     @Autowired
     protected DBAdaptorConnector dbAdaptorConnector;
 
+    @Autowired
+    protected SpeciesCatalogue speciesCatalogue;
+
     @Bean
     public Jackson2ObjectMapperBuilder jacksonBuilder() {
         Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
@@ -108,6 +119,42 @@ public class EvaWSServer {
         logger.debug(queryOptions.toJson());
     }
 
+    /**
+     * Resolves the database of a species whose data is served from a per-species cache. Only the species in the
+     * catalogue are accepted, so that unknown names don't add cache entries.
+     *
+     * @return name of the variants database of the species
+     * @throws SpeciesException if the species is not in the catalogue, which is answered with a 400 status
+     */
+    protected String getCataloguedDBName(String species) throws SpeciesException {
+        try {
+            return speciesCatalogue.getDBName(species);
+        } catch (IllegalArgumentException e) {
+            throw new SpeciesException(e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the per-species indexes can be used for a species. Only the species in the catalogue are looked up in
+     * the indexes, so that unknown names don't add index entries. The rest, and all of them while the catalogue can't
+     * be loaded, are served from the variants database alone.
+     */
+    protected boolean isCatalogued(String species) {
+        try {
+            return speciesCatalogue.isKnownSpecies(species);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the species catalogue, the indexes of " + species + " will not be used", e);
+            return false;
+        }
+    }
+
+    @ExceptionHandler(SpeciesException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public QueryResponse handleSpeciesException(SpeciesException e) {
+        return setErrorQueryResponse(e.getMessage());
+    }
+
     protected <T> QueryResponse<T> setQueryResponse(T obj) {
         QueryResponse<T> queryResponse = buildQueryResponse();
 
@@ -146,7 +193,19 @@ public class EvaWSServer {
         queryResult.setResult(results);
         queryResult.setNumResults(results.size());
         queryResult.setNumTotalResults(numTotalResults);
-        queryResult.setDbTime(new Long(System.currentTimeMillis() - startTime).intValue());
+        queryResult.setDbTime(getDbTime());
         return queryResult;
     }
+
+    /**
+     * When the request is being timed, only the time spent in DB round trips is reported, excluding the conversion
+     * of the results and the work done by the controller.
+     */
+    private int getDbTime() {
+        RequestPhaseTimer timer = RequestPhaseTimer.getForCurrentThread();
+        if (timer != null) {
+            return new Long(TimeUnit.NANOSECONDS.toMillis(timer.getDatabaseNanos())).intValue();
+        }
+        return new Long(System.currentTimeMillis() - startTime).intValue();
+    }
 }
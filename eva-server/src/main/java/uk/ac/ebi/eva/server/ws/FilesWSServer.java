@@ -23,19 +23,24 @@ import io.swagger.annotations.Api;
 import org.opencb.datastore.core.QueryResponse;
 import org.opencb.opencga.lib.auth.IllegalOpenCGACredentialsException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.lib.metadata.VariantSourceEvaProDBAdaptor;
 import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+import uk.ac.ebi.eva.server.Utils;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author Cristina Yenyxe Gonzalez Garcia <cyenyxe@ebi.ac.uk>
@@ -51,14 +56,57 @@ public class FilesWSServer extends EvaWSServer {
     @Autowired
     private VariantSourceEntityRepository variantSourceEntityRepository;
 
+    @Autowired
+    private JsonLinesWriter jsonLinesWriter;
+
+    /**
+     * Files sorted by ID, without their samples and metadata unless they are included explicitly. Large species can
+     * be paged through with "limit" and the file ID of the last result of the previous page in "after".
+     */
     @RequestMapping(value = "/all", method = RequestMethod.GET)
 //    @ApiOperation(httpMethod = "GET", value = "Gets the files of a species")
-    public QueryResponse getFiles(@RequestParam("species") String species)
+    public QueryResponse getFiles(@RequestParam("species") String species,
+                                  @RequestParam(name = "after", required = false) String afterFileId,
+                                  @RequestParam(name = "include", required = false) List<String> include,
+                                  HttpServletResponse response)
             throws IllegalOpenCGACredentialsException, IOException {
         initializeQuery();
 
+        List<String> exclude;
+        try {
+            exclude = Utils.getExcludedFileFields(include);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse(e.getMessage());
+        }
+
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+        int limit = (int) queryOptions.get("limit");
+        return setQueryResponse(buildQueryResult(
+                variantSourceEntityRepository.findByStudyIdOrStudyNameAfterFileId(null, afterFileId, limit, exclude)));
+    }
+
+    /**
+     * Same files as {@link #getFiles}, written one per line while they are read from the database
+     */
+    @RequestMapping(value = "/all", method = RequestMethod.GET, params = "stream=true",
+                    produces = JsonLinesWriter.CONTENT_TYPE)
+    public void streamFiles(@RequestParam("species") String species,
+                            @RequestParam(name = "include", required = false) List<String> include,
+                            HttpServletResponse response) throws IOException {
+        List<String> exclude;
+        try {
+            exclude = Utils.getExcludedFileFields(include);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
         MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
-        return setQueryResponse(buildQueryResult(variantSourceEntityRepository.findAll()));
+        try (CloseableIterator<VariantSourceEntity> files =
+                     variantSourceEntityRepository.streamByStudyIdOrStudyName(null, exclude)) {
+            jsonLinesWriter.write(files, response);
+        }
     }
 
     @RequestMapping(value = "/{files}/url", method = RequestMethod.GET)
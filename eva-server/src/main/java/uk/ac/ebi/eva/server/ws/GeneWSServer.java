@@ -22,6 +22,7 @@ package uk.ac.ebi.eva.server.ws;
 import com.mongodb.BasicDBObject;
 import io.swagger.annotations.Api;
 import org.opencb.datastore.core.QueryResponse;
+import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.lib.auth.IllegalOpenCGACredentialsException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -30,6 +31,9 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
+
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.List;
@@ -98,7 +102,11 @@ public class GeneWSServer extends EvaWSServer {
         queryOptions.put(VariantDBAdaptor.SORT, new BasicDBObject("chr", 1).append("start", 1));
         queryOptions.put(VariantDBAdaptor.GENE, String.join(",", geneIds));
         
-        return setQueryResponse(variantMongoDbAdaptor.getAllVariants(queryOptions));
+        QueryResult queryResult;
+        try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.MONGO_FIND)) {
+            queryResult = variantMongoDbAdaptor.getAllVariants(queryOptions);
+        }
+        return setQueryResponse(queryResult);
     }
 
     @RequestMapping(value = "/{geneIds}/variants", method = RequestMethod.POST)
@@ -0,0 +1,153 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ebi.eva.server.ws;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import springfox.documentation.annotations.ApiIgnore;
+
+import uk.ac.ebi.eva.lib.index.AccessionIndex;
+import uk.ac.ebi.eva.lib.index.BeaconFilterIndex;
+import uk.ac.ebi.eva.lib.index.DensityIndex;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+
+import java.util.Map;
+
+/**
+ * Builds the indexes derived from the variants collections, e.g. after a variant load, and reports how they perform.
+ *
+ * Building an index scans the whole collection of a species, so it requires the admin token, as the profiling
+ * endpoint.
+ */
+@RestController
+@RequestMapping(value = "/admin/indexes", produces = "application/json")
+@ApiIgnore
+public class IndexWSServer {
+
+    @Value("${eva.admin.token:}")
+    private String adminToken;
+
+    @Autowired
+    private BeaconFilterIndex beaconFilterIndex;
+
+    @Autowired
+    private AccessionIndex accessionIndex;
+
+    @Autowired
+    private DensityIndex densityIndex;
+
+    @Autowired
+    private LongVariantIndex longVariantIndex;
+
+    @Autowired
+    private SpeciesCatalogue speciesCatalogue;
+
+    @RequestMapping(value = "/beacon", method = RequestMethod.GET)
+    public Map<String, Object> getBeaconStatistics() {
+        return beaconFilterIndex.getStatistics();
+    }
+
+    @RequestMapping(value = "/beacon", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, String>> buildBeaconIndex(
+            @RequestParam("species") String species,
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (!beaconFilterIndex.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (!speciesCatalogue.isKnownSpecies(species)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(beaconFilterIndex.build(speciesCatalogue.getDBName(species)), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/accessions", method = RequestMethod.GET)
+    public Map<String, Object> getAccessionStatistics() {
+        return accessionIndex.getStatistics();
+    }
+
+    @RequestMapping(value = "/accessions", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, String>> buildAccessionIndex(
+            @RequestParam("species") String species,
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (!accessionIndex.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (!speciesCatalogue.isKnownSpecies(species)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(accessionIndex.build(speciesCatalogue.getDBName(species)), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/density", method = RequestMethod.GET)
+    public Map<String, Object> getDensityStatistics() {
+        return densityIndex.getStatistics();
+    }
+
+    @RequestMapping(value = "/density", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, String>> buildDensityIndex(
+            @RequestParam("species") String species,
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (!densityIndex.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (!speciesCatalogue.isKnownSpecies(species)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(densityIndex.build(speciesCatalogue.getDBName(species)), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/long-variants", method = RequestMethod.GET)
+    public Map<String, Object> getLongVariantStatistics() {
+        return longVariantIndex.getStatistics();
+    }
+
+    @RequestMapping(value = "/long-variants", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, String>> buildLongVariantIndex(
+            @RequestParam("species") String species,
+            @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token) {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (!longVariantIndex.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (!speciesCatalogue.isKnownSpecies(species)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(longVariantIndex.build(speciesCatalogue.getDBName(species)), HttpStatus.OK);
+    }
+}
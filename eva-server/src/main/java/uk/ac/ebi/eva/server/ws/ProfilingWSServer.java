@@ -0,0 +1,105 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ebi.eva.server.ws;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import springfox.documentation.annotations.ApiIgnore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Captures a flight recording of the running server, including the EVA request events, and returns the .jfr file.
+ *
+ * The recording is time-boxed, and only one can run at a time. The endpoint is disabled unless eva.admin.token is
+ * set, and the requests must send that token in the X-EVA-Admin-Token header.
+ */
+@RestController
+@RequestMapping(value = "/admin/profiling")
+@ConditionalOnClass(name = "jdk.jfr.Recording")
+@ApiIgnore
+public class ProfilingWSServer {
+
+    static final int MAX_DURATION_SECONDS = 300;
+
+    @Value("${eva.admin.token:}")
+    private String adminToken;
+
+    private final AtomicBoolean recordingInProgress = new AtomicBoolean(false);
+
+    @RequestMapping(value = "/recording", method = RequestMethod.POST)
+    public ResponseEntity<byte[]> record(@RequestParam(name = "duration", defaultValue = "30") int durationSeconds,
+                                         @RequestParam(name = "settings", defaultValue = "profile") String settings,
+                                         @RequestHeader(name = AdminTokens.ADMIN_TOKEN_HEADER, required = false) String token)
+            throws IOException, InterruptedException {
+        if (!AdminTokens.isValid(adminToken, token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (durationSeconds <= 0 || durationSeconds > MAX_DURATION_SECONDS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (ParseException | IOException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (!recordingInProgress.compareAndSet(false, true)) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        Path file = Files.createTempFile("eva-", ".jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.setName("EVA on-demand recording");
+            recording.start();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            recording.stop();
+            recording.dump(file);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"eva-"
+                    + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr\"");
+            return new ResponseEntity<>(Files.readAllBytes(file), headers, HttpStatus.OK);
+        } finally {
+            Files.deleteIfExists(file);
+            recordingInProgress.set(false);
+        }
+    }
+}
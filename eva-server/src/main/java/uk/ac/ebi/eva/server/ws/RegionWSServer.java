@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -36,17 +37,29 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.cache.ChromosomeCache;
 import uk.ac.ebi.eva.lib.filter.FilterBuilder;
+import uk.ac.ebi.eva.lib.index.DensityIndex;
+import uk.ac.ebi.eva.lib.index.DensityPyramid;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.models.DensityBin;
+import uk.ac.ebi.eva.lib.models.GenotypePredicate;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
 import uk.ac.ebi.eva.server.Utils;
+import uk.ac.ebi.eva.server.exception.SpeciesException;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value = "/v1/segments", produces = "application/json")
@@ -56,6 +69,27 @@ public class RegionWSServer extends EvaWSServer {
     @Autowired
     private VariantEntityRepository variantEntityRepository;
 
+    @Autowired
+    private ChromosomeCache chromosomeCache;
+
+    @Autowired
+    private DensityIndex densityIndex;
+
+    @Autowired
+    private LongVariantIndex longVariantIndex;
+
+    @Autowired
+    private SampleGenotypeLookup sampleGenotypeLookup;
+
+    @Autowired
+    private JsonLinesWriter jsonLinesWriter;
+
+    /**
+     * Maximum length of the regions whose density is calculated from their variants when the species has no density
+     * index, as every variant in them is read
+     */
+    static final long MAX_UNINDEXED_DENSITY_LENGTH = 1000000;
+
     protected static Logger logger = LoggerFactory.getLogger(FeatureWSServer.class);
 
     public RegionWSServer() {
@@ -72,6 +106,8 @@ public class RegionWSServer extends EvaWSServer {
                                              @RequestParam(name = "polyphen", required = false) String polyphenScore,
                                              @RequestParam(name = "sift", required = false) String siftScore,
                                              @RequestParam(name = "exclude", required = false) List<String> exclude,
+                                             @RequestParam(name = "approximateCount", defaultValue = "false")
+                                                     boolean approximateCount,
                                              HttpServletResponse response)
             throws IllegalOpenCGACredentialsException, IOException {
         initializeQuery();
@@ -81,7 +117,8 @@ public class RegionWSServer extends EvaWSServer {
             return setQueryResponse("Please specify a species");
         }
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+        String dbName = DBAdaptorConnector.getDBName(species);
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
 
         List<VariantEntityRepositoryFilter> filters = new FilterBuilder()
                 .getVariantEntityRepositoryFilters(maf, polyphenScore, siftScore, studies, consequenceType
@@ -101,15 +138,271 @@ public class RegionWSServer extends EvaWSServer {
             }
         }
 
+        boolean catalogued = isCatalogued(species);
+        Map<String, Set<Long>> longVariantStarts = catalogued ? longVariantIndex.findStarts(dbName, regions) : null;
         List<VariantEntity> variantEntities =
-                variantEntityRepository.findByRegionsAndComplexFilters(regions, filters, excludeMapped, pageRequest);
+                findByRegions(regions, longVariantStarts, filters, excludeMapped, pageRequest);
 
-        Long numTotalResults = variantEntityRepository.countByRegionsAndComplexFilters(regions, filters);
+        Long numTotalResults = null;
+        if (approximateCount && catalogued && isEmpty(maf) && isEmpty(polyphenScore) && isEmpty(siftScore)
+                && (consequenceType == null || consequenceType.isEmpty()) && (studies == null || studies.size() <= 1)) {
+            numTotalResults = countApproximately(dbName, regions, longVariantStarts, studies, filters);
+        }
+        if (numTotalResults == null) {
+            numTotalResults = countByRegions(regions, longVariantStarts, filters);
+        }
 
         QueryResult<VariantEntity> queryResult = buildQueryResult(variantEntities, numTotalResults);
         return setQueryResponse(queryResult);
     }
 
+    /**
+     * Number of variants that start in each bin of the regions, for variant density tracks. The bins are aligned to
+     * multiples of their size, which must be a multiple of 1 kb, and can be split by variant type and by study with
+     * "groupBy=type,study". The counts are read from the density index of the species when it has been built, and
+     * from the variants of the regions otherwise, which is only allowed for regions up to
+     * {@link #MAX_UNINDEXED_DENSITY_LENGTH} bases in total. Without the index, only the variants inside the regions
+     * are read, so the first and last bins of a region that is not aligned to the bins only count those.
+     */
+    @RequestMapping(value = "/{regionId}/density", method = RequestMethod.GET)
+    @ResponseBody
+    public QueryResponse getVariantDensity(@PathVariable("regionId") String regionId,
+                                           @RequestParam(name = "species") String species,
+                                           @RequestParam(name = "binSize") int binSize,
+                                           @RequestParam(name = "groupBy", required = false) List<String> groupBy,
+                                           HttpServletResponse response) {
+        initializeQuery();
+
+        if (species.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse("Please specify a species");
+        }
+
+        boolean byType = false;
+        boolean byStudy = false;
+        if (groupBy != null) {
+            for (String group : groupBy) {
+                if (group.equals("type")) {
+                    byType = true;
+                } else if (group.equals("study")) {
+                    byStudy = true;
+                } else {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    return setQueryResponse("Unrecognised groupBy value: " + group + ", please use type or study");
+                }
+            }
+        }
+
+        List<Region> regions = Region.parseRegions(regionId);
+        long binsCount = 0;
+        try {
+            for (Region region : regions) {
+                DensityPyramid.checkBins(region.getStart(), region.getEnd(), binSize);
+                binsCount += DensityPyramid.getBinsCount(region.getStart(), region.getEnd(), binSize);
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse(e.getMessage());
+        }
+        if (binsCount > DensityPyramid.MAX_BINS) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse("The regions can't be split in more than " + DensityPyramid.MAX_BINS +
+                                            " bins, please use a larger bin size");
+        }
+
+        String dbName = DBAdaptorConnector.getDBName(species);
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
+
+        boolean catalogued = isCatalogued(species);
+        List<List<DensityBin>> indexedBins = new ArrayList<>();
+        long unindexedLength = 0;
+        for (Region region : regions) {
+            List<DensityBin> regionBins = null;
+            if (catalogued) {
+                regionBins = densityIndex.getBins(dbName, region.getChromosome(), region.getStart(), region.getEnd(),
+                                                  binSize, byType, byStudy);
+            }
+            if (regionBins == null) {
+                unindexedLength += region.getEnd() - region.getStart() + 1;
+            }
+            indexedBins.add(regionBins);
+        }
+        if (unindexedLength > MAX_UNINDEXED_DENSITY_LENGTH) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse("The density index of this species has not been built, so the regions can't be " +
+                                            "longer than " + MAX_UNINDEXED_DENSITY_LENGTH + " bases in total");
+        }
+
+        List<DensityBin> bins = new ArrayList<>();
+        for (int i = 0; i < regions.size(); i++) {
+            Region region = regions.get(i);
+            List<DensityBin> regionBins = indexedBins.get(i);
+            if (regionBins == null) {
+                try (CloseableIterator<VariantChunks> variants = variantEntityRepository
+                        .streamVariantChunksByChromosomeAndStartBetween(region.getChromosome(), region.getStart(),
+                                                                        region.getEnd())) {
+                    regionBins = DensityPyramid.build(variants).getBins(region.getChromosome(), region.getStart(),
+                                                                        region.getEnd(), binSize, byType, byStudy);
+                }
+            }
+            bins.addAll(regionBins);
+        }
+
+        QueryResult<DensityBin> queryResult = buildQueryResult(bins);
+        return setQueryResponse(queryResult);
+    }
+
+    /**
+     * Genotypes of a few samples of the studies in the variants of the regions, written one variant per line while
+     * they are read from the database. Only the files that contain any of the samples are read, and each variant
+     * lists the genotype of the samples in each of those files.
+     *
+     * The variants can be restricted to those where some samples have some genotypes with
+     * "genotypes=sample:predicate,...", where the predicate is one of "ref", "nonref", "het", "homalt" and "missing",
+     * or an exact genotype such as "0|1". Every predicate must hold for a variant to be written, in any of the files
+     * that contain the sample, and the samples of the predicates are added to the requested ones. The annotation
+     * filters of the variants endpoint can be applied too.
+     */
+    @RequestMapping(value = "/{regionId}/genotypes", method = RequestMethod.GET,
+                    produces = JsonLinesWriter.CONTENT_TYPE)
+    public void getGenotypesByRegion(@PathVariable("regionId") String regionId,
+                                     @RequestParam(name = "species") String species,
+                                     @RequestParam(name = "studies") List<String> studies,
+                                     @RequestParam(name = "samples", required = false) List<String> samples,
+                                     @RequestParam(name = "genotypes", required = false) List<String> genotypes,
+                                     @RequestParam(name = "annot-ct", required = false) List<String> consequenceType,
+                                     @RequestParam(name = "maf", required = false) String maf,
+                                     @RequestParam(name = "polyphen", required = false) String polyphenScore,
+                                     @RequestParam(name = "sift", required = false) String siftScore,
+                                     HttpServletResponse response) throws IOException {
+        if (species.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Please specify a species");
+            return;
+        }
+
+        Map<String, GenotypePredicate> predicates = new LinkedHashMap<>();
+        if (genotypes != null) {
+            for (String genotype : genotypes) {
+                int separator = genotype.lastIndexOf(':');
+                if (separator <= 0 || separator == genotype.length() - 1) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid genotype predicate \"" +
+                            genotype + "\", please use sample:predicate");
+                    return;
+                }
+                predicates.put(genotype.substring(0, separator),
+                               GenotypePredicate.parse(genotype.substring(separator + 1)));
+            }
+        }
+
+        Set<String> sampleNames = new LinkedHashSet<>();
+        if (samples != null) {
+            sampleNames.addAll(samples);
+        }
+        sampleNames.addAll(predicates.keySet());
+        if (sampleNames.isEmpty() || sampleNames.size() > SampleGenotypeLookup.MAX_SAMPLES) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Please provide between 1 and " + SampleGenotypeLookup.MAX_SAMPLES + " samples");
+            return;
+        }
+
+        String dbName = DBAdaptorConnector.getDBName(species);
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
+
+        Map<String, SampleGenotypeLookup.FileSamples> files = sampleGenotypeLookup.resolveSamples(studies,
+                                                                                                  sampleNames);
+        List<String> missingSamples = SampleGenotypeLookup.getMissingSamples(sampleNames, files.values());
+        if (!missingSamples.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Samples not found in the studies: " + String.join(",", missingSamples));
+            return;
+        }
+
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder().withMaf(maf)
+                                                                         .withPolyphenScore(polyphenScore)
+                                                                         .withSiftScore(siftScore)
+                                                                         .withConsequenceType(consequenceType)
+                                                                         .build();
+        List<Region> regions = Region.parseRegions(regionId);
+        Map<String, Set<Long>> longVariantStarts = isCatalogued(species) ?
+                longVariantIndex.findStarts(dbName, regions) : null;
+        try (CloseableIterator<SampleGenotypeLookup.Result> results = sampleGenotypeLookup.lookup(
+                regions, longVariantStarts, files, filters, predicates)) {
+            jsonLinesWriter.write(results, response);
+        }
+    }
+
+    /**
+     * Counts the variants that start in the 10k chunks fully inside the regions from the density index, and only
+     * queries the variants in the rest of each region, at most two partial chunks. The count of the chunks is only
+     * split by study, so it can't be used with any other filter, nor with several studies, as a variant found in more
+     * than one of them would be counted once per study. A variant that starts in a chunk and ends in a partial one is
+     * counted twice, so the total is an approximation.
+     *
+     * @return approximate number of variants, or null if the species has no density index
+     */
+    private Long countApproximately(String dbName, List<Region> regions, Map<String, Set<Long>> longVariantStarts,
+                                    List<String> studies, List<VariantEntityRepositoryFilter> filters) {
+        int chunkSize = DensityIndex.COUNT_CHUNK_SIZE;
+        long count = 0;
+        List<Region> partialRegions = new ArrayList<>();
+        for (Region region : regions) {
+            long firstChunk = (region.getStart() + chunkSize - 1) / chunkSize;
+            long lastChunk = (region.getEnd() + 1) / chunkSize - 1;
+            if (firstChunk > lastChunk) {
+                partialRegions.add(region);
+                continue;
+            }
+
+            Long chunksCount = densityIndex.countChunks(dbName, region.getChromosome(), firstChunk, lastChunk,
+                                                        studies);
+            if (chunksCount == null) {
+                return null;
+            }
+            count += chunksCount;
+
+            if (region.getStart() < firstChunk * chunkSize) {
+                partialRegions.add(new Region(region.getChromosome(), region.getStart(),
+                                              (int) (firstChunk * chunkSize - 1)));
+            }
+            if (region.getEnd() >= (lastChunk + 1) * chunkSize) {
+                partialRegions.add(new Region(region.getChromosome(), (int) ((lastChunk + 1) * chunkSize),
+                                              region.getEnd()));
+            }
+        }
+        if (!partialRegions.isEmpty()) {
+            count += countByRegions(partialRegions, longVariantStarts, filters);
+        }
+        return count;
+    }
+
+    /**
+     * Looks for the long variants of the regions by the starts found in the long variant index, if the species has
+     * one, so the short variants can be searched in a narrower range of positions
+     */
+    private List<VariantEntity> findByRegions(List<Region> regions, Map<String, Set<Long>> longVariantStarts,
+                                              List<VariantEntityRepositoryFilter> filters, List<String> exclude,
+                                              PageRequest pageRequest) {
+        if (longVariantStarts == null) {
+            return variantEntityRepository.findByRegionsAndComplexFilters(regions, filters, exclude, pageRequest);
+        }
+        return variantEntityRepository.findByRegionsAndComplexFilters(regions, LongVariantIndex.LONG_VARIANT_LENGTH,
+                                                                      longVariantStarts, filters, exclude,
+                                                                      pageRequest);
+    }
+
+    private Long countByRegions(List<Region> regions, Map<String, Set<Long>> longVariantStarts,
+                                List<VariantEntityRepositoryFilter> filters) {
+        if (longVariantStarts == null) {
+            return variantEntityRepository.countByRegionsAndComplexFilters(regions, filters);
+        }
+        return variantEntityRepository.countByRegionsAndComplexFilters(regions, LongVariantIndex.LONG_VARIANT_LENGTH,
+                                                                       longVariantStarts, filters);
+    }
+
+    private static boolean isEmpty(String parameter) {
+        return parameter == null || parameter.isEmpty();
+    }
+
     @RequestMapping(value = "/{regionId}/variants", method = RequestMethod.OPTIONS)
     public QueryResponse getVariantsByRegion() {
         return setQueryResponse("");
@@ -119,16 +412,22 @@ public class RegionWSServer extends EvaWSServer {
     @ResponseBody
 //    @ApiOperation(httpMethod = "GET", value = "Retrieves all the variants from region", response = QueryResponse.class)
     public QueryResponse getChromosomes(@RequestParam(name = "species") String species,
+                                        @RequestParam(name = "summary", defaultValue = "false") boolean summary,
                                         HttpServletResponse response)
-            throws IllegalOpenCGACredentialsException, IOException {
+            throws IllegalOpenCGACredentialsException, IOException, SpeciesException {
         if (species.isEmpty()) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return setQueryResponse("Please specify a species");
         }
+        // the chromosomes are cached by species, so only the ones in the catalogue are accepted
+        getCataloguedDBName(species);
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
-        List<String> chromosomeList = variantEntityRepository.findDistinctChromosomes();
-        QueryResult<String> queryResult = buildQueryResult(chromosomeList);
+        QueryResult queryResult;
+        if (summary) {
+            queryResult = buildQueryResult(chromosomeCache.getChromosomeSummaries(species));
+        } else {
+            queryResult = buildQueryResult(chromosomeCache.getChromosomes(species));
+        }
         return setQueryResponse(queryResult);
     }
 }
@@ -0,0 +1,303 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import org.opencb.biodata.models.feature.Region;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.models.GenotypePredicate;
+import uk.ac.ebi.eva.lib.models.SampleGenotypes;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantGenotypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reads the genotypes of a few samples in the variants of some regions, decoding the "samp" field of each file with
+ * {@link SampleGenotypes} and only looking up the positions of the requested samples, instead of converting the
+ * genotypes of every sample of the file.
+ *
+ * The samples are given by name and found in the "samplesPosition" of the files of the requested studies. A sample
+ * name may be found in several files, and its genotypes are returned for each of them.
+ *
+ * The variants can be restricted to those where some samples have some genotypes, e.g. where a sample carries any
+ * alternate allele. The predicates are evaluated on the decoded genotypes before the variant is converted, so the
+ * variants that don't match are skipped without being written.
+ */
+@Component
+class SampleGenotypeLookup {
+
+    static final int MAX_SAMPLES = 1000;
+
+    /**
+     * Position and alleles of a variant, and the genotypes of the requested samples in each of its files
+     */
+    public static class Result {
+
+        private final String chromosome;
+
+        private final long start;
+
+        private final long end;
+
+        private final String reference;
+
+        private final String alternate;
+
+        private final List<FileResult> files;
+
+        Result(String chromosome, long start, long end, String reference, String alternate,
+               List<FileResult> files) {
+            this.chromosome = chromosome;
+            this.start = start;
+            this.end = end;
+            this.reference = reference;
+            this.alternate = alternate;
+            this.files = files;
+        }
+
+        public String getChromosome() {
+            return chromosome;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getAlternate() {
+            return alternate;
+        }
+
+        public List<FileResult> getFiles() {
+            return files;
+        }
+    }
+
+    public static class FileResult {
+
+        private final String studyId;
+
+        private final String fileId;
+
+        /**
+         * Genotype of each requested sample of the file, by sample name
+         */
+        private final Map<String, String> genotypes;
+
+        FileResult(String studyId, String fileId, Map<String, String> genotypes) {
+            this.studyId = studyId;
+            this.fileId = fileId;
+            this.genotypes = genotypes;
+        }
+
+        public String getStudyId() {
+            return studyId;
+        }
+
+        public String getFileId() {
+            return fileId;
+        }
+
+        public Map<String, String> getGenotypes() {
+            return genotypes;
+        }
+    }
+
+    /**
+     * Names and positions of the requested samples found in one file
+     */
+    static class FileSamples {
+
+        private final String[] names;
+
+        private final int[] positions;
+
+        FileSamples(String[] names, int[] positions) {
+            this.names = names;
+            this.positions = positions;
+        }
+
+        List<String> getNames() {
+            return Arrays.asList(names);
+        }
+
+        /**
+         * @return position of the sample in the file, or -1 if it is not in the file
+         */
+        int getPosition(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return positions[i];
+                }
+            }
+            return -1;
+        }
+    }
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    @Autowired
+    private VariantSourceEntityRepository variantSourceEntityRepository;
+
+    /**
+     * Finds the position of the samples in the files of the studies, in the database of the current thread
+     *
+     * @return files that contain any of the samples, by file ID
+     */
+    Map<String, FileSamples> resolveSamples(List<String> studies, Set<String> sampleNames) {
+        Map<String, FileSamples> files = new LinkedHashMap<>();
+        for (VariantSourceEntity file : variantSourceEntityRepository.findByStudyIdIn(studies, null)) {
+            Map<String, Integer> samplesPosition = file.getSamplesPosition();
+            if (samplesPosition == null) {
+                continue;
+            }
+            List<String> names = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (String sampleName : sampleNames) {
+                Integer position = samplesPosition.get(sampleName);
+                if (position != null) {
+                    names.add(sampleName);
+                    positions.add(position);
+                }
+            }
+            if (!names.isEmpty()) {
+                files.put(file.getFileId(), new FileSamples(names.toArray(new String[names.size()]),
+                                                            positions.stream().mapToInt(Integer::intValue).toArray()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Streams the variants of the regions found in any of the files, in the database of the current thread, with
+     * the genotypes of the samples of each file. The iterator must be closed once the variants have been read.
+     *
+     * @param longVariantStarts starts of the long variants of the regions found in the {@link LongVariantIndex}, or
+     *                          null if the species has none
+     * @param predicates genotype that each of these samples must have, in any of the files of the variant that
+     *                   contain the sample, for the variant to be returned
+     */
+    CloseableIterator<Result> lookup(List<Region> regions, Map<String, Set<Long>> longVariantStarts,
+                                     Map<String, FileSamples> files, List<VariantEntityRepositoryFilter> filters,
+                                     Map<String, GenotypePredicate> predicates) {
+        CloseableIterator<VariantGenotypes> variants =
+                variantEntityRepository.streamGenotypesByRegionsAndComplexFilters(
+                        regions, LongVariantIndex.LONG_VARIANT_LENGTH, longVariantStarts, files.keySet(), filters);
+        return new CloseableIterator<Result>() {
+
+            private VariantGenotypes next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && variants.hasNext()) {
+                    VariantGenotypes variant = variants.next();
+                    if (matches(variant, files, predicates)) {
+                        next = variant;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Result result = toResult(next, files);
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void close() {
+                variants.close();
+            }
+        };
+    }
+
+    private static boolean matches(VariantGenotypes variant, Map<String, FileSamples> files,
+                                   Map<String, GenotypePredicate> predicates) {
+        for (Map.Entry<String, GenotypePredicate> predicate : predicates.entrySet()) {
+            boolean matched = false;
+            for (VariantGenotypes.FileGenotypes fileGenotypes : variant.getFiles()) {
+                FileSamples fileSamples = files.get(fileGenotypes.getFileId());
+                int position = fileSamples == null ? -1 : fileSamples.getPosition(predicate.getKey());
+                if (position >= 0
+                        && predicate.getValue().matches(fileGenotypes.getGenotypes().getGenotype(position))) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Result toResult(VariantGenotypes variant, Map<String, FileSamples> files) {
+        List<FileResult> fileResults = new ArrayList<>(variant.getFiles().size());
+        for (VariantGenotypes.FileGenotypes fileGenotypes : variant.getFiles()) {
+            FileSamples fileSamples = files.get(fileGenotypes.getFileId());
+            if (fileSamples == null) {
+                continue;
+            }
+            Map<String, String> genotypes = new LinkedHashMap<>();
+            for (int i = 0; i < fileSamples.names.length; i++) {
+                genotypes.put(fileSamples.names[i], fileGenotypes.getGenotypes().getGenotype(fileSamples.positions[i]));
+            }
+            fileResults.add(new FileResult(fileGenotypes.getStudyId(), fileGenotypes.getFileId(), genotypes));
+        }
+        return new Result(variant.getChromosome(), variant.getStart(), variant.getEnd(), variant.getReference(),
+                          variant.getAlternate(), fileResults);
+    }
+
+    /**
+     * @return the sample names that are not in any of the files
+     */
+    static List<String> getMissingSamples(Collection<String> sampleNames, Collection<FileSamples> files) {
+        List<String> missingSamples = new ArrayList<>(sampleNames);
+        for (FileSamples file : files) {
+            missingSamples.removeAll(file.getNames());
+        }
+        return missingSamples;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Response envelope written instead of a QueryResponse when the client asks for "metadata=false".
+ *
+ * Only the result list is kept, plus the total number of results when the client also asked for "count=true".
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SlimQueryResponse<T> {
+
+    private List<T> result;
+
+    private Long numTotalResults;
+
+    SlimQueryResponse() {
+    }
+
+    public SlimQueryResponse(List<T> result, Long numTotalResults) {
+        this.result = result;
+        this.numTotalResults = numTotalResults;
+    }
+
+    public List<T> getResult() {
+        return result;
+    }
+
+    public Long getNumTotalResults() {
+        return numTotalResults;
+    }
+}
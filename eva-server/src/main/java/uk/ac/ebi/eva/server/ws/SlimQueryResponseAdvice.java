@@ -0,0 +1,85 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import org.opencb.datastore.core.QueryResponse;
+import org.opencb.datastore.core.QueryResult;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * Replaces the QueryResponse envelope with a {@link SlimQueryResponse} when the request contains "metadata=false".
+ *
+ * The parameters are read from the request itself instead of EvaWSServer.queryOptions, because not every endpoint
+ * initializes the query options. Responses carrying an error, or whose payload is not a single QueryResult, are
+ * written with the full envelope regardless of the parameter.
+ */
+@ControllerAdvice
+public class SlimQueryResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String METADATA_PARAMETER = "metadata";
+
+    static final String COUNT_PARAMETER = "count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return QueryResponse.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof QueryResponse) || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        if (!"false".equals(servletRequest.getParameter(METADATA_PARAMETER))) {
+            return body;
+        }
+
+        QueryResponse queryResponse = (QueryResponse) body;
+        if (queryResponse.getError() != null && !queryResponse.getError().isEmpty()) {
+            return body;
+        }
+
+        List response = queryResponse.getResponse();
+        if (response == null || response.size() != 1 || !(response.get(0) instanceof QueryResult)) {
+            return body;
+        }
+
+        QueryResult queryResult = (QueryResult) response.get(0);
+        if (queryResult.getErrorMsg() != null && !queryResult.getErrorMsg().isEmpty()) {
+            return body;
+        }
+
+        boolean count = "true".equals(servletRequest.getParameter(COUNT_PARAMETER));
+        return new SlimQueryResponse<>(queryResult.getResult(), count ? queryResult.getNumTotalResults() : null);
+    }
+}
@@ -24,19 +24,23 @@ import org.opencb.datastore.core.QueryResponse;
 import org.opencb.datastore.core.QueryResult;
 import org.opencb.opencga.lib.auth.IllegalOpenCGACredentialsException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
+import uk.ac.ebi.eva.lib.cache.VariantStudySummaryCache;
 import uk.ac.ebi.eva.lib.metadata.StudyDgvaDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.StudyEvaproDBAdaptor;
 import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
-import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
 import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+import uk.ac.ebi.eva.server.Utils;
+import uk.ac.ebi.eva.server.exception.SpeciesException;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -57,23 +61,42 @@ public class StudyWSServer extends EvaWSServer {
     @Autowired
     private StudyEvaproDBAdaptor studyEvaproDbAdaptor;
     @Autowired
-    private VariantStudySummaryRepository variantStudySummaryRepository;
+    private VariantStudySummaryCache variantStudySummaryCache;
     @Autowired
     private VariantSourceEntityRepository variantSourceEntityRepository;
+    @Autowired
+    private JsonLinesWriter jsonLinesWriter;
 
+    /**
+     * Files of the study sorted by ID, without their samples and metadata unless they are included explicitly. They
+     * can be paged through with "limit" and the file ID of the last result of the previous page in "after".
+     */
     @RequestMapping(value = "/{study}/files", method = RequestMethod.GET)
 //    @ApiOperation(httpMethod = "GET", value = "Retrieves all the files from a study", response = QueryResponse.class)
     public QueryResponse getFilesByStudy(@PathVariable("study") String study,
                                          @RequestParam("species") String species,
+                                         @RequestParam(name = "after", required = false) String afterFileId,
+                                         @RequestParam(name = "include", required = false) List<String> include,
                                          HttpServletResponse response)
             throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
         initializeQuery();
 
+        List<String> exclude;
+        try {
+            exclude = Utils.getExcludedFileFields(include);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse(e.getMessage());
+        }
+
         MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
-        List variantSourceEntityList = variantSourceEntityRepository.findByStudyIdOrStudyName(study, study);
+        int limit = (int) queryOptions.get("limit");
+        List<VariantSourceEntity> variantSourceEntityList =
+                variantSourceEntityRepository.findByStudyIdOrStudyNameAfterFileId(study, afterFileId, limit, exclude);
         QueryResult queryResult;
 
-        if (variantSourceEntityList.size() == 0) {
+        // an empty page after the first one only means that there are no more files
+        if (variantSourceEntityList.size() == 0 && afterFileId == null) {
             queryResult = buildQueryResult(Collections.emptyList());
             queryResult.setErrorMsg("Study identifier not found");
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -84,16 +107,44 @@ public class StudyWSServer extends EvaWSServer {
         return setQueryResponse(queryResult);
     }
 
+    /**
+     * Same files as {@link #getFilesByStudy}, written one per line while they are read from the database
+     */
+    @RequestMapping(value = "/{study}/files", method = RequestMethod.GET, params = "stream=true",
+                    produces = JsonLinesWriter.CONTENT_TYPE)
+    public void streamFilesByStudy(@PathVariable("study") String study,
+                                   @RequestParam("species") String species,
+                                   @RequestParam(name = "include", required = false) List<String> include,
+                                   HttpServletResponse response) throws IOException {
+        List<String> exclude;
+        try {
+            exclude = Utils.getExcludedFileFields(include);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+        try (CloseableIterator<VariantSourceEntity> files =
+                     variantSourceEntityRepository.streamByStudyIdOrStudyName(study, exclude)) {
+            if (!files.hasNext()) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Study identifier not found");
+                return;
+            }
+            jsonLinesWriter.write(files, response);
+        }
+    }
+
     @RequestMapping(value = "/{study}/view", method = RequestMethod.GET)
 //    @ApiOperation(httpMethod = "GET", value = "The info of a study", response = QueryResponse.class)
     public QueryResponse getStudy(@PathVariable("study") String study,
                                   @RequestParam(name = "species") String species,
                                   HttpServletResponse response)
-            throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
+            throws UnknownHostException, IllegalOpenCGACredentialsException, IOException, SpeciesException {
         initializeQuery();
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
-        VariantStudySummary variantStudySummary = variantStudySummaryRepository.findByStudyNameOrStudyId(study);
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(getCataloguedDBName(species));
+        VariantStudySummary variantStudySummary = variantStudySummaryCache.findByStudyNameOrStudyId(species, study);
 
         QueryResult<VariantStudySummary> queryResult;
         if (variantStudySummary == null) {
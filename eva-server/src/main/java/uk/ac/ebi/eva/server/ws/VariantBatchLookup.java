@@ -0,0 +1,338 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Looks up many variants at once, given either as IDs (e.g. RS IDs) or as "chr:pos:ref" and "chr:pos:ref:alt"
+ * coordinates, so that a client with thousands of variants does not need one request per variant.
+ *
+ * The IDs are queried in chunks of at most {@link #MAX_CHUNK_SIZE} with an $in clause, and the coordinates in chunks
+ * of at most {@link #MAX_CHUNK_SIZE} positions, grouped by chromosome. Up to {@link #MAX_PARALLEL_CHUNKS} chunks are
+ * queried at the same time, in the order of their first token, and the result of each token is returned as soon as
+ * its chunk and the chunks of the tokens before it have been queried. Each request only has up to
+ * {@link #MAX_CHUNKS_PER_REQUEST} of them queued or running, and queues the next one as its results are read, so a
+ * request with many tokens does not hold back the chunks of the requests after it.
+ */
+@Component
+class VariantBatchLookup {
+
+    static final int MAX_CHUNK_SIZE = 500;
+
+    static final int MAX_PARALLEL_CHUNKS = 4;
+
+    static final int MAX_CHUNKS_PER_REQUEST = 2;
+
+    /**
+     * Variants found for one of the tokens of the request. The token is returned exactly as it was received.
+     */
+    public static class Result {
+
+        private final String token;
+
+        private final List<VariantEntity> variants;
+
+        Result(String token, List<VariantEntity> variants) {
+            this.token = token;
+            this.variants = variants;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public List<VariantEntity> getVariants() {
+            return variants;
+        }
+    }
+
+    private static class Coordinates {
+
+        private final String chromosome;
+
+        private final long start;
+
+        private final String reference;
+
+        private final String alternate;
+
+        Coordinates(String chromosome, long start, String reference, String alternate) {
+            this.chromosome = chromosome;
+            this.start = start;
+            this.reference = reference;
+            this.alternate = alternate;
+        }
+    }
+
+    @Autowired
+    private VariantEntityRepository variantEntityRepository;
+
+    private final ExecutorService executor;
+
+    VariantBatchLookup() {
+        this.executor = Executors.newFixedThreadPool(MAX_PARALLEL_CHUNKS, runnable -> {
+            Thread thread = new Thread(runnable, "variant-batch-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return whether the token is an ID or a valid "chr:pos:ref" or "chr:pos:ref:alt" string
+     */
+    static boolean isValidToken(String token) {
+        return token != null && !token.isEmpty() && (!isCoordinatesToken(token) || parseCoordinates(token) != null);
+    }
+
+    /**
+     * Queries the variants of all the tokens, which must be valid, returning one result per distinct token in the
+     * order they were given. The iterator blocks until the chunk of the next result has been queried, and closing it
+     * cancels the chunks not queried yet.
+     */
+    CloseableIterator<Result> lookup(String dbName, List<String> tokens, List<VariantEntityRepositoryFilter> filters,
+                                     List<String> exclude) {
+        List<String> distinctTokens = new ArrayList<>(new LinkedHashSet<>(tokens));
+        Map<String, Integer> chunkByToken = new HashMap<>();
+        List<Supplier<List<Result>>> lookups = new ArrayList<>();
+        List<String> idsChunk = null;
+        int idsChunkIndex = -1;
+        List<Map.Entry<String, Coordinates>> coordinatesChunk = null;
+        int coordinatesChunkIndex = -1;
+        for (String token : distinctTokens) {
+            if (isCoordinatesToken(token)) {
+                if (coordinatesChunk == null || coordinatesChunk.size() == MAX_CHUNK_SIZE) {
+                    List<Map.Entry<String, Coordinates>> chunk = new ArrayList<>();
+                    coordinatesChunk = chunk;
+                    coordinatesChunkIndex = lookups.size();
+                    lookups.add(() -> lookupCoordinates(chunk, filters, exclude));
+                }
+                coordinatesChunk.add(new AbstractMap.SimpleImmutableEntry<>(token, parseCoordinates(token)));
+                chunkByToken.put(token, coordinatesChunkIndex);
+            } else {
+                if (idsChunk == null || idsChunk.size() == MAX_CHUNK_SIZE) {
+                    List<String> chunk = new ArrayList<>();
+                    idsChunk = chunk;
+                    idsChunkIndex = lookups.size();
+                    lookups.add(() -> lookupIds(chunk, filters, exclude));
+                }
+                idsChunk.add(token);
+                chunkByToken.put(token, idsChunkIndex);
+            }
+        }
+
+        List<Callable<List<Result>>> chunks = new ArrayList<>(lookups.size());
+        for (Supplier<List<Result>> lookup : lookups) {
+            chunks.add(() -> MultiMongoDbFactory.supplyWithDatabase(dbName, lookup));
+        }
+        return new ChunkIterator(distinctTokens, chunkByToken, chunks, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Result> lookupIds(List<String> ids, List<VariantEntityRepositoryFilter> filters,
+                                   List<String> exclude) {
+        Map<String, List<VariantEntity>> variantsById = new HashMap<>();
+        Set<String> requestedIds = new HashSet<>(ids);
+        for (VariantEntity variant : variantEntityRepository.findByIdsInAndComplexFilters(ids, filters, exclude)) {
+            for (String id : variant.getIds()) {
+                if (requestedIds.contains(id)) {
+                    variantsById.computeIfAbsent(id, key -> new ArrayList<>()).add(variant);
+                }
+            }
+        }
+
+        List<Result> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            results.add(new Result(id, variantsById.getOrDefault(id, Collections.emptyList())));
+        }
+        return results;
+    }
+
+    private List<Result> lookupCoordinates(List<Map.Entry<String, Coordinates>> tokens,
+                                           List<VariantEntityRepositoryFilter> filters, List<String> exclude) {
+        Map<String, Set<Long>> startsByChromosome = new HashMap<>();
+        for (Map.Entry<String, Coordinates> token : tokens) {
+            startsByChromosome.computeIfAbsent(token.getValue().chromosome, chromosome -> new HashSet<>())
+                              .add(token.getValue().start);
+        }
+
+        Map<String, List<VariantEntity>> variantsByKey = new HashMap<>();
+        for (VariantEntity variant : variantEntityRepository.findByChromosomeAndStartInAndComplexFilters(
+                startsByChromosome, filters, exclude)) {
+            String key = getKey(variant.getChromosome(), variant.getStart(), variant.getReference());
+            variantsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(variant);
+            variantsByKey.computeIfAbsent(key + ":" + variant.getAlternate(), k -> new ArrayList<>()).add(variant);
+        }
+
+        List<Result> results = new ArrayList<>(tokens.size());
+        for (Map.Entry<String, Coordinates> token : tokens) {
+            Coordinates coordinates = token.getValue();
+            String key = getKey(coordinates.chromosome, coordinates.start, coordinates.reference);
+            if (coordinates.alternate != null) {
+                key += ":" + coordinates.alternate;
+            }
+            results.add(new Result(token.getKey(), variantsByKey.getOrDefault(key, Collections.emptyList())));
+        }
+        return results;
+    }
+
+    private static String getKey(String chromosome, long start, String reference) {
+        return chromosome + ":" + start + ":" + reference;
+    }
+
+    private static boolean isCoordinatesToken(String token) {
+        return token.contains(":");
+    }
+
+    private static Coordinates parseCoordinates(String token) {
+        String[] parts = token.split(":", -1);
+        if (parts.length < 3 || parts.length > 4 || parts[0].isEmpty()) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(parts[1]);
+            if (start < 0) {
+                return null;
+            }
+            return new Coordinates(parts[0], start, parts[2], parts.length > 3 ? parts[3] : null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the results in the order of the tokens, waiting for the chunk of each token the first time one of its
+     * tokens is reached. The results of a chunk are kept until their tokens are returned. The chunks are submitted in
+     * order, up to {@link #MAX_CHUNKS_PER_REQUEST} ahead of the chunk being read.
+     */
+    private static class ChunkIterator implements CloseableIterator<Result> {
+
+        private final List<String> tokens;
+
+        private final Map<String, Integer> chunkByToken;
+
+        private final List<Callable<List<Result>>> lookups;
+
+        private final ExecutorService executor;
+
+        private final List<Future<List<Result>>> chunks;
+
+        private final boolean[] queried;
+
+        private final Map<String, Result> pendingResults;
+
+        private int nextToken;
+
+        ChunkIterator(List<String> tokens, Map<String, Integer> chunkByToken, List<Callable<List<Result>>> lookups,
+                      ExecutorService executor) {
+            this.tokens = tokens;
+            this.chunkByToken = chunkByToken;
+            this.lookups = lookups;
+            this.executor = executor;
+            this.chunks = new ArrayList<>(lookups.size());
+            this.queried = new boolean[lookups.size()];
+            this.pendingResults = new HashMap<>();
+            submitUpTo(MAX_CHUNKS_PER_REQUEST);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextToken < tokens.size();
+        }
+
+        @Override
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String token = tokens.get(nextToken++);
+            int chunk = chunkByToken.get(token);
+            if (!queried[chunk]) {
+                // the chunks are reached in order, so the ones before this have been read already
+                submitUpTo(chunk + MAX_CHUNKS_PER_REQUEST);
+                for (Result result : getChunk(chunks.get(chunk))) {
+                    pendingResults.put(result.getToken(), result);
+                }
+                queried[chunk] = true;
+            }
+            return pendingResults.remove(token);
+        }
+
+        @Override
+        public void close() {
+            for (int i = 0; i < chunks.size(); i++) {
+                if (!queried[i]) {
+                    chunks.get(i).cancel(true);
+                }
+            }
+        }
+
+        /**
+         * Submits the chunks before the given one that have not been submitted yet
+         */
+        private void submitUpTo(int end) {
+            for (int i = chunks.size(); i < Math.min(end, lookups.size()); i++) {
+                chunks.add(executor.submit(lookups.get(i)));
+            }
+        }
+
+        private List<Result> getChunk(Future<List<Result>> chunk) {
+            try {
+                return chunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while looking up variants", e);
+            } catch (ExecutionException e) {
+                close();
+                throw new IllegalStateException("Could not look up variants", e.getCause());
+            }
+        }
+    }
+}
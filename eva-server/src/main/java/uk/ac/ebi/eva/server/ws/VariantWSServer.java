@@ -28,7 +28,9 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -37,8 +39,12 @@ import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.filter.FilterBuilder;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.index.AccessionIndex;
+import uk.ac.ebi.eva.lib.metrics.RequestPhase;
+import uk.ac.ebi.eva.lib.metrics.RequestPhaseTimer;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+import uk.ac.ebi.eva.lib.utils.HgvsNotation;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
 import uk.ac.ebi.eva.server.Utils;
 
@@ -48,6 +54,8 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Cristina Yenyxe Gonzalez Garcia <cyenyxe@ebi.ac.uk>
@@ -60,6 +68,17 @@ public class VariantWSServer extends EvaWSServer {
     @Autowired
     private VariantEntityRepository variantEntityRepository;
 
+    @Autowired
+    private VariantBatchLookup variantBatchLookup;
+
+    @Autowired
+    private AccessionIndex accessionIndex;
+
+    @Autowired
+    private JsonLinesWriter jsonLinesWriter;
+
+    static final int MAX_BATCH_VARIANT_IDS = 10000;
+
     protected static Logger logger = LoggerFactory.getLogger(FeatureWSServer.class);
 
     @RequestMapping(value = "/{variantId}/info", method = RequestMethod.GET)
@@ -81,7 +100,8 @@ public class VariantWSServer extends EvaWSServer {
             return setQueryResponse("Please specify a species");
         }
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+        String dbName = DBAdaptorConnector.getDBName(species);
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
 
         List<VariantEntity> variantEntities;
         Long numTotalResults;
@@ -97,28 +117,185 @@ public class VariantWSServer extends EvaWSServer {
                     .getVariantEntityRepositoryFilters(maf, polyphenScore, siftScore, studies, consequenceType
                     );
 
-            List<String> excludeMapped = new ArrayList<>();
-            if (exclude != null && !exclude.isEmpty()){
-                for (String e : exclude) {
-                    String docPath = Utils.getApiToMongoDocNameMap().get(e);
-                    if (docPath == null) {
-                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                        return setQueryResponse("Unrecognised exclude field: " + e);
-                    }
-                    excludeMapped.add(docPath);
-                }
+            List<String> excludeMapped;
+            try {
+                excludeMapped = mapExcludedFields(exclude);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return setQueryResponse(e.getMessage());
+            }
+
+            Map<String, Set<Long>> startsByChromosome = isCatalogued(species) ?
+                    accessionIndex.findStartsByChromosome(dbName, variantId) : null;
+            if (startsByChromosome == null || startsByChromosome.isEmpty()) {
+                // the index may not have noticed a load that added the ID to existing variants yet
+                variantEntities = variantEntityRepository.findByIdsAndComplexFilters(
+                        variantId, filters, excludeMapped, Utils.getPageRequest(queryOptions));
+                numTotalResults = variantEntityRepository.countByIdsAndComplexFilters(variantId, filters);
+            } else {
+                variantEntities = variantEntityRepository.findByIdAndChromosomeAndStartInAndComplexFilters(
+                        variantId, startsByChromosome, filters, excludeMapped, Utils.getPageRequest(queryOptions));
+                numTotalResults = variantEntityRepository.countByIdAndChromosomeAndStartInAndComplexFilters(
+                        variantId, startsByChromosome, filters);
             }
+        }
+
+        QueryResult<VariantEntity> queryResult = buildQueryResult(variantEntities, numTotalResults);
+        return setQueryResponse(queryResult);
+    }
+
+    /**
+     * Variants with a genomic HGVS notation, such as "11:g.180002G>A". Equivalent notations, like
+     * "chr11:g.180002g>a" or "NC_000011.9:g.180002G>A", are resolved to the same variants in a single query.
+     */
+    @RequestMapping(value = "/hgvs/{notation:.+}", method = RequestMethod.GET)
+    public QueryResponse getVariantsByHgvs(@PathVariable("notation") String notation,
+                                           @RequestParam(name = "studies", required = false) List<String> studies,
+                                           @RequestParam(name = "species") String species,
+                                           @RequestParam(name = "annot-ct", required = false)
+                                                   List<String> consequenceType,
+                                           @RequestParam(name = "maf", required = false) String maf,
+                                           @RequestParam(name = "polyphen", required = false) String polyphenScore,
+                                           @RequestParam(name = "sift", required = false) String siftScore,
+                                           @RequestParam(name = "exclude", required = false) List<String> exclude,
+                                           HttpServletResponse response) {
+        initializeQuery();
 
-            variantEntities = variantEntityRepository.findByIdsAndComplexFilters(variantId, filters, excludeMapped,
-                                                                                 Utils.getPageRequest(queryOptions));
+        if (species.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse("Please specify a species");
+        }
 
-            numTotalResults = variantEntityRepository.countByIdsAndComplexFilters(variantId, filters);
+        List<String> excludeMapped;
+        try {
+            excludeMapped = mapExcludedFields(exclude);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse(e.getMessage());
         }
 
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder()
+                .getVariantEntityRepositoryFilters(maf, polyphenScore, siftScore, studies, consequenceType);
+        Set<String> names = HgvsNotation.getEquivalentNames(notation);
+
+        List<VariantEntity> variantEntities = variantEntityRepository.findByHgvsAndComplexFilters(
+                names, filters, excludeMapped, Utils.getPageRequest(queryOptions));
+        Long numTotalResults = variantEntityRepository.countByHgvsAndComplexFilters(names, filters);
+
         QueryResult<VariantEntity> queryResult = buildQueryResult(variantEntities, numTotalResults);
         return setQueryResponse(queryResult);
     }
 
+    /**
+     * Variants annotated with a cross-reference, such as an Ensembl gene or transcript ID, or an HGNC gene name. The
+     * source of the cross-reference can be optionally specified, eg. "HGNC" or "ensemblGene".
+     */
+    @RequestMapping(value = "/xrefs/{xrefId:.+}", method = RequestMethod.GET)
+    public QueryResponse getVariantsByXref(@PathVariable("xrefId") String xrefId,
+                                           @RequestParam(name = "source", required = false) String source,
+                                           @RequestParam(name = "studies", required = false) List<String> studies,
+                                           @RequestParam(name = "species") String species,
+                                           @RequestParam(name = "annot-ct", required = false)
+                                                   List<String> consequenceType,
+                                           @RequestParam(name = "maf", required = false) String maf,
+                                           @RequestParam(name = "polyphen", required = false) String polyphenScore,
+                                           @RequestParam(name = "sift", required = false) String siftScore,
+                                           @RequestParam(name = "exclude", required = false) List<String> exclude,
+                                           HttpServletResponse response) {
+        initializeQuery();
+
+        if (species.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse("Please specify a species");
+        }
+
+        List<String> excludeMapped;
+        try {
+            excludeMapped = mapExcludedFields(exclude);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return setQueryResponse(e.getMessage());
+        }
+
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName(species));
+
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder()
+                .getVariantEntityRepositoryFilters(maf, polyphenScore, siftScore, studies, consequenceType);
+
+        List<VariantEntity> variantEntities = variantEntityRepository.findByXrefAndComplexFilters(
+                xrefId, source, filters, excludeMapped, Utils.getPageRequest(queryOptions));
+        Long numTotalResults = variantEntityRepository.countByXrefAndComplexFilters(xrefId, source, filters);
+
+        QueryResult<VariantEntity> queryResult = buildQueryResult(variantEntities, numTotalResults);
+        return setQueryResponse(queryResult);
+    }
+
+    /**
+     * Variants of many IDs and "chr:pos:ref" or "chr:pos:ref:alt" coordinates at once, sent as a JSON array of
+     * strings. One line is written per distinct ID or coordinates, in the order they were sent, with the variants found
+     * for it, as soon as they have been queried. Unlike the single variant endpoint, the filters and exclusions also
+     * apply to coordinates.
+     */
+    @RequestMapping(value = "/info", method = RequestMethod.POST, consumes = "application/json",
+                    produces = JsonLinesWriter.CONTENT_TYPE)
+    public void getVariantsByIds(@RequestBody List<String> variantIds,
+                                 @RequestParam(name = "studies", required = false) List<String> studies,
+                                 @RequestParam(name = "species") String species,
+                                 @RequestParam(name = "annot-ct", required = false) List<String> consequenceType,
+                                 @RequestParam(name = "maf", required = false) String maf,
+                                 @RequestParam(name = "polyphen", required = false) String polyphenScore,
+                                 @RequestParam(name = "sift", required = false) String siftScore,
+                                 @RequestParam(name = "exclude", required = false) List<String> exclude,
+                                 HttpServletResponse response) throws IOException {
+        if (species.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Please specify a species");
+            return;
+        }
+        if (variantIds == null || variantIds.isEmpty() || variantIds.size() > MAX_BATCH_VARIANT_IDS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Please provide between 1 and " + MAX_BATCH_VARIANT_IDS + " variant IDs");
+            return;
+        }
+        for (String variantId : variantIds) {
+            if (!VariantBatchLookup.isValidToken(variantId)) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid variant ID \"" + variantId +
+                        "\", please use an ID, chr:pos:ref or chr:pos:ref:alt");
+                return;
+            }
+        }
+
+        List<String> excludeMapped;
+        try {
+            excludeMapped = mapExcludedFields(exclude);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        List<VariantEntityRepositoryFilter> filters = new FilterBuilder()
+                .getVariantEntityRepositoryFilters(maf, polyphenScore, siftScore, studies, consequenceType);
+
+        try (CloseableIterator<VariantBatchLookup.Result> results = variantBatchLookup.lookup(
+                DBAdaptorConnector.getDBName(species), variantIds, filters, excludeMapped)) {
+            jsonLinesWriter.write(results, response);
+        }
+    }
+
+    private static List<String> mapExcludedFields(List<String> exclude) {
+        List<String> excludeMapped = new ArrayList<>();
+        if (exclude != null && !exclude.isEmpty()) {
+            for (String e : exclude) {
+                String docPath = Utils.getApiToMongoDocNameMap().get(e);
+                if (docPath == null) {
+                    throw new IllegalArgumentException("Unrecognised exclude field: " + e);
+                }
+                excludeMapped.add(docPath);
+            }
+        }
+        return excludeMapped;
+    }
+
     private List<VariantEntity> queryByCoordinatesAndAlleles(String chromosome, int start, String reference, String alternate) {
         if (alternate != null) {
             return variantEntityRepository.findByChromosomeAndStartAndReferenceAndAlternate(chromosome, start,
@@ -162,7 +339,10 @@ public class VariantWSServer extends EvaWSServer {
                 queryOptions.put("alternate", parts[3]);
             }
 
-            QueryResult queryResult = variantMongoDbAdaptor.getAllVariantsByRegion(region, queryOptions);
+            QueryResult queryResult;
+            try (RequestPhaseTimer.Scope scope = RequestPhaseTimer.time(RequestPhase.MONGO_FIND)) {
+                queryResult = variantMongoDbAdaptor.getAllVariantsByRegion(region, queryOptions);
+            }
             queryResult.setResult(Arrays.asList(queryResult.getNumResults() > 0));
             queryResult.setResultType(Boolean.class.getCanonicalName());
             return setQueryResponse(queryResult);
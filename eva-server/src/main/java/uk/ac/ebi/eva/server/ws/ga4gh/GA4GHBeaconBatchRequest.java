@@ -0,0 +1,60 @@
+package uk.ac.ebi.eva.server.ws.ga4gh;
+
+import java.util.List;
+
+/**
+ * Body of a batch beacon request: several (referenceName, start, allele) probes, all of them checked against the same
+ * datasets.
+ */
+public class GA4GHBeaconBatchRequest {
+
+    public static class Probe {
+
+        private String referenceName;
+
+        private Integer start;
+
+        private String allele;
+
+        Probe() {
+        }
+
+        public Probe(String referenceName, Integer start, String allele) {
+            this.referenceName = referenceName;
+            this.start = start;
+            this.allele = allele;
+        }
+
+        public String getReferenceName() {
+            return referenceName;
+        }
+
+        public Integer getStart() {
+            return start;
+        }
+
+        public String getAllele() {
+            return allele;
+        }
+    }
+
+    private List<Probe> probes;
+
+    private List<String> datasetIds;
+
+    GA4GHBeaconBatchRequest() {
+    }
+
+    public GA4GHBeaconBatchRequest(List<Probe> probes, List<String> datasetIds) {
+        this.probes = probes;
+        this.datasetIds = datasetIds;
+    }
+
+    public List<Probe> getProbes() {
+        return probes;
+    }
+
+    public List<String> getDatasetIds() {
+        return datasetIds;
+    }
+}
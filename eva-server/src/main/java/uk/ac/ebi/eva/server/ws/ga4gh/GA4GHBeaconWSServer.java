@@ -25,13 +25,16 @@ import org.opencb.opencga.lib.auth.IllegalOpenCGACredentialsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.index.BeaconFilterIndex;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
 import uk.ac.ebi.eva.server.ws.EvaWSServer;
@@ -39,7 +42,12 @@ import uk.ac.ebi.eva.server.ws.EvaWSServer;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value = "/v1/ga4gh", produces = "application/json")
@@ -49,8 +57,13 @@ public class GA4GHBeaconWSServer extends EvaWSServer {
     @Autowired
     private VariantEntityRepository variantEntityRepository;
 
+    @Autowired
+    private BeaconFilterIndex beaconFilterIndex;
+
     protected static Logger logger = LoggerFactory.getLogger(GA4GHBeaconWSServer.class);
 
+    static final int MAX_BATCH_PROBES = 1000;
+
     public GA4GHBeaconWSServer() { }
     
     @RequestMapping(value = "/beacon", method = RequestMethod.GET)
@@ -68,10 +81,19 @@ public class GA4GHBeaconWSServer extends EvaWSServer {
                                            "Please provide a positive number as start position");
         }
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName("hsapiens_grch37"));
+        String dbName = DBAdaptorConnector.getDBName("hsapiens_grch37");
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
+
+        boolean indel = isIndel(allele);
+        BeaconFilterIndex.Answer filterAnswer = indel ?
+                beaconFilterIndex.checkType(dbName, studies, chromosome, start, Variant.VariantType.INDEL.name()) :
+                beaconFilterIndex.checkAllele(dbName, studies, chromosome, start, allele);
+        if (filterAnswer == BeaconFilterIndex.Answer.ABSENT) {
+            return new GA4GHBeaconResponse(chromosome, start, allele, String.join(",", studies), false);
+        }
 
         List<VariantEntity> variantEntities;
-        if (allele.equalsIgnoreCase("INDEL")) {
+        if (indel) {
             variantEntities = variantEntityRepository.findByChromosomeAndStartAndTypeAndStudyIn(chromosome, start,
                                                                                                 Variant.VariantType.INDEL,
                                                                                                 studies);
@@ -79,8 +101,99 @@ public class GA4GHBeaconWSServer extends EvaWSServer {
             variantEntities = variantEntityRepository.findByChromosomeAndStartAndAltAndStudyIn(chromosome, start,
                                                                                                allele, studies);
         }
+        if (filterAnswer == BeaconFilterIndex.Answer.POSSIBLY_PRESENT) {
+            beaconFilterIndex.recordConfirmation(variantEntities.size() > 0);
+        }
 
         return new GA4GHBeaconResponse(chromosome, start, allele, String.join(",", studies),
                                        variantEntities.size() > 0);
     }
+
+    /**
+     * Same as the GET beacon for each of the probes, returning one response per probe in the order they were sent.
+     *
+     * The probes not rejected by the beacon filters are resolved with a single query, which asks for all the positions
+     * of each chromosome at once, instead of one query per probe.
+     */
+    @RequestMapping(value = "/beacon", method = RequestMethod.POST, consumes = "application/json")
+    public List<GA4GHBeaconResponse> beacon(@RequestBody GA4GHBeaconBatchRequest request,
+                                            HttpServletResponse response)
+            throws UnknownHostException, IllegalOpenCGACredentialsException, IOException {
+        initializeQuery();
+
+        List<GA4GHBeaconBatchRequest.Probe> probes = request.getProbes();
+        List<String> studies = request.getDatasetIds();
+        if (probes == null || probes.isEmpty() || studies == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Please provide the probes and datasetIds");
+            return null;
+        }
+        if (probes.size() > MAX_BATCH_PROBES) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Please provide at most " + MAX_BATCH_PROBES + " probes per request");
+            return null;
+        }
+        for (GA4GHBeaconBatchRequest.Probe probe : probes) {
+            if (probe.getReferenceName() == null || probe.getAllele() == null || probe.getStart() == null
+                    || probe.getStart() < 0) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Please provide a referenceName, an allele " +
+                        "and a positive number as start position for every probe");
+                return null;
+            }
+        }
+
+        String dbName = DBAdaptorConnector.getDBName("hsapiens_grch37");
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
+
+        BeaconFilterIndex.Answer[] filterAnswers = new BeaconFilterIndex.Answer[probes.size()];
+        Map<String, Set<Long>> startsByChromosome = new HashMap<>();
+        for (int i = 0; i < probes.size(); i++) {
+            GA4GHBeaconBatchRequest.Probe probe = probes.get(i);
+            filterAnswers[i] = isIndel(probe.getAllele()) ?
+                    beaconFilterIndex.checkType(dbName, studies, probe.getReferenceName(), probe.getStart(),
+                                                Variant.VariantType.INDEL.name()) :
+                    beaconFilterIndex.checkAllele(dbName, studies, probe.getReferenceName(), probe.getStart(),
+                                                  probe.getAllele());
+            if (filterAnswers[i] != BeaconFilterIndex.Answer.ABSENT) {
+                startsByChromosome.computeIfAbsent(probe.getReferenceName(), chromosome -> new HashSet<>())
+                                  .add(probe.getStart().longValue());
+            }
+        }
+
+        Set<String> foundKeys = new HashSet<>();
+        if (!startsByChromosome.isEmpty()) {
+            for (VariantLocus locus : variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(
+                    startsByChromosome, studies)) {
+                foundKeys.add(getProbeKey(locus.getChromosome(), locus.getStart(), locus.getAlternate(), false));
+                if (Variant.VariantType.INDEL.name().equals(locus.getType())) {
+                    foundKeys.add(getProbeKey(locus.getChromosome(), locus.getStart(), null, true));
+                }
+            }
+        }
+
+        String datasetIds = String.join(",", studies);
+        List<GA4GHBeaconResponse> responses = new ArrayList<>(probes.size());
+        for (int i = 0; i < probes.size(); i++) {
+            GA4GHBeaconBatchRequest.Probe probe = probes.get(i);
+            boolean exists = false;
+            if (filterAnswers[i] != BeaconFilterIndex.Answer.ABSENT) {
+                boolean indel = isIndel(probe.getAllele());
+                exists = foundKeys.contains(getProbeKey(probe.getReferenceName(), probe.getStart(),
+                                                        indel ? null : probe.getAllele(), indel));
+                if (filterAnswers[i] == BeaconFilterIndex.Answer.POSSIBLY_PRESENT) {
+                    beaconFilterIndex.recordConfirmation(exists);
+                }
+            }
+            responses.add(new GA4GHBeaconResponse(probe.getReferenceName(), probe.getStart(), probe.getAllele(),
+                                                  datasetIds, exists));
+        }
+        return responses;
+    }
+
+    private static boolean isIndel(String allele) {
+        return allele.equalsIgnoreCase("INDEL");
+    }
+
+    private static String getProbeKey(String chromosome, long start, String alternate, boolean indel) {
+        return (indel ? "t\t" : "a\t") + chromosome + "\t" + start + (indel ? "" : "\t" + alternate);
+    }
 }
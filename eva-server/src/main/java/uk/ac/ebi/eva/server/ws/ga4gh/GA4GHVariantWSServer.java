@@ -41,6 +41,7 @@ import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.filter.FilterBuilder;
 import uk.ac.ebi.eva.lib.filter.VariantEntityRepositoryFilter;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
 import uk.ac.ebi.eva.lib.utils.MultiMongoDbFactory;
@@ -53,6 +54,8 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value = "/v1/ga4gh/variants", produces = "application/json")
@@ -62,6 +65,9 @@ public class GA4GHVariantWSServer extends EvaWSServer {
     @Autowired
     private VariantEntityRepository variantEntityRepository;
 
+    @Autowired
+    private LongVariantIndex longVariantIndex;
+
     protected static Logger logger = LoggerFactory.getLogger(GA4GHVariantWSServer.class);
     
     public GA4GHVariantWSServer() { }
@@ -83,7 +89,8 @@ public class GA4GHVariantWSServer extends EvaWSServer {
             throws IllegalOpenCGACredentialsException, UnknownHostException, IOException {
         initializeQuery();
 
-        MultiMongoDbFactory.setDatabaseNameForCurrentThread(DBAdaptorConnector.getDBName("hsapiens_grch37"));
+        String dbName = DBAdaptorConnector.getDBName("hsapiens_grch37");
+        MultiMongoDbFactory.setDatabaseNameForCurrentThread(dbName);
 
         if (files != null && !files.isEmpty()) {
             queryOptions.put("files", files);
@@ -96,12 +103,21 @@ public class GA4GHVariantWSServer extends EvaWSServer {
         List<Region> regions = new ArrayList<>();
         regions.add(region);
 
-        List<VariantEntity> variantEntities = variantEntityRepository.findByRegionsAndComplexFilters(regions, filters,
-                                                                                                     null, pageRequest);
+        List<VariantEntity> variantEntities;
+        Long numTotalResults;
+        Map<String, Set<Long>> longVariantStarts = longVariantIndex.findStarts(dbName, regions);
+        if (longVariantStarts == null) {
+            variantEntities = variantEntityRepository.findByRegionsAndComplexFilters(regions, filters, null,
+                                                                                     pageRequest);
+            numTotalResults = variantEntityRepository.countByRegionsAndComplexFilters(regions, filters);
+        } else {
+            variantEntities = variantEntityRepository.findByRegionsAndComplexFilters(
+                    regions, LongVariantIndex.LONG_VARIANT_LENGTH, longVariantStarts, filters, null, pageRequest);
+            numTotalResults = variantEntityRepository.countByRegionsAndComplexFilters(
+                    regions, LongVariantIndex.LONG_VARIANT_LENGTH, longVariantStarts, filters);
+        }
         List<Variant> variants = Collections.unmodifiableList(variantEntities);
 
-        Long numTotalResults = variantEntityRepository.countByRegionsAndComplexFilters(regions, filters);
-
         // Convert Variant objects to GAVariant
         List<GAVariant> gaVariants = GAVariantFactory.create(variants);
         // Calculate the next page token
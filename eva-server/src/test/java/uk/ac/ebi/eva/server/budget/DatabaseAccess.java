@@ -0,0 +1,64 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.budget;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Database round trips and documents fetched during a test, with a breakdown by source to make failures readable.
+ */
+class DatabaseAccess {
+
+    private long roundTrips;
+
+    private long documents;
+
+    private final Map<String, long[]> breakdown = new TreeMap<>();
+
+    void add(String source, long roundTrips, long documents) {
+        if (roundTrips == 0 && documents == 0) {
+            return;
+        }
+        this.roundTrips += roundTrips;
+        this.documents += documents;
+        long[] sourceAccess = breakdown.computeIfAbsent(source, key -> new long[2]);
+        sourceAccess[0] += roundTrips;
+        sourceAccess[1] += documents;
+    }
+
+    long getRoundTrips() {
+        return roundTrips;
+    }
+
+    long getDocuments() {
+        return documents;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        description.append(roundTrips).append(" round trips and ").append(documents).append(" documents");
+        for (Map.Entry<String, long[]> source : breakdown.entrySet()) {
+            description.append("\n  ").append(source.getKey()).append(": ").append(source.getValue()[0])
+                       .append(" round trips, ").append(source.getValue()[1]).append(" documents");
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.budget;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.opencb.datastore.core.QueryResult;
+import org.springframework.data.domain.Slice;
+
+import uk.ac.ebi.eva.lib.index.AccessionIndex;
+import uk.ac.ebi.eva.lib.index.BeaconFilterIndex;
+import uk.ac.ebi.eva.lib.index.DensityIndex;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.metrics.MongoCommandMonitor;
+import uk.ac.ebi.eva.lib.metrics.MongoCommandSummary;
+import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the database round trips and the documents fetched while a test runs, from three sources:
+ *
+ * - Commands sent by the Mongo client, as reported by the {@link MongoCommandMonitor}. Working at the driver level
+ * counts every round trip, including the getMore commands of large results, whatever the template or repository
+ * that sent them.
+ * - Hibernate statistics: prepared statements and loaded entities.
+ * - Invocations of the mocked repositories and DB adaptors. Most web service tests replace the data access layer with
+ * mocks, so every call to one of them stands for a round trip. Stubbed answers are deterministic, so the documents
+ * are obtained by replaying each invocation against the mock.
+ */
+class DatabaseAccessCounter {
+
+    /**
+     * Mocked types that don't access the database themselves, e.g. they only create the adaptors that do, or they
+     * serve their contents from memory.
+     */
+    private static final List<Class<?>> NON_DATABASE_TYPES = Arrays.asList(DBAdaptorConnector.class,
+                                                                           SpeciesCatalogue.class,
+                                                                           BeaconFilterIndex.class,
+                                                                           AccessionIndex.class,
+                                                                           DensityIndex.class,
+                                                                           LongVariantIndex.class);
+
+    private final AtomicLong mongoRoundTrips = new AtomicLong();
+
+    private final AtomicLong mongoDocuments = new AtomicLong();
+
+    private final List<Statistics> hibernateStatistics = new ArrayList<>();
+
+    DatabaseAccessCounter(Collection<MongoCommandMonitor> mongoCommandMonitors,
+                          Collection<EntityManagerFactory> entityManagerFactories) {
+        for (MongoCommandMonitor monitor : mongoCommandMonitors) {
+            monitor.addObserver(this::onMongoCommand);
+        }
+        for (EntityManagerFactory entityManagerFactory : entityManagerFactories) {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.setStatisticsEnabled(true);
+            hibernateStatistics.add(statistics);
+        }
+    }
+
+    private void onMongoCommand(MongoCommandSummary summary) {
+        mongoRoundTrips.incrementAndGet();
+        mongoDocuments.addAndGet(summary.getReturnedDocuments());
+    }
+
+    void reset() {
+        mongoRoundTrips.set(0);
+        mongoDocuments.set(0);
+        hibernateStatistics.forEach(Statistics::clear);
+    }
+
+    DatabaseAccess getDatabaseAccess(Collection<Object> mocks) {
+        DatabaseAccess access = new DatabaseAccess();
+        access.add("mongo", mongoRoundTrips.get(), mongoDocuments.get());
+        for (Statistics statistics : hibernateStatistics) {
+            access.add("jpa", statistics.getPrepareStatementCount(), statistics.getEntityLoadCount());
+        }
+        for (Object mock : mocks) {
+            if (isDatabaseMock(mock)) {
+                // copy before replaying, which registers new invocations
+                List<Invocation> invocations = new ArrayList<>(Mockito.mockingDetails(mock).getInvocations());
+                for (Invocation invocation : invocations) {
+                    if (invocation.getMethod().getDeclaringClass() != Object.class) {
+                        access.add(getMockLabel(invocation), 1, countDocuments(replay(invocation)));
+                    }
+                }
+            }
+        }
+        return access;
+    }
+
+    private static boolean isDatabaseMock(Object mock) {
+        if (!Mockito.mockingDetails(mock).isMock()) {
+            return false;
+        }
+        for (Class<?> type : NON_DATABASE_TYPES) {
+            if (type.isInstance(mock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getMockLabel(Invocation invocation) {
+        return invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+    }
+
+    private static Object replay(Invocation invocation) {
+        try {
+            return invocation.getMethod().invoke(invocation.getMock(), invocation.getRawArguments());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not replay the invocation " + invocation, e);
+        }
+    }
+
+    /**
+     * Number of documents in a result, as returned by repositories (lists, pages, single entities) and DB adaptors
+     * (QueryResult). Counts and booleans are not documents.
+     */
+    static long countDocuments(Object result) {
+        if (result == null || result instanceof Number || result instanceof Boolean) {
+            return 0;
+        } else if (result instanceof QueryResult) {
+            return ((QueryResult) result).getNumResults();
+        } else if (result instanceof Slice) {
+            return ((Slice) result).getNumberOfElements();
+        } else if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof Map) {
+            return ((Map) result).size();
+        } else if (result instanceof Iterable) {
+            long count = 0;
+            for (Iterator iterator = ((Iterable) result).iterator(); iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+            return count;
+        } else if (result.getClass().isArray()) {
+            return Array.getLength(result);
+        } else {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.budget;
+
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.util.ReflectionUtils;
+
+import uk.ac.ebi.eva.lib.metrics.MongoCommandMonitor;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Fails the tests that exceed the {@link DatabaseBudget} they declare, so that regressions such as an extra count or
+ * a query per study are noticed in the build. Tests that access the database without declaring a budget fail too.
+ *
+ * It is registered for every test in META-INF/spring.factories. It has the lowest precedence, so that its
+ * afterTestMethod runs before the mocks are reset by Spring Boot.
+ */
+public class DatabaseBudgetTestExecutionListener extends AbstractTestExecutionListener {
+
+    private static final Map<ApplicationContext, DatabaseAccessCounter> counters =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        getCounter(testContext.getApplicationContext()).reset();
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        DatabaseAccess access = getCounter(testContext.getApplicationContext())
+                .getDatabaseAccess(getMocks(testContext.getTestInstance()));
+        DatabaseBudget budget = testContext.getTestMethod().getAnnotation(DatabaseBudget.class);
+        String test = testContext.getTestClass().getSimpleName() + "." + testContext.getTestMethod().getName();
+
+        if (budget == null) {
+            if (access.getRoundTrips() > 0) {
+                throw new AssertionError(test + " accesses the database without declaring a @DatabaseBudget: " +
+                                                 access);
+            }
+        } else if (access.getRoundTrips() > budget.roundTrips() || access.getDocuments() > budget.documents()) {
+            throw new AssertionError(test + " exceeds its database budget of " + budget.roundTrips() +
+                                             " round trips and " + budget.documents() + " documents: " + access);
+        }
+    }
+
+    private static DatabaseAccessCounter getCounter(ApplicationContext applicationContext) {
+        return counters.computeIfAbsent(applicationContext, context -> new DatabaseAccessCounter(
+                context.getBeansOfType(MongoCommandMonitor.class).values(),
+                context.getBeansOfType(EntityManagerFactory.class).values()));
+    }
+
+    private static List<Object> getMocks(Object testInstance) {
+        List<Object> mocks = new ArrayList<>();
+        ReflectionUtils.doWithFields(testInstance.getClass(), field -> {
+            ReflectionUtils.makeAccessible(field);
+            Object mock = field.get(testInstance);
+            if (mock != null) {
+                mocks.add(mock);
+            }
+        }, field -> field.isAnnotationPresent(MockBean.class));
+        return mocks;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.commons.models.data.FeatureCoordinates;
+import uk.ac.ebi.eva.lib.repository.FeatureRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "eva.admin.token=" + AdminWSServerTest.ADMIN_TOKEN)
+public class AdminWSServerTest {
+
+    static final String ADMIN_TOKEN = "test-token";
+
+    private static final String FEATURE_NAME = "FBXO2";
+
+    private static final String FEATURES_ENDPOINT = "endpoint=\"/v1/features/{featureIdOrName}\"";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private FeatureRepository featureRepository;
+
+    @Before
+    public void setup() {
+        FeatureCoordinates exampleFeature = new FeatureCoordinates("id", FEATURE_NAME, "feature", "chr", 0, 1);
+        given(featureRepository.findByIdOrName(FEATURE_NAME, FEATURE_NAME))
+                .willReturn(Collections.singletonList(exampleFeature));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testMetricsAreRecordedPerEndpoint() {
+        restTemplate.getForEntity("/v1/features/" + FEATURE_NAME + "?species=hsapiens_grch37", String.class);
+        restTemplate.getForEntity("/v1/features/" + FEATURE_NAME + "?species=", String.class);
+
+        ResponseEntity<String> response = getAdminEndpoint("/admin/metrics", ADMIN_TOKEN);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentType().toString().startsWith("text/plain"));
+
+        String metrics = response.getBody();
+        assertTrue(metrics.contains("# TYPE eva_http_request_duration_seconds histogram"));
+        assertTrue(metrics.contains("eva_http_request_duration_seconds_count{" + FEATURES_ENDPOINT
+                                            + ",method=\"GET\",species=\"hsapiens_grch37\",status=\"200\"}"));
+        assertTrue(metrics.contains("eva_http_errors_total{" + FEATURES_ENDPOINT + ",species=\"\",status=\"400\"}"));
+        assertTrue(metrics.contains("eva_http_request_phase_duration_seconds_count{" + FEATURES_ENDPOINT
+                                            + ",phase=\"serialization\"}"));
+        assertTrue(metrics.contains("eva_http_response_size_bytes_count{" + FEATURES_ENDPOINT + "}"));
+        assertTrue(metrics.contains("eva_http_requests_in_flight{" + FEATURES_ENDPOINT + "} 0"));
+
+        assertFalse(metrics.contains("endpoint=\"/admin/metrics\""));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testMetricsWithoutTokenAreForbidden() {
+        assertEquals(HttpStatus.FORBIDDEN, getAdminEndpoint("/admin/metrics", null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, getAdminEndpoint("/admin/metrics", "wrong-token").getStatusCode());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testSlowQueriesWithoutTokenAreForbidden() {
+        assertEquals(HttpStatus.FORBIDDEN, getAdminEndpoint("/admin/slow-queries", null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, getAdminEndpoint("/admin/slow-queries", "wrong-token").getStatusCode());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testSlowQueriesWithToken() {
+        ResponseEntity<String> response = getAdminEndpoint("/admin/slow-queries", ADMIN_TOKEN);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().startsWith("["));
+    }
+
+    private ResponseEntity<String> getAdminEndpoint(String url, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (token != null) {
+            headers.set(AdminTokens.ADMIN_TOKEN_HEADER, token);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
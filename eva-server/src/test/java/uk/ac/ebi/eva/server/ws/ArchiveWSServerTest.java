@@ -32,6 +32,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -39,6 +41,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.lib.metadata.ArchiveDgvaDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.ArchiveEvaproDBAdaptor;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
 import uk.ac.ebi.eva.lib.metadata.StudyDgvaDBAdaptor;
 import uk.ac.ebi.eva.lib.metadata.StudyEvaproDBAdaptor;
 import uk.ac.ebi.eva.lib.models.Assembly;
@@ -46,12 +49,15 @@ import uk.ac.ebi.eva.lib.models.VariantStudy;
 import uk.ac.ebi.eva.lib.repository.VariantStudySummaryRepository;
 import uk.ac.ebi.eva.lib.repository.projections.VariantStudySummary;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+import uk.ac.ebi.eva.lib.utils.QueryOptionsConstants;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -98,8 +104,14 @@ public class ArchiveWSServerTest {
     @MockBean
     private VariantStudySummaryRepository variantStudySummaryRepository;
 
+    @MockBean
+    private SpeciesCatalogue speciesCatalogue;
+
     @Before
     public void setup() throws URISyntaxException, IOException, IllegalOpenCGACredentialsException {
+        given(speciesCatalogue.getDBName(anyString())).willAnswer(
+                invocation -> DBAdaptorConnector.getDBName((String) invocation.getArguments()[0]));
+
         // species test data
         Assembly grch37 = new Assembly("GCA_000001405.1", "GCA_000001405", "1", "GRCh37", "grc3h7", 9606, "Human", "Homo Sapiens", "hsapiens", "human");
 
@@ -134,13 +146,12 @@ public class ArchiveWSServerTest {
         Map<String, Long> studiesGroupedBySpeciesName = Stream.of(study1, study2, study3).collect(
                 Collectors.groupingBy(VariantStudy::getSpeciesCommonName,
                                       Collectors.counting()));
-        given(archiveEvaproDBAdaptor.countStudiesPerSpecies(anyObject()))
-                .willReturn(encapsulateInQueryResult(studiesGroupedBySpeciesName.entrySet().toArray()));
         Map<String, Long> studiesGroupedByStudyType = Stream.of(study1, study2, study3).map(s -> s.getType().toString())
                                                        .collect(Collectors.groupingBy(Function.identity(),
                                                                                       Collectors.counting()));
-        given(archiveEvaproDBAdaptor.countStudiesPerType(anyObject()))
-                .willReturn(encapsulateInQueryResult(studiesGroupedByStudyType.entrySet().toArray()));
+        given(archiveEvaproDBAdaptor.countStudiesPerSpeciesAndType(anyObject()))
+                .willReturn(encapsulateInQueryResult(
+                        buildStudyCounts(studiesGroupedBySpeciesName, studiesGroupedByStudyType)));
 
 
         VariantStudy svStudy1 = new VariantStudy("Human SV Test study 1", "svS1", null, "SV study 1 description",
@@ -164,15 +175,14 @@ public class ArchiveWSServerTest {
 
         Map<String, Long> svStudiesGroupedBySpeciesName = Stream.of(svStudy1, svStudy2, svStudy3)
                 .collect(Collectors.groupingBy(VariantStudy::getSpeciesCommonName, Collectors.counting()));
-        given(archiveDgvaDBAdaptor.countStudiesPerSpecies(anyObject()))
-                .willReturn(encapsulateInQueryResult(svStudiesGroupedBySpeciesName.entrySet().toArray()));
 
         Map<String, Long> svStudiesGroupedByStudyType = Stream.of(svStudy1, svStudy2, svStudy3)
                                                               .map(s -> s.getType().toString())
                                                               .collect(Collectors.groupingBy(Function.identity(),
                                                                                              Collectors.counting()));
-        given(archiveDgvaDBAdaptor.countStudiesPerType(anyObject()))
-                .willReturn(encapsulateInQueryResult(svStudiesGroupedByStudyType.entrySet().toArray()));
+        given(archiveDgvaDBAdaptor.countStudiesPerSpeciesAndType(anyObject()))
+                .willReturn(encapsulateInQueryResult(
+                        buildStudyCounts(svStudiesGroupedBySpeciesName, svStudiesGroupedByStudyType)));
 
 
         given(dbAdaptorConnector.getStudyDBAdaptor("hsapiens_grch37")).willReturn(studyMongoDBAdaptor);
@@ -191,12 +201,21 @@ public class ArchiveWSServerTest {
         return studies;
     }
 
+    private Map<String, Map<String, Long>> buildStudyCounts(Map<String, Long> speciesCounts,
+                                                            Map<String, Long> typeCounts) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        counts.put(QueryOptionsConstants.SPECIES, speciesCounts);
+        counts.put(QueryOptionsConstants.TYPE, typeCounts);
+        return counts;
+    }
+
     private <T> QueryResult<T> encapsulateInQueryResult(T... results) {
         return new QueryResult<>(null, 0, results.length, results.length, null, null, Arrays.asList(results));
     }
 
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testCountSpecies() throws URISyntaxException {
         String url = "/v1/meta/species/count";
         ResponseEntity<QueryResponse<QueryResult<Integer>>> response = restTemplate.exchange(
@@ -213,6 +232,22 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetSpeciesNotModified() throws URISyntaxException {
+        given(speciesCatalogue.getETag()).willReturn("\"abc\"");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"abc\"");
+        for (String url : Arrays.asList("/v1/meta/species/list", "/v1/meta/species/count")) {
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers),
+                                                                    String.class);
+            assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+            assertEquals("\"abc\"", response.getHeaders().getETag());
+        }
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 3)
     public void testGetSpecies() throws URISyntaxException {
         String url = "/v1/meta/species/list";
         ResponseEntity<QueryResponse<QueryResult<Assembly>>> response = restTemplate.exchange(
@@ -243,12 +278,14 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testCountFiles() throws URISyntaxException {
         String url = "/v1/meta/files/count";
         assertGetCount(url, 5);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testCountStudies() throws URISyntaxException {
         String url = "/v1/meta/studies/count";
         assertGetCount(url, 3);
@@ -270,6 +307,7 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
     public void testGetBrowsableStudiesNoSpecies() throws URISyntaxException {
         String url = "/v1/meta/studies/list";
         ResponseEntity<QueryResponse<QueryResult<VariantStudySummary>>> response = restTemplate.exchange(
@@ -282,6 +320,7 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testGetBrowsableStudiesBySpecies() throws URISyntaxException {
         String url = "/v1/meta/studies/list?species=hsapiens_grch37";
         ResponseEntity<QueryResponse<QueryResult<VariantStudySummary>>> response = restTemplate.exchange(
@@ -303,12 +342,14 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 3)
     public void testGetStudies() throws URISyntaxException {
         String url = "/v1/meta/studies/all";
         assertGetStudiesAll(url);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 3)
     public void testGetStudiesStructural() throws URISyntaxException {
         String url = "/v1/meta/studies/all?structural=true";
         assertGetStudiesAll(url);
@@ -356,12 +397,14 @@ public class ArchiveWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testGetStudiesStats() throws URISyntaxException {
         String url = "/v1/meta/studies/stats";
         assertGetStudiesStats(url);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testGetStudiesStatsStructural() throws URISyntaxException {
         String url = "/v1/meta/studies/stats?structural=true";
         assertGetStudiesStats(url);
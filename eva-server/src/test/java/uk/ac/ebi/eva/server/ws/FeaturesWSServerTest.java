@@ -36,6 +36,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.data.FeatureCoordinates;
 import uk.ac.ebi.eva.lib.repository.FeatureRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -43,7 +44,9 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 
 @RunWith(SpringRunner.class)
@@ -66,6 +69,7 @@ public class FeaturesWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testGetFeatures() throws URISyntaxException {
         String url = "/v1/features/" + FEATURE_NAME + "?species=hsapiens_grch37";
         ResponseEntity<QueryResponse<QueryResult<FeatureCoordinates>>> response = restTemplate.exchange(
@@ -83,6 +87,28 @@ public class FeaturesWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testGetFeaturesWithServerTiming() {
+        String url = "/v1/features/" + FEATURE_NAME + "?species=hsapiens_grch37&debug=true";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        String serverTiming = response.getHeaders().getFirst("Server-Timing");
+        assertNotNull(serverTiming);
+        assertTrue(serverTiming.matches(".*serialization;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}$"));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testGetFeaturesWithoutServerTiming() {
+        String url = "/v1/features/" + FEATURE_NAME + "?species=hsapiens_grch37";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("Server-Timing"));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
     public void testGetFeaturesWithEmptySpeciesShouldFail() throws URISyntaxException {
         String url = "/v1/features/" + FEATURE_NAME + "?species=";
         ResponseEntity<QueryResponse<QueryResult<FeatureCoordinates>>> response = restTemplate.exchange(
@@ -96,6 +122,7 @@ public class FeaturesWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
     public void testGetFeaturesWithoutSpeciesShouldFail() throws URISyntaxException {
         String url = "/v1/features/" + FEATURE_NAME;
         ResponseEntity<QueryResponse<QueryResult<FeatureCoordinates>>> response = restTemplate.exchange(
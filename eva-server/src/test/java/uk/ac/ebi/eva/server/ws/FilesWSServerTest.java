@@ -18,6 +18,7 @@
  */
 package uk.ac.ebi.eva.server.ws;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,6 +32,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -38,16 +40,24 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -75,10 +85,15 @@ public class FilesWSServerTest {
                 variantGlobalStats);
         List<VariantSourceEntity> variantSourceEntities = Collections.singletonList(variantSourceEntity);
 
-        given(variantSourceEntityRepository.findAll()).willReturn(variantSourceEntities);
+        given(variantSourceEntityRepository.findByStudyIdOrStudyNameAfterFileId(anyString(), anyString(), anyInt(),
+                                                                                anyListOf(String.class)))
+                .willReturn(variantSourceEntities);
+        given(variantSourceEntityRepository.streamByStudyIdOrStudyName(anyString(), anyListOf(String.class)))
+                .willAnswer(invocation -> new ListCloseableIterator<>(variantSourceEntities));
     }
     
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testGetFiles() throws URISyntaxException {
         String url = "/v1/files/all?species=hsapiens_grch37";
         ResponseEntity<QueryResponse<QueryResult<VariantSourceEntity>>> response = restTemplate.exchange(
@@ -104,4 +119,63 @@ public class FilesWSServerTest {
         }
     }
 
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testGetFilesPage() throws URISyntaxException {
+        String url = "/v1/files/all?species=hsapiens_grch37&limit=5&after=previous_fid&include=metadata";
+        ResponseEntity<QueryResponse<QueryResult<VariantSourceEntity>>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<QueryResponse<QueryResult<VariantSourceEntity>>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        verify(variantSourceEntityRepository).findByStudyIdOrStudyNameAfterFileId(
+                null, "previous_fid", 5, Collections.singletonList("samplesPosition"));
+    }
+
+    @Test
+    public void testGetFilesUnknownIncludeField() throws URISyntaxException {
+        String url = "/v1/files/all?species=hsapiens_grch37&include=unknown";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testStreamFiles() throws Exception {
+        String url = "/v1/files/all?species=hsapiens_grch37&stream=true";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentType().toString().startsWith(JsonLinesWriter.CONTENT_TYPE));
+
+        String[] lines = response.getBody().trim().split("\n");
+        assertEquals(1, lines.length);
+        assertEquals(FILE_ID, new ObjectMapper().readTree(lines[0]).get("fileId").asText());
+
+        verify(variantSourceEntityRepository).streamByStudyIdOrStudyName(
+                null, Arrays.asList("samplesPosition", "metadata"));
+    }
+
+    private static class ListCloseableIterator<T> implements CloseableIterator<T> {
+
+        private final Iterator<T> iterator;
+
+        ListCloseableIterator(List<T> list) {
+            this.iterator = list.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
 }
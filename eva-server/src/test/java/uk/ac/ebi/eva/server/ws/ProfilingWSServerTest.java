@@ -0,0 +1,94 @@
+/*
+ * European Variation Archive (EVA) - Open-access database of all types of genetic
+ * variation data from all species
+ *
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.server.ws;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.ClassUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "eva.admin.token=" + ProfilingWSServerTest.ADMIN_TOKEN)
+public class ProfilingWSServerTest {
+
+    static final String ADMIN_TOKEN = "test-token";
+
+    private static final byte[] JFR_MAGIC = "FLR\0".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Before
+    public void setUp() {
+        assumeTrue(ClassUtils.isPresent("jdk.jfr.Recording", null));
+    }
+
+    @Test
+    public void testRecordingWithoutTokenIsForbidden() {
+        ResponseEntity<byte[]> response = record(1, null);
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testRecordingWithWrongTokenIsForbidden() {
+        ResponseEntity<byte[]> response = record(1, "wrong-token");
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testRecordingDurationIsBounded() {
+        ResponseEntity<byte[]> response = record(ProfilingWSServer.MAX_DURATION_SECONDS + 1, ADMIN_TOKEN);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testRecordingReturnsJfrFile() {
+        ResponseEntity<byte[]> response = record(1, ADMIN_TOKEN);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        assertArrayEquals(JFR_MAGIC, Arrays.copyOf(response.getBody(), JFR_MAGIC.length));
+    }
+
+    private ResponseEntity<byte[]> record(int durationSeconds, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (token != null) {
+            headers.set(AdminTokens.ADMIN_TOKEN_HEADER, token);
+        }
+        return restTemplate.exchange("/admin/profiling/recording?duration=" + durationSeconds, HttpMethod.POST,
+                                     new HttpEntity<>(headers), byte[].class);
+    }
+}
@@ -18,10 +18,14 @@
  */
 package uk.ac.ebi.eva.server.ws;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.opencb.biodata.models.feature.Region;
+import org.opencb.biodata.models.variant.VariantSource;
+import org.opencb.biodata.models.variant.VariantStudy;
 import org.opencb.datastore.core.QueryResponse;
 import org.opencb.datastore.core.QueryResult;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,27 +33,55 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.index.DensityIndex;
+import uk.ac.ebi.eva.lib.index.LongVariantIndex;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
+import uk.ac.ebi.eva.lib.models.DensityBin;
+import uk.ac.ebi.eva.lib.models.SampleGenotypes;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.ChromosomeSummary;
+import uk.ac.ebi.eva.lib.repository.projections.VariantChunks;
+import uk.ac.ebi.eva.lib.repository.projections.VariantGenotypes;
+import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.AdditionalMatchers.or;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -61,8 +93,24 @@ public class RegionWSServerTest {
     @MockBean
     private VariantEntityRepository variantEntityRepository;
 
+    @MockBean
+    private DensityIndex densityIndex;
+
+    @MockBean
+    private LongVariantIndex longVariantIndex;
+
+    @MockBean
+    private VariantSourceEntityRepository variantSourceEntityRepository;
+
+    @MockBean
+    private SpeciesCatalogue speciesCatalogue;
+
     @Before
     public void setUp() throws Exception {
+        given(speciesCatalogue.isKnownSpecies(anyString())).willReturn(true);
+        given(speciesCatalogue.getDBName(anyString())).willAnswer(
+                invocation -> DBAdaptorConnector.getDBName((String) invocation.getArguments()[0]));
+
         VariantEntity variantEntity = new VariantEntity("chr1", 1000, 1005, "reference", "alternate");
 
         List<Region> oneRegion = Arrays.asList(
@@ -79,23 +127,394 @@ public class RegionWSServerTest {
         given(variantEntityRepository
                 .findByRegionsAndComplexFilters(not(or(eq(oneRegion), eq(twoRegions))), any(), any(), any()))
                 .willReturn(Collections.emptyList());
+
+        given(longVariantIndex.findStarts(any(), any())).willReturn(null);
+
+        given(variantEntityRepository.count()).willReturn(3L);
+        given(variantEntityRepository.findChromosomeSummaries()).willReturn(Arrays.asList(
+                new ChromosomeSummary("1", 2, 1000, 3000),
+                new ChromosomeSummary("X", 1, 500, 500)));
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testGetVariantsByRegion() throws URISyntaxException {
         testGetVariantsByRegionHelper("20:60000-62000", 1);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 2)
     public void testGetVariantsByRegions() throws URISyntaxException {
         testGetVariantsByRegionHelper("20:60000-61000,20:61500-62500", 2);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 0)
     public void testGetVariantsByNonExistingRegion() throws URISyntaxException {
         testGetVariantsByRegionHelper("21:8000-9000", 0);
     }
 
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionWithLongVariantIndex() {
+        List<Region> regions = Collections.singletonList(new Region("20", 60000, 62000));
+        Map<String, Set<Long>> longVariantStarts = Collections.singletonMap("20", Collections.singleton(10000L));
+        given(longVariantIndex.findStarts(any(), eq(regions))).willReturn(longVariantStarts);
+        given(variantEntityRepository.findByRegionsAndComplexFilters(
+                eq(regions), eq(LongVariantIndex.LONG_VARIANT_LENGTH), eq(longVariantStarts), any(), any(), any()))
+                .willReturn(Collections.singletonList(new VariantEntity("20", 10000, 70000, "reference", "alternate")));
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(regions), eq(LongVariantIndex.LONG_VARIANT_LENGTH), eq(longVariantStarts), any()))
+                .willReturn(1L);
+
+        assertEquals(1, testGetVariantsCountHelper("20:60000-62000", ""));
+        verify(variantEntityRepository, never()).findByRegionsAndComplexFilters(eq(regions), any(), any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionApproximateCount() {
+        given(variantEntityRepository.findByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any(), any(), any()))
+                .willReturn(Collections.singletonList(new VariantEntity("20", 5000, 5000, "A", "T")));
+        given(densityIndex.countChunks(any(), eq("20"), eq(1L), eq(2L), any())).willReturn(40L);
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Arrays.asList(new Region("20", 5000, 9999), new Region("20", 30000, 35000))), any()))
+                .willReturn(2L);
+
+        assertEquals(42, testGetVariantsCountHelper("20:5000-35000", "&approximateCount=true"));
+        verify(variantEntityRepository, never()).countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionApproximateCountWithoutIndex() {
+        given(variantEntityRepository.findByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any(), any(), any()))
+                .willReturn(Collections.singletonList(new VariantEntity("20", 5000, 5000, "A", "T")));
+        given(densityIndex.countChunks(any(), any(), anyLong(), anyLong(), any())).willReturn(null);
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any())).willReturn(45L);
+
+        assertEquals(45, testGetVariantsCountHelper("20:5000-35000", "&approximateCount=true"));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionApproximateCountWithFilters() {
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 60000, 62000))), any())).willReturn(1L);
+
+        assertEquals(1, testGetVariantsCountHelper("20:60000-62000", "&approximateCount=true&maf=<0.1"));
+        verify(densityIndex, never()).countChunks(any(), any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionApproximateCountWithSeveralStudies() {
+        given(variantEntityRepository.findByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any(), any(), any()))
+                .willReturn(Collections.singletonList(new VariantEntity("20", 5000, 5000, "A", "T")));
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 5000, 35000))), any())).willReturn(45L);
+
+        // a variant in both studies would be counted twice from the chunks
+        assertEquals(45, testGetVariantsCountHelper("20:5000-35000",
+                                                    "&approximateCount=true&studies=PRJEB1,PRJEB2"));
+        verify(densityIndex, never()).countChunks(any(), any(), anyLong(), anyLong(), any());
+    }
+
+    private long testGetVariantsCountHelper(String testRegion, String parameters) {
+        String url = "/v1/segments/" + testRegion + "/variants?species=mmusculus_grcm38" + parameters;
+        ResponseEntity<QueryResponse<QueryResult<VariantEntity>>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<QueryResponse<QueryResult<VariantEntity>>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getResponse().get(0).getResult().size());
+        return response.getBody().getResponse().get(0).getNumTotalResults();
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionOfSpeciesNotInCatalogue() {
+        given(speciesCatalogue.isKnownSpecies("mmusculus_grcm38")).willReturn(false);
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 60000, 62000))), any())).willReturn(1L);
+
+        assertEquals(1, testGetVariantsCountHelper("20:60000-62000", "&approximateCount=true"));
+        verify(longVariantIndex, never()).findStarts(any(), any());
+        verify(densityIndex, never()).countChunks(any(), any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByRegionWithoutCatalogue() {
+        given(speciesCatalogue.isKnownSpecies(anyString()))
+                .willThrow(new DataAccessResourceFailureException("Could not connect to the metadata database"));
+        given(variantEntityRepository.countByRegionsAndComplexFilters(
+                eq(Collections.singletonList(new Region("20", 60000, 62000))), any())).willReturn(1L);
+
+        assertEquals(1, testGetVariantsCountHelper("20:60000-62000", ""));
+        verify(longVariantIndex, never()).findStarts(any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetChromosomesOfUnknownSpecies() {
+        given(speciesCatalogue.getDBName("unknown_species"))
+                .willThrow(new IllegalArgumentException("Species unknown_species is not in the catalogue"));
+
+        ResponseEntity<QueryResponse> response = restTemplate.getForEntity("/v1/segments?species=unknown_species",
+                                                                           QueryResponse.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Species unknown_species is not in the catalogue", response.getBody().getError());
+    }
+
+    /**
+     * The chromosomes are cached for the whole application context, so this is the only test that may request them
+     */
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 2)
+    public void testGetChromosomes() throws URISyntaxException {
+        String url = "/v1/segments?species=mmusculus_grcm38";
+        for (int i = 0; i < 2; i++) {
+            ResponseEntity<QueryResponse<QueryResult<String>>> response = restTemplate.exchange(
+                    url, HttpMethod.GET, null, new ParameterizedTypeReference<QueryResponse<QueryResult<String>>>() {});
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(Arrays.asList("1", "X"), response.getBody().getResponse().get(0).getResult());
+        }
+
+        ResponseEntity<QueryResponse<QueryResult<ChromosomeSummary>>> response = restTemplate.exchange(
+                url + "&summary=true", HttpMethod.GET, null,
+                new ParameterizedTypeReference<QueryResponse<QueryResult<ChromosomeSummary>>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<ChromosomeSummary> summaries = response.getBody().getResponse().get(0).getResult();
+        assertEquals(2, summaries.size());
+        assertEquals("1", summaries.get(0).getChromosome());
+        assertEquals(2, summaries.get(0).getVariantsCount());
+        assertEquals(3000, summaries.get(0).getMaxEnd());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetVariantDensityFromIndex() {
+        given(densityIndex.getBins(any(), eq("20"), eq(60000L), eq(61999L), eq(1000), eq(true), eq(false)))
+                .willReturn(Arrays.asList(
+                        new DensityBin("20", 60000, 60999, 3, Collections.singletonMap("SNV", 3L), null),
+                        new DensityBin("20", 61000, 61999, 0, Collections.emptyMap(), null)));
+
+        List<DensityBin> bins = testGetVariantDensityHelper("20:60000-61999", "&binSize=1000&groupBy=type");
+        assertEquals(2, bins.size());
+        assertEquals(3, bins.get(0).getCount());
+        assertEquals(Long.valueOf(3), bins.get(0).getTypes().get("SNV"));
+        assertEquals(61000, bins.get(1).getStart());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testGetVariantDensityWithoutIndex() {
+        given(densityIndex.getBins(any(), eq("20"), eq(60000L), eq(61999L), eq(1000), eq(false), eq(true)))
+                .willReturn(null);
+        Iterator<VariantChunks> variants = Arrays.asList(
+                new VariantChunks("20", Arrays.asList("20_60_1k", "20_6_10k"), "SNV", Arrays.asList("S1", "S2")),
+                new VariantChunks("20", Arrays.asList("20_61_1k", "20_6_10k"), "SNV", Arrays.asList("S1")))
+                .iterator();
+        given(variantEntityRepository.streamVariantChunksByChromosomeAndStartBetween(eq("20"), eq(60000L),
+                                                                                    eq(61999L)))
+                .willReturn(new CloseableIterator<VariantChunks>() {
+                    @Override
+                    public boolean hasNext() {
+                        return variants.hasNext();
+                    }
+
+                    @Override
+                    public VariantChunks next() {
+                        return variants.next();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                });
+
+        List<DensityBin> bins = testGetVariantDensityHelper("20:60000-61999", "&binSize=1000&groupBy=study");
+        assertEquals(2, bins.size());
+        assertEquals(1, bins.get(0).getCount());
+        assertEquals(Long.valueOf(1), bins.get(0).getStudies().get("S2"));
+        assertEquals(Long.valueOf(1), bins.get(1).getStudies().get("S1"));
+        assertNull(bins.get(1).getStudies().get("S2"));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 0)
+    public void testGetVariantDensityWithoutIndexOnlyReadsTheRegion() {
+        given(densityIndex.getBins(any(), any(), anyLong(), anyLong(), anyInt(), anyBoolean(), anyBoolean()))
+                .willReturn(null);
+        given(variantEntityRepository.streamVariantChunksByChromosomeAndStartBetween(eq("20"), eq(999001L),
+                                                                                    eq(1000999L)))
+                .willReturn(toCloseableIterator(Collections.<VariantChunks>emptyIterator()));
+
+        // the two bins span 2 Mb, but only the 2 kb of the region are read
+        List<DensityBin> bins = testGetVariantDensityHelper("20:999001-1000999", "&binSize=1000000");
+        assertEquals(2, bins.size());
+        assertEquals(0, bins.get(0).getCount());
+        assertEquals(1000000, bins.get(1).getStart());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetVariantDensityInvalidBinSize() {
+        String url = "/v1/segments/20:60000-61999/density?species=mmusculus_grcm38&binSize=1500";
+        ResponseEntity<QueryResponse> response = restTemplate.getForEntity(url, QueryResponse.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetVariantDensityWithoutIndexTooLong() {
+        given(densityIndex.getBins(any(), any(), anyLong(), anyLong(), anyInt(), anyBoolean(), anyBoolean()))
+                .willReturn(null);
+
+        String url = "/v1/segments/1:1-250000000/density?species=mmusculus_grcm38&binSize=1000000";
+        ResponseEntity<QueryResponse> response = restTemplate.getForEntity(url, QueryResponse.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(variantEntityRepository, never()).streamVariantChunksByChromosomeAndStartBetween(any(), anyLong(),
+                                                                                               anyLong());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 3)
+    public void testGetGenotypesByRegion() throws Exception {
+        given(variantSourceEntityRepository.findByStudyIdIn(eq(Collections.singletonList("S1")), any()))
+                .willReturn(Arrays.asList(createFile("F1", "S1", "NA1", "NA2"), createFile("F2", "S1", "NA3")));
+
+        Map<String, Object> firstFileSamples = new LinkedHashMap<>();
+        firstFileSamples.put("def", "0|0");
+        firstFileSamples.put("0|1", Collections.singletonList(1));
+        VariantGenotypes variant = new VariantGenotypes("20", 60100, 60100, "A", "T", Arrays.asList(
+                new VariantGenotypes.FileGenotypes("S1", "F1", SampleGenotypes.decode(firstFileSamples)),
+                new VariantGenotypes.FileGenotypes("S1", "F2", SampleGenotypes.decode(
+                        Collections.singletonMap("def", "1|1")))));
+        List<Region> regions = Collections.singletonList(new Region("20", 60000, 62000));
+        given(variantEntityRepository.streamGenotypesByRegionsAndComplexFilters(
+                eq(regions), eq(LongVariantIndex.LONG_VARIANT_LENGTH), any(), any(), any()))
+                .willReturn(toCloseableIterator(Collections.singletonList(variant).iterator()));
+
+        String url = "/v1/segments/20:60000-62000/genotypes?species=mmusculus_grcm38&studies=S1&samples=NA2,NA3";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentType().toString().startsWith(JsonLinesWriter.CONTENT_TYPE));
+
+        String[] lines = response.getBody().trim().split("\n");
+        assertEquals(1, lines.length);
+        JsonNode line = new ObjectMapper().readTree(lines[0]);
+        assertEquals(60100, line.get("start").asLong());
+        assertEquals(2, line.get("files").size());
+        assertEquals("F1", line.get("files").get(0).get("fileId").asText());
+        assertEquals(1, line.get("files").get(0).get("genotypes").size());
+        assertEquals("0|1", line.get("files").get(0).get("genotypes").get("NA2").asText());
+        assertEquals("1|1", line.get("files").get(1).get("genotypes").get("NA3").asText());
+
+        verify(variantEntityRepository).streamGenotypesByRegionsAndComplexFilters(
+                eq(regions), eq(LongVariantIndex.LONG_VARIANT_LENGTH), any(),
+                eq(new HashSet<>(Arrays.asList("F1", "F2"))), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testGetGenotypesByRegionUnknownSample() {
+        given(variantSourceEntityRepository.findByStudyIdIn(eq(Collections.singletonList("S1")), any()))
+                .willReturn(Collections.singletonList(createFile("F1", "S1", "NA1")));
+
+        String url = "/v1/segments/20:60000-62000/genotypes?species=mmusculus_grcm38&studies=S1&samples=NA1,NA9";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(variantEntityRepository, never()).streamGenotypesByRegionsAndComplexFilters(any(), anyInt(), any(),
+                                                                                           any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 2)
+    public void testGetGenotypesByRegionWithPredicates() throws Exception {
+        given(variantSourceEntityRepository.findByStudyIdIn(eq(Collections.singletonList("S1")), any()))
+                .willReturn(Collections.singletonList(createFile("F1", "S1", "NA1", "NA2")));
+
+        Map<String, Object> nonReferenceSamples = new LinkedHashMap<>();
+        nonReferenceSamples.put("def", "0|0");
+        nonReferenceSamples.put("0|1", Collections.singletonList(1));
+        List<VariantGenotypes> variants = Arrays.asList(
+                new VariantGenotypes("20", 60100, 60100, "A", "T", Collections.singletonList(
+                        new VariantGenotypes.FileGenotypes("S1", "F1", SampleGenotypes.decode(
+                                Collections.singletonMap("def", "0|0"))))),
+                new VariantGenotypes("20", 60200, 60200, "C", "G", Collections.singletonList(
+                        new VariantGenotypes.FileGenotypes("S1", "F1", SampleGenotypes.decode(nonReferenceSamples)))));
+        given(variantEntityRepository.streamGenotypesByRegionsAndComplexFilters(any(), anyInt(), any(), any(), any()))
+                .willReturn(toCloseableIterator(variants.iterator()));
+
+        String url = "/v1/segments/20:60000-62000/genotypes?species=mmusculus_grcm38&studies=S1&genotypes=NA2:nonref";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        String[] lines = response.getBody().trim().split("\n");
+        assertEquals(1, lines.length);
+        JsonNode line = new ObjectMapper().readTree(lines[0]);
+        assertEquals(60200, line.get("start").asLong());
+        JsonNode genotypes = line.get("files").get(0).get("genotypes");
+        assertEquals(1, genotypes.size());
+        assertEquals("0|1", genotypes.get("NA2").asText());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testGetGenotypesByRegionInvalidPredicate() {
+        String url = "/v1/segments/20:60000-62000/genotypes?species=mmusculus_grcm38&studies=S1&genotypes=NA2";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    private static VariantSourceEntity createFile(String fileId, String studyId, String... samples) {
+        VariantSourceEntity file = new VariantSourceEntity(fileId, "fileName", studyId, "studyName",
+                                                           VariantStudy.StudyType.CASE,
+                                                           VariantSource.Aggregation.NONE, null, null, null);
+        Map<String, Integer> samplesPosition = new HashMap<>();
+        for (int i = 0; i < samples.length; i++) {
+            samplesPosition.put(samples[i], i);
+        }
+        file.setSamplesPosition(samplesPosition);
+        return file;
+    }
+
+    private static <T> CloseableIterator<T> toCloseableIterator(Iterator<T> iterator) {
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private List<DensityBin> testGetVariantDensityHelper(String testRegion, String parameters) {
+        String url = "/v1/segments/" + testRegion + "/density?species=mmusculus_grcm38" + parameters;
+        ResponseEntity<QueryResponse<QueryResult<DensityBin>>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<QueryResponse<QueryResult<DensityBin>>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        QueryResponse<QueryResult<DensityBin>> queryResponse = response.getBody();
+        assertEquals(1, queryResponse.getResponse().size());
+        return queryResponse.getResponse().get(0).getResult();
+    }
+
     private void testGetVariantsByRegionHelper(String testRegion, int expectedVariants) throws URISyntaxException {
         String url = "/v1/segments/" + testRegion + "/variants?species=mmusculus_grcm38";
         ResponseEntity<QueryResponse<QueryResult<VariantEntity>>> response = restTemplate.exchange(
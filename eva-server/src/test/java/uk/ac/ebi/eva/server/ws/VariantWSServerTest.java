@@ -18,9 +18,12 @@
  */
 package uk.ac.ebi.eva.server.ws;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.opencb.biodata.models.feature.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.datastore.core.QueryResponse;
@@ -37,20 +40,35 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.index.AccessionIndex;
+import uk.ac.ebi.eva.lib.metadata.SpeciesCatalogue;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
 import uk.ac.ebi.eva.lib.utils.DBAdaptorConnector;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for VariantWSServer
@@ -81,8 +99,16 @@ public class VariantWSServerTest {
     @MockBean
     private DBAdaptorConnector dbAdaptorConnector;
 
+    @MockBean
+    private AccessionIndex accessionIndex;
+
+    @MockBean
+    private SpeciesCatalogue speciesCatalogue;
+
     @Before
     public void setUp() throws Exception {
+        given(speciesCatalogue.isKnownSpecies(anyString())).willReturn(true);
+
         List<VariantEntity> variantEntities = Collections.singletonList(VARIANT);
 
         given(variantEntityRepository
@@ -103,11 +129,13 @@ public class VariantWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testGetVariantById() {
         testGetVariantByIdRegionHelper(VARIANT_ID);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testGetVariantByRegion() {
         testGetVariantByIdRegionHelper(CHROMOSOME + ":71822:C:G");
     }
@@ -128,14 +156,89 @@ public class VariantWSServerTest {
         assertEquals(VARIANT, results.get(0));
     }
 
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantByIndexedAccession() {
+        Map<String, Set<Long>> startsByChromosome = Collections.singletonMap("1", Collections.singleton(1000L));
+        given(accessionIndex.findStartsByChromosome(any(), eq("rs1000"))).willReturn(startsByChromosome);
+        given(variantEntityRepository.findByIdAndChromosomeAndStartInAndComplexFilters(
+                eq("rs1000"), eq(startsByChromosome), any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+
+        testGetVariantByIdRegionHelper("rs1000");
+        verify(variantEntityRepository, never()).findByIdsAndComplexFilters(any(), any(), any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantByAccessionMissingFromIndex() {
+        given(accessionIndex.findStartsByChromosome(any(), eq("rs1001"))).willReturn(Collections.emptyMap());
+        given(variantEntityRepository.findByIdsAndComplexFilters(eq("rs1001"), any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+
+        testGetVariantByIdRegionHelper("rs1001");
+        verify(variantEntityRepository, never()).findByIdAndChromosomeAndStartInAndComplexFilters(
+                any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantByAccessionOfSpeciesNotInCatalogue() {
+        given(speciesCatalogue.isKnownSpecies(anyString())).willReturn(false);
+        given(variantEntityRepository.findByIdsAndComplexFilters(eq("rs1002"), any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+
+        testGetVariantByIdRegionHelper("rs1002");
+        verify(accessionIndex, never()).findStartsByChromosome(any(), any());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByHgvs() {
+        given(variantEntityRepository.findByHgvsAndComplexFilters(any(), any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+        given(variantEntityRepository.countByHgvsAndComplexFilters(any(), any())).willReturn(1L);
+
+        testGetVariantsHelper("/v1/variants/hgvs/chr1:g.1000a>g?species=mmusculus_grcm38");
+
+        ArgumentCaptor<Collection> names = ArgumentCaptor.forClass(Collection.class);
+        verify(variantEntityRepository).findByHgvsAndComplexFilters(names.capture(), any(), any(), any());
+        assertEquals(new HashSet<>(Arrays.asList("chr1:g.1000a>g", "1:g.1000A>G")), new HashSet<>(names.getValue()));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantsByXref() {
+        given(variantEntityRepository.findByXrefAndComplexFilters(eq("RP11-304M2.3"), eq("HGNC"), any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+        given(variantEntityRepository.countByXrefAndComplexFilters(eq("RP11-304M2.3"), eq("HGNC"), any()))
+                .willReturn(1L);
+
+        testGetVariantsHelper("/v1/variants/xrefs/RP11-304M2.3?source=HGNC&species=mmusculus_grcm38");
+    }
+
+    private void testGetVariantsHelper(String url) {
+        ResponseEntity<QueryResponse<QueryResult<VariantEntity>>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<QueryResponse<QueryResult<VariantEntity>>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        QueryResponse<QueryResult<VariantEntity>> queryResponse = response.getBody();
+        assertEquals(1, queryResponse.getResponse().size());
+        assertEquals(1, queryResponse.getResponse().get(0).getNumTotalResults());
+        assertEquals(Collections.singletonList(VARIANT), queryResponse.getResponse().get(0).getResult());
+    }
+
     ///
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 0)
     public void testGetVariantByIdDoesntExist() throws URISyntaxException {
         testGetVariantByIdRegionDoesntExistHelper(NON_EXISTING_VARIANT_ID);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 0)
     public void testGetVariantByRegionDoesntExist() throws URISyntaxException {
         testGetVariantByIdRegionDoesntExistHelper(NON_EXISTING_CHROMOSOME + ":71821:C:G");
     }
@@ -157,11 +260,13 @@ public class VariantWSServerTest {
     ///
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testCheckVariantExistsDoesExist() throws URISyntaxException {
         assertTrue(testCheckVariantExistsHelper(CHROMOSOME + ":1:C:G"));
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 0)
     public void testCheckVariantExistsDoesntExist() throws URISyntaxException {
         assertFalse(testCheckVariantExistsHelper(NON_EXISTING_CHROMOSOME + ":1:C:G"));
     }
@@ -182,6 +287,107 @@ public class VariantWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
+    public void testCheckVariantExistsWithoutMetadata() throws URISyntaxException {
+        String url = "/v1/variants/" + CHROMOSOME + ":1:C:G/exists?species=mmusculus_grcm38&metadata=false";
+        ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        JsonNode slimResponse = response.getBody();
+        assertNull(slimResponse.get("apiVersion"));
+        assertNull(slimResponse.get("queryOptions"));
+        assertNull(slimResponse.get("numTotalResults"));
+        assertEquals(1, slimResponse.get("result").size());
+        assertTrue(slimResponse.get("result").get(0).asBoolean());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
+    public void testGetVariantByIdWithoutMetadataAndCount() {
+        String url = "/v1/variants/" + VARIANT_ID + "/info?species=mmusculus_grcm38&metadata=false&count=true";
+        ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        JsonNode slimResponse = response.getBody();
+        assertNull(slimResponse.get("response"));
+        assertEquals(1, slimResponse.get("result").size());
+        assertTrue(slimResponse.get("numTotalResults").isIntegralNumber());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 2, documents = 2)
+    public void testGetVariantsByIds() throws Exception {
+        VariantEntity variantWithId = new VariantEntity("2", 2000, 2000, "A", "C");
+        variantWithId.setIds(new HashSet<>(Arrays.asList("rs1", "ss1")));
+        given(variantEntityRepository.findByIdsInAndComplexFilters(any(), any(), any()))
+                .willReturn(Collections.singletonList(variantWithId));
+        given(variantEntityRepository.findByChromosomeAndStartInAndComplexFilters(any(), any(), any()))
+                .willReturn(Collections.singletonList(VARIANT));
+
+        List<String> variantIds = Arrays.asList("rs1", "1:1000:reference:alternate", "rs2", "1:1000:reference",
+                                                "1:1000:reference:other", "rs1");
+        String url = "/v1/variants/info?species=mmusculus_grcm38&exclude=annotation";
+        ResponseEntity<String> response = restTemplate.postForEntity(url, variantIds, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentType().toString().startsWith(JsonLinesWriter.CONTENT_TYPE));
+
+        String[] lines = response.getBody().trim().split("\n");
+        List<String> expectedTokens = Arrays.asList("rs1", "1:1000:reference:alternate", "rs2", "1:1000:reference",
+                                                    "1:1000:reference:other");
+        int[] expectedVariants = {1, 1, 0, 1, 0};
+        assertEquals(expectedTokens.size(), lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode line = objectMapper.readTree(lines[i]);
+            assertEquals(expectedTokens.get(i), line.get("token").asText());
+            assertEquals(expectedVariants[i], line.get("variants").size());
+        }
+
+        verify(variantEntityRepository).findByIdsInAndComplexFilters(eq(Arrays.asList("rs1", "rs2")), any(),
+                                                                      eq(Collections.singletonList("annot")));
+        verify(variantEntityRepository).findByChromosomeAndStartInAndComplexFilters(
+                eq(Collections.singletonMap("1", Collections.singleton(1000L))), any(),
+                eq(Collections.singletonList("annot")));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 5, documents = 0)
+    public void testGetVariantsByIdsQueriesAFewChunksAtATime() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        given(variantEntityRepository.findByIdsInAndComplexFilters(any(), any(), any())).willAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return Collections.emptyList();
+        });
+
+        List<String> variantIds = new ArrayList<>();
+        for (int i = 0; i < 5 * VariantBatchLookup.MAX_CHUNK_SIZE; i++) {
+            variantIds.add("rs" + i);
+        }
+        String url = "/v1/variants/info?species=mmusculus_grcm38";
+        ResponseEntity<String> response = restTemplate.postForEntity(url, variantIds, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        String[] lines = response.getBody().trim().split("\n");
+        assertEquals(variantIds.size(), lines.length);
+        JsonNode lastLine = new ObjectMapper().readTree(lines[lines.length - 1]);
+        assertEquals(variantIds.get(variantIds.size() - 1), lastLine.get("token").asText());
+        verify(variantEntityRepository, times(5)).findByIdsInAndComplexFilters(any(), any(), any());
+        assertTrue(maxRunning.get() <= VariantBatchLookup.MAX_CHUNKS_PER_REQUEST);
+    }
+
+    @Test
+    public void testGetVariantsByIdsInvalidCoordinates() {
+        String url = "/v1/variants/info?species=mmusculus_grcm38";
+        ResponseEntity<String> response = restTemplate.postForEntity(url, Arrays.asList("rs1", "1:notANumber:A"),
+                                                                     String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
     public void testExistsFailsIfGivenId() throws URISyntaxException {
         String url = "/v1/variants/" + VARIANT_ID + "/exists?species=";
         ResponseEntity<QueryResponse<QueryResult<Boolean>>> response = restTemplate.exchange(
@@ -30,11 +30,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
+import uk.ac.ebi.eva.lib.index.BeaconFilterIndex;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.lib.repository.projections.VariantLocus;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -42,7 +50,9 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -54,6 +64,9 @@ public class GA4GHBeaconWSServerTest {
     @MockBean
     private VariantEntityRepository variantEntityRepository;
 
+    @MockBean
+    private BeaconFilterIndex beaconFilterIndex;
+
     @Before
     public void setUp() throws Exception {
         VariantEntity variant = new VariantEntity("1", 1000, 1005, "reference", "alternate");
@@ -61,18 +74,88 @@ public class GA4GHBeaconWSServerTest {
 
         given(variantEntityRepository.findByChromosomeAndStartAndAltAndStudyIn(eq("1"), anyInt(), any(), any()))
                 .willReturn(variantEntities);
+        given(beaconFilterIndex.checkAllele(any(), any(), any(), anyLong(), any()))
+                .willReturn(BeaconFilterIndex.Answer.NOT_INDEXED);
+        given(beaconFilterIndex.checkAllele(any(), any(), eq("3"), anyLong(), any()))
+                .willReturn(BeaconFilterIndex.Answer.ABSENT);
+        given(beaconFilterIndex.checkType(any(), any(), any(), anyLong(), any()))
+                .willReturn(BeaconFilterIndex.Answer.NOT_INDEXED);
+
+        List<VariantLocus> loci = Arrays.asList(
+                new VariantLocus("1", 1000, "alternate", "SNV", Collections.singletonList("PRJEB5829")),
+                new VariantLocus("1", 1002, "", "INDEL", Collections.singletonList("PRJEB5829")));
+        given(variantEntityRepository.findLociByChromosomeAndStartInAndStudyIn(any(), any())).willReturn(loci);
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 1)
     public void testAltAlleleExistsBeacon() throws Exception {
         assertTrue(testBeaconHelper("1", 1000, "alternate", new ArrayList<>()));
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 1, documents = 0)
     public void testAltAlleleDoesntExistsBeacon() throws Exception {
         assertFalse(testBeaconHelper("2", 2000, "alternateOther", new ArrayList<>()));
     }
 
+    @Test
+    @DatabaseBudget(roundTrips = 0, documents = 0)
+    public void testAltAlleleRejectedByFilterBeacon() throws Exception {
+        assertFalse(testBeaconHelper("3", 3000, "alternate", new ArrayList<>()));
+    }
+
+    @Test
+    @DatabaseBudget(roundTrips = 1, documents = 2)
+    public void testBatchBeacon() throws Exception {
+        List<GA4GHBeaconBatchRequest.Probe> probes = Arrays.asList(
+                new GA4GHBeaconBatchRequest.Probe("1", 1000, "alternate"),
+                new GA4GHBeaconBatchRequest.Probe("1", 1001, "alternate"),
+                new GA4GHBeaconBatchRequest.Probe("3", 3000, "alternate"),
+                new GA4GHBeaconBatchRequest.Probe("1", 1002, "INDEL"),
+                new GA4GHBeaconBatchRequest.Probe("1", 1000, "otherAlternate"));
+        ResponseEntity<GA4GHBeaconResponse[]> response = restTemplate.postForEntity(
+                "/v1/ga4gh/beacon", new GA4GHBeaconBatchRequest(probes, Collections.singletonList("PRJEB5829")),
+                GA4GHBeaconResponse[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        GA4GHBeaconResponse[] responses = response.getBody();
+        assertEquals(probes.size(), responses.length);
+        assertTrue(responses[0].isExists());
+        assertFalse(responses[1].isExists());
+        assertFalse(responses[2].isExists());
+        assertTrue(responses[3].isExists());
+        assertFalse(responses[4].isExists());
+
+        Map<String, Set<Long>> expectedStarts = new HashMap<>();
+        expectedStarts.put("1", new HashSet<>(Arrays.asList(1000L, 1001L, 1002L)));
+        verify(variantEntityRepository).findLociByChromosomeAndStartInAndStudyIn(
+                eq(expectedStarts), eq(Collections.singletonList("PRJEB5829")));
+    }
+
+    @Test
+    public void testBatchBeaconNegativeStart() throws Exception {
+        List<GA4GHBeaconBatchRequest.Probe> probes = Arrays.asList(
+                new GA4GHBeaconBatchRequest.Probe("1", 1000, "alternate"),
+                new GA4GHBeaconBatchRequest.Probe("1", -1, "alternate"));
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "/v1/ga4gh/beacon", new GA4GHBeaconBatchRequest(probes, Collections.singletonList("PRJEB5829")),
+                String.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testBatchBeaconTooManyProbes() throws Exception {
+        List<GA4GHBeaconBatchRequest.Probe> probes = Collections.nCopies(
+                GA4GHBeaconWSServer.MAX_BATCH_PROBES + 1, new GA4GHBeaconBatchRequest.Probe("1", 1000, "alternate"));
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "/v1/ga4gh/beacon", new GA4GHBeaconBatchRequest(probes, Collections.singletonList("PRJEB5829")),
+                String.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     private boolean testBeaconHelper(String chromosome, int start, String allele, List<String> datasetIds) {
         String url = String.format("/v1/ga4gh/beacon?referenceName=%s&start=%d&allele=%s&datasetIds=%s",
                                    chromosome,
@@ -34,6 +34,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -76,12 +77,14 @@ public class GA4GHVariantCallSetWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testGetCallSetsExisting() {
         GASearchCallSetsResponse gaSearchCallSetsResponse = testGetCallSetsHelper(Collections.singletonList("fileId"));
         assertEquals(1, gaSearchCallSetsResponse.getCallSets().size());
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 0)
     public void testGetCallSetsNotExisting() {
         GASearchCallSetsResponse response = testGetCallSetsHelper(Collections.singletonList("otherFileId"));
         assertEquals(0, response.getCallSets().size());
@@ -16,6 +16,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntity;
 import uk.ac.ebi.eva.lib.repository.VariantSourceEntityRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -63,12 +64,14 @@ public class GA4GHVariantSetWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testGetVariantSetsExisting() {
         GASearchVariantSetsResponse response = testGetVariantSetsHelper(Collections.singletonList("studyId"));
         assertEquals(1, response.getVariantSets().size());
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 0)
     public void testGetVariantSetsNotExisting() {
         GASearchVariantSetsResponse response = testGetVariantSetsHelper(Collections.singletonList("otherStudyId"));
         assertEquals(0, response.getVariantSets().size());
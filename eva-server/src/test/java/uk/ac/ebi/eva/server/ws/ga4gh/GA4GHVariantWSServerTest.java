@@ -35,6 +35,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import uk.ac.ebi.eva.commons.models.metadata.VariantEntity;
 import uk.ac.ebi.eva.lib.repository.VariantEntityRepository;
+import uk.ac.ebi.eva.server.budget.DatabaseBudget;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -77,6 +78,7 @@ public class GA4GHVariantWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 1)
     public void testRegionWithVariants() throws Exception {
         GASearchVariantsResponse gaSearchVariantsResponse = testVariantWsHelper("1", 500, 2000, new ArrayList<>(),
                                                                                 "0", 10);
@@ -86,6 +88,7 @@ public class GA4GHVariantWSServerTest {
     }
 
     @Test
+    @DatabaseBudget(roundTrips = 2, documents = 0)
     public void testRegionWithNoVariants() throws Exception {
         GASearchVariantsResponse gaSearchVariantsResponse = testVariantWsHelper("2", 5000, 10000, new ArrayList<>(),
                                                                                 "0", 10);